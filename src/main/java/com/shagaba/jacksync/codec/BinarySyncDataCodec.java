@@ -0,0 +1,612 @@
+package com.shagaba.jacksync.codec;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.POJONode;
+import com.shagaba.jacksync.exception.SyncCodecException;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.CopyOperation;
+import com.shagaba.jacksync.operation.MergeOperation;
+import com.shagaba.jacksync.operation.MoveOperation;
+import com.shagaba.jacksync.operation.PatchDualPathOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.PatchPathValueOperation;
+import com.shagaba.jacksync.operation.RemoveOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+import com.shagaba.jacksync.operation.TestOperation;
+import com.shagaba.jacksync.sync.SyncData;
+
+/**
+ * A compact binary {@link SyncDataCodec}, meant for nodes of this library
+ * talking to each other.
+ *
+ * Encoding:
+ *
+ * o header - magic byte 'J' and the format version.
+ *
+ * o sync data - a varint bit set of the present fields, followed by the
+ * zigzag varint version and masterVersion and the targetChecksum string.
+ *
+ * o operations - a table of the distinct paths, followed by the operations,
+ * each one a varint opcode, the path table index, the "from" path table index
+ * for move and copy, and the typed value for add, replace, test and merge.
+ *
+ * o values - a tag byte followed by a zigzag varint for integral numbers, the
+ * IEEE 754 bits for floating point numbers, or a length prefixed payload.
+ * Object field names are interned, a repeated name is written as its index.
+ *
+ * Decoding yields the same operations and value node types as the JSON form,
+ * so both forms round-trip into each other.
+ *
+ * @author Shagaba
+ *
+ */
+public class BinarySyncDataCodec implements SyncDataCodec {
+
+	public static final String BINARY_CONTENT_TYPE = "application/vnd.jacksync+binary";
+
+	protected static final byte MAGIC = 'J';
+
+	protected static final byte FORMAT_VERSION = 1;
+
+	protected static final int HAS_VERSION = 1;
+	protected static final int HAS_MASTER_VERSION = 1 << 1;
+	protected static final int HAS_TARGET_CHECKSUM = 1 << 2;
+	protected static final int HAS_OPERATIONS = 1 << 3;
+
+	/**
+	 * The operation classes by opcode, the single source of the opcodes of
+	 * both the encoding and the decoding.
+	 */
+	protected static final List<Class<? extends PatchOperation>> OPCODES = Arrays.asList(
+			AddOperation.class, RemoveOperation.class, ReplaceOperation.class, CopyOperation.class,
+			MoveOperation.class, TestOperation.class, MergeOperation.class);
+
+	protected static final byte NULL_VALUE = 0;
+	protected static final byte FALSE_VALUE = 1;
+	protected static final byte TRUE_VALUE = 2;
+	protected static final byte INT_VALUE = 3;
+	protected static final byte LONG_VALUE = 4;
+	protected static final byte DOUBLE_VALUE = 5;
+	protected static final byte FLOAT_VALUE = 6;
+	protected static final byte STRING_VALUE = 7;
+	protected static final byte BIG_INTEGER_VALUE = 8;
+	protected static final byte BIG_DECIMAL_VALUE = 9;
+	protected static final byte BINARY_VALUE = 10;
+	protected static final byte ARRAY_VALUE = 11;
+	protected static final byte OBJECT_VALUE = 12;
+	protected static final byte SHORT_VALUE = 13;
+
+	protected ObjectMapper objectMapper;
+
+	protected JsonNodeFactory jsonNodeFactory;
+
+	/**
+	 * @param objectMapper
+	 */
+	public BinarySyncDataCodec(ObjectMapper objectMapper) {
+        if (objectMapper == null) {
+            throw new IllegalArgumentException("ObjectMapper cannot be null");
+        }
+		this.objectMapper = objectMapper;
+		this.jsonNodeFactory = objectMapper.getNodeFactory();
+	}
+
+	@Override
+	public String getContentType() {
+		return BINARY_CONTENT_TYPE;
+	}
+
+	@Override
+	public byte[] encode(SyncData syncData) throws SyncCodecException {
+		Output output = new Output();
+		writeHeader(output);
+		int fields = (syncData.getVersion() != null ? HAS_VERSION : 0)
+				| (syncData.getMasterVersion() != null ? HAS_MASTER_VERSION : 0)
+				| (syncData.getTargetChecksum() != null ? HAS_TARGET_CHECKSUM : 0)
+				| (syncData.getOperations() != null ? HAS_OPERATIONS : 0);
+		output.writeVarInt(fields);
+		if (syncData.getVersion() != null) {
+			output.writeZigZag(syncData.getVersion());
+		}
+		if (syncData.getMasterVersion() != null) {
+			output.writeZigZag(syncData.getMasterVersion());
+		}
+		if (syncData.getTargetChecksum() != null) {
+			output.writeString(syncData.getTargetChecksum());
+		}
+		if (syncData.getOperations() != null) {
+			writeOperations(output, syncData.getOperations());
+		}
+		return output.toByteArray();
+	}
+
+	@Override
+	public SyncData decode(byte[] bytes) throws SyncCodecException {
+		try {
+			ByteBuffer input = ByteBuffer.wrap(bytes);
+			readHeader(input);
+			int fields = (int) readVarLong(input);
+			SyncData syncData = new SyncData();
+			if ((fields & HAS_VERSION) != 0) {
+				syncData.setVersion(readZigZag(input));
+			}
+			if ((fields & HAS_MASTER_VERSION) != 0) {
+				syncData.setMasterVersion(readZigZag(input));
+			}
+			if ((fields & HAS_TARGET_CHECKSUM) != 0) {
+				syncData.setTargetChecksum(readString(input));
+			}
+			if ((fields & HAS_OPERATIONS) != 0) {
+				syncData.setOperations(readOperations(input));
+			}
+			return syncData;
+		} catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+			throw new SyncCodecException(e);
+		}
+	}
+
+	@Override
+	public byte[] encodeOperations(List<PatchOperation> operations) throws SyncCodecException {
+		Output output = new Output();
+		writeHeader(output);
+		writeOperations(output, operations);
+		return output.toByteArray();
+	}
+
+	@Override
+	public List<PatchOperation> decodeOperations(byte[] bytes) throws SyncCodecException {
+		try {
+			ByteBuffer input = ByteBuffer.wrap(bytes);
+			readHeader(input);
+			return readOperations(input);
+		} catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+			throw new SyncCodecException(e);
+		}
+	}
+
+	/**
+	 *
+	 * @param output
+	 */
+	protected void writeHeader(Output output) {
+		output.write(MAGIC);
+		output.write(FORMAT_VERSION);
+	}
+
+	/**
+	 *
+	 * @param input
+	 * @throws SyncCodecException
+	 */
+	protected void readHeader(ByteBuffer input) throws SyncCodecException {
+		if (input.get() != MAGIC) {
+			throw new SyncCodecException("Not a binary sync data");
+		}
+		byte formatVersion = input.get();
+		if (formatVersion != FORMAT_VERSION) {
+			throw new SyncCodecException(String.format("Unsupported binary format version - %s", formatVersion));
+		}
+	}
+
+	/**
+	 *
+	 * @param output
+	 * @param operations
+	 * @throws SyncCodecException
+	 */
+	protected void writeOperations(Output output, List<PatchOperation> operations) throws SyncCodecException {
+		Map<String, Integer> pathTable = new HashMap<>();
+		List<String> paths = new ArrayList<>();
+		for (PatchOperation operation : operations) {
+			intern(pathTable, paths, operation.getPath().toString());
+			if (operation instanceof PatchDualPathOperation) {
+				intern(pathTable, paths, ((PatchDualPathOperation) operation).getFrom().toString());
+			}
+		}
+		output.writeVarInt(paths.size());
+		for (String path : paths) {
+			output.writeString(path);
+		}
+
+		Map<String, Integer> fieldNameTable = new HashMap<>();
+		output.writeVarInt(operations.size());
+		for (PatchOperation operation : operations) {
+			int opcode = OPCODES.indexOf(operation.getClass());
+			if (opcode < 0) {
+				throw new SyncCodecException(String.format("Unsupported operation - %s", operation.getClass().getName()));
+			}
+			output.writeVarInt(opcode);
+			output.writeVarInt(pathTable.get(operation.getPath().toString()));
+			if (operation instanceof PatchDualPathOperation) {
+				output.writeVarInt(pathTable.get(((PatchDualPathOperation) operation).getFrom().toString()));
+			}
+			if (operation instanceof PatchPathValueOperation) {
+				writeValue(output, ((PatchPathValueOperation) operation).getValue(), fieldNameTable);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param input
+	 * @return
+	 * @throws SyncCodecException
+	 */
+	protected List<PatchOperation> readOperations(ByteBuffer input) throws SyncCodecException {
+		int pathCount = readLength(input);
+		List<JsonPointer> paths = new ArrayList<>(pathCount);
+		for (int index = 0; index < pathCount; ++index) {
+			paths.add(JsonPointer.compile(readString(input)));
+		}
+
+		List<String> fieldNames = new ArrayList<>();
+		int operationCount = readLength(input);
+		List<PatchOperation> operations = new ArrayList<>(operationCount);
+		for (int index = 0; index < operationCount; ++index) {
+			long opcode = readVarLong(input);
+			JsonPointer path = paths.get((int) readVarLong(input));
+			if (opcode < 0 || opcode >= OPCODES.size()) {
+				throw new SyncCodecException(String.format("Unsupported opcode - %s", opcode));
+			}
+			operations.add(readOperation(input, OPCODES.get((int) opcode), path, paths, fieldNames));
+		}
+		return operations;
+	}
+
+	/**
+	 *
+	 * @param input
+	 * @param operationClass the operation class of the opcode, see
+	 *            {@link #OPCODES}
+	 * @param path
+	 * @param paths the path table
+	 * @param fieldNames the field name table
+	 * @return the operation
+	 * @throws SyncCodecException
+	 */
+	protected PatchOperation readOperation(ByteBuffer input, Class<? extends PatchOperation> operationClass, JsonPointer path, List<JsonPointer> paths,
+			List<String> fieldNames) throws SyncCodecException {
+		if (operationClass == AddOperation.class) {
+			return new AddOperation(path, readValue(input, fieldNames));
+		} else if (operationClass == RemoveOperation.class) {
+			return new RemoveOperation(path);
+		} else if (operationClass == ReplaceOperation.class) {
+			return new ReplaceOperation(path, readValue(input, fieldNames));
+		} else if (operationClass == CopyOperation.class) {
+			return new CopyOperation(paths.get((int) readVarLong(input)), path);
+		} else if (operationClass == MoveOperation.class) {
+			return new MoveOperation(paths.get((int) readVarLong(input)), path);
+		} else if (operationClass == TestOperation.class) {
+			return new TestOperation(path, readValue(input, fieldNames));
+		} else if (operationClass == MergeOperation.class) {
+			return new MergeOperation(path, readValue(input, fieldNames));
+		}
+		throw new SyncCodecException(String.format("Unsupported operation - %s", operationClass.getName()));
+	}
+
+	/**
+	 *
+	 * @param output
+	 * @param value
+	 * @param fieldNameTable
+	 * @throws SyncCodecException
+	 */
+	protected void writeValue(Output output, JsonNode value, Map<String, Integer> fieldNameTable) throws SyncCodecException {
+		if (value == null || value.isNull() || value.isMissingNode()) {
+			output.write(NULL_VALUE);
+			return;
+		}
+		switch (value.getNodeType()) {
+		case BOOLEAN:
+			output.write(value.booleanValue() ? TRUE_VALUE : FALSE_VALUE);
+			break;
+		case NUMBER:
+			writeNumber(output, value);
+			break;
+		case STRING:
+			output.write(STRING_VALUE);
+			output.writeString(value.textValue());
+			break;
+		case BINARY:
+			output.write(BINARY_VALUE);
+			output.writeBytes(binaryValue(value));
+			break;
+		case ARRAY:
+			output.write(ARRAY_VALUE);
+			output.writeVarInt(value.size());
+			for (JsonNode element : value) {
+				writeValue(output, element, fieldNameTable);
+			}
+			break;
+		case OBJECT:
+			output.write(OBJECT_VALUE);
+			output.writeVarInt(value.size());
+			for (Iterator<Map.Entry<String, JsonNode>> iterator = value.fields(); iterator.hasNext();) {
+				Map.Entry<String, JsonNode> field = iterator.next();
+				Integer fieldNameIndex = fieldNameTable.get(field.getKey());
+				if (fieldNameIndex == null) {
+					// 0 - a new field name follows
+					output.writeVarInt(0);
+					output.writeString(field.getKey());
+					fieldNameTable.put(field.getKey(), fieldNameTable.size());
+				} else {
+					output.writeVarInt(fieldNameIndex + 1);
+				}
+				writeValue(output, field.getValue(), fieldNameTable);
+			}
+			break;
+		case POJO:
+			writeValue(output, objectMapper.valueToTree(((POJONode) value).getPojo()), fieldNameTable);
+			break;
+		default:
+			throw new SyncCodecException(String.format("Unsupported value - %s", value.getNodeType()));
+		}
+	}
+
+	/**
+	 *
+	 * @param output
+	 * @param value
+	 */
+	protected void writeNumber(Output output, JsonNode value) {
+		switch (value.numberType()) {
+		case INT:
+			output.write(value.isShort() ? SHORT_VALUE : INT_VALUE);
+			output.writeZigZag(value.intValue());
+			break;
+		case LONG:
+			output.write(LONG_VALUE);
+			output.writeZigZag(value.longValue());
+			break;
+		case BIG_INTEGER:
+			output.write(BIG_INTEGER_VALUE);
+			output.writeBytes(value.bigIntegerValue().toByteArray());
+			break;
+		case FLOAT:
+			output.write(FLOAT_VALUE);
+			output.writeInt(Float.floatToIntBits(value.floatValue()));
+			break;
+		case DOUBLE:
+			output.write(DOUBLE_VALUE);
+			output.writeLong(Double.doubleToLongBits(value.doubleValue()));
+			break;
+		case BIG_DECIMAL:
+			output.write(BIG_DECIMAL_VALUE);
+			output.writeZigZag(value.decimalValue().scale());
+			output.writeBytes(value.decimalValue().unscaledValue().toByteArray());
+			break;
+		}
+	}
+
+	/**
+	 *
+	 * @param input
+	 * @param fieldNames
+	 * @return
+	 * @throws SyncCodecException
+	 */
+	protected JsonNode readValue(ByteBuffer input, List<String> fieldNames) throws SyncCodecException {
+		byte tag = input.get();
+		switch (tag) {
+		case NULL_VALUE:
+			return jsonNodeFactory.nullNode();
+		case FALSE_VALUE:
+			return jsonNodeFactory.booleanNode(false);
+		case TRUE_VALUE:
+			return jsonNodeFactory.booleanNode(true);
+		case SHORT_VALUE:
+			return jsonNodeFactory.numberNode((short) readZigZag(input));
+		case INT_VALUE:
+			return jsonNodeFactory.numberNode((int) readZigZag(input));
+		case LONG_VALUE:
+			return jsonNodeFactory.numberNode(readZigZag(input));
+		case BIG_INTEGER_VALUE:
+			return jsonNodeFactory.numberNode(new BigInteger(readBytes(input)));
+		case FLOAT_VALUE:
+			return jsonNodeFactory.numberNode(Float.intBitsToFloat(input.getInt()));
+		case DOUBLE_VALUE:
+			return jsonNodeFactory.numberNode(Double.longBitsToDouble(input.getLong()));
+		case BIG_DECIMAL_VALUE:
+			int scale = (int) readZigZag(input);
+			return jsonNodeFactory.numberNode(new BigDecimal(new BigInteger(readBytes(input)), scale));
+		case STRING_VALUE:
+			return jsonNodeFactory.textNode(readString(input));
+		case BINARY_VALUE:
+			return jsonNodeFactory.binaryNode(readBytes(input));
+		case ARRAY_VALUE:
+			int elementCount = readLength(input);
+			ArrayNode arrayNode = jsonNodeFactory.arrayNode(elementCount);
+			for (int index = 0; index < elementCount; ++index) {
+				arrayNode.add(readValue(input, fieldNames));
+			}
+			return arrayNode;
+		case OBJECT_VALUE:
+			int fieldCount = readLength(input);
+			ObjectNode objectNode = jsonNodeFactory.objectNode();
+			for (int index = 0; index < fieldCount; ++index) {
+				int fieldNameIndex = (int) readVarLong(input);
+				String fieldName;
+				if (fieldNameIndex == 0) {
+					fieldName = readString(input);
+					fieldNames.add(fieldName);
+				} else {
+					fieldName = fieldNames.get(fieldNameIndex - 1);
+				}
+				objectNode.set(fieldName, readValue(input, fieldNames));
+			}
+			return objectNode;
+		default:
+			throw new SyncCodecException(String.format("Unsupported value tag - %s", tag));
+		}
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @return
+	 * @throws SyncCodecException
+	 */
+	protected byte[] binaryValue(JsonNode value) throws SyncCodecException {
+		try {
+			byte[] bytes = value.binaryValue();
+			return bytes == null ? new byte[0] : bytes;
+		} catch (IOException e) {
+			throw new SyncCodecException(e);
+		}
+	}
+
+	/**
+	 *
+	 * @param table
+	 * @param values
+	 * @param value
+	 */
+	protected static void intern(Map<String, Integer> table, List<String> values, String value) {
+		if (!table.containsKey(value)) {
+			table.put(value, values.size());
+			values.add(value);
+		}
+	}
+
+	/**
+	 *
+	 * @param input
+	 * @return
+	 */
+	protected static long readVarLong(ByteBuffer input) {
+		long value = 0;
+		for (int shift = 0; shift < Long.SIZE; shift += 7) {
+			byte b = input.get();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+
+	/**
+	 *
+	 * @param input
+	 * @return
+	 */
+	protected static long readZigZag(ByteBuffer input) {
+		long value = readVarLong(input);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 *
+	 * @param input
+	 * @return a length that fits the remaining input
+	 */
+	protected static int readLength(ByteBuffer input) {
+		long length = readVarLong(input);
+		if (length < 0 || length > input.remaining()) {
+			throw new IllegalArgumentException(String.format("Invalid length - %s", length));
+		}
+		return (int) length;
+	}
+
+	/**
+	 *
+	 * @param input
+	 * @return
+	 */
+	protected static byte[] readBytes(ByteBuffer input) {
+		byte[] bytes = new byte[readLength(input)];
+		input.get(bytes);
+		return bytes;
+	}
+
+	/**
+	 *
+	 * @param input
+	 * @return
+	 */
+	protected static String readString(ByteBuffer input) {
+		return new String(readBytes(input), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * A growable output buffer.
+	 */
+	protected static class Output {
+
+		private byte[] buffer = new byte[256];
+
+		private int size;
+
+		public void write(int b) {
+			ensureCapacity(1);
+			buffer[size++] = (byte) b;
+		}
+
+		public void writeVarInt(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			buffer[size++] = (byte) value;
+		}
+
+		public void writeZigZag(long value) {
+			writeVarInt((value << 1) ^ (value >> 63));
+		}
+
+		public void writeInt(int value) {
+			ensureCapacity(Integer.BYTES);
+			for (int shift = 24; shift >= 0; shift -= 8) {
+				buffer[size++] = (byte) (value >>> shift);
+			}
+		}
+
+		public void writeLong(long value) {
+			ensureCapacity(Long.BYTES);
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				buffer[size++] = (byte) (value >>> shift);
+			}
+		}
+
+		public void writeBytes(byte[] bytes) {
+			writeVarInt(bytes.length);
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, buffer, size, bytes.length);
+			size += bytes.length;
+		}
+
+		public void writeString(String string) {
+			writeBytes(string.getBytes(StandardCharsets.UTF_8));
+		}
+
+		public byte[] toByteArray() {
+			return Arrays.copyOf(buffer, size);
+		}
+
+		private void ensureCapacity(int length) {
+			if (size + length > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.shagaba.jacksync.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * A {@link SyncDataCodec} of the CBOR (RFC 7049) binary format.
+ *
+ * Requires the optional jackson-dataformat-cbor dependency.
+ *
+ * @author Shagaba
+ *
+ */
+public class CborSyncDataCodec extends JacksonSyncDataCodec {
+
+	public static final String CBOR_CONTENT_TYPE = "application/cbor";
+
+	/**
+	 *
+	 */
+	public CborSyncDataCodec() {
+		this(configure(new ObjectMapper(new CBORFactory())));
+	}
+
+	/**
+	 * @param objectMapper an object mapper of a CBORFactory
+	 */
+	public CborSyncDataCodec(ObjectMapper objectMapper) {
+		super(objectMapper, CBOR_CONTENT_TYPE);
+	}
+
+}
@@ -0,0 +1,111 @@
+package com.shagaba.jacksync.codec;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shagaba.jacksync.exception.SyncCodecException;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.sync.SyncData;
+
+/**
+ * A {@link SyncDataCodec} of any Jackson data format, JSON by default.
+ *
+ * @author Shagaba
+ *
+ */
+public class JacksonSyncDataCodec implements SyncDataCodec {
+
+	public static final String JSON_CONTENT_TYPE = "application/json";
+
+	protected static final TypeReference<List<PatchOperation>> OPERATIONS_TYPE = new TypeReference<List<PatchOperation>>() {};
+
+	protected ObjectMapper objectMapper;
+
+	protected String contentType;
+
+	/**
+	 * @param objectMapper a JSON object mapper
+	 */
+	public JacksonSyncDataCodec(ObjectMapper objectMapper) {
+		this(objectMapper, JSON_CONTENT_TYPE);
+	}
+
+	/**
+	 * @param objectMapper an object mapper of the given content type
+	 * @param contentType
+	 */
+	public JacksonSyncDataCodec(ObjectMapper objectMapper, String contentType) {
+        if (objectMapper == null) {
+            throw new IllegalArgumentException("ObjectMapper cannot be null");
+        }
+        if (contentType == null) {
+            throw new IllegalArgumentException("Content type cannot be null");
+        }
+		this.objectMapper = objectMapper;
+		this.contentType = contentType;
+	}
+
+	/**
+	 * @return the objectMapper
+	 */
+	public ObjectMapper getObjectMapper() {
+		return objectMapper;
+	}
+
+	@Override
+	public String getContentType() {
+		return contentType;
+	}
+
+	@Override
+	public byte[] encode(SyncData syncData) throws SyncCodecException {
+		try {
+			return objectMapper.writeValueAsBytes(syncData);
+		} catch (IOException e) {
+			throw new SyncCodecException(e);
+		}
+	}
+
+	@Override
+	public SyncData decode(byte[] bytes) throws SyncCodecException {
+		try {
+			return objectMapper.readValue(bytes, SyncData.class);
+		} catch (IOException e) {
+			throw new SyncCodecException(e);
+		}
+	}
+
+	@Override
+	public byte[] encodeOperations(List<PatchOperation> operations) throws SyncCodecException {
+		try {
+			return objectMapper.writerFor(OPERATIONS_TYPE).writeValueAsBytes(operations);
+		} catch (IOException e) {
+			throw new SyncCodecException(e);
+		}
+	}
+
+	@Override
+	public List<PatchOperation> decodeOperations(byte[] bytes) throws SyncCodecException {
+		try {
+			return objectMapper.readValue(bytes, OPERATIONS_TYPE);
+		} catch (IOException e) {
+			throw new SyncCodecException(e);
+		}
+	}
+
+	/**
+	 * Applies the settings sync data requires on an object mapper of another
+	 * data format.
+	 *
+	 * @param objectMapper
+	 * @return the given objectMapper
+	 */
+	protected static ObjectMapper configure(ObjectMapper objectMapper) {
+		objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+		return objectMapper;
+	}
+
+}
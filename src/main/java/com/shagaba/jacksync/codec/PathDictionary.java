@@ -0,0 +1,187 @@
+package com.shagaba.jacksync.codec;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.shagaba.jacksync.operation.PatchDualPathOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+
+/**
+ * A table of JSON Pointer prefixes shared by an encoder and a decoder.
+ *
+ * A path is written as a reference to its longest prefix in the table
+ * followed by the remaining segments, "/sections/12/paragraphs/3/title" is
+ * written as "#5/title" once "/sections/12/paragraphs/3" was given id 5. A
+ * JSON Pointer never starts with '#', so plain and referenced paths mix.
+ *
+ * A prefix is only added when the paths of the operations that refer to it
+ * save more than its table entry costs, sparse edits are left plain.
+ *
+ * The dictionary is picked up by the Jackson serialization of operation paths
+ * when set as the {@code PathDictionary.class} attribute of the writer or
+ * reader. It may live for a single sync data or for a whole client session.
+ *
+ * @author Shagaba
+ *
+ */
+public class PathDictionary {
+
+	public static final char REFERENCE_PREFIX = '#';
+
+	public static final int DEFAULT_MAX_SIZE = 4096;
+
+	protected static final int MIN_PREFIX_LENGTH = 4;
+
+	protected final Map<String, Integer> prefixToId;
+
+	protected final Map<Integer, String> idToPrefix;
+
+	protected int maxSize;
+
+	/**
+	 *
+	 */
+	public PathDictionary() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * @param maxSize the maximal number of prefixes
+	 */
+	public PathDictionary(int maxSize) {
+		this.prefixToId = new HashMap<>();
+		this.idToPrefix = new HashMap<>();
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return the number of prefixes
+	 */
+	public synchronized int size() {
+		return idToPrefix.size();
+	}
+
+	/**
+	 * Adds the prefixes worth a table entry for the paths of the given
+	 * operations to the table. Prefixes are picked from the deepest up, a path
+	 * counts for its deepest prefix in the table only.
+	 *
+	 * @param operations
+	 * @return the added prefixes, to be defined on the decoder side
+	 */
+	public synchronized Map<Integer, String> register(List<PatchOperation> operations) {
+		List<JsonPointer> paths = new ArrayList<>();
+		for (PatchOperation operation : operations) {
+			paths.add(operation.getPath());
+			if (operation instanceof PatchDualPathOperation) {
+				paths.add(((PatchDualPathOperation) operation).getFrom());
+			}
+		}
+		// the paths under each candidate prefix
+		Map<String, BitSet> prefixPaths = new HashMap<>();
+		for (int pathIndex = 0; pathIndex < paths.size(); ++pathIndex) {
+			for (JsonPointer prefixPath = paths.get(pathIndex).head(); prefixPath != null; prefixPath = prefixPath.head()) {
+				String prefix = prefixPath.toString();
+				if (prefix.length() >= MIN_PREFIX_LENGTH) {
+					prefixPaths.computeIfAbsent(prefix, key -> new BitSet()).set(pathIndex);
+				}
+			}
+		}
+		List<String> prefixes = new ArrayList<>(prefixPaths.keySet());
+		prefixes.sort((prefix, otherPrefix) -> Integer.compare(otherPrefix.length(), prefix.length()));
+
+		Map<Integer, String> addedPrefixes = new LinkedHashMap<>();
+		BitSet coveredPaths = new BitSet();
+		for (String prefix : prefixes) {
+			BitSet uncoveredPaths = (BitSet) prefixPaths.get(prefix).clone();
+			uncoveredPaths.andNot(coveredPaths);
+			if (uncoveredPaths.isEmpty()) {
+				continue;
+			}
+			if (prefixToId.containsKey(prefix) || register(prefix, uncoveredPaths.cardinality(), addedPrefixes)) {
+				coveredPaths.or(uncoveredPaths);
+			}
+		}
+		return addedPrefixes;
+	}
+
+	/**
+	 * Adds the given prefixes received from the encoder side.
+	 *
+	 * @param prefixes
+	 */
+	public synchronized void define(Map<Integer, String> prefixes) {
+		for (Map.Entry<Integer, String> prefix : prefixes.entrySet()) {
+			idToPrefix.put(prefix.getKey(), prefix.getValue());
+			prefixToId.put(prefix.getValue(), prefix.getKey());
+		}
+	}
+
+	/**
+	 *
+	 * @param path
+	 * @return the path or its parent reference form
+	 */
+	public synchronized String encode(JsonPointer path) {
+		String pathString = path.toString();
+		for (JsonPointer prefixPath = path.head(); prefixPath != null; prefixPath = prefixPath.head()) {
+			String prefix = prefixPath.toString();
+			Integer id = prefix.length() < MIN_PREFIX_LENGTH ? null : prefixToId.get(prefix);
+			if (id != null) {
+				return new StringBuilder().append(REFERENCE_PREFIX).append(id).append(pathString, prefix.length(), pathString.length()).toString();
+			}
+		}
+		return pathString;
+	}
+
+	/**
+	 *
+	 * @param path a path or a parent reference form
+	 * @return the path
+	 */
+	public synchronized JsonPointer decode(String path) {
+		if (path.isEmpty() || path.charAt(0) != REFERENCE_PREFIX) {
+			return JsonPointer.compile(path);
+		}
+		int separatorIndex = path.indexOf('/');
+		String suffix = separatorIndex < 0 ? "" : path.substring(separatorIndex);
+		int id = Integer.parseInt(path.substring(1, separatorIndex < 0 ? path.length() : separatorIndex));
+		String prefix = idToPrefix.get(id);
+		if (prefix == null) {
+			throw new IllegalArgumentException(String.format("Unknown path prefix - %s", id));
+		}
+		return JsonPointer.compile(prefix + suffix);
+	}
+
+	/**
+	 * Adds the given prefix if the references of the given number of paths
+	 * save more than its entry, written as "id":"prefix", costs.
+	 *
+	 * @param prefix
+	 * @param pathCount
+	 * @param addedPrefixes
+	 * @return true if added
+	 */
+	protected boolean register(String prefix, int pathCount, Map<Integer, String> addedPrefixes) {
+		if (idToPrefix.size() >= maxSize) {
+			return false;
+		}
+		int id = idToPrefix.size();
+		int idLength = Integer.toString(id).length();
+		long saving = (long) pathCount * (prefix.length() - idLength - 1);
+		long cost = prefix.length() + idLength + 6;
+		if (saving <= cost) {
+			return false;
+		}
+		prefixToId.put(prefix, id);
+		idToPrefix.put(id, prefix);
+		addedPrefixes.put(id, prefix);
+		return true;
+	}
+
+}
@@ -0,0 +1,110 @@
+package com.shagaba.jacksync.codec;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shagaba.jacksync.exception.SyncCodecException;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.sync.SyncData;
+
+/**
+ * A {@link JacksonSyncDataCodec} writing operation paths against a
+ * {@link PathDictionary}.
+ *
+ * Without dictionaries every sync data carries the prefixes its operations
+ * refer to and can be read by any sync data reader. With the dictionaries of
+ * a client session a prefix is sent once and referred to by the sync data
+ * that follow, which requires the session to deliver sync data in order.
+ *
+ * @author Shagaba
+ *
+ */
+public class PathDictionaryCodec extends JacksonSyncDataCodec {
+
+	public static final String PATH_DICTIONARY_CONTENT_TYPE = "application/vnd.jacksync.path-dictionary+json";
+
+	protected PathDictionary encoderDictionary;
+
+	protected PathDictionary decoderDictionary;
+
+	/**
+	 * @param objectMapper a JSON object mapper
+	 */
+	public PathDictionaryCodec(ObjectMapper objectMapper) {
+		this(objectMapper, null, null);
+	}
+
+	/**
+	 * @param objectMapper a JSON object mapper
+	 * @param encoderDictionary the session dictionary of sent sync data
+	 * @param decoderDictionary the session dictionary of received sync data
+	 */
+	public PathDictionaryCodec(ObjectMapper objectMapper, PathDictionary encoderDictionary, PathDictionary decoderDictionary) {
+		super(objectMapper, PATH_DICTIONARY_CONTENT_TYPE);
+		this.encoderDictionary = encoderDictionary;
+		this.decoderDictionary = decoderDictionary;
+	}
+
+	@Override
+	public byte[] encode(SyncData syncData) throws SyncCodecException {
+		PathDictionary pathDictionary = encoderDictionary == null ? new PathDictionary() : encoderDictionary;
+		SyncData compressed = new SyncData();
+		compressed.setVersion(syncData.getVersion());
+		compressed.setMasterVersion(syncData.getMasterVersion());
+		compressed.setTargetChecksum(syncData.getTargetChecksum());
+		compressed.setOperations(syncData.getOperations());
+		// prefixes are registered and written in the order the peer reads them
+		synchronized (pathDictionary) {
+			if (syncData.getOperations() != null) {
+				compressed.setPathPrefixes(pathDictionary.register(syncData.getOperations()));
+			}
+			try {
+				return objectMapper.writer().withAttribute(PathDictionary.class, pathDictionary).writeValueAsBytes(compressed);
+			} catch (IOException e) {
+				throw new SyncCodecException(e);
+			}
+		}
+	}
+
+	@Override
+	public SyncData decode(byte[] bytes) throws SyncCodecException {
+		try {
+			SyncData syncData;
+			if (decoderDictionary == null) {
+				syncData = objectMapper.readValue(bytes, SyncData.class);
+			} else {
+				syncData = objectMapper.readerFor(SyncData.class).withAttribute(PathDictionary.class, decoderDictionary).readValue(bytes);
+			}
+			syncData.setPathPrefixes(null);
+			return syncData;
+		} catch (IOException e) {
+			throw new SyncCodecException(e);
+		}
+	}
+
+	@Override
+	public byte[] encodeOperations(List<PatchOperation> operations) throws SyncCodecException {
+		if (encoderDictionary == null) {
+			return super.encodeOperations(operations);
+		}
+		try {
+			return objectMapper.writerFor(OPERATIONS_TYPE).withAttribute(PathDictionary.class, encoderDictionary).writeValueAsBytes(operations);
+		} catch (IOException e) {
+			throw new SyncCodecException(e);
+		}
+	}
+
+	@Override
+	public List<PatchOperation> decodeOperations(byte[] bytes) throws SyncCodecException {
+		if (decoderDictionary == null) {
+			return super.decodeOperations(bytes);
+		}
+		try {
+			return objectMapper.readerFor(OPERATIONS_TYPE).withAttribute(PathDictionary.class, decoderDictionary).readValue(bytes);
+		} catch (IOException e) {
+			throw new SyncCodecException(e);
+		}
+	}
+
+}
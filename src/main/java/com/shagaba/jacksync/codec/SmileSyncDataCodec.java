@@ -0,0 +1,32 @@
+package com.shagaba.jacksync.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * A {@link SyncDataCodec} of the Jackson Smile binary JSON format.
+ *
+ * Requires the optional jackson-dataformat-smile dependency.
+ *
+ * @author Shagaba
+ *
+ */
+public class SmileSyncDataCodec extends JacksonSyncDataCodec {
+
+	public static final String SMILE_CONTENT_TYPE = "application/x-jackson-smile";
+
+	/**
+	 *
+	 */
+	public SmileSyncDataCodec() {
+		this(configure(new ObjectMapper(new SmileFactory())));
+	}
+
+	/**
+	 * @param objectMapper an object mapper of a SmileFactory
+	 */
+	public SmileSyncDataCodec(ObjectMapper objectMapper) {
+		super(objectMapper, SMILE_CONTENT_TYPE);
+	}
+
+}
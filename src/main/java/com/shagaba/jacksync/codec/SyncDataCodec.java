@@ -0,0 +1,55 @@
+package com.shagaba.jacksync.codec;
+
+import java.util.List;
+
+import com.shagaba.jacksync.exception.SyncCodecException;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.sync.SyncData;
+
+/**
+ * Encodes sync data and patch operations for the wire.
+ *
+ * @author Shagaba
+ *
+ */
+public interface SyncDataCodec {
+
+	/**
+	 * @return the content type of the encoded form, used to negotiate a codec
+	 *         between nodes
+	 */
+	public String getContentType();
+
+	/**
+	 *
+	 * @param syncData
+	 * @return
+	 * @throws SyncCodecException
+	 */
+	public byte[] encode(SyncData syncData) throws SyncCodecException;
+
+	/**
+	 *
+	 * @param bytes
+	 * @return
+	 * @throws SyncCodecException
+	 */
+	public SyncData decode(byte[] bytes) throws SyncCodecException;
+
+	/**
+	 *
+	 * @param operations
+	 * @return
+	 * @throws SyncCodecException
+	 */
+	public byte[] encodeOperations(List<PatchOperation> operations) throws SyncCodecException;
+
+	/**
+	 *
+	 * @param bytes
+	 * @return
+	 * @throws SyncCodecException
+	 */
+	public List<PatchOperation> decodeOperations(byte[] bytes) throws SyncCodecException;
+
+}
@@ -0,0 +1,71 @@
+package com.shagaba.jacksync.crdt;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * A fragment of the state of a CRDT document, holding the changed values and
+ * the ids of the containers down to them. Deltas merge like states do, so they
+ * may be received in any order, more than once, directly from any peer.
+ *
+ * @author Shagaba
+ *
+ */
+public class CrdtDelta {
+
+	private HlcTimestamp timestamp;
+
+	private OrMap root;
+
+	/**
+	 *
+	 */
+	public CrdtDelta() {
+		super();
+	}
+
+	/**
+	 * @param timestamp the clock of the sender
+	 * @param root
+	 */
+	public CrdtDelta(HlcTimestamp timestamp, OrMap root) {
+		this.timestamp = timestamp;
+		this.root = root;
+	}
+
+	/**
+	 * @return the timestamp
+	 */
+	public HlcTimestamp getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @param timestamp the timestamp to set
+	 */
+	public void setTimestamp(HlcTimestamp timestamp) {
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * @return the root
+	 */
+	public OrMap getRoot() {
+		return root;
+	}
+
+	/**
+	 * @param root the root to set
+	 */
+	public void setRoot(OrMap root) {
+		this.root = root;
+	}
+
+	/**
+	 * @return true if the delta changes nothing
+	 */
+	@JsonIgnore
+	public boolean isEmpty() {
+		return root == null || root.isEmpty();
+	}
+
+}
@@ -0,0 +1,295 @@
+package com.shagaba.jacksync.crdt;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.shagaba.jacksync.exception.SyncProcessingException;
+
+/**
+ * A replica of a CRDT document of type T.
+ *
+ * Unlike the version locked sync of {@link com.shagaba.jacksync.sync.SyncProcessor},
+ * replicas never wait for a master: a local change of the object is turned
+ * into a {@link CrdtDelta}, which any other replica merges in whatever order
+ * deltas arrive, converging to the same object. Scalars are last writer wins
+ * registers, objects observed remove maps and arrays replicated growable
+ * arrays, all stamped by a {@link HybridLogicalClock}.
+ *
+ * The object is read and written through the given ObjectMapper. A new replica
+ * should start from the state of an existing one, see {@link #getState()}.
+ *
+ * @author Shagaba
+ *
+ * @param <T> the document type
+ */
+public class CrdtSyncProcessor<T> {
+
+	protected ObjectMapper objectMapper;
+
+	protected Class<T> type;
+
+	protected HybridLogicalClock clock;
+
+	protected OrMap root;
+
+	/**
+	 * @param objectMapper
+	 * @param type
+	 * @param nodeId the unique id of the replica
+	 */
+	public CrdtSyncProcessor(ObjectMapper objectMapper, Class<T> type, String nodeId) {
+		this(objectMapper, type, new HybridLogicalClock(nodeId));
+	}
+
+	/**
+	 * @param objectMapper
+	 * @param type
+	 * @param clock the clock of the replica
+	 */
+	public CrdtSyncProcessor(ObjectMapper objectMapper, Class<T> type, HybridLogicalClock clock) {
+        if (objectMapper == null) {
+            throw new IllegalArgumentException("ObjectMapper cannot be null");
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("Type cannot be null");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null");
+        }
+		this.objectMapper = objectMapper;
+		this.type = type;
+		this.clock = clock;
+		// all replicas share the root
+		this.root = new OrMap(HlcTimestamp.ZERO);
+	}
+
+	/**
+	 * Applies the given object as a local change.
+	 *
+	 * @param object the changed object
+	 * @return the delta of the change, empty if nothing changed
+	 */
+	public synchronized CrdtDelta update(T object) {
+		JsonNode targetJsonNode = objectMapper.valueToTree(object);
+		if (!targetJsonNode.isObject()) {
+			throw new IllegalArgumentException("Object must be written as a JSON object");
+		}
+		OrMap deltaRoot = new OrMap(HlcTimestamp.ZERO);
+		diffMap(root, (ObjectNode) targetJsonNode, deltaRoot);
+		// the local state takes the delta like any replica
+		root.mergeFrom(deltaRoot);
+		return new CrdtDelta(clock.now(), deltaRoot);
+	}
+
+	/**
+	 * Merges a delta or a state of another replica.
+	 *
+	 * @param delta
+	 * @return the merged object
+	 * @throws SyncProcessingException
+	 */
+	public synchronized T merge(CrdtDelta delta) throws SyncProcessingException {
+		if (delta.getTimestamp() != null) {
+			clock.update(delta.getTimestamp());
+		}
+		if (delta.getRoot() != null) {
+			root.mergeFrom(delta.getRoot());
+		}
+		return getObject();
+	}
+
+	/**
+	 * @return the whole state as a delta, to start a new replica from
+	 */
+	public synchronized CrdtDelta getState() {
+		return new CrdtDelta(clock.now(), (OrMap) root.copy());
+	}
+
+	/**
+	 * @return the plain JSON form of the document
+	 */
+	public synchronized JsonNode getJsonNode() {
+		return root.toJsonNode(objectMapper.getNodeFactory());
+	}
+
+	/**
+	 * @return the document as a new object
+	 * @throws SyncProcessingException
+	 */
+	public synchronized T getObject() throws SyncProcessingException {
+		try {
+			return objectMapper.treeToValue(getJsonNode(), type);
+		} catch (Exception e) {
+			throw new SyncProcessingException(e);
+		}
+	}
+
+	/**
+	 * Records the changes of the map to the target object in the delta map of
+	 * the same id.
+	 *
+	 * @param orMap
+	 * @param targetJsonNode
+	 * @param deltaMap
+	 */
+	protected void diffMap(OrMap orMap, ObjectNode targetJsonNode, OrMap deltaMap) {
+		Iterator<Map.Entry<String, JsonNode>> fields = targetJsonNode.fields();
+		while (fields.hasNext()) {
+			Map.Entry<String, JsonNode> field = fields.next();
+			OrMapEntry entry = orMap.getEntries().get(field.getKey());
+			CrdtValue value = entry != null && entry.isPresent() ? entry.getValue() : null;
+			OrMapEntry deltaEntry = new OrMapEntry();
+			if (value != null) {
+				CrdtValue deltaValue = diffValue(value, field.getValue());
+				if (deltaValue == value) {
+					continue;
+				}
+				if (deltaValue != null) {
+					deltaEntry.setValue(deltaValue);
+					deltaMap.getEntries().put(field.getKey(), deltaEntry);
+					continue;
+				}
+			}
+			// a write supersedes the writes it observed
+			if (entry != null) {
+				deltaEntry.getRemovedTags().addAll(entry.getLiveTags());
+			}
+			deltaEntry.getAddTags().add(clock.now());
+			deltaEntry.setValue(create(field.getValue()));
+			deltaMap.getEntries().put(field.getKey(), deltaEntry);
+		}
+		for (Map.Entry<String, OrMapEntry> entry : orMap.getEntries().entrySet()) {
+			if (entry.getValue().isPresent() && !targetJsonNode.has(entry.getKey())) {
+				OrMapEntry deltaEntry = new OrMapEntry();
+				deltaEntry.getRemovedTags().addAll(entry.getValue().getLiveTags());
+				deltaMap.getEntries().put(entry.getKey(), deltaEntry);
+			}
+		}
+	}
+
+	/**
+	 * Records the changes of the list to the target array in the delta list
+	 * of the same id. The common head and tail of the list and the array are
+	 * kept, the elements in between are changed in place, and the rest removed
+	 * or inserted.
+	 *
+	 * @param rga
+	 * @param targetJsonNode
+	 * @param deltaRga
+	 */
+	protected void diffList(Rga rga, ArrayNode targetJsonNode, Rga deltaRga) {
+		List<RgaElement> elements = rga.visibleElements();
+		int elementCount = elements.size();
+		int targetCount = targetJsonNode.size();
+		int commonCount = Math.min(elementCount, targetCount);
+		int head = 0;
+		while (head < commonCount && isEqual(elements.get(head).getValue(), targetJsonNode.get(head))) {
+			++head;
+		}
+		int tail = 0;
+		while (tail < commonCount - head && isEqual(elements.get(elementCount - 1 - tail).getValue(), targetJsonNode.get(targetCount - 1 - tail))) {
+			++tail;
+		}
+		int changedElementCount = elementCount - head - tail;
+		int changedTargetCount = targetCount - head - tail;
+		int inPlaceCount = Math.min(changedElementCount, changedTargetCount);
+		for (int i = head; i < head + inPlaceCount; ++i) {
+			RgaElement element = elements.get(i);
+			CrdtValue deltaValue = diffValue(element.getValue(), targetJsonNode.get(i));
+			if (deltaValue == element.getValue()) {
+				continue;
+			}
+			if (deltaValue == null) {
+				deltaValue = create(targetJsonNode.get(i));
+			}
+			deltaRga.putElement(new RgaElement(element.getId(), element.getOrigin(), deltaValue));
+		}
+		for (int i = head + inPlaceCount; i < head + changedElementCount; ++i) {
+			RgaElement element = elements.get(i);
+			RgaElement deltaElement = new RgaElement(element.getId(), element.getOrigin(), null);
+			deltaElement.setDeleted(true);
+			deltaRga.putElement(deltaElement);
+		}
+		int insertIndex = head + inPlaceCount;
+		HlcTimestamp origin = insertIndex > 0 ? elements.get(insertIndex - 1).getId() : null;
+		for (int i = insertIndex; i < head + changedTargetCount; ++i) {
+			RgaElement deltaElement = new RgaElement(clock.now(), origin, create(targetJsonNode.get(i)));
+			deltaRga.putElement(deltaElement);
+			origin = deltaElement.getId();
+		}
+	}
+
+	/**
+	 * Changes a container in place when the target is of the same kind.
+	 *
+	 * @param value
+	 * @param targetJsonNode
+	 * @return the same value if unchanged, a delta container if changed in
+	 *         place, or null if the value has to be replaced
+	 */
+	protected CrdtValue diffValue(CrdtValue value, JsonNode targetJsonNode) {
+		if (value instanceof OrMap && targetJsonNode.isObject()) {
+			OrMap deltaMap = new OrMap(value.stamp());
+			diffMap((OrMap) value, (ObjectNode) targetJsonNode, deltaMap);
+			return deltaMap.isEmpty() ? value : deltaMap;
+		}
+		if (value instanceof Rga && targetJsonNode.isArray()) {
+			Rga deltaRga = new Rga(value.stamp());
+			diffList((Rga) value, (ArrayNode) targetJsonNode, deltaRga);
+			return deltaRga.getElements().isEmpty() ? value : deltaRga;
+		}
+		if (value instanceof LwwRegister && targetJsonNode.isValueNode()
+				&& Objects.equals(((LwwRegister) value).getValue(), targetJsonNode)) {
+			return value;
+		}
+		return null;
+	}
+
+	/**
+	 *
+	 * @param jsonNode
+	 * @return a new value of the given JSON
+	 */
+	protected CrdtValue create(JsonNode jsonNode) {
+		if (jsonNode.isObject()) {
+			OrMap orMap = new OrMap(clock.now());
+			Iterator<Map.Entry<String, JsonNode>> fields = jsonNode.fields();
+			while (fields.hasNext()) {
+				Map.Entry<String, JsonNode> field = fields.next();
+				OrMapEntry entry = new OrMapEntry();
+				entry.getAddTags().add(orMap.getId());
+				entry.setValue(create(field.getValue()));
+				orMap.getEntries().put(field.getKey(), entry);
+			}
+			return orMap;
+		}
+		if (jsonNode.isArray()) {
+			Rga rga = new Rga(clock.now());
+			HlcTimestamp origin = null;
+			for (JsonNode element : jsonNode) {
+				RgaElement rgaElement = new RgaElement(clock.now(), origin, create(element));
+				rga.putElement(rgaElement);
+				origin = rgaElement.getId();
+			}
+			return rga;
+		}
+		return new LwwRegister(clock.now(), jsonNode);
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @param jsonNode
+	 * @return true if the value is of the given JSON
+	 */
+	protected boolean isEqual(CrdtValue value, JsonNode jsonNode) {
+		return value.toJsonNode(objectMapper.getNodeFactory()).equals(jsonNode);
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.shagaba.jacksync.crdt;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+/**
+ * A value of a CRDT document: a last writer wins register of a scalar, an
+ * observed remove map of an object or a replicated growable array of an
+ * array.
+ *
+ * Values merge commutatively, associatively and idempotently. Edits within a
+ * container merge with concurrent edits within the same container, anything
+ * else is resolved by the latest timestamp, a container being stamped with its
+ * creation.
+ *
+ * @author Shagaba
+ *
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.PROPERTY, property = "type")
+@JsonSubTypes({
+	@JsonSubTypes.Type(value = LwwRegister.class, name = "register"),
+	@JsonSubTypes.Type(value = OrMap.class, name = "map"),
+	@JsonSubTypes.Type(value = Rga.class, name = "list")}
+)
+public abstract class CrdtValue {
+
+	/**
+	 * @return the timestamp a value is resolved by
+	 */
+	public abstract HlcTimestamp stamp();
+
+	/**
+	 *
+	 * @param nodeFactory
+	 * @return the plain JSON form of the value
+	 */
+	public abstract JsonNode toJsonNode(JsonNodeFactory nodeFactory);
+
+	/**
+	 *
+	 * @return a deep copy of the value
+	 */
+	public abstract CrdtValue copy();
+
+	/**
+	 *
+	 * @param other
+	 * @return true if the other value is the same container, merged into this
+	 *         container
+	 */
+	protected abstract boolean mergeFrom(CrdtValue other);
+
+	/**
+	 *
+	 * @param value
+	 * @param other
+	 * @return the merged value, which is the given value or a copy of the
+	 *         other value
+	 */
+	public static CrdtValue merge(CrdtValue value, CrdtValue other) {
+		if (other == null) {
+			return value;
+		}
+		if (value == null) {
+			return other.copy();
+		}
+		if (value.mergeFrom(other)) {
+			return value;
+		}
+		return value.stamp().compareTo(other.stamp()) >= 0 ? value : other.copy();
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.shagaba.jacksync.crdt;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * A hybrid logical clock timestamp: a wall time, a counter of events within
+ * the wall time and the id of the node that made the event. Timestamps are
+ * totally ordered, the node id breaking ties between nodes.
+ *
+ * Written as the compact string "wallTime.counter.nodeId", numbers in base
+ * 36.
+ *
+ * @author Shagaba
+ *
+ */
+public final class HlcTimestamp implements Comparable<HlcTimestamp> {
+
+	public static final HlcTimestamp ZERO = new HlcTimestamp(0L, 0, "");
+
+	private final long wallTime;
+
+	private final int counter;
+
+	private final String nodeId;
+
+	/**
+	 * @param wallTime
+	 * @param counter
+	 * @param nodeId
+	 */
+	public HlcTimestamp(long wallTime, int counter, String nodeId) {
+        if (nodeId == null) {
+            throw new IllegalArgumentException("Node id cannot be null");
+        }
+		this.wallTime = wallTime;
+		this.counter = counter;
+		this.nodeId = nodeId;
+	}
+
+	/**
+	 * @return the wallTime
+	 */
+	public long getWallTime() {
+		return wallTime;
+	}
+
+	/**
+	 * @return the counter
+	 */
+	public int getCounter() {
+		return counter;
+	}
+
+	/**
+	 * @return the nodeId
+	 */
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	@Override
+	public int compareTo(HlcTimestamp other) {
+		int result = Long.compare(wallTime, other.wallTime);
+		if (result == 0) {
+			result = Integer.compare(counter, other.counter);
+		}
+		if (result == 0) {
+			result = nodeId.compareTo(other.nodeId);
+		}
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof HlcTimestamp)) {
+			return false;
+		}
+		HlcTimestamp other = (HlcTimestamp) obj;
+		return wallTime == other.wallTime && counter == other.counter && nodeId.equals(other.nodeId);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * Long.hashCode(wallTime) + counter) + nodeId.hashCode();
+	}
+
+	@JsonValue
+	@Override
+	public String toString() {
+		return Long.toString(wallTime, Character.MAX_RADIX) + "." + Integer.toString(counter, Character.MAX_RADIX) + "." + nodeId;
+	}
+
+	/**
+	 *
+	 * @param timestamp the string form of a timestamp
+	 * @return the timestamp
+	 */
+	@JsonCreator
+	public static HlcTimestamp valueOf(String timestamp) {
+		int counterIndex = timestamp.indexOf('.');
+		int nodeIdIndex = counterIndex < 0 ? -1 : timestamp.indexOf('.', counterIndex + 1);
+		if (nodeIdIndex < 0) {
+			throw new IllegalArgumentException(String.format("Illegal timestamp - %s", timestamp));
+		}
+		return new HlcTimestamp(Long.parseLong(timestamp.substring(0, counterIndex), Character.MAX_RADIX),
+				Integer.parseInt(timestamp.substring(counterIndex + 1, nodeIdIndex), Character.MAX_RADIX),
+				timestamp.substring(nodeIdIndex + 1));
+	}
+
+}
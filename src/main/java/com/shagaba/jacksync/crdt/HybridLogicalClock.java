@@ -0,0 +1,91 @@
+package com.shagaba.jacksync.crdt;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A hybrid logical clock.
+ *
+ * Timestamps follow the physical clock when it moves forward, and a counter
+ * otherwise, so they never go backwards and stay close to the physical time.
+ * Receiving a remote timestamp moves the clock past it, so an event is always
+ * stamped after the events it has seen.
+ *
+ * @author Shagaba
+ *
+ */
+public class HybridLogicalClock {
+
+	protected final String nodeId;
+
+	protected final LongSupplier physicalClock;
+
+	protected long wallTime;
+
+	protected int counter;
+
+	/**
+	 * @param nodeId the unique id of this node
+	 */
+	public HybridLogicalClock(String nodeId) {
+		this(nodeId, System::currentTimeMillis);
+	}
+
+	/**
+	 * @param nodeId the unique id of this node
+	 * @param physicalClock the physical time in milliseconds
+	 */
+	public HybridLogicalClock(String nodeId, LongSupplier physicalClock) {
+        if (nodeId == null || nodeId.isEmpty()) {
+            throw new IllegalArgumentException("Node id cannot be null or empty");
+        }
+        if (physicalClock == null) {
+            throw new IllegalArgumentException("Physical clock cannot be null");
+        }
+		this.nodeId = nodeId;
+		this.physicalClock = physicalClock;
+	}
+
+	/**
+	 * @return the nodeId
+	 */
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	/**
+	 *
+	 * @return the timestamp of a local event
+	 */
+	public synchronized HlcTimestamp now() {
+		long physicalTime = physicalClock.getAsLong();
+		if (physicalTime > wallTime) {
+			wallTime = physicalTime;
+			counter = 0;
+		} else {
+			++counter;
+		}
+		return new HlcTimestamp(wallTime, counter, nodeId);
+	}
+
+	/**
+	 *
+	 * @param remoteTimestamp the timestamp of a received event
+	 * @return the timestamp of the receive event
+	 */
+	public synchronized HlcTimestamp update(HlcTimestamp remoteTimestamp) {
+		long physicalTime = physicalClock.getAsLong();
+		long previousWallTime = wallTime;
+		wallTime = Math.max(Math.max(previousWallTime, remoteTimestamp.getWallTime()), physicalTime);
+		if (wallTime == previousWallTime && wallTime == remoteTimestamp.getWallTime()) {
+			counter = Math.max(counter, remoteTimestamp.getCounter()) + 1;
+		} else if (wallTime == previousWallTime) {
+			++counter;
+		} else if (wallTime == remoteTimestamp.getWallTime()) {
+			counter = remoteTimestamp.getCounter() + 1;
+		} else {
+			counter = 0;
+		}
+		return new HlcTimestamp(wallTime, counter, nodeId);
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.shagaba.jacksync.crdt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+/**
+ * A last writer wins register of a scalar value.
+ *
+ * @author Shagaba
+ *
+ */
+public class LwwRegister extends CrdtValue {
+
+	private HlcTimestamp timestamp;
+
+	private JsonNode value;
+
+	/**
+	 *
+	 */
+	public LwwRegister() {
+		super();
+	}
+
+	/**
+	 * @param timestamp
+	 * @param value
+	 */
+	public LwwRegister(HlcTimestamp timestamp, JsonNode value) {
+		this.timestamp = timestamp;
+		this.value = value;
+	}
+
+	/**
+	 * @return the timestamp
+	 */
+	public HlcTimestamp getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @param timestamp the timestamp to set
+	 */
+	public void setTimestamp(HlcTimestamp timestamp) {
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * @return the value
+	 */
+	public JsonNode getValue() {
+		return value;
+	}
+
+	/**
+	 * @param value the value to set
+	 */
+	public void setValue(JsonNode value) {
+		this.value = value;
+	}
+
+	@Override
+	public HlcTimestamp stamp() {
+		return timestamp;
+	}
+
+	@Override
+	public JsonNode toJsonNode(JsonNodeFactory nodeFactory) {
+		return value == null ? nodeFactory.nullNode() : value.deepCopy();
+	}
+
+	@Override
+	public CrdtValue copy() {
+		return new LwwRegister(timestamp, value);
+	}
+
+	@Override
+	protected boolean mergeFrom(CrdtValue other) {
+		return false;
+	}
+
+}
@@ -0,0 +1,116 @@
+package com.shagaba.jacksync.crdt;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * An observed remove map of an object, identified by the timestamp of its
+ * creation.
+ *
+ * @author Shagaba
+ *
+ */
+public class OrMap extends CrdtValue {
+
+	private HlcTimestamp id;
+
+	private Map<String, OrMapEntry> entries;
+
+	/**
+	 *
+	 */
+	public OrMap() {
+		this(null);
+	}
+
+	/**
+	 * @param id
+	 */
+	public OrMap(HlcTimestamp id) {
+		this.id = id;
+		this.entries = new TreeMap<>();
+	}
+
+	/**
+	 * @return the id
+	 */
+	public HlcTimestamp getId() {
+		return id;
+	}
+
+	/**
+	 * @param id the id to set
+	 */
+	public void setId(HlcTimestamp id) {
+		this.id = id;
+	}
+
+	/**
+	 * @return the entries
+	 */
+	public Map<String, OrMapEntry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * @param entries the entries to set
+	 */
+	public void setEntries(Map<String, OrMapEntry> entries) {
+		this.entries = new TreeMap<>(entries);
+	}
+
+	/**
+	 * @return true if the map has no entries
+	 */
+	@JsonIgnore
+	public boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	@Override
+	public HlcTimestamp stamp() {
+		return id;
+	}
+
+	@Override
+	public JsonNode toJsonNode(JsonNodeFactory nodeFactory) {
+		ObjectNode objectNode = nodeFactory.objectNode();
+		for (Map.Entry<String, OrMapEntry> entry : entries.entrySet()) {
+			if (entry.getValue().getValue() != null && entry.getValue().isPresent()) {
+				objectNode.set(entry.getKey(), entry.getValue().getValue().toJsonNode(nodeFactory));
+			}
+		}
+		return objectNode;
+	}
+
+	@Override
+	public CrdtValue copy() {
+		OrMap orMap = new OrMap(id);
+		for (Map.Entry<String, OrMapEntry> entry : entries.entrySet()) {
+			orMap.entries.put(entry.getKey(), entry.getValue().copy());
+		}
+		return orMap;
+	}
+
+	@Override
+	protected boolean mergeFrom(CrdtValue other) {
+		if (!(other instanceof OrMap) || !id.equals(((OrMap) other).id)) {
+			return false;
+		}
+		for (Map.Entry<String, OrMapEntry> otherEntry : ((OrMap) other).entries.entrySet()) {
+			OrMapEntry entry = entries.get(otherEntry.getKey());
+			if (entry == null) {
+				entries.put(otherEntry.getKey(), otherEntry.getValue().copy());
+			} else {
+				entry.mergeFrom(otherEntry.getValue());
+			}
+		}
+		return true;
+	}
+
+}
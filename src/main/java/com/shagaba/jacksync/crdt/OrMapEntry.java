@@ -0,0 +1,118 @@
+package com.shagaba.jacksync.crdt;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A key of an {@link OrMap}: the tags of the writes of the key, the tags
+ * observed by its removals, and its value.
+ *
+ * The key is present while a write is not observed by any removal, so a write
+ * wins over a concurrent removal.
+ *
+ * @author Shagaba
+ *
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class OrMapEntry {
+
+	private Set<HlcTimestamp> addTags;
+
+	private Set<HlcTimestamp> removedTags;
+
+	private CrdtValue value;
+
+	/**
+	 *
+	 */
+	public OrMapEntry() {
+		this.addTags = new TreeSet<>();
+		this.removedTags = new TreeSet<>();
+	}
+
+	/**
+	 * @return the addTags
+	 */
+	public Set<HlcTimestamp> getAddTags() {
+		return addTags;
+	}
+
+	/**
+	 * @param addTags the addTags to set
+	 */
+	public void setAddTags(Set<HlcTimestamp> addTags) {
+		this.addTags = new TreeSet<>(addTags);
+	}
+
+	/**
+	 * @return the removedTags
+	 */
+	public Set<HlcTimestamp> getRemovedTags() {
+		return removedTags;
+	}
+
+	/**
+	 * @param removedTags the removedTags to set
+	 */
+	public void setRemovedTags(Set<HlcTimestamp> removedTags) {
+		this.removedTags = new TreeSet<>(removedTags);
+	}
+
+	/**
+	 * @return the value
+	 */
+	public CrdtValue getValue() {
+		return value;
+	}
+
+	/**
+	 * @param value the value to set
+	 */
+	public void setValue(CrdtValue value) {
+		this.value = value;
+	}
+
+	/**
+	 * @return true if a write of the key is not removed
+	 */
+	@JsonIgnore
+	public boolean isPresent() {
+		return !removedTags.containsAll(addTags);
+	}
+
+	/**
+	 * @return the tags of the writes not removed
+	 */
+	@JsonIgnore
+	public Set<HlcTimestamp> getLiveTags() {
+		Set<HlcTimestamp> liveTags = new TreeSet<>(addTags);
+		liveTags.removeAll(removedTags);
+		return liveTags;
+	}
+
+	/**
+	 *
+	 * @param other
+	 */
+	public void mergeFrom(OrMapEntry other) {
+		addTags.addAll(other.addTags);
+		removedTags.addAll(other.removedTags);
+		value = CrdtValue.merge(value, other.value);
+	}
+
+	/**
+	 *
+	 * @return a deep copy of the entry
+	 */
+	public OrMapEntry copy() {
+		OrMapEntry entry = new OrMapEntry();
+		entry.addTags.addAll(addTags);
+		entry.removedTags.addAll(removedTags);
+		entry.value = value == null ? null : value.copy();
+		return entry;
+	}
+
+}
@@ -0,0 +1,184 @@
+package com.shagaba.jacksync.crdt;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+/**
+ * A replicated growable array of an array, identified by the timestamp of its
+ * creation.
+ *
+ * The order of the elements is a function of the element set only: an element
+ * follows its origin, and elements of the same origin are ordered newest
+ * first. Replicas holding the same elements therefore list them in the same
+ * order, whatever the order the elements were received in.
+ *
+ * @author Shagaba
+ *
+ */
+public class Rga extends CrdtValue {
+
+	private static final Comparator<RgaElement> NEWEST_FIRST = (element, other) -> other.getId().compareTo(element.getId());
+
+	private HlcTimestamp id;
+
+	private Map<HlcTimestamp, RgaElement> elements;
+
+	/**
+	 *
+	 */
+	public Rga() {
+		this(null);
+	}
+
+	/**
+	 * @param id
+	 */
+	public Rga(HlcTimestamp id) {
+		this.id = id;
+		this.elements = new HashMap<>();
+	}
+
+	/**
+	 * @return the id
+	 */
+	public HlcTimestamp getId() {
+		return id;
+	}
+
+	/**
+	 * @param id the id to set
+	 */
+	public void setId(HlcTimestamp id) {
+		this.id = id;
+	}
+
+	/**
+	 * @return the elements including tombstones, by id
+	 */
+	public List<RgaElement> getElements() {
+		List<RgaElement> elementList = new ArrayList<>(elements.values());
+		elementList.sort(NEWEST_FIRST.reversed());
+		return elementList;
+	}
+
+	/**
+	 * @param elements the elements to set
+	 */
+	public void setElements(Collection<RgaElement> elements) {
+		this.elements = new HashMap<>();
+		for (RgaElement element : elements) {
+			this.elements.put(element.getId(), element);
+		}
+	}
+
+	/**
+	 *
+	 * @param elementId
+	 * @return the element or null
+	 */
+	public RgaElement element(HlcTimestamp elementId) {
+		return elements.get(elementId);
+	}
+
+	/**
+	 *
+	 * @param element
+	 */
+	public void putElement(RgaElement element) {
+		RgaElement current = elements.get(element.getId());
+		if (current == null) {
+			elements.put(element.getId(), element);
+		} else {
+			current.mergeFrom(element);
+		}
+	}
+
+	/**
+	 *
+	 * @return the elements in order, without tombstones and elements of an
+	 *         unknown value
+	 */
+	public List<RgaElement> visibleElements() {
+		Map<HlcTimestamp, List<RgaElement>> children = new HashMap<>();
+		List<RgaElement> heads = new ArrayList<>();
+		for (RgaElement element : elements.values()) {
+			// an element received before its origin waits at the head
+			if (element.getOrigin() == null || !elements.containsKey(element.getOrigin())) {
+				heads.add(element);
+			} else {
+				children.computeIfAbsent(element.getOrigin(), origin -> new ArrayList<>()).add(element);
+			}
+		}
+		List<RgaElement> visibleElements = new ArrayList<>(elements.size());
+		Deque<RgaElement> stack = new ArrayDeque<>();
+		pushNewestFirst(stack, heads);
+		while (!stack.isEmpty()) {
+			RgaElement element = stack.pop();
+			if (!element.isDeleted() && element.getValue() != null) {
+				visibleElements.add(element);
+			}
+			List<RgaElement> elementChildren = children.get(element.getId());
+			if (elementChildren != null) {
+				pushNewestFirst(stack, elementChildren);
+			}
+		}
+		return visibleElements;
+	}
+
+	@Override
+	public HlcTimestamp stamp() {
+		return id;
+	}
+
+	@Override
+	public JsonNode toJsonNode(JsonNodeFactory nodeFactory) {
+		ArrayNode arrayNode = nodeFactory.arrayNode();
+		for (RgaElement element : visibleElements()) {
+			arrayNode.add(element.getValue().toJsonNode(nodeFactory));
+		}
+		return arrayNode;
+	}
+
+	@Override
+	public CrdtValue copy() {
+		Rga rga = new Rga(id);
+		for (RgaElement element : elements.values()) {
+			rga.elements.put(element.getId(), element.copy());
+		}
+		return rga;
+	}
+
+	@Override
+	protected boolean mergeFrom(CrdtValue other) {
+		if (!(other instanceof Rga) || !id.equals(((Rga) other).id)) {
+			return false;
+		}
+		for (RgaElement element : ((Rga) other).elements.values()) {
+			putElement(element.copy());
+		}
+		return true;
+	}
+
+	/**
+	 *
+	 * @param stack
+	 * @param elements
+	 */
+	private static void pushNewestFirst(Deque<RgaElement> stack, List<RgaElement> elements) {
+		elements.sort(NEWEST_FIRST.reversed());
+		for (RgaElement element : elements) {
+			stack.push(element);
+		}
+	}
+
+}
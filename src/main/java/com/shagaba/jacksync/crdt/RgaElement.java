@@ -0,0 +1,122 @@
+package com.shagaba.jacksync.crdt;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * An element of an {@link Rga}, identified by the timestamp of its insertion
+ * and placed after the element it was inserted after, its origin. A removed
+ * element is kept as a tombstone, so elements inserted after it keep their
+ * place.
+ *
+ * @author Shagaba
+ *
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RgaElement {
+
+	private HlcTimestamp id;
+
+	private HlcTimestamp origin;
+
+	private CrdtValue value;
+
+	@JsonInclude(JsonInclude.Include.NON_DEFAULT)
+	private boolean deleted;
+
+	/**
+	 *
+	 */
+	public RgaElement() {
+		super();
+	}
+
+	/**
+	 * @param id
+	 * @param origin the id of the element inserted after, null for the head
+	 * @param value
+	 */
+	public RgaElement(HlcTimestamp id, HlcTimestamp origin, CrdtValue value) {
+		this.id = id;
+		this.origin = origin;
+		this.value = value;
+	}
+
+	/**
+	 * @return the id
+	 */
+	public HlcTimestamp getId() {
+		return id;
+	}
+
+	/**
+	 * @param id the id to set
+	 */
+	public void setId(HlcTimestamp id) {
+		this.id = id;
+	}
+
+	/**
+	 * @return the origin
+	 */
+	public HlcTimestamp getOrigin() {
+		return origin;
+	}
+
+	/**
+	 * @param origin the origin to set
+	 */
+	public void setOrigin(HlcTimestamp origin) {
+		this.origin = origin;
+	}
+
+	/**
+	 * @return the value
+	 */
+	public CrdtValue getValue() {
+		return value;
+	}
+
+	/**
+	 * @param value the value to set
+	 */
+	public void setValue(CrdtValue value) {
+		this.value = value;
+	}
+
+	/**
+	 * @return the deleted
+	 */
+	public boolean isDeleted() {
+		return deleted;
+	}
+
+	/**
+	 * @param deleted the deleted to set
+	 */
+	public void setDeleted(boolean deleted) {
+		this.deleted = deleted;
+	}
+
+	/**
+	 *
+	 * @param other an element of the same id
+	 */
+	public void mergeFrom(RgaElement other) {
+		if (origin == null) {
+			origin = other.origin;
+		}
+		deleted |= other.deleted;
+		value = CrdtValue.merge(value, other.value);
+	}
+
+	/**
+	 *
+	 * @return a deep copy of the element
+	 */
+	public RgaElement copy() {
+		RgaElement element = new RgaElement(id, origin, value == null ? null : value.copy());
+		element.deleted = deleted;
+		return element;
+	}
+
+}
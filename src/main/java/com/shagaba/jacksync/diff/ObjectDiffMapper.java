@@ -1,13 +1,25 @@
 package com.shagaba.jacksync.diff;
 
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
+import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.shagaba.jacksync.diff.strategy.DiffStrategy;
 import com.shagaba.jacksync.diff.strategy.SimpleDiffStrategy;
 import com.shagaba.jacksync.exception.DiffProcessingException;
 import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.utils.JacksonUtils;
 
 public class ObjectDiffMapper implements DiffMapper {
 	
@@ -38,6 +50,13 @@ public class ObjectDiffMapper implements DiffMapper {
 		this.diffStrategy = diffStrategy;
 	}
 	
+	/**
+	 * @return the diffStrategy
+	 */
+	public DiffStrategy getDiffStrategy() {
+		return diffStrategy;
+	}
+	
 	/**
 	 * 
 	 * @param source
@@ -55,7 +74,92 @@ public class ObjectDiffMapper implements DiffMapper {
         }
 		JsonNode sourceJsonNode = objectMapper.valueToTree(source);
 		JsonNode targetJsonNode = objectMapper.valueToTree(target);
-		return diffStrategy.diff(sourceJsonNode, targetJsonNode);
+		return diffStrategy.diff(sourceJsonNode, targetJsonNode, source.getClass());
+	}
+	
+	/**
+	 * Diffs only the subtrees at the given path hints, see
+	 * {@link DiffStrategy#diff(JsonNode, JsonNode, Collection, Class)}. Only the
+	 * hinted properties of the objects are serialized, see
+	 * {@link #valueToTree(Object, Collection)}.
+	 * 
+	 * @param source
+	 * @param target
+	 * @param paths the path hints
+	 * @return
+	 * @throws DiffProcessingException 
+	 */
+	public <T> List<PatchOperation> diff(T source, T target, Collection<JsonPointer> paths) throws DiffProcessingException {
+        if (source == null) {
+            throw new IllegalArgumentException("Source object cannot be null");
+        }
+        if (target == null) {
+            throw new IllegalArgumentException("Target object cannot be null");
+        }
+		JsonNode sourceJsonNode = valueToTree(source, paths);
+		JsonNode targetJsonNode = valueToTree(target, paths);
+		return diffStrategy.diff(sourceJsonNode, targetJsonNode, paths, source.getClass());
+	}
+	
+	/**
+	 * Serializes the properties of an object the path hints go through, the
+	 * other ones left out, as a hinted diff does not read them. The whole
+	 * object is serialized, in O(document), when a hint is the root or when
+	 * its properties are not written one by one by a plain bean serializer:
+	 * a custom serializer, a filter, a view, an object id, or a hint to a
+	 * property not found, e.g. unwrapped or of an any getter. It is also
+	 * serialized whole for a diff strategy validating the hints, see
+	 * {@link DiffStrategy#isValidatingHints()}.
+	 * 
+	 * @param value
+	 * @param paths the path hints
+	 * @return the document of the hinted properties, or of the whole object
+	 * @throws DiffProcessingException 
+	 */
+	protected JsonNode valueToTree(Object value, Collection<JsonPointer> paths) throws DiffProcessingException {
+        if (paths == null) {
+            throw new IllegalArgumentException("Paths cannot be null");
+        }
+		if (diffStrategy.isValidatingHints()) {
+			return objectMapper.valueToTree(value);
+		}
+		Set<String> propertyNames = new LinkedHashSet<>();
+		for (JsonPointer path : paths) {
+			if (JacksonUtils.isRoot(path)) {
+				return objectMapper.valueToTree(value);
+			}
+			propertyNames.add(path.getMatchingProperty());
+		}
+		try {
+			SerializerProvider serializerProvider = objectMapper.getSerializerProviderInstance();
+			JsonSerializer<Object> serializer = serializerProvider.findTypedValueSerializer(value.getClass(), true, null);
+			if (serializer.getClass() != BeanSerializer.class || serializer.usesObjectId() || serializerProvider.getActiveView() != null
+					|| serializerProvider.getAnnotationIntrospector().findFilterId(
+							serializerProvider.getConfig().introspectClassAnnotations(value.getClass()).getClassInfo()) != null) {
+				return objectMapper.valueToTree(value);
+			}
+			TokenBuffer tokenBuffer = new TokenBuffer(objectMapper, false);
+			tokenBuffer.writeStartObject();
+			Iterator<PropertyWriter> propertyWriters = serializer.properties();
+			int count = 0;
+			while (propertyWriters.hasNext()) {
+				PropertyWriter propertyWriter = propertyWriters.next();
+				if (propertyNames.contains(propertyWriter.getName())) {
+					if (!(propertyWriter instanceof BeanPropertyWriter) || ((BeanPropertyWriter) propertyWriter).isUnwrapping()) {
+						return objectMapper.valueToTree(value);
+					}
+					propertyWriter.serializeAsField(value, tokenBuffer, serializerProvider);
+					++count;
+				}
+			}
+			tokenBuffer.writeEndObject();
+			if (count < propertyNames.size()) {
+				return objectMapper.valueToTree(value);
+			}
+			return objectMapper.readTree(tokenBuffer.asParser());
+		} catch (Exception e) {
+			throw new DiffProcessingException(e);
+		}
 	}
 	
 }
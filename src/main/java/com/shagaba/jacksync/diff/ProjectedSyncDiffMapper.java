@@ -0,0 +1,168 @@
+package com.shagaba.jacksync.diff;
+
+import java.util.Collection;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shagaba.jacksync.diff.strategy.DiffStrategy;
+import com.shagaba.jacksync.diff.strategy.SimpleDiffStrategy;
+import com.shagaba.jacksync.exception.DiffProcessingException;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.sync.SyncData;
+import com.shagaba.jacksync.sync.SyncDataRouter;
+import com.shagaba.jacksync.sync.SyncObject;
+import com.shagaba.jacksync.utils.ChecksumUtils;
+
+/**
+ * Computes the syncData of a document for every projection of it, each one the
+ * view of the document some clients are allowed to see.
+ *
+ * A projection is a set of included JSON Pointers, the whole document if
+ * empty, and a set of excluded JSON Pointers. The document is diffed once, and
+ * the syncData of every projection is derived from the operations of that
+ * diff by a {@link SyncDataRouter}, so N projections cost one diff plus the
+ * filtering of its operations. The target checksum of a projection is the
+ * checksum of the projected target object, as a client holding the projection
+ * computes it, or of the projected source object patched by the operations
+ * when diff policies leave out differences of the target object.
+ *
+ * @author Shagaba
+ *
+ */
+public class ProjectedSyncDiffMapper {
+
+	protected ObjectMapper objectMapper;
+
+	protected DiffStrategy diffStrategy;
+
+	protected SyncDataRouter syncDataRouter;
+
+	protected boolean isComputeChecksum;
+
+	/**
+	 * @param objectMapper
+	 */
+	public ProjectedSyncDiffMapper(ObjectMapper objectMapper) {
+		this(objectMapper, new SimpleDiffStrategy(), true);
+	}
+
+	/**
+	 *
+	 * @param objectMapper
+	 * @param diffStrategy
+	 * @param isComputeChecksum
+	 */
+	public ProjectedSyncDiffMapper(ObjectMapper objectMapper, DiffStrategy diffStrategy, boolean isComputeChecksum) {
+        if (objectMapper == null) {
+            throw new IllegalArgumentException("ObjectMapper cannot be null");
+        }
+        if (diffStrategy == null) {
+            throw new IllegalArgumentException("DiffStrategy cannot be null");
+        }
+		this.objectMapper = objectMapper;
+		this.diffStrategy = diffStrategy;
+		this.syncDataRouter = new SyncDataRouter();
+		this.isComputeChecksum = isComputeChecksum;
+	}
+
+	/**
+	 * Registers a projection, replacing the projection of the same name, if
+	 * any.
+	 *
+	 * @param projection the projection name
+	 * @param includes the included locations, the whole document if empty
+	 * @param excludes the excluded locations
+	 */
+	public void addProjection(String projection, Collection<JsonPointer> includes, Collection<JsonPointer> excludes) {
+		syncDataRouter.subscribe(projection, includes, excludes);
+	}
+
+	/**
+	 *
+	 * @param projection the projection name
+	 * @return true if the projection was registered
+	 */
+	public boolean removeProjection(String projection) {
+		return syncDataRouter.unsubscribe(projection);
+	}
+
+	/**
+	 * Projects an object, as the initial object of a client holding the
+	 * projection.
+	 *
+	 * @param projection the projection name
+	 * @param syncObject
+	 * @return the projected object, of the same version
+	 * @throws DiffProcessingException
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> SyncObject<T> project(String projection, SyncObject<T> syncObject) throws DiffProcessingException {
+        if (syncObject == null || syncObject.getObject() == null) {
+            throw new IllegalArgumentException("Object cannot be null");
+        }
+		try {
+			JsonNode projectedJsonNode = syncDataRouter.project(projection, objectMapper.valueToTree(syncObject.getObject()));
+			return new SyncObject<T>(syncObject.getVersion(), (T) objectMapper.treeToValue(projectedJsonNode, syncObject.getObject().getClass()));
+		} catch (JsonProcessingException e) {
+			throw new DiffProcessingException(e);
+		}
+	}
+
+	/**
+	 *
+	 * @param source
+	 * @param target
+	 * @return the syncData of every projection by projection name
+	 * @throws DiffProcessingException
+	 */
+	public <T> Map<String, SyncData> diff(SyncObject<T> source, SyncObject<T> target) throws DiffProcessingException {
+        if (source == null || source.getObject() == null) {
+            throw new IllegalArgumentException("Source object cannot be null");
+        }
+        if (target == null || target.getObject() == null) {
+            throw new IllegalArgumentException("Target object cannot be null");
+        }
+		try {
+			JsonNode sourceJsonNode = objectMapper.valueToTree(source.getObject());
+			JsonNode targetJsonNode = objectMapper.valueToTree(target.getObject());
+			SyncData syncData = new SyncData();
+			syncData.setVersion(source.getVersion());
+			syncData.setMasterVersion(target.getVersion());
+			syncData.setOperations(diffStrategy.diff(sourceJsonNode, targetJsonNode, source.getObject().getClass()));
+			Map<String, SyncData> syncDataByProjection = syncDataRouter.route(syncData, sourceJsonNode);
+			if (isComputeChecksum) {
+				JsonNode checkedJsonNode = targetJsonNode;
+				if (diffStrategy.getDiffPolicies() != null || diffStrategy.getNodeComparator() != null) {
+					// the differences left out by the diff policies or the node comparator are not checked
+					checkedJsonNode = sourceJsonNode.deepCopy();
+					for (PatchOperation operation : syncData.getOperations()) {
+						checkedJsonNode = operation.apply(checkedJsonNode);
+					}
+				}
+				for (Map.Entry<String, SyncData> entry : syncDataByProjection.entrySet()) {
+					entry.getValue().setTargetChecksum(checksum(syncDataRouter.project(entry.getKey(), checkedJsonNode), target.getObject().getClass()));
+				}
+			}
+			return syncDataByProjection;
+		} catch (Exception e) {
+			throw new DiffProcessingException(e);
+		}
+	}
+
+	/**
+	 * Reads the projected object back into its class before writing it, so
+	 * the checksum is the one of the projected object held by a client.
+	 *
+	 * @param projectedJsonNode
+	 * @param objectClass
+	 * @return the checksum of the projected object
+	 * @throws JsonProcessingException
+	 */
+	protected String checksum(JsonNode projectedJsonNode, Class<?> objectClass) throws JsonProcessingException {
+		return ChecksumUtils.computeChecksum(objectMapper.writeValueAsString(objectMapper.treeToValue(projectedJsonNode, objectClass)));
+	}
+
+}
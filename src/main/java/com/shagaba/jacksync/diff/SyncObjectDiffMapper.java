@@ -1,24 +1,45 @@
 package com.shagaba.jacksync.diff;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shagaba.jacksync.diff.strategy.DiffStrategy;
 import com.shagaba.jacksync.diff.strategy.SimpleDiffStrategy;
 import com.shagaba.jacksync.exception.DiffProcessingException;
+import com.shagaba.jacksync.exception.PatchProcessingException;
+import com.shagaba.jacksync.operation.PatchDualPathOperation;
 import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.PatchPathValueOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+import com.shagaba.jacksync.patch.ObjectPatchProcessor;
 import com.shagaba.jacksync.sync.SyncData;
 import com.shagaba.jacksync.sync.SyncObject;
 import com.shagaba.jacksync.utils.ChecksumUtils;
 
 public class SyncObjectDiffMapper implements SyncDiffMapper {
 	
+	/**
+	 * The estimated cost of an operation beside its path and value, its
+	 * framing on the wire and its application
+	 */
+	public static final int OPERATION_COST = 32;
+	
 	protected ObjectMapper objectMapper;
 
 	protected ObjectDiffMapper objectDiffMapper;
 	
 	protected boolean isComputeChecksum;
 
+	protected boolean isSnapshotEnabled;
+
 	/**
 	 * @param objectMapper
 	 */
@@ -61,6 +82,24 @@ public class SyncObjectDiffMapper implements SyncDiffMapper {
 		this.isComputeChecksum = isComputeChecksum;
 	}
 
+	/**
+	 * @return the isSnapshotEnabled
+	 */
+	public boolean isSnapshotEnabled() {
+		return isSnapshotEnabled;
+	}
+
+	/**
+	 * When enabled, a diff estimated to cost more than the target object
+	 * itself is replaced by a snapshot syncData, see
+	 * {@link SyncData#isSnapshot()}.
+	 * 
+	 * @param isSnapshotEnabled the isSnapshotEnabled to set
+	 */
+	public void setSnapshotEnabled(boolean isSnapshotEnabled) {
+		this.isSnapshotEnabled = isSnapshotEnabled;
+	}
+
 	/**
 	 * @return the objectDiffMapper
 	 */
@@ -77,6 +116,20 @@ public class SyncObjectDiffMapper implements SyncDiffMapper {
 	 */
 	@Override
 	public <T> SyncData diff(SyncObject<T> source, SyncObject<T> target) throws DiffProcessingException {
+		return diff(source, target, null);
+	}
+
+	/**
+	 * Diffs only the subtrees at the given path hints, see
+	 * {@link DiffStrategy#diff(JsonNode, JsonNode, Collection)}.
+	 * 
+	 * @param source
+	 * @param target
+	 * @param paths the path hints, or null for a full diff
+	 * @return
+	 * @throws DiffProcessingException 
+	 */
+	public <T> SyncData diff(SyncObject<T> source, SyncObject<T> target, Collection<JsonPointer> paths) throws DiffProcessingException {
         if (source == null || source.getObject() == null) {
             throw new IllegalArgumentException("Source object cannot be null");
         }
@@ -84,20 +137,188 @@ public class SyncObjectDiffMapper implements SyncDiffMapper {
             throw new IllegalArgumentException("Target object cannot be null");
         }
 		try {
-			List<PatchOperation> operations = objectDiffMapper.diff(source.getObject(), target.getObject());
+			SyncData syncData = new SyncData();
+			syncData.setVersion(source.getVersion());
+			syncData.setMasterVersion(target.getVersion());
+			
+			if (isUnchanged(source, target)) {
+				if (isComputeChecksum) {
+					syncData.setTargetChecksum(checksum(target));
+				}
+				syncData.setOperations(new ArrayList<>());
+				return syncData;
+			}
+			List<PatchOperation> operations = paths == null ? objectDiffMapper.diff(source.getObject(), target.getObject())
+					: objectDiffMapper.diff(source.getObject(), target.getObject(), paths);
+			syncData.setOperations(snapshotIfCheaper(operations, target));
+			if (isComputeChecksum) {
+				syncData.setTargetChecksum(targetChecksum(source, target, syncData.getOperations()));
+			}
+			return syncData;
+		} catch (Exception e) {
+			throw new DiffProcessingException(e);
+		}
+	}
+
+	/**
+	 * Builds the syncData of operations recorded while mutating the source
+	 * object into the target one, e.g. by a
+	 * {@link com.shagaba.jacksync.tracking.ChangeTracker}, without diffing. The
+	 * target object may be the source one mutated in place, the objects are
+	 * not compared.
+	 * 
+	 * @param source
+	 * @param target
+	 * @param operations the recorded operations
+	 * @return
+	 * @throws DiffProcessingException 
+	 */
+	public <T> SyncData syncData(SyncObject<T> source, SyncObject<T> target, List<PatchOperation> operations) throws DiffProcessingException {
+        if (source == null) {
+            throw new IllegalArgumentException("Source object cannot be null");
+        }
+        if (target == null || target.getObject() == null) {
+            throw new IllegalArgumentException("Target object cannot be null");
+        }
+        if (operations == null) {
+            throw new IllegalArgumentException("Operations cannot be null");
+        }
+		try {
 			SyncData syncData = new SyncData();
 			syncData.setVersion(source.getVersion());
 			syncData.setMasterVersion(target.getVersion());
 			
 			if (isComputeChecksum) {
-				String targetJson = objectMapper.writeValueAsString(target);
-				syncData.setTargetChecksum(ChecksumUtils.computeChecksum(targetJson));
+				syncData.setTargetChecksum(checksum(target));
 			}
-			syncData.setOperations(operations);
+			syncData.setOperations(snapshotIfCheaper(new ArrayList<>(operations), target));
 			return syncData;
 		} catch (Exception e) {
 			throw new DiffProcessingException(e);
 		}
 	}
 
+	/**
+	 * 
+	 * @param operations
+	 * @param target
+	 * @return the operations, or a snapshot of the target if enabled and
+	 *         estimated to cost less
+	 */
+	protected <T> List<PatchOperation> snapshotIfCheaper(List<PatchOperation> operations, SyncObject<T> target) {
+		if (isSnapshotEnabled) {
+			JsonNode targetJsonNode = objectMapper.valueToTree(target.getObject());
+			if (estimateCost(operations) > estimateCost(targetJsonNode)) {
+				return Collections.singletonList(new ReplaceOperation(JsonPointer.compile(""), targetJsonNode));
+			}
+		}
+		return operations;
+	}
+
+	/**
+	 * Tells that the objects are the same instance, or of the same cached
+	 * checksums, without reading them.
+	 * 
+	 * @param source
+	 * @param target
+	 * @return true if the target is known to equal the source
+	 */
+	protected <T> boolean isUnchanged(SyncObject<T> source, SyncObject<T> target) {
+		if (source.getObject() == target.getObject()) {
+			return true;
+		}
+		return source.getChecksum() != null && source.getChecksum().equals(target.getChecksum());
+	}
+
+	/**
+	 * The diff policies and the node comparator leave out differences of the
+	 * target object, e.g. an ignored property or a number within the epsilon
+	 * of a {@link com.shagaba.jacksync.utils.NumericNodeComparator}, that the
+	 * operations do not carry. The checksum is then
+	 * the one of the source object patched by the operations, as a client
+	 * holding the source object computes it, instead of the one of the target
+	 * object.
+	 * 
+	 * @param source
+	 * @param target
+	 * @param operations the operations of the diff
+	 * @return the checksum of the object a client holds once patched
+	 * @throws JsonProcessingException
+	 * @throws PatchProcessingException
+	 */
+	protected <T> String targetChecksum(SyncObject<T> source, SyncObject<T> target, List<PatchOperation> operations) throws JsonProcessingException, PatchProcessingException {
+		DiffStrategy diffStrategy = objectDiffMapper.getDiffStrategy();
+		if (diffStrategy.getDiffPolicies() == null && diffStrategy.getNodeComparator() == null) {
+			return checksum(target);
+		}
+		T patchedObject = new ObjectPatchProcessor(objectMapper).patch(source.getObject(), operations);
+		return ChecksumUtils.computeChecksum(objectMapper.writeValueAsString(patchedObject));
+	}
+
+	/**
+	 * 
+	 * @param syncObject
+	 * @return the checksum of the object, computed once and cached on the
+	 *         syncObject
+	 * @throws JsonProcessingException
+	 */
+	protected <T> String checksum(SyncObject<T> syncObject) throws JsonProcessingException {
+		String checksum = syncObject.getChecksum();
+		if (checksum == null) {
+			checksum = ChecksumUtils.computeChecksum(objectMapper.writeValueAsString(syncObject.getObject()));
+			syncObject.setChecksum(checksum);
+		}
+		return checksum;
+	}
+
+	/**
+	 * 
+	 * @param operations
+	 * @return the estimated cost of sending and applying the operations
+	 */
+	protected long estimateCost(List<PatchOperation> operations) {
+		long cost = 0;
+		for (PatchOperation operation : operations) {
+			cost += OPERATION_COST + operation.getPath().toString().length();
+			if (operation instanceof PatchPathValueOperation) {
+				cost += estimateCost(((PatchPathValueOperation) operation).getValue());
+			} else if (operation instanceof PatchDualPathOperation) {
+				cost += ((PatchDualPathOperation) operation).getFrom().toString().length();
+			}
+		}
+		return cost;
+	}
+
+	/**
+	 * 
+	 * @param jsonNode
+	 * @return the estimated cost of sending and reading the JSON, about its
+	 *         written length
+	 */
+	protected long estimateCost(JsonNode jsonNode) {
+		if (jsonNode == null) {
+			return 4;
+		}
+		if (jsonNode.isObject()) {
+			long cost = 2;
+			Iterator<Map.Entry<String, JsonNode>> fields = jsonNode.fields();
+			while (fields.hasNext()) {
+				Map.Entry<String, JsonNode> field = fields.next();
+				cost += field.getKey().length() + 4 + estimateCost(field.getValue());
+			}
+			return cost;
+		}
+		if (jsonNode.isArray()) {
+			long cost = 2;
+			for (JsonNode element : jsonNode) {
+				cost += 1 + estimateCost(element);
+			}
+			return cost;
+		}
+		if (jsonNode.isTextual()) {
+			return jsonNode.textValue().length() + 2;
+		}
+		return jsonNode.asText().length();
+	}
+
 }
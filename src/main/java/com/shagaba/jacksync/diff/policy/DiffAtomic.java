@@ -0,0 +1,21 @@
+package com.shagaba.jacksync.diff.policy;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Diffs a property as a whole: a changed value is replaced, its subtree is
+ * never walked, see {@link DiffPolicies}.
+ *
+ * @author Shagaba
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD, ElementType.METHOD })
+public @interface DiffAtomic {
+
+}
@@ -0,0 +1,27 @@
+package com.shagaba.jacksync.diff.policy;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Diffs an array property of objects by the identity of its elements: the
+ * elements of the same key are diffed with each other wherever they are, the
+ * others are added, moved or removed, see {@link DiffPolicies}.
+ *
+ * @author Shagaba
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD, ElementType.METHOD })
+public @interface DiffIdentity {
+
+	/**
+	 * @return the JSON field name of the element key
+	 */
+	String value();
+
+}
@@ -0,0 +1,22 @@
+package com.shagaba.jacksync.diff.policy;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Leaves the changes of a property out of the typed diffs, see
+ * {@link DiffPolicies}. The property is still serialized, so a target
+ * checksum covers it.
+ *
+ * @author Shagaba
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD, ElementType.METHOD })
+public @interface DiffIgnore {
+
+}
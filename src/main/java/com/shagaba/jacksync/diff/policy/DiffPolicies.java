@@ -0,0 +1,130 @@
+package com.shagaba.jacksync.diff.policy;
+
+import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+
+/**
+ * The per-class cache of the diff policies declared by {@link DiffIgnore},
+ * {@link DiffAtomic}, {@link DiffIdentity}, {@link DiffTolerance} and
+ * {@link DiffIgnoreCase} on the fields, getters or setters of the properties,
+ * built from the Jackson {@link BeanDescription} of the classes, so the
+ * policies apply to the serialized property names.
+ *
+ * The policies follow the declared types of the properties from the root
+ * class of a typed diff, through array and map contents, see
+ * {@link com.shagaba.jacksync.diff.strategy.SimpleDiffStrategy#diff(com.fasterxml.jackson.databind.JsonNode, com.fasterxml.jackson.databind.JsonNode, Class)}.
+ *
+ * @author Shagaba
+ *
+ */
+public class DiffPolicies {
+
+	protected ObjectMapper objectMapper;
+
+	protected Map<JavaType, Map<String, DiffPolicy>> policiesByType;
+
+	/**
+	 * @param objectMapper
+	 */
+	public DiffPolicies(ObjectMapper objectMapper) {
+        if (objectMapper == null) {
+            throw new IllegalArgumentException("Object mapper cannot be null");
+        }
+		this.objectMapper = objectMapper;
+		this.policiesByType = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 *
+	 * @param type
+	 * @return the policy of the root of a document of the type
+	 */
+	public DiffPolicy rootPolicy(Class<?> type) {
+		return new DiffPolicy(objectMapper.constructType(type));
+	}
+
+	/**
+	 *
+	 * @param policy the policy of an object location, or null
+	 * @param fieldName
+	 * @return the policy of the field, or null if unknown
+	 */
+	public DiffPolicy fieldPolicy(DiffPolicy policy, String fieldName) {
+		JavaType type = policy == null ? null : policy.getType();
+		if (type == null || type.isArrayType() || type.isCollectionLikeType() || type.isJavaLangObject()) {
+			return null;
+		}
+		if (type.isMapLikeType()) {
+			return new DiffPolicy(type.getContentType());
+		}
+		return policiesByType.computeIfAbsent(type, this::introspect).get(fieldName);
+	}
+
+	/**
+	 *
+	 * @param policy the policy of an array location, or null
+	 * @return the policy of its elements, or null if unknown
+	 */
+	public DiffPolicy elementPolicy(DiffPolicy policy) {
+		return policy == null ? null : policy.forElements();
+	}
+
+	/**
+	 *
+	 * @param policy the policy of a location, or null
+	 * @param segment the path segment of a child location
+	 * @return the policy of the element or field, or null if unknown
+	 */
+	public DiffPolicy childPolicy(DiffPolicy policy, String segment) {
+		JavaType type = policy == null ? null : policy.getType();
+		if (type != null && (type.isArrayType() || type.isCollectionLikeType())) {
+			return elementPolicy(policy);
+		}
+		return fieldPolicy(policy, segment);
+	}
+
+	/**
+	 *
+	 * @param type
+	 * @return the policies of the serialized properties of the type by name
+	 */
+	protected Map<String, DiffPolicy> introspect(JavaType type) {
+		if (type.isPrimitive() || type.isEnumType() || type.isContainerType()) {
+			return Collections.emptyMap();
+		}
+		BeanDescription description = objectMapper.getSerializationConfig().introspect(type);
+		Map<String, DiffPolicy> policies = new HashMap<>();
+		for (BeanPropertyDefinition definition : description.findProperties()) {
+			AnnotatedMember[] members = { definition.getField(), definition.getGetter(), definition.getSetter() };
+			DiffIdentity diffIdentity = findAnnotation(members, DiffIdentity.class);
+			DiffTolerance diffTolerance = findAnnotation(members, DiffTolerance.class);
+			policies.put(definition.getName(), new DiffPolicy(definition.getPrimaryType(),
+					findAnnotation(members, DiffIgnore.class) != null,
+					findAnnotation(members, DiffAtomic.class) != null,
+					diffIdentity == null ? null : diffIdentity.value(),
+					diffTolerance == null ? 0 : diffTolerance.value(),
+					findAnnotation(members, DiffIgnoreCase.class) != null));
+		}
+		return policies;
+	}
+
+	protected static <A extends Annotation> A findAnnotation(AnnotatedMember[] members, Class<A> annotationType) {
+		for (AnnotatedMember member : members) {
+			A annotation = member == null ? null : member.getAnnotation(annotationType);
+			if (annotation != null) {
+				return annotation;
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,127 @@
+package com.shagaba.jacksync.diff.policy;
+
+import java.util.Objects;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * The diff policy of a location of a typed document: its declared type and
+ * the policy annotations of its property, see {@link DiffPolicies}.
+ *
+ * @author Shagaba
+ *
+ */
+public class DiffPolicy {
+
+	protected final JavaType type;
+
+	protected final boolean isIgnored;
+
+	protected final boolean isAtomic;
+
+	protected final String identityKey;
+
+	protected final double tolerance;
+
+	protected final boolean isIgnoreCase;
+
+	/**
+	 * @param type
+	 */
+	public DiffPolicy(JavaType type) {
+		this(type, false, false, null, 0, false);
+	}
+
+	/**
+	 * @param type
+	 * @param isIgnored
+	 * @param isAtomic
+	 * @param identityKey
+	 * @param tolerance
+	 * @param isIgnoreCase
+	 */
+	public DiffPolicy(JavaType type, boolean isIgnored, boolean isAtomic, String identityKey, double tolerance, boolean isIgnoreCase) {
+		this.type = type;
+		this.isIgnored = isIgnored;
+		this.isAtomic = isAtomic;
+		this.identityKey = identityKey;
+		this.tolerance = tolerance;
+		this.isIgnoreCase = isIgnoreCase;
+	}
+
+	/**
+	 * @return the declared type, or null if unknown
+	 */
+	public JavaType getType() {
+		return type;
+	}
+
+	/**
+	 * @return the isIgnored
+	 */
+	public boolean isIgnored() {
+		return isIgnored;
+	}
+
+	/**
+	 * @return the isAtomic
+	 */
+	public boolean isAtomic() {
+		return isAtomic;
+	}
+
+	/**
+	 * @return the identityKey of the array elements, or null
+	 */
+	public String getIdentityKey() {
+		return identityKey;
+	}
+
+	/**
+	 * @return the tolerance
+	 */
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	/**
+	 * @return the isIgnoreCase
+	 */
+	public boolean isIgnoreCase() {
+		return isIgnoreCase;
+	}
+
+	/**
+	 *
+	 * @param sourceJsonNode
+	 * @param targetJsonNode
+	 * @return true if the values are equal, or equal numbers within the
+	 *         tolerance, or equal strings ignoring case if so
+	 */
+	public boolean isEquivalent(JsonNode sourceJsonNode, JsonNode targetJsonNode) {
+		if (Objects.equals(sourceJsonNode, targetJsonNode)) {
+			return true;
+		}
+		if (sourceJsonNode == null || targetJsonNode == null) {
+			return false;
+		}
+		if (tolerance > 0 && sourceJsonNode.isNumber() && targetJsonNode.isNumber()) {
+			return Math.abs(sourceJsonNode.doubleValue() - targetJsonNode.doubleValue()) <= tolerance;
+		}
+		if (isIgnoreCase && sourceJsonNode.isTextual() && targetJsonNode.isTextual()) {
+			return sourceJsonNode.textValue().equalsIgnoreCase(targetJsonNode.textValue());
+		}
+		return false;
+	}
+
+	/**
+	 * @return the policy of the elements of an array of this policy, keeping
+	 *         its comparison
+	 */
+	public DiffPolicy forElements() {
+		JavaType elementType = type != null && type.isContainerType() ? type.getContentType() : null;
+		return new DiffPolicy(elementType, false, false, null, tolerance, isIgnoreCase);
+	}
+
+}
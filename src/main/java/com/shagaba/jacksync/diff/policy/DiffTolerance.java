@@ -0,0 +1,26 @@
+package com.shagaba.jacksync.diff.policy;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Compares the numbers of a property, or of its array elements, within a
+ * tolerance, see {@link DiffPolicies}.
+ *
+ * @author Shagaba
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD, ElementType.METHOD })
+public @interface DiffTolerance {
+
+	/**
+	 * @return the largest absolute difference of equal numbers
+	 */
+	double value();
+
+}
@@ -0,0 +1,90 @@
+package com.shagaba.jacksync.diff.strategy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.shagaba.jacksync.operation.PatchDualPathOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.PatchPathOperation;
+import com.shagaba.jacksync.utils.JacksonUtils;
+
+/**
+ * Support methods of the diffs scoped to the subtrees given by path hints, see
+ * {@link DiffStrategy#diff(JsonNode, JsonNode, Collection)}.
+ *
+ * @author Shagaba
+ *
+ */
+public final class DiffScope {
+
+	private DiffScope() {
+	}
+
+	/**
+	 * Resolves path hints into the subtrees to diff. A hint missing from
+	 * either document is lifted to its nearest ancestor present in both, so the
+	 * added or removed location is diffed from its container, and a hint
+	 * below another one is covered by it.
+	 *
+	 * @param sourceJsonNode
+	 * @param targetJsonNode
+	 * @param paths the path hints
+	 * @return the paths of the subtrees to diff, none below another
+	 */
+	public static List<JsonPointer> resolve(JsonNode sourceJsonNode, JsonNode targetJsonNode, Collection<JsonPointer> paths) {
+        if (paths == null) {
+            throw new IllegalArgumentException("Paths cannot be null");
+        }
+		List<JsonPointer> resolvedPaths = new ArrayList<>();
+		List<List<String>> scopes = new ArrayList<>();
+		for (JsonPointer path : paths) {
+			while (!JacksonUtils.isRoot(path) && (sourceJsonNode.at(path).isMissingNode() || targetJsonNode.at(path).isMissingNode())) {
+				path = path.head();
+			}
+			List<String> scope = JacksonUtils.segments(path);
+			boolean isCovered = false;
+			for (int i = scopes.size() - 1; i >= 0 && !isCovered; --i) {
+				if (startsWith(scope, scopes.get(i))) {
+					isCovered = true;
+				} else if (startsWith(scopes.get(i), scope)) {
+					scopes.remove(i);
+					resolvedPaths.remove(i);
+				}
+			}
+			if (!isCovered) {
+				scopes.add(scope);
+				resolvedPaths.add(path);
+			}
+		}
+		return resolvedPaths;
+	}
+
+	/**
+	 * Moves an operation of a subtree diff to the subtree path.
+	 *
+	 * @param operation
+	 * @param path the subtree path
+	 * @return the given operation
+	 */
+	public static PatchOperation reroot(PatchOperation operation, JsonPointer path) {
+		if (JacksonUtils.isRoot(path)) {
+			return operation;
+		}
+		if (operation instanceof PatchPathOperation) {
+			((PatchPathOperation) operation).setPath(JsonPointer.compile(path.toString() + operation.getPath().toString()));
+		}
+		if (operation instanceof PatchDualPathOperation) {
+			PatchDualPathOperation dualPathOperation = (PatchDualPathOperation) operation;
+			dualPathOperation.setFrom(JsonPointer.compile(path.toString() + dualPathOperation.getFrom().toString()));
+		}
+		return operation;
+	}
+
+	protected static boolean startsWith(List<String> segments, List<String> prefixSegments) {
+		return segments.size() >= prefixSegments.size() && segments.subList(0, prefixSegments.size()).equals(prefixSegments);
+	}
+
+}
@@ -1,13 +1,43 @@
 package com.shagaba.jacksync.diff.strategy;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 
+import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.shagaba.jacksync.diff.policy.DiffPolicies;
 import com.shagaba.jacksync.exception.DiffProcessingException;
 import com.shagaba.jacksync.operation.PatchOperation;
 
 public interface DiffStrategy {
 
+	/**
+	 * @return the diff policies honored by the typed diffs, or null if none
+	 */
+	public default DiffPolicies getDiffPolicies() {
+		return null;
+	}
+
+	/**
+	 * @return the comparator of the node values, or null if the nodes are
+	 *         compared by equals
+	 */
+	public default Comparator<JsonNode> getNodeComparator() {
+		return null;
+	}
+
+	/**
+	 * A strategy validating the path hints reads the documents outside the
+	 * hinted subtrees, which are then to be given whole.
+	 * 
+	 * @return true if the hinted diffs validate the hints
+	 */
+	public default boolean isValidatingHints() {
+		return false;
+	}
+
 	/**
 	 * 
 	 * @param sourceJsonNode
@@ -17,4 +47,58 @@ public interface DiffStrategy {
 	 */
 	public List<PatchOperation> diff(JsonNode sourceJsonNode, JsonNode targetJsonNode) throws DiffProcessingException;
 
+	/**
+	 * Diffs the documents of an object of the given type, for the strategies
+	 * honoring the diff policies of the type, see
+	 * {@link com.shagaba.jacksync.diff.policy.DiffPolicies}.
+	 * 
+	 * @param sourceJsonNode
+	 * @param targetJsonNode
+	 * @param type the type of the documents
+	 * @return
+	 * @throws DiffProcessingException
+	 */
+	public default List<PatchOperation> diff(JsonNode sourceJsonNode, JsonNode targetJsonNode, Class<?> type) throws DiffProcessingException {
+		return diff(sourceJsonNode, targetJsonNode);
+	}
+
+	/**
+	 * Diffs only the subtrees at the given path hints, the caller knowing the
+	 * rest of the documents is unchanged. The operations are rooted at the
+	 * absolute paths, as a full diff would root them. An array whose length
+	 * changed is to be hinted as a whole, since its shifted elements are not
+	 * diffed otherwise.
+	 * 
+	 * @param sourceJsonNode
+	 * @param targetJsonNode
+	 * @param paths the path hints, see {@link DiffScope#resolve(JsonNode, JsonNode, Collection)}
+	 * @return
+	 * @throws DiffProcessingException
+	 */
+	public default List<PatchOperation> diff(JsonNode sourceJsonNode, JsonNode targetJsonNode, Collection<JsonPointer> paths) throws DiffProcessingException {
+		List<PatchOperation> operations = new ArrayList<>();
+		for (JsonPointer path : DiffScope.resolve(sourceJsonNode, targetJsonNode, paths)) {
+			for (PatchOperation operation : diff(sourceJsonNode.at(path), targetJsonNode.at(path))) {
+				operations.add(DiffScope.reroot(operation, path));
+			}
+		}
+		return operations;
+	}
+
+	/**
+	 * Diffs only the subtrees at the given path hints of the documents of an
+	 * object of the given type, for the strategies honoring the diff policies
+	 * of the type, see {@link #diff(JsonNode, JsonNode, Collection)}.
+	 * 
+	 * @param sourceJsonNode
+	 * @param targetJsonNode
+	 * @param paths the path hints
+	 * @param type the type of the documents
+	 * @return
+	 * @throws DiffProcessingException
+	 */
+	public default List<PatchOperation> diff(JsonNode sourceJsonNode, JsonNode targetJsonNode, Collection<JsonPointer> paths, Class<?> type) throws DiffProcessingException {
+		return diff(sourceJsonNode, targetJsonNode, paths);
+	}
+
 }
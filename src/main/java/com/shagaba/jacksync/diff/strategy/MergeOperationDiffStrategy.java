@@ -1,6 +1,8 @@
 package com.shagaba.jacksync.diff.strategy;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -8,10 +10,12 @@ import java.util.Map;
 import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.shagaba.jacksync.diff.policy.DiffPolicies;
 import com.shagaba.jacksync.exception.DiffProcessingException;
 import com.shagaba.jacksync.operation.MergeOperation;
 import com.shagaba.jacksync.operation.PatchOperation;
 import com.shagaba.jacksync.operation.RemoveOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
 import com.shagaba.jacksync.utils.JacksonUtils;
 
 public class MergeOperationDiffStrategy implements DiffStrategy {
@@ -22,6 +26,32 @@ public class MergeOperationDiffStrategy implements DiffStrategy {
 		diffStrategy = new SimpleDiffStrategy();
 	}
 	
+	/**
+	 * @param diffPolicies the policies honored by the typed diffs
+	 */
+	public MergeOperationDiffStrategy(DiffPolicies diffPolicies) {
+		diffStrategy = new SimpleDiffStrategy(diffPolicies);
+	}
+	
+	/**
+	 * @param diffPolicies the policies honored by the typed diffs, or null
+	 * @param nodeComparator the comparator of the node values, or null, see
+	 *            {@link SimpleDiffStrategy#setNodeComparator(Comparator)}
+	 */
+	public MergeOperationDiffStrategy(DiffPolicies diffPolicies, Comparator<JsonNode> nodeComparator) {
+		diffStrategy = new SimpleDiffStrategy(diffPolicies, nodeComparator);
+	}
+	
+	@Override
+	public DiffPolicies getDiffPolicies() {
+		return diffStrategy.getDiffPolicies();
+	}
+	
+	@Override
+	public Comparator<JsonNode> getNodeComparator() {
+		return diffStrategy.getNodeComparator();
+	}
+	
 	/**
 	 * 
 	 * @param sourceJsonNode
@@ -35,6 +65,51 @@ public class MergeOperationDiffStrategy implements DiffStrategy {
 		return optimize(targetJsonNode, operations);
 	}
 	
+	/**
+	 * Honors the diff policies of the type, if any, see
+	 * {@link #optimizeBetweenReplacements(JsonNode, List)}.
+	 * 
+	 * @param sourceJsonNode
+	 * @param targetJsonNode
+	 * @param type
+	 * @return
+	 * @throws DiffProcessingException 
+	 */
+	@Override
+	public List<PatchOperation> diff(JsonNode sourceJsonNode, JsonNode targetJsonNode, Class<?> type) throws DiffProcessingException {
+		return optimizeBetweenReplacements(targetJsonNode, diffStrategy.diff(sourceJsonNode, targetJsonNode, type));
+	}
+	
+	/**
+	 * 
+	 * @param sourceJsonNode
+	 * @param targetJsonNode
+	 * @param paths
+	 * @return
+	 * @throws DiffProcessingException 
+	 */
+	@Override
+	public List<PatchOperation> diff(JsonNode sourceJsonNode, JsonNode targetJsonNode, Collection<JsonPointer> paths) throws DiffProcessingException {
+		List<PatchOperation> operations = diffStrategy.diff(sourceJsonNode, targetJsonNode, paths);
+		return optimize(targetJsonNode, operations);
+	}
+	
+	/**
+	 * Honors the diff policies of the type, if any, as
+	 * {@link #diff(JsonNode, JsonNode, Class)} does.
+	 * 
+	 * @param sourceJsonNode
+	 * @param targetJsonNode
+	 * @param paths
+	 * @param type
+	 * @return
+	 * @throws DiffProcessingException 
+	 */
+	@Override
+	public List<PatchOperation> diff(JsonNode sourceJsonNode, JsonNode targetJsonNode, Collection<JsonPointer> paths, Class<?> type) throws DiffProcessingException {
+		return optimizeBetweenReplacements(targetJsonNode, diffStrategy.diff(sourceJsonNode, targetJsonNode, paths, type));
+	}
+	
 	protected class JsonPointerData {
 		private List<String> fieldNames;
 		private List<PatchOperation> operations;
@@ -62,6 +137,33 @@ public class MergeOperationDiffStrategy implements DiffStrategy {
 		}
 	}
 	
+	/**
+	 * Keeps the replacements by objects, of atomic properties, out of the
+	 * merge operations, which would merge them. Each replacement keeps its
+	 * position, the operations between two replacements are optimized apart,
+	 * as the paths of the operations after an array move or remove are only
+	 * valid in their order.
+	 * 
+	 * @param targetJsonNode
+	 * @param operations the operations of a typed diff
+	 * @return
+	 */
+	protected List<PatchOperation> optimizeBetweenReplacements(JsonNode targetJsonNode, List<PatchOperation> operations) {
+		List<PatchOperation> optimizedOperations = new ArrayList<>();
+		List<PatchOperation> mergedOperations = new ArrayList<>();
+		for (PatchOperation operation : operations) {
+			if (operation instanceof ReplaceOperation && ((ReplaceOperation) operation).getValue().isObject()) {
+				optimizedOperations.addAll(optimize(targetJsonNode, mergedOperations));
+				mergedOperations.clear();
+				optimizedOperations.add(operation);
+			} else {
+				mergedOperations.add(operation);
+			}
+		}
+		optimizedOperations.addAll(optimize(targetJsonNode, mergedOperations));
+		return optimizedOperations;
+	}
+	
 	/**
 	 * 
 	 * @param targetJsonNode
@@ -0,0 +1,222 @@
+package com.shagaba.jacksync.diff.strategy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.shagaba.jacksync.diff.policy.DiffPolicies;
+import com.shagaba.jacksync.exception.DiffProcessingException;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.utils.JacksonUtils;
+
+/**
+ * Validates the path hints of a scoped diff before trusting them.
+ *
+ * The containers on the way to the hinted subtrees are checked to hold the
+ * same fields and number of elements, and a random sample of the untouched
+ * subtrees hanging off that way is compared in full. Any difference outside
+ * the hints falls back to a full diff, so a wrong hint costs a full diff
+ * instead of a lost change. A larger sample catches more wrong hints at a
+ * higher cost, an unlimited one compares every untouched subtree.
+ *
+ * @author Shagaba
+ *
+ */
+public class SampledScopeDiffStrategy implements DiffStrategy {
+
+	public static final int DEFAULT_SAMPLE_SIZE = 8;
+
+	protected DiffStrategy diffStrategy;
+
+	protected int sampleSize;
+
+	protected AtomicLong fallbackCounter;
+
+	public SampledScopeDiffStrategy() {
+		this(new SimpleDiffStrategy(), DEFAULT_SAMPLE_SIZE);
+	}
+
+	/**
+	 *
+	 * @param diffStrategy
+	 * @param sampleSize the number of untouched subtrees compared per diff
+	 */
+	public SampledScopeDiffStrategy(DiffStrategy diffStrategy, int sampleSize) {
+        if (diffStrategy == null) {
+            throw new IllegalArgumentException("DiffStrategy cannot be null");
+        }
+        if (sampleSize < 0) {
+            throw new IllegalArgumentException("Sample size cannot be negative");
+        }
+		this.diffStrategy = diffStrategy;
+		this.sampleSize = sampleSize;
+		this.fallbackCounter = new AtomicLong();
+	}
+
+	/**
+	 * @return the number of scoped diffs that fell back to a full diff
+	 */
+	public long getFallbackCount() {
+		return fallbackCounter.get();
+	}
+
+	@Override
+	public DiffPolicies getDiffPolicies() {
+		return diffStrategy.getDiffPolicies();
+	}
+
+	@Override
+	public Comparator<JsonNode> getNodeComparator() {
+		return diffStrategy.getNodeComparator();
+	}
+
+	@Override
+	public boolean isValidatingHints() {
+		return true;
+	}
+
+	@Override
+	public List<PatchOperation> diff(JsonNode sourceJsonNode, JsonNode targetJsonNode) throws DiffProcessingException {
+		return diffStrategy.diff(sourceJsonNode, targetJsonNode);
+	}
+
+	@Override
+	public List<PatchOperation> diff(JsonNode sourceJsonNode, JsonNode targetJsonNode, Class<?> type) throws DiffProcessingException {
+		return diffStrategy.diff(sourceJsonNode, targetJsonNode, type);
+	}
+
+	@Override
+	public List<PatchOperation> diff(JsonNode sourceJsonNode, JsonNode targetJsonNode, Collection<JsonPointer> paths) throws DiffProcessingException {
+		return diff(sourceJsonNode, targetJsonNode, paths, null);
+	}
+
+	/**
+	 * Falls back to a full diff of the given type, a difference of a location
+	 * ignored by its diff policies included.
+	 *
+	 * @param sourceJsonNode
+	 * @param targetJsonNode
+	 * @param paths
+	 * @param type the type of the documents, or null
+	 * @return
+	 * @throws DiffProcessingException
+	 */
+	@Override
+	public List<PatchOperation> diff(JsonNode sourceJsonNode, JsonNode targetJsonNode, Collection<JsonPointer> paths, Class<?> type) throws DiffProcessingException {
+		List<JsonPointer> resolvedPaths = DiffScope.resolve(sourceJsonNode, targetJsonNode, paths);
+		if (!isUntouched(sourceJsonNode, targetJsonNode, resolvedPaths)) {
+			fallbackCounter.incrementAndGet();
+			return type == null ? diffStrategy.diff(sourceJsonNode, targetJsonNode) : diffStrategy.diff(sourceJsonNode, targetJsonNode, type);
+		}
+		return type == null ? diffStrategy.diff(sourceJsonNode, targetJsonNode, resolvedPaths)
+				: diffStrategy.diff(sourceJsonNode, targetJsonNode, resolvedPaths, type);
+	}
+
+	/**
+	 *
+	 * @param sourceJsonNode
+	 * @param targetJsonNode
+	 * @param paths the resolved path hints
+	 * @return false if a difference is found outside the hinted subtrees
+	 */
+	protected boolean isUntouched(JsonNode sourceJsonNode, JsonNode targetJsonNode, List<JsonPointer> paths) {
+		ScopeNode scope = new ScopeNode();
+		for (JsonPointer path : paths) {
+			ScopeNode node = scope;
+			for (String segment : JacksonUtils.segments(path)) {
+				node = node.children.computeIfAbsent(segment, key -> new ScopeNode());
+			}
+			node.isHinted = true;
+		}
+		List<JsonNode[]> samples = new ArrayList<>();
+		long[] untouchedCount = new long[1];
+		return collectUntouched(sourceJsonNode, targetJsonNode, scope, samples, untouchedCount) && isEqual(samples);
+	}
+
+	/**
+	 * Checks the containers on the way to the hinted subtrees, and samples the
+	 * untouched subtrees hanging off that way by reservoir sampling.
+	 *
+	 * @param sourceJsonNode
+	 * @param targetJsonNode
+	 * @param scope
+	 * @param samples
+	 * @param untouchedCount
+	 * @return false if the containers differ
+	 */
+	protected boolean collectUntouched(JsonNode sourceJsonNode, JsonNode targetJsonNode, ScopeNode scope, List<JsonNode[]> samples, long[] untouchedCount) {
+		if (scope.isHinted) {
+			return true;
+		}
+		if (sourceJsonNode.isObject() && targetJsonNode.isObject()) {
+			if (sourceJsonNode.size() != targetJsonNode.size()) {
+				return false;
+			}
+			for (Iterator<String> fieldNames = sourceJsonNode.fieldNames(); fieldNames.hasNext();) {
+				String fieldName = fieldNames.next();
+				JsonNode targetChild = targetJsonNode.get(fieldName);
+				if (targetChild == null || !visit(sourceJsonNode.get(fieldName), targetChild, scope.children.get(fieldName), samples, untouchedCount)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		if (sourceJsonNode.isArray() && targetJsonNode.isArray()) {
+			if (sourceJsonNode.size() != targetJsonNode.size()) {
+				return false;
+			}
+			for (int i = 0; i < sourceJsonNode.size(); ++i) {
+				if (!visit(sourceJsonNode.get(i), targetJsonNode.get(i), scope.children.get(Integer.toString(i)), samples, untouchedCount)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return Objects.equals(sourceJsonNode, targetJsonNode);
+	}
+
+	protected boolean visit(JsonNode sourceJsonNode, JsonNode targetJsonNode, ScopeNode scope, List<JsonNode[]> samples, long[] untouchedCount) {
+		if (scope != null) {
+			return collectUntouched(sourceJsonNode, targetJsonNode, scope, samples, untouchedCount);
+		}
+		long count = ++untouchedCount[0];
+		if (samples.size() < sampleSize) {
+			samples.add(new JsonNode[] { sourceJsonNode, targetJsonNode });
+		} else if (sampleSize > 0) {
+			long index = ThreadLocalRandom.current().nextLong(count);
+			if (index < sampleSize) {
+				samples.set((int) index, new JsonNode[] { sourceJsonNode, targetJsonNode });
+			}
+		}
+		return true;
+	}
+
+	protected boolean isEqual(List<JsonNode[]> samples) {
+		for (JsonNode[] sample : samples) {
+			if (!Objects.equals(sample[0], sample[1])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * A node of the trie of the hinted paths.
+	 */
+	protected static class ScopeNode {
+
+		protected boolean isHinted;
+
+		protected Map<String, ScopeNode> children = new HashMap<>();
+	}
+
+}
@@ -1,13 +1,19 @@
 package com.shagaba.jacksync.diff.strategy;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Set;
 
 import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.shagaba.jacksync.diff.policy.DiffPolicies;
+import com.shagaba.jacksync.diff.policy.DiffPolicy;
 import com.shagaba.jacksync.exception.DiffProcessingException;
 import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.MoveOperation;
 import com.shagaba.jacksync.operation.PatchOperation;
 import com.shagaba.jacksync.operation.RemoveOperation;
 import com.shagaba.jacksync.operation.ReplaceOperation;
@@ -15,6 +21,57 @@ import com.shagaba.jacksync.utils.JacksonUtils;
 
 public class SimpleDiffStrategy implements DiffStrategy {
 	
+	protected DiffPolicies diffPolicies;
+	
+	protected Comparator<JsonNode> nodeComparator;
+	
+	public SimpleDiffStrategy() {
+	}
+	
+	/**
+	 * @param diffPolicies the policies honored by the typed diffs
+	 */
+	public SimpleDiffStrategy(DiffPolicies diffPolicies) {
+		this.diffPolicies = diffPolicies;
+	}
+	
+	/**
+	 * @param diffPolicies the policies honored by the typed diffs, or null
+	 * @param nodeComparator the comparator of the node values, or null
+	 */
+	public SimpleDiffStrategy(DiffPolicies diffPolicies, Comparator<JsonNode> nodeComparator) {
+		this.diffPolicies = diffPolicies;
+		this.nodeComparator = nodeComparator;
+	}
+	
+	/**
+	 * @return the diffPolicies, or null if none
+	 */
+	@Override
+	public DiffPolicies getDiffPolicies() {
+		return diffPolicies;
+	}
+	
+	/**
+	 * @return the nodeComparator, or null if the nodes are compared by equals
+	 */
+	@Override
+	public Comparator<JsonNode> getNodeComparator() {
+		return nodeComparator;
+	}
+	
+	/**
+	 * Compares the node values by a comparator, e.g. a
+	 * {@link com.shagaba.jacksync.utils.NumericNodeComparator} so that numbers
+	 * of different representations but equal values are left as is.
+	 * 
+	 * @param nodeComparator the nodeComparator to set, or null to compare the
+	 *            nodes by equals
+	 */
+	public void setNodeComparator(Comparator<JsonNode> nodeComparator) {
+		this.nodeComparator = nodeComparator;
+	}
+	
 	/**
 	 * 
 	 * @param sourceJsonNode
@@ -28,6 +85,86 @@ public class SimpleDiffStrategy implements DiffStrategy {
 		return diff(sourceJsonNode, targetJsonNode, operations, JsonPointer.compile(""));
 	}
 
+	/**
+	 * Honors the diff policies of the type, if any.
+	 * 
+	 * @param sourceJsonNode
+	 * @param targetJsonNode
+	 * @param type
+	 * @return
+	 * @throws DiffProcessingException 
+	 */
+	@Override
+	public List<PatchOperation> diff(JsonNode sourceJsonNode, JsonNode targetJsonNode, Class<?> type) throws DiffProcessingException {
+		if (diffPolicies == null || type == null) {
+			return diff(sourceJsonNode, targetJsonNode);
+		}
+		List<PatchOperation> operations = new ArrayList<>();
+		return diff(sourceJsonNode, targetJsonNode, operations, JsonPointer.compile(""), diffPolicies.rootPolicy(type));
+	}
+
+	/**
+	 * Walks the hinted subtrees from their absolute paths.
+	 * 
+	 * @param sourceJsonNode
+	 * @param targetJsonNode
+	 * @param paths
+	 * @return
+	 * @throws DiffProcessingException 
+	 */
+	@Override
+	public List<PatchOperation> diff(JsonNode sourceJsonNode, JsonNode targetJsonNode, Collection<JsonPointer> paths) throws DiffProcessingException {
+		List<PatchOperation> operations = new ArrayList<>();
+		for (JsonPointer path : DiffScope.resolve(sourceJsonNode, targetJsonNode, paths)) {
+			diff(sourceJsonNode.at(path), targetJsonNode.at(path), operations, path);
+		}
+		return operations;
+	}
+
+	/**
+	 * Walks the hinted subtrees from their absolute paths, honoring the diff
+	 * policies of the type, if any. A hint below an atomic location is lifted
+	 * to it, and a hint on or below an ignored location is dropped.
+	 * 
+	 * @param sourceJsonNode
+	 * @param targetJsonNode
+	 * @param paths
+	 * @param type
+	 * @return
+	 * @throws DiffProcessingException 
+	 */
+	@Override
+	public List<PatchOperation> diff(JsonNode sourceJsonNode, JsonNode targetJsonNode, Collection<JsonPointer> paths, Class<?> type) throws DiffProcessingException {
+		if (diffPolicies == null || type == null) {
+			return diff(sourceJsonNode, targetJsonNode, paths);
+		}
+		List<JsonPointer> scopedPaths = new ArrayList<>();
+		for (JsonPointer path : paths) {
+			List<String> segments = JacksonUtils.segments(path);
+			DiffPolicy policy = diffPolicies.rootPolicy(type);
+			int depth = 0;
+			while (depth < segments.size() && (policy == null || !(policy.isAtomic() || policy.isIgnored()))) {
+				policy = diffPolicies.childPolicy(policy, segments.get(depth++));
+			}
+			if (policy != null && policy.isIgnored()) {
+				continue;
+			}
+			for (int i = depth; i < segments.size(); ++i) {
+				path = path.head();
+			}
+			scopedPaths.add(path);
+		}
+		List<PatchOperation> operations = new ArrayList<>();
+		for (JsonPointer path : DiffScope.resolve(sourceJsonNode, targetJsonNode, scopedPaths)) {
+			DiffPolicy policy = diffPolicies.rootPolicy(type);
+			for (String segment : JacksonUtils.segments(path)) {
+				policy = diffPolicies.childPolicy(policy, segment);
+			}
+			diff(sourceJsonNode.at(path), targetJsonNode.at(path), operations, path, policy);
+		}
+		return operations;
+	}
+
 	/**
 	 * 
 	 * @param sourceJsonNode
@@ -37,12 +174,31 @@ public class SimpleDiffStrategy implements DiffStrategy {
 	 * @return
 	 */
 	protected List<PatchOperation> diff(JsonNode sourceJsonNode, JsonNode targetJsonNode, List<PatchOperation> patchOperations, JsonPointer path) {
-		if (!Objects.equals(sourceJsonNode, targetJsonNode)) {
+		return diff(sourceJsonNode, targetJsonNode, patchOperations, path, null);
+	}
+	
+	/**
+	 * 
+	 * @param sourceJsonNode
+	 * @param targetJsonNode
+	 * @param patchOperations
+	 * @param path
+	 * @param policy the policy of the path, or null if none
+	 * @return
+	 */
+	protected List<PatchOperation> diff(JsonNode sourceJsonNode, JsonNode targetJsonNode, List<PatchOperation> patchOperations, JsonPointer path, DiffPolicy policy) {
+		if (!isEquivalent(sourceJsonNode, targetJsonNode, policy)) {
 			
-			if (sourceJsonNode.isArray() && targetJsonNode.isArray()) {
-				diffArrays(sourceJsonNode, targetJsonNode, patchOperations, path);
+			if (policy != null && policy.isAtomic()) {
+				patchOperations.add(new ReplaceOperation(path, targetJsonNode.deepCopy()));
+			} else if (sourceJsonNode.isArray() && targetJsonNode.isArray()) {
+				if (policy != null && policy.getIdentityKey() != null) {
+					diffArraysByIdentity(sourceJsonNode, targetJsonNode, patchOperations, path, policy);
+				} else {
+					diffArrays(sourceJsonNode, targetJsonNode, patchOperations, path, policy);
+				}
 			} else if (sourceJsonNode.isObject() && targetJsonNode.isObject()) {
-				diffObjects(sourceJsonNode, targetJsonNode, patchOperations, path);
+				diffObjects(sourceJsonNode, targetJsonNode, patchOperations, path, policy);
 			} else {
 				patchOperations.add(new ReplaceOperation(path, targetJsonNode.deepCopy()));
 			}
@@ -59,14 +215,28 @@ public class SimpleDiffStrategy implements DiffStrategy {
 	 * @return
 	 */
 	protected List<PatchOperation> diffArrays(JsonNode sourceJsonNode, JsonNode targetJsonNode, List<PatchOperation> patchOperations, JsonPointer path) {
+		return diffArrays(sourceJsonNode, targetJsonNode, patchOperations, path, null);
+	}
+	
+	/**
+	 * 
+	 * @param sourceJsonNode
+	 * @param targetJsonNode
+	 * @param patchOperations
+	 * @param path
+	 * @param policy the policy of the path, or null if none
+	 * @return
+	 */
+	protected List<PatchOperation> diffArrays(JsonNode sourceJsonNode, JsonNode targetJsonNode, List<PatchOperation> patchOperations, JsonPointer path, DiffPolicy policy) {
 		if (sourceJsonNode.isArray() && targetJsonNode.isArray()) {
+			DiffPolicy elementPolicy = diffPolicies == null ? null : diffPolicies.elementPolicy(policy);
 			List<JsonNode> commonNodes = new ArrayList<>();
 			sourceJsonNode.iterator().forEachRemaining(commonNodes::add);
 			
 			List<JsonNode> targetNodes = new ArrayList<>();
 			targetJsonNode.iterator().forEachRemaining(targetNodes::add);
 			
-			commonNodes.retainAll(targetNodes);
+			commonNodes.removeIf(commonNode -> targetNodes.stream().noneMatch(targetNode -> isEqual(commonNode, targetNode)));
 			
 			int commonIndex = 0;
 			int sourceIndex = 0;
@@ -78,22 +248,22 @@ public class SimpleDiffStrategy implements DiffStrategy {
 				JsonNode sourceNode = sourceJsonNode.size() > sourceIndex ? sourceJsonNode.get(sourceIndex) : null;
 				JsonNode targetNode = targetJsonNode.size() > targetIndex ? targetJsonNode.get(targetIndex) : null;
 				
-				if (Objects.equals(commonNode, sourceNode) && Objects.equals(commonNode, targetNode)) {
+				if (isEqual(commonNode, sourceNode) && isEqual(commonNode, targetNode)) {
 					++commonIndex;
 					++sourceIndex;
 					++targetIndex;
 				} else {
-					if (Objects.equals(commonNode, sourceNode)) {
+					if (isEqual(commonNode, sourceNode)) {
 						// add missing target
 						JsonPointer targetPath = JacksonUtils.append(path, Integer.toString(targetIndex++));
 						patchOperations.add(new AddOperation(targetPath, targetNode.deepCopy()));
-					} else if (Objects.equals(commonNode, targetNode)) {
+					} else if (isEqual(commonNode, targetNode)) {
 						// remove target
 						JsonPointer targetPath = JacksonUtils.append(path, Integer.toString(sourceIndex++));
 						patchOperations.add(new RemoveOperation(targetPath));
 					} else {
 						JsonPointer targetPath = JacksonUtils.append(path, Integer.toString(targetIndex++));
-						diff(sourceNode, targetNode, patchOperations, targetPath);
+						diff(sourceNode, targetNode, patchOperations, targetPath, elementPolicy);
 						++sourceIndex;
 					}
 				}
@@ -111,12 +281,29 @@ public class SimpleDiffStrategy implements DiffStrategy {
 	 * @return
 	 */
 	protected List<PatchOperation> diffObjects(JsonNode sourceJsonNode, JsonNode targetJsonNode, List<PatchOperation> patchOperations, JsonPointer path) {
+		return diffObjects(sourceJsonNode, targetJsonNode, patchOperations, path, null);
+	}
+	
+	/**
+	 * 
+	 * @param sourceJsonNode
+	 * @param targetJsonNode
+	 * @param patchOperations
+	 * @param path
+	 * @param policy the policy of the path, or null if none
+	 * @return
+	 */
+	protected List<PatchOperation> diffObjects(JsonNode sourceJsonNode, JsonNode targetJsonNode, List<PatchOperation> patchOperations, JsonPointer path, DiffPolicy policy) {
 		if (sourceJsonNode.isObject() &&  targetJsonNode.isObject()) {
 			// source iteration
 			sourceJsonNode.fieldNames().forEachRemaining(fieldName -> {
+				DiffPolicy fieldPolicy = diffPolicies == null ? null : diffPolicies.fieldPolicy(policy, fieldName);
+				if (fieldPolicy != null && fieldPolicy.isIgnored()) {
+					return;
+				}
 				JsonPointer fieldNamePath = JacksonUtils.append(path, fieldName);
 				if (targetJsonNode.has(fieldName)) {
-					diff(sourceJsonNode.path(fieldName), targetJsonNode.path(fieldName), patchOperations, fieldNamePath);
+					diff(sourceJsonNode.path(fieldName), targetJsonNode.path(fieldName), patchOperations, fieldNamePath, fieldPolicy);
 				} else {
 					patchOperations.add(new RemoveOperation(fieldNamePath));
 				}
@@ -124,6 +311,10 @@ public class SimpleDiffStrategy implements DiffStrategy {
 
 			// target iteration
 			targetJsonNode.fieldNames().forEachRemaining(fieldName -> {
+				DiffPolicy fieldPolicy = diffPolicies == null ? null : diffPolicies.fieldPolicy(policy, fieldName);
+				if (fieldPolicy != null && fieldPolicy.isIgnored()) {
+					return;
+				}
 				if (!sourceJsonNode.has(fieldName)) {
 					JsonPointer fieldNamePath = JacksonUtils.append(path, fieldName);
 					patchOperations.add(new AddOperation(fieldNamePath, targetJsonNode.path(fieldName).deepCopy()));
@@ -133,4 +324,79 @@ public class SimpleDiffStrategy implements DiffStrategy {
 		return patchOperations;
 	}
 
+	/**
+	 * Diffs arrays by the keys of their elements: the source elements of keys
+	 * not in the target are removed, then each target element is diffed with
+	 * the source element of its key, moved to its index if needed, or added.
+	 * 
+	 * @param sourceJsonNode
+	 * @param targetJsonNode
+	 * @param patchOperations
+	 * @param path
+	 * @param policy the policy of the path, of an identity key
+	 * @return
+	 */
+	protected List<PatchOperation> diffArraysByIdentity(JsonNode sourceJsonNode, JsonNode targetJsonNode, List<PatchOperation> patchOperations, JsonPointer path, DiffPolicy policy) {
+		String identityKey = policy.getIdentityKey();
+		DiffPolicy elementPolicy = diffPolicies == null ? null : diffPolicies.elementPolicy(policy);
+		Set<JsonNode> targetKeys = new HashSet<>();
+		targetJsonNode.forEach(targetNode -> targetKeys.add(targetNode.get(identityKey)));
+
+		List<JsonNode> currentNodes = new ArrayList<>();
+		sourceJsonNode.iterator().forEachRemaining(currentNodes::add);
+		for (int index = currentNodes.size() - 1; index >= 0; --index) {
+			JsonNode key = currentNodes.get(index).get(identityKey);
+			if (key == null || !targetKeys.contains(key)) {
+				patchOperations.add(new RemoveOperation(JacksonUtils.append(path, Integer.toString(index))));
+				currentNodes.remove(index);
+			}
+		}
+		for (int index = 0; index < targetJsonNode.size(); ++index) {
+			JsonNode targetNode = targetJsonNode.get(index);
+			JsonPointer targetPath = JacksonUtils.append(path, Integer.toString(index));
+			int currentIndex = indexOfKey(currentNodes, identityKey, targetNode.get(identityKey), index);
+			if (currentIndex < 0) {
+				patchOperations.add(new AddOperation(targetPath, targetNode.deepCopy()));
+				currentNodes.add(index, targetNode);
+				continue;
+			}
+			if (currentIndex > index) {
+				patchOperations.add(new MoveOperation(JacksonUtils.append(path, Integer.toString(currentIndex)), targetPath));
+				currentNodes.add(index, currentNodes.remove(currentIndex));
+			}
+			diff(currentNodes.get(index), targetNode, patchOperations, targetPath, elementPolicy);
+		}
+		for (int index = currentNodes.size() - 1; index >= targetJsonNode.size(); --index) {
+			patchOperations.add(new RemoveOperation(JacksonUtils.append(path, Integer.toString(index))));
+		}
+		return patchOperations;
+	}
+
+	protected static int indexOfKey(List<JsonNode> nodes, String identityKey, JsonNode key, int fromIndex) {
+		if (key == null) {
+			return -1;
+		}
+		for (int index = fromIndex; index < nodes.size(); ++index) {
+			if (key.equals(nodes.get(index).get(identityKey))) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * 
+	 * @param sourceJsonNode
+	 * @param targetJsonNode
+	 * @param policy the policy of the nodes, or null if none
+	 * @return true if the nodes are equal, or equivalent by the policy
+	 */
+	protected boolean isEquivalent(JsonNode sourceJsonNode, JsonNode targetJsonNode, DiffPolicy policy) {
+		return isEqual(sourceJsonNode, targetJsonNode) || (policy != null && policy.isEquivalent(sourceJsonNode, targetJsonNode));
+	}
+
+	protected boolean isEqual(JsonNode jsonNode, JsonNode otherJsonNode) {
+		return JacksonUtils.isEqual(jsonNode, otherJsonNode, nodeComparator);
+	}
+
 }
@@ -0,0 +1,23 @@
+package com.shagaba.jacksync.exception;
+
+public class ConcurrentSyncException extends SyncException {
+
+	private static final long serialVersionUID = 7653512556880571885L;
+
+	public ConcurrentSyncException() {
+        super();
+    }
+
+    public ConcurrentSyncException(String message) {
+        super(message);
+    }
+
+    public ConcurrentSyncException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public ConcurrentSyncException(Throwable cause) {
+        super(cause);
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.shagaba.jacksync.exception;
+
+public class NoSuchDocumentException extends SyncException {
+
+	private static final long serialVersionUID = 7653512556880571885L;
+
+	public NoSuchDocumentException() {
+        super();
+    }
+
+    public NoSuchDocumentException(String message) {
+        super(message);
+    }
+
+    public NoSuchDocumentException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public NoSuchDocumentException(Throwable cause) {
+        super(cause);
+    }
+
+}
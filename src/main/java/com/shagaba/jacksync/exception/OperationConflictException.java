@@ -0,0 +1,23 @@
+package com.shagaba.jacksync.exception;
+
+public class OperationConflictException extends SyncException {
+
+	private static final long serialVersionUID = -2461788230155372811L;
+
+	public OperationConflictException() {
+        super();
+    }
+
+    public OperationConflictException(String message) {
+        super(message);
+    }
+
+    public OperationConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public OperationConflictException(Throwable cause) {
+        super(cause);
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.shagaba.jacksync.exception;
+
+public class SyncCodecException extends SyncException {
+
+	private static final long serialVersionUID = 7653512556880571885L;
+
+	public SyncCodecException() {
+        super();
+    }
+
+    public SyncCodecException(String message) {
+        super(message);
+    }
+
+    public SyncCodecException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public SyncCodecException(Throwable cause) {
+        super(cause);
+    }
+
+}
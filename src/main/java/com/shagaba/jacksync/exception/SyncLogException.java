@@ -0,0 +1,23 @@
+package com.shagaba.jacksync.exception;
+
+public class SyncLogException extends SyncException {
+
+	private static final long serialVersionUID = 7653512556880571885L;
+
+	public SyncLogException() {
+        super();
+    }
+
+    public SyncLogException(String message) {
+        super(message);
+    }
+
+    public SyncLogException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public SyncLogException(Throwable cause) {
+        super(cause);
+    }
+
+}
@@ -0,0 +1,267 @@
+package com.shagaba.jacksync.flow;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shagaba.jacksync.diff.SyncDiffMapper;
+import com.shagaba.jacksync.diff.SyncObjectDiffMapper;
+import com.shagaba.jacksync.exception.DiffProcessingException;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+import com.shagaba.jacksync.sync.OutboundSyncQueue;
+import com.shagaba.jacksync.sync.SyncData;
+import com.shagaba.jacksync.sync.SyncObject;
+
+/**
+ * A {@link SyncFlow.Publisher} of the syncData of a document.
+ *
+ * A subscriber first receives a snapshot syncData of the document as of its
+ * subscription (see {@link SyncData#isSnapshot()}), then a syncData per
+ * published version, as far as it requested. The latest version a subscriber
+ * has not requested yet is held by a conflating {@link OutboundSyncQueue}, so
+ * a subscriber falling behind receives a single syncData to the head version
+ * instead of buffering every version. With snapshots enabled on the
+ * {@link SyncObjectDiffMapper}, a conflated syncData costlier than the
+ * document is sent as a snapshot.
+ *
+ * Subscribers are called back on the given executor, one call at a time per
+ * subscriber. A subscriber throwing from a callback is cancelled.
+ *
+ * @author Shagaba
+ *
+ * @param <T> the document type
+ */
+public class SyncDataPublisher<T> implements SyncFlow.Publisher<SyncData>, Closeable {
+
+	protected ObjectMapper objectMapper;
+
+	protected Executor executor;
+
+	protected OutboundSyncQueue<T> outboundSyncQueue;
+
+	protected Set<SyncDataSubscription> subscriptions;
+
+	protected AtomicLong subscriptionCounter;
+
+	protected volatile SyncObject<T> headObject;
+
+	protected volatile boolean isClosed;
+
+	/**
+	 * @param objectMapper
+	 * @param syncObject the current document
+	 */
+	public SyncDataPublisher(ObjectMapper objectMapper, SyncObject<T> syncObject) {
+		this(objectMapper, new SyncObjectDiffMapper(objectMapper), syncObject, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param objectMapper
+	 * @param syncDiffMapper
+	 * @param syncObject the current document
+	 * @param executor the executor of the subscriber callbacks
+	 */
+	public SyncDataPublisher(ObjectMapper objectMapper, SyncDiffMapper syncDiffMapper, SyncObject<T> syncObject, Executor executor) {
+        if (objectMapper == null) {
+            throw new IllegalArgumentException("ObjectMapper cannot be null");
+        }
+        if (syncObject == null || syncObject.getVersion() == null) {
+            throw new IllegalArgumentException("SyncObject version cannot be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null");
+        }
+		this.objectMapper = objectMapper;
+		this.outboundSyncQueue = new OutboundSyncQueue<>(syncDiffMapper);
+		this.headObject = syncObject;
+		this.executor = executor;
+		this.subscriptions = Collections.newSetFromMap(new ConcurrentHashMap<>());
+		this.subscriptionCounter = new AtomicLong();
+	}
+
+	@Override
+	public void subscribe(SyncFlow.Subscriber<? super SyncData> subscriber) {
+        if (subscriber == null) {
+            throw new IllegalArgumentException("Subscriber cannot be null");
+        }
+		SyncDataSubscription subscription = new SyncDataSubscription(Long.toString(subscriptionCounter.incrementAndGet()), subscriber);
+		synchronized (this) {
+			SyncObject<T> subscribedObject = headObject;
+			subscription.snapshot = snapshot(subscribedObject);
+			outboundSyncQueue.connect(subscription.id, subscribedObject);
+			subscriptions.add(subscription);
+		}
+		subscription.drain();
+	}
+
+	/**
+	 * Publishes a new version of the document to all subscribers.
+	 *
+	 * @param syncObject
+	 */
+	public void publish(SyncObject<T> syncObject) {
+		if (isClosed) {
+			throw new IllegalStateException("Publisher is closed");
+		}
+		synchronized (this) {
+			outboundSyncQueue.publish(syncObject);
+			if (headObject.getVersion() < syncObject.getVersion()) {
+				headObject = syncObject;
+			}
+		}
+		for (SyncDataSubscription subscription : subscriptions) {
+			subscription.drain();
+		}
+	}
+
+	/**
+	 * @return the number of subscribers
+	 */
+	public int getSubscriberCount() {
+		return subscriptions.size();
+	}
+
+	/**
+	 * Completes every subscriber once it has received the published versions.
+	 */
+	@Override
+	public void close() {
+		isClosed = true;
+		for (SyncDataSubscription subscription : subscriptions) {
+			subscription.drain();
+		}
+	}
+
+	/**
+	 *
+	 * @param syncObject
+	 * @return a snapshot syncData of the given document
+	 */
+	protected SyncData snapshot(SyncObject<T> syncObject) {
+		SyncData syncData = new SyncData();
+		syncData.setMasterVersion(syncObject.getVersion());
+		syncData.setOperations(Collections.singletonList(new ReplaceOperation(JsonPointer.compile(""), objectMapper.valueToTree(syncObject.getObject()))));
+		return syncData;
+	}
+
+	/**
+	 * The demand of a subscriber and the drain of its queue.
+	 */
+	protected class SyncDataSubscription implements SyncFlow.Subscription {
+
+		protected final String id;
+
+		protected final SyncFlow.Subscriber<? super SyncData> subscriber;
+
+		protected final AtomicLong demand = new AtomicLong();
+
+		protected final AtomicInteger pendingDrains = new AtomicInteger();
+
+		protected volatile boolean isSubscribed;
+
+		protected volatile boolean isDone;
+
+		protected volatile Throwable error;
+
+		protected SyncData snapshot;
+
+		protected SyncDataSubscription(String id, SyncFlow.Subscriber<? super SyncData> subscriber) {
+			this.id = id;
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				error = new IllegalArgumentException(String.format("Request must be positive - %s", n));
+			} else {
+				demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			finish();
+		}
+
+		/**
+		 * Schedules the delivery of the requested syncData, unless a delivery
+		 * is running, which then goes on.
+		 */
+		protected void drain() {
+			if (isDone || pendingDrains.getAndIncrement() != 0) {
+				return;
+			}
+			try {
+				executor.execute(this::deliver);
+			} catch (RejectedExecutionException e) {
+				finish();
+				subscriber.onError(e);
+			}
+		}
+
+		/**
+		 * Delivers the requested syncData while there are any. A callback
+		 * throwing cancels the subscription, and the pending drains are
+		 * released all the same (Reactive Streams rule 2.13).
+		 */
+		protected void deliver() {
+			int drains = 1;
+			do {
+				try {
+					deliverRequested();
+				} catch (Throwable e) {
+					// the subscriber broke the contract, it is not called back anymore
+					finish();
+				}
+				drains = pendingDrains.addAndGet(-drains);
+			} while (drains != 0);
+		}
+
+		/**
+		 * A single delivery round.
+		 */
+		protected void deliverRequested() {
+			if (!isSubscribed) {
+				isSubscribed = true;
+				subscriber.onSubscribe(this);
+			}
+			try {
+				while (!isDone && error == null && demand.get() > 0) {
+					SyncData syncData = snapshot != null ? snapshot : outboundSyncQueue.poll(id);
+					if (syncData == null) {
+						break;
+					}
+					snapshot = null;
+					demand.decrementAndGet();
+					subscriber.onNext(syncData);
+				}
+			} catch (DiffProcessingException e) {
+				error = e;
+			}
+			if (!isDone && error != null) {
+				finish();
+				subscriber.onError(error);
+			} else if (!isDone && isClosed && snapshot == null && outboundSyncQueue.size(id) == 0) {
+				finish();
+				subscriber.onComplete();
+			}
+		}
+
+		protected void finish() {
+			isDone = true;
+			subscriptions.remove(this);
+			outboundSyncQueue.disconnect(id);
+		}
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.shagaba.jacksync.flow;
+
+/**
+ * The reactive streams interfaces of the sync flows.
+ *
+ * They mirror the interfaces of {@code java.util.concurrent.Flow}, which is
+ * out of reach of the Java 8 target, member by member, so a flow adapts to
+ * {@code java.util.concurrent.Flow} by delegation.
+ *
+ * @author Shagaba
+ *
+ */
+public final class SyncFlow {
+
+	private SyncFlow() {
+	}
+
+	/**
+	 * A producer of items received by subscribers on demand.
+	 *
+	 * @param <T> the item type
+	 */
+	@FunctionalInterface
+	public static interface Publisher<T> {
+
+		/**
+		 * Adds the given subscriber, which is then called back by
+		 * {@link Subscriber#onSubscribe(Subscription)}.
+		 *
+		 * @param subscriber
+		 */
+		public void subscribe(Subscriber<? super T> subscriber);
+	}
+
+	/**
+	 * A receiver of items. The methods of a subscriber are called one at a
+	 * time, never concurrently.
+	 *
+	 * @param <T> the item type
+	 */
+	public static interface Subscriber<T> {
+
+		/**
+		 * @param subscription the subscription to request items by
+		 */
+		public void onSubscribe(Subscription subscription);
+
+		/**
+		 * @param item the next requested item
+		 */
+		public void onNext(T item);
+
+		/**
+		 * The subscription failed, no more items follow.
+		 *
+		 * @param throwable
+		 */
+		public void onError(Throwable throwable);
+
+		/**
+		 * The subscription completed, no more items follow.
+		 */
+		public void onComplete();
+	}
+
+	/**
+	 * The link of a subscriber to a publisher.
+	 */
+	public static interface Subscription {
+
+		/**
+		 * Adds the given number of items to the demand of the subscriber.
+		 *
+		 * @param n a positive number of items
+		 */
+		public void request(long n);
+
+		/**
+		 * Stops the items, eventually.
+		 */
+		public void cancel();
+	}
+
+}
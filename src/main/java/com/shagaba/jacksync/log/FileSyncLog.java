@@ -0,0 +1,463 @@
+package com.shagaba.jacksync.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.shagaba.jacksync.exception.SyncException;
+import com.shagaba.jacksync.exception.SyncLogException;
+import com.shagaba.jacksync.sync.SyncData;
+
+/**
+ * A {@link SyncLog} of memory mapped segment files.
+ *
+ * Records are appended to the active segment, which is rolled over to a new
+ * file once full. Each record is framed as:
+ *
+ * o int - body length.
+ *
+ * o int - CRC-32 of the body.
+ *
+ * o body - short document id length, document id (UTF-8), long sync data
+ * version and the JSON serialized sync data.
+ *
+ * Commits are grouped, a single flush of the segments makes the records of all
+ * concurrently committing writers durable. Catch-up reads are served from the
+ * mapped segments, and transfers use zero copy {@code FileChannel.transferTo}.
+ * On open the per document index is rebuilt by scanning the segments, up to
+ * the first torn record.
+ *
+ * @author Shagaba
+ *
+ */
+public class FileSyncLog implements SyncLog {
+
+	public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+	protected static final String SEGMENT_SUFFIX = ".log";
+
+	protected static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+
+	protected ObjectMapper objectMapper;
+
+	protected Path directory;
+
+	protected int segmentSize;
+
+	protected List<SyncLogSegment> segments;
+
+	protected volatile SyncLogSegment activeSegment;
+
+	protected ConcurrentMap<String, ConcurrentNavigableMap<Long, RecordPointer>> index;
+
+	protected final Object commitLock = new Object();
+
+	protected volatile long committedOffset;
+
+	protected volatile boolean isClosed;
+
+	/**
+	 * @param objectMapper
+	 * @param directory
+	 * @throws SyncLogException
+	 */
+	public FileSyncLog(ObjectMapper objectMapper, Path directory) throws SyncLogException {
+		this(objectMapper, directory, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * @param objectMapper
+	 * @param directory
+	 * @param segmentSize
+	 * @throws SyncLogException
+	 */
+	public FileSyncLog(ObjectMapper objectMapper, Path directory, int segmentSize) throws SyncLogException {
+        if (objectMapper == null) {
+            throw new IllegalArgumentException("ObjectMapper cannot be null");
+        }
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory cannot be null");
+        }
+        if (segmentSize <= RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException(String.format("Segment size is too small - %s", segmentSize));
+        }
+		this.objectMapper = objectMapper;
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.segments = new CopyOnWriteArrayList<>();
+		this.index = new ConcurrentHashMap<>();
+		recover();
+	}
+
+	/**
+	 * Maps the existing segments and rebuilds the index.
+	 *
+	 * @throws SyncLogException
+	 */
+	protected void recover() throws SyncLogException {
+		try {
+			Files.createDirectories(directory);
+			List<Path> segmentPaths;
+			try (Stream<Path> paths = Files.list(directory)) {
+				segmentPaths = paths.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().collect(Collectors.toList());
+			}
+			for (Path segmentPath : segmentPaths) {
+				String fileName = segmentPath.getFileName().toString();
+				long baseOffset = Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length()));
+				SyncLogSegment segment = new SyncLogSegment(segmentPath, baseOffset, segmentSize);
+				segment.setPosition(scan(segment));
+				segments.add(segment);
+			}
+		} catch (IOException | RuntimeException e) {
+			throw new SyncLogException(e);
+		}
+		if (segments.isEmpty()) {
+			roll(0L, segmentSize);
+		}
+		activeSegment = segments.get(segments.size() - 1);
+		committedOffset = activeSegment.getBaseOffset() + activeSegment.getPosition();
+	}
+
+	/**
+	 * Indexes the valid records of the given segment.
+	 *
+	 * @param segment
+	 * @return the position following the last valid record
+	 */
+	protected int scan(SyncLogSegment segment) {
+		ByteBuffer buffer = segment.slice();
+		int position = 0;
+		while (buffer.capacity() - position >= RECORD_HEADER_SIZE) {
+			int bodyLength = buffer.getInt(position);
+			if (bodyLength <= 0 || bodyLength > buffer.capacity() - position - RECORD_HEADER_SIZE) {
+				break;
+			}
+			ByteBuffer body = segment.slice(position + RECORD_HEADER_SIZE, bodyLength);
+			if (buffer.getInt(position + Integer.BYTES) != checksum(body.duplicate())) {
+				// torn write
+				break;
+			}
+			indexRecord(segment, position, body);
+			position += RECORD_HEADER_SIZE + bodyLength;
+		}
+		return position;
+	}
+
+	/**
+	 *
+	 * @param documentId
+	 * @param syncData
+	 * @return
+	 * @throws SyncException
+	 */
+	@Override
+	public long append(String documentId, SyncData syncData) throws SyncException {
+        if (documentId == null) {
+            throw new IllegalArgumentException("Document id cannot be null");
+        }
+        if (syncData == null || syncData.getVersion() == null) {
+            throw new IllegalArgumentException("SyncData version cannot be null");
+        }
+		ByteBuffer record = encode(documentId, syncData);
+		synchronized (this) {
+			ensureOpen();
+			SyncLogSegment segment = activeSegment;
+			int position = segment.append(record.duplicate());
+			if (position < 0) {
+				segment = roll(segment.getBaseOffset() + segment.getPosition(), Math.max(segmentSize, record.remaining()));
+				position = segment.append(record.duplicate());
+			}
+			index.computeIfAbsent(documentId, id -> new ConcurrentSkipListMap<>())
+				.put(syncData.getVersion(), new RecordPointer(segment, position, record.remaining()));
+			return segment.getBaseOffset() + segment.getPosition();
+		}
+	}
+
+	/**
+	 * Group commit, a writer whose records were flushed by a concurrent commit
+	 * returns without flushing again.
+	 *
+	 * @param offset
+	 * @throws SyncException
+	 */
+	@Override
+	public void commit(long offset) throws SyncException {
+		if (offset <= committedOffset) {
+			return;
+		}
+		synchronized (commitLock) {
+			if (offset <= committedOffset) {
+				return;
+			}
+			long writtenOffset;
+			synchronized (this) {
+				ensureOpen();
+				writtenOffset = activeSegment.getBaseOffset() + activeSegment.getPosition();
+			}
+			for (int segmentIndex = segments.size() - 1; segmentIndex >= 0; --segmentIndex) {
+				SyncLogSegment segment = segments.get(segmentIndex);
+				segment.force();
+				if (segment.getBaseOffset() <= committedOffset) {
+					break;
+				}
+			}
+			committedOffset = writtenOffset;
+		}
+	}
+
+	/**
+	 *
+	 * @param documentId
+	 * @param fromVersion
+	 * @return
+	 * @throws SyncException
+	 */
+	@Override
+	public List<SyncData> read(String documentId, long fromVersion) throws SyncException {
+		List<SyncData> syncDataList = new ArrayList<>();
+		for (RecordPointer recordPointer : pointers(documentId, fromVersion)) {
+			ByteBuffer body = recordPointer.segment.slice(recordPointer.position + RECORD_HEADER_SIZE, recordPointer.size - RECORD_HEADER_SIZE);
+			syncDataList.add(decodeBody(objectMapper, body));
+		}
+		return syncDataList;
+	}
+
+	/**
+	 *
+	 * @param documentId
+	 * @param fromVersion
+	 * @param position
+	 * @param target
+	 * @return
+	 * @throws SyncException
+	 */
+	@Override
+	public long transferTo(String documentId, long fromVersion, long position, WritableByteChannel target) throws SyncException {
+        if (position < 0) {
+            throw new IllegalArgumentException("Position cannot be negative");
+        }
+		long transferred = 0;
+		long recordsPosition = 0;
+		try {
+			for (RecordPointer recordPointer : pointers(documentId, fromVersion)) {
+				long recordPosition = recordsPosition;
+				recordsPosition += recordPointer.size;
+				if (recordsPosition <= position) {
+					// written by a previous transfer
+					continue;
+				}
+				int skipped = (int) Math.max(0, position - recordPosition);
+				long count = recordPointer.segment.transferTo(recordPointer.position + skipped, recordPointer.size - skipped, target);
+				transferred += count;
+				if (count < recordPointer.size - skipped) {
+					// a short write, going on with the next record would break the framing
+					break;
+				}
+			}
+		} catch (IOException e) {
+			throw new SyncLogException(e);
+		}
+		return transferred;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (isClosed) {
+			return;
+		}
+		isClosed = true;
+		for (SyncLogSegment segment : segments) {
+			segment.force();
+			segment.close();
+		}
+	}
+
+	/**
+	 * Decodes records written by {@link #transferTo(String, long, long, WritableByteChannel)}.
+	 *
+	 * @param objectMapper
+	 * @param buffer
+	 * @return the decoded sync data
+	 * @throws SyncLogException
+	 */
+	public static List<SyncData> decode(ObjectMapper objectMapper, ByteBuffer buffer) throws SyncLogException {
+		List<SyncData> syncDataList = new ArrayList<>();
+		ByteBuffer records = buffer.duplicate();
+		while (records.remaining() >= RECORD_HEADER_SIZE) {
+			int bodyLength = records.getInt();
+			int checksum = records.getInt();
+			if (bodyLength <= 0 || bodyLength > records.remaining()) {
+				throw new SyncLogException(String.format("Invalid record length - %s", bodyLength));
+			}
+			ByteBuffer body = records.slice();
+			body.limit(bodyLength);
+			if (checksum != checksum(body.duplicate())) {
+				throw new SyncLogException("Record checksum mismatch");
+			}
+			syncDataList.add(decodeBody(objectMapper, body));
+			records.position(records.position() + bodyLength);
+		}
+		return syncDataList;
+	}
+
+	/**
+	 *
+	 * @param documentId
+	 * @param syncData
+	 * @return the framed record
+	 * @throws SyncLogException
+	 */
+	protected ByteBuffer encode(String documentId, SyncData syncData) throws SyncLogException {
+		byte[] documentIdBytes = documentId.getBytes(StandardCharsets.UTF_8);
+        if (documentIdBytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("Document id is too long - %s", documentId));
+        }
+		byte[] syncDataBytes;
+		try {
+			syncDataBytes = objectMapper.writeValueAsBytes(syncData);
+		} catch (IOException e) {
+			throw new SyncLogException(e);
+		}
+		int bodyLength = Short.BYTES + documentIdBytes.length + Long.BYTES + syncDataBytes.length;
+		ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + bodyLength);
+		record.putInt(bodyLength);
+		record.putInt(0);
+		record.putShort((short) documentIdBytes.length);
+		record.put(documentIdBytes);
+		record.putLong(syncData.getVersion());
+		record.put(syncDataBytes);
+		record.flip();
+
+		ByteBuffer body = record.duplicate();
+		body.position(RECORD_HEADER_SIZE);
+		record.putInt(Integer.BYTES, checksum(body));
+		return record;
+	}
+
+	/**
+	 *
+	 * @param objectMapper
+	 * @param body
+	 * @return the sync data of the given record body
+	 * @throws SyncLogException
+	 */
+	protected static SyncData decodeBody(ObjectMapper objectMapper, ByteBuffer body) throws SyncLogException {
+		ByteBuffer syncDataBuffer = body.duplicate();
+		int documentIdLength = syncDataBuffer.getShort();
+		syncDataBuffer.position(syncDataBuffer.position() + documentIdLength + Long.BYTES);
+		try {
+			return objectMapper.readValue(new ByteBufferBackedInputStream(syncDataBuffer), SyncData.class);
+		} catch (IOException e) {
+			throw new SyncLogException(e);
+		}
+	}
+
+	/**
+	 *
+	 * @param buffer
+	 * @return the CRC-32 of the remaining bytes of the given buffer
+	 */
+	protected static int checksum(ByteBuffer buffer) {
+		CRC32 crc32 = new CRC32();
+		crc32.update(buffer);
+		return (int) crc32.getValue();
+	}
+
+	/**
+	 *
+	 * @param segment
+	 * @param position
+	 * @param body
+	 */
+	protected void indexRecord(SyncLogSegment segment, int position, ByteBuffer body) {
+		ByteBuffer bodyBuffer = body.duplicate();
+		byte[] documentIdBytes = new byte[bodyBuffer.getShort()];
+		bodyBuffer.get(documentIdBytes);
+		long version = bodyBuffer.getLong();
+		index.computeIfAbsent(new String(documentIdBytes, StandardCharsets.UTF_8), id -> new ConcurrentSkipListMap<>())
+			.put(version, new RecordPointer(segment, position, RECORD_HEADER_SIZE + body.remaining()));
+	}
+
+	/**
+	 * Seals the active segment and opens a new one.
+	 *
+	 * @param baseOffset
+	 * @param size
+	 * @return the new active segment
+	 * @throws SyncLogException
+	 */
+	protected synchronized SyncLogSegment roll(long baseOffset, int size) throws SyncLogException {
+		if (activeSegment != null) {
+			activeSegment.force();
+		}
+		try {
+			Path segmentPath = directory.resolve(String.format("%020d%s", baseOffset, SEGMENT_SUFFIX));
+			SyncLogSegment segment = new SyncLogSegment(segmentPath, baseOffset, size);
+			segments.add(segment);
+			activeSegment = segment;
+			return segment;
+		} catch (IOException e) {
+			throw new SyncLogException(e);
+		}
+	}
+
+	/**
+	 *
+	 * @param documentId
+	 * @param fromVersion
+	 * @return the record pointers of the given document from the given version on
+	 * @throws SyncLogException
+	 */
+	protected Iterable<RecordPointer> pointers(String documentId, long fromVersion) throws SyncLogException {
+		ensureOpen();
+		ConcurrentNavigableMap<Long, RecordPointer> documentIndex = index.get(documentId);
+		if (documentIndex == null) {
+			return new ArrayList<>();
+		}
+		return documentIndex.tailMap(fromVersion, true).values();
+	}
+
+	/**
+	 *
+	 * @throws SyncLogException
+	 */
+	protected void ensureOpen() throws SyncLogException {
+		if (isClosed) {
+			throw new SyncLogException("Sync log is closed");
+		}
+	}
+
+	/**
+	 * Location of a record in a segment.
+	 */
+	protected static final class RecordPointer {
+
+		private final SyncLogSegment segment;
+
+		private final int position;
+
+		private final int size;
+
+		private RecordPointer(SyncLogSegment segment, int position, int size) {
+			this.segment = segment;
+			this.position = position;
+			this.size = size;
+		}
+	}
+
+}
@@ -0,0 +1,77 @@
+package com.shagaba.jacksync.log;
+
+import java.io.Closeable;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+import com.shagaba.jacksync.exception.SyncException;
+import com.shagaba.jacksync.sync.SyncData;
+
+/**
+ * An append only history of the sync data of many documents.
+ *
+ * @author Shagaba
+ *
+ */
+public interface SyncLog extends Closeable {
+
+	/**
+	 * Appends the given sync data, the record is readable once this method
+	 * returns and durable once committed.
+	 *
+	 * @param documentId
+	 * @param syncData
+	 * @return the log offset following the appended record
+	 * @throws SyncException
+	 */
+	public long append(String documentId, SyncData syncData) throws SyncException;
+
+	/**
+	 * Waits until all records up to the given log offset are durable.
+	 *
+	 * @param offset a log offset returned by append
+	 * @throws SyncException
+	 */
+	public void commit(long offset) throws SyncException;
+
+	/**
+	 *
+	 * @param documentId
+	 * @param fromVersion
+	 * @return the sync data of the given document from the given version on
+	 * @throws SyncException
+	 */
+	public List<SyncData> read(String documentId, long fromVersion) throws SyncException;
+
+	/**
+	 * Writes the encoded records of the given document from the given version
+	 * on to the given channel, see
+	 * {@link #transferTo(String, long, long, WritableByteChannel)}.
+	 *
+	 * @param documentId
+	 * @param fromVersion
+	 * @param target
+	 * @return the number of bytes written
+	 * @throws SyncException
+	 */
+	public default long transferTo(String documentId, long fromVersion, WritableByteChannel target) throws SyncException {
+		return transferTo(documentId, fromVersion, 0, target);
+	}
+
+	/**
+	 * Writes the encoded records of the given document from the given version
+	 * on to the given channel, starting at the given byte position of the
+	 * encoded records. The transfer stops at the first short write of a non
+	 * blocking channel, it resumes at the given position plus the number of
+	 * bytes written.
+	 *
+	 * @param documentId
+	 * @param fromVersion
+	 * @param position the number of bytes of the records already written
+	 * @param target
+	 * @return the number of bytes written
+	 * @throws SyncException
+	 */
+	public long transferTo(String documentId, long fromVersion, long position, WritableByteChannel target) throws SyncException;
+
+}
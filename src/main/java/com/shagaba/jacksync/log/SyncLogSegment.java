@@ -0,0 +1,160 @@
+package com.shagaba.jacksync.log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A single memory mapped file of a {@link FileSyncLog}.
+ *
+ * The file is preallocated to its full size and mapped once. Records are
+ * appended by a single writer at a time, an unwritten (zero) length marks the
+ * end of the segment.
+ *
+ * @author Shagaba
+ *
+ */
+class SyncLogSegment implements Closeable {
+
+	private final Path path;
+
+	private final long baseOffset;
+
+	private final FileChannel fileChannel;
+
+	private final MappedByteBuffer mappedByteBuffer;
+
+	private volatile int position;
+
+	/**
+	 * @param path
+	 * @param baseOffset the log offset of the first byte of the segment
+	 * @param size
+	 * @throws IOException
+	 */
+	SyncLogSegment(Path path, long baseOffset, int size) throws IOException {
+		this.path = path;
+		this.baseOffset = baseOffset;
+		this.fileChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		int mappedSize = (int) Math.max(size, fileChannel.size());
+		this.mappedByteBuffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, mappedSize);
+	}
+
+	/**
+	 * @return the path
+	 */
+	Path getPath() {
+		return path;
+	}
+
+	/**
+	 * @return the baseOffset
+	 */
+	long getBaseOffset() {
+		return baseOffset;
+	}
+
+	/**
+	 * @return the write position
+	 */
+	int getPosition() {
+		return position;
+	}
+
+	/**
+	 * @param position the write position to set
+	 */
+	void setPosition(int position) {
+		this.position = position;
+	}
+
+	/**
+	 * @return the remaining capacity
+	 */
+	int remaining() {
+		return mappedByteBuffer.capacity() - position;
+	}
+
+	/**
+	 * Appends the given record, must be called by a single writer at a time.
+	 *
+	 * @param record
+	 * @return the position of the record or -1 if the segment is full
+	 */
+	int append(ByteBuffer record) {
+		int recordPosition = position;
+		if (record.remaining() > remaining()) {
+			return -1;
+		}
+		ByteBuffer writeBuffer = mappedByteBuffer.duplicate();
+		writeBuffer.position(recordPosition);
+		writeBuffer.put(record);
+		if (writeBuffer.remaining() >= Integer.BYTES) {
+			// end of segment marker, hides a torn record left behind by a crash
+			writeBuffer.putInt(writeBuffer.position(), 0);
+		}
+		position = writeBuffer.position();
+		return recordPosition;
+	}
+
+	/**
+	 *
+	 * @param position
+	 * @param size
+	 * @return a read-only view of the given range
+	 */
+	ByteBuffer slice(int position, int size) {
+		ByteBuffer readBuffer = mappedByteBuffer.asReadOnlyBuffer();
+		readBuffer.position(position);
+		readBuffer.limit(position + size);
+		return readBuffer.slice();
+	}
+
+	/**
+	 * @return a read-only view of the whole mapped segment
+	 */
+	ByteBuffer slice() {
+		return mappedByteBuffer.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Zero copy transfer of the given range to the given channel.
+	 *
+	 * @param position
+	 * @param size
+	 * @param target
+	 * @return the number of bytes transferred, less than the size if a non
+	 *         blocking target is full
+	 * @throws IOException
+	 */
+	long transferTo(int position, int size, WritableByteChannel target) throws IOException {
+		long transferred = 0;
+		while (transferred < size) {
+			long count = fileChannel.transferTo(position + transferred, size - transferred, target);
+			if (count <= 0) {
+				// non blocking target is full
+				break;
+			}
+			transferred += count;
+		}
+		return transferred;
+	}
+
+	/**
+	 * Flushes the written records to the storage device.
+	 */
+	void force() {
+		mappedByteBuffer.force();
+	}
+
+	@Override
+	public void close() throws IOException {
+		fileChannel.close();
+	}
+
+}
@@ -0,0 +1,121 @@
+package com.shagaba.jacksync.node;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.RemoveOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+
+/**
+ * An array node recording its mutations on the {@link TrackingJsonNodeFactory}
+ * that created it.
+ *
+ * @author Shagaba
+ *
+ */
+public class TrackingArrayNode extends ArrayNode {
+
+	protected final TrackingJsonNodeFactory.Link link;
+
+	/**
+	 * @param nodeFactory
+	 */
+	public TrackingArrayNode(TrackingJsonNodeFactory nodeFactory) {
+		super(nodeFactory);
+		this.link = new TrackingJsonNodeFactory.Link(nodeFactory);
+	}
+
+	/**
+	 * @param nodeFactory
+	 * @param capacity
+	 */
+	public TrackingArrayNode(TrackingJsonNodeFactory nodeFactory, int capacity) {
+		super(nodeFactory, capacity);
+		this.link = new TrackingJsonNodeFactory.Link(nodeFactory);
+	}
+
+	@Override
+	protected ArrayNode _add(JsonNode node) {
+		return trackedInsert(size(), node);
+	}
+
+	@Override
+	protected ArrayNode _insert(int index, JsonNode node) {
+		return trackedInsert(index < 0 ? 0 : Math.min(index, size()), node);
+	}
+
+	@Override
+	public ArrayNode addAll(ArrayNode other) {
+		return addAll(toList(other));
+	}
+
+	@Override
+	public ArrayNode addAll(Collection<? extends JsonNode> nodes) {
+		for (JsonNode node : new ArrayList<>(nodes)) {
+			trackedInsert(size(), node);
+		}
+		return this;
+	}
+
+	@Override
+	public JsonNode set(int index, JsonNode value) {
+		if (index < 0 || index >= size()) {
+			return super.set(index, value);
+		}
+		JsonNode attachedValue = link.factory.adopt(value);
+		JsonNode oldValue = super.set(index, attachedValue);
+		link.factory.detach(this, oldValue);
+		link.factory.attach(this, null, attachedValue);
+		link.factory.record(this, Integer.toString(index), path -> new ReplaceOperation(path, attachedValue.deepCopy()));
+		return oldValue;
+	}
+
+	@Override
+	public JsonNode remove(int index) {
+		JsonNode oldValue = super.remove(index);
+		if (oldValue != null) {
+			link.factory.detach(this, oldValue);
+			link.factory.record(this, Integer.toString(index), RemoveOperation::new);
+		}
+		return oldValue;
+	}
+
+	@Override
+	public ArrayNode removeAll() {
+		if (size() == 0) {
+			return this;
+		}
+		for (JsonNode child : this) {
+			link.factory.detach(this, child);
+		}
+		super.removeAll();
+		link.factory.record(this, null, path -> new ReplaceOperation(path, JsonNodeFactory.instance.arrayNode()));
+		return this;
+	}
+
+	/**
+	 *
+	 * @param index a valid insert index
+	 * @param node
+	 * @return this node
+	 */
+	protected ArrayNode trackedInsert(int index, JsonNode node) {
+		JsonNode attachedValue = link.factory.adopt(node);
+		super._insert(index, attachedValue);
+		link.factory.attach(this, null, attachedValue);
+		link.factory.record(this, Integer.toString(index), path -> new AddOperation(path, attachedValue.deepCopy()));
+		return this;
+	}
+
+	protected static List<JsonNode> toList(ArrayNode arrayNode) {
+		List<JsonNode> nodes = new ArrayList<>(arrayNode.size());
+		arrayNode.forEach(nodes::add);
+		return nodes;
+	}
+
+}
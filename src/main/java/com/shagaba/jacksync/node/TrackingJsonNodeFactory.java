@@ -0,0 +1,271 @@
+package com.shagaba.jacksync.node;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.utils.JacksonUtils;
+
+/**
+ * A {@link JsonNodeFactory} of object and array nodes recording the patch
+ * operations of their mutations, so the patch of a mutated document is known
+ * without diffing it.
+ *
+ * A document is tracked by {@link #track(JsonNode)}, which takes the nodes of
+ * this factory as they are, e.g. a tree read by an {@link com.fasterxml.jackson.databind.ObjectMapper}
+ * set with this factory, and copies other nodes into nodes of this factory.
+ * From then on, every mutation of a node attached to the document is recorded
+ * as an add, remove or replace operation at its absolute path, with a copy of
+ * the value as of the mutation. The recorded operations apply with
+ * {@link com.shagaba.jacksync.patch.ObjectPatchProcessor} as any other and can
+ * be set on a {@link com.shagaba.jacksync.sync.SyncData}.
+ *
+ * A container set into the document is attached as is if it is a detached
+ * node of this factory, and copied otherwise, so every node is attached at
+ * most once. Nodes detached from the document are no longer tracked. The
+ * mutations made through iterators, and the nodes copied by
+ * {@link JsonNode#deepCopy()}, are not tracked.
+ *
+ * A factory tracks a single document at a time. Not thread safe.
+ *
+ * @author Shagaba
+ *
+ */
+public class TrackingJsonNodeFactory extends JsonNodeFactory {
+
+	private static final long serialVersionUID = 1L;
+
+	protected transient List<PatchOperation> operations;
+
+	protected transient JsonNode root;
+
+	/**
+	 *
+	 */
+	public TrackingJsonNodeFactory() {
+		super(false);
+		this.operations = new ArrayList<>();
+	}
+
+	@Override
+	public ObjectNode objectNode() {
+		return new TrackingObjectNode(this);
+	}
+
+	@Override
+	public ArrayNode arrayNode() {
+		return new TrackingArrayNode(this);
+	}
+
+	@Override
+	public ArrayNode arrayNode(int capacity) {
+		return new TrackingArrayNode(this, capacity);
+	}
+
+	/**
+	 * Starts tracking a document, in place of the currently tracked one, if
+	 * any. The recorded operations are cleared.
+	 *
+	 * @param document an object or array node
+	 * @return the tracked document, the given one if a detached node of this
+	 *         factory or a copy of it otherwise
+	 */
+	public JsonNode track(JsonNode document) {
+        if (document == null || !document.isContainerNode()) {
+            throw new IllegalArgumentException("Document must be an object or an array");
+        }
+		if (root != null) {
+			linkOf(root).isRoot = false;
+		}
+		root = adopt(document);
+		linkOf(root).isRoot = true;
+		operations = new ArrayList<>();
+		return root;
+	}
+
+	/**
+	 * @return the tracked document
+	 */
+	public JsonNode getDocument() {
+		return root;
+	}
+
+	/**
+	 * @return the operations recorded since tracking or the last drain
+	 */
+	public List<PatchOperation> getOperations() {
+		return new ArrayList<>(operations);
+	}
+
+	/**
+	 * @return the operations recorded since tracking or the last drain, which
+	 *         are cleared
+	 */
+	public List<PatchOperation> drainOperations() {
+		List<PatchOperation> drainedOperations = operations;
+		operations = new ArrayList<>();
+		return drainedOperations;
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @return the value to attach: a detached node of this factory as is, or a
+	 *         copy of another container into nodes of this factory
+	 */
+	protected JsonNode adopt(JsonNode value) {
+		if (value == null) {
+			return nullNode();
+		}
+		Link link = linkOf(value);
+		if (link != null && link.factory == this && link.parent == null && !link.isRoot) {
+			return value;
+		}
+		if (value.isObject()) {
+			ObjectNode objectNode = objectNode();
+			for (Iterator<Map.Entry<String, JsonNode>> fields = value.fields(); fields.hasNext();) {
+				Map.Entry<String, JsonNode> field = fields.next();
+				objectNode.set(field.getKey(), field.getValue());
+			}
+			return objectNode;
+		}
+		if (value.isArray()) {
+			ArrayNode arrayNode = arrayNode(value.size());
+			for (JsonNode element : value) {
+				arrayNode.add(element);
+			}
+			return arrayNode;
+		}
+		return value;
+	}
+
+	/**
+	 *
+	 * @param parent
+	 * @param fieldName the field name of the child, null in an array
+	 * @param child
+	 */
+	protected void attach(JsonNode parent, String fieldName, JsonNode child) {
+		Link link = linkOf(child);
+		if (link != null) {
+			link.parent = parent;
+			link.fieldName = fieldName;
+		}
+	}
+
+	/**
+	 *
+	 * @param parent
+	 * @param child
+	 */
+	protected void detach(JsonNode parent, JsonNode child) {
+		Link link = child == null ? null : linkOf(child);
+		if (link != null && link.parent == parent) {
+			link.parent = null;
+			link.fieldName = null;
+		}
+	}
+
+	/**
+	 * Records an operation on a child location of a node, if the node is
+	 * attached to the tracked document.
+	 *
+	 * @param node
+	 * @param segment the field name or index of the child location, or null
+	 *            for the node itself
+	 * @param operationFactory
+	 */
+	protected void record(JsonNode node, String segment, Function<JsonPointer, PatchOperation> operationFactory) {
+		JsonPointer path = locate(node);
+		if (path != null) {
+			operations.add(operationFactory.apply(segment == null ? path : append(path, segment)));
+		}
+	}
+
+	/**
+	 *
+	 * @param node
+	 * @return the path of the node in the tracked document, or null if it is
+	 *         not attached to it
+	 */
+	protected JsonPointer locate(JsonNode node) {
+		List<String> segments = new ArrayList<>();
+		JsonNode current = node;
+		Link link = linkOf(current);
+		while (link == null || !link.isRoot) {
+			if (link == null || link.factory != this || link.parent == null) {
+				return null;
+			}
+			JsonNode parent = link.parent;
+			if (parent.isObject()) {
+				if (parent.get(link.fieldName) != current) {
+					return null;
+				}
+				segments.add(link.fieldName);
+			} else {
+				int index = indexOf(parent, current);
+				if (index < 0) {
+					return null;
+				}
+				segments.add(Integer.toString(index));
+			}
+			current = parent;
+			link = linkOf(current);
+		}
+		JsonPointer path = JsonPointer.compile("");
+		for (int i = segments.size() - 1; i >= 0; --i) {
+			path = append(path, segments.get(i));
+		}
+		return path;
+	}
+
+	protected static int indexOf(JsonNode arrayNode, JsonNode element) {
+		for (int i = 0; i < arrayNode.size(); ++i) {
+			if (arrayNode.get(i) == element) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	protected static JsonPointer append(JsonPointer path, String segment) {
+		return JacksonUtils.append(path, segment.replace("~", "~0").replace("/", "~1"));
+	}
+
+	protected static Link linkOf(JsonNode node) {
+		if (node instanceof TrackingObjectNode) {
+			return ((TrackingObjectNode) node).link;
+		}
+		if (node instanceof TrackingArrayNode) {
+			return ((TrackingArrayNode) node).link;
+		}
+		return null;
+	}
+
+	/**
+	 * The location of a tracking node in its parent.
+	 */
+	protected static class Link {
+
+		protected final TrackingJsonNodeFactory factory;
+
+		protected JsonNode parent;
+
+		protected String fieldName;
+
+		protected boolean isRoot;
+
+		protected Link(TrackingJsonNodeFactory factory) {
+			this.factory = factory;
+		}
+	}
+
+}
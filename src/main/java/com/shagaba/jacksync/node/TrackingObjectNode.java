@@ -0,0 +1,195 @@
+package com.shagaba.jacksync.node;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.RemoveOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+
+/**
+ * An object node recording its mutations on the {@link TrackingJsonNodeFactory}
+ * that created it.
+ *
+ * @author Shagaba
+ *
+ */
+public class TrackingObjectNode extends ObjectNode {
+
+	protected final TrackingJsonNodeFactory.Link link;
+
+	/**
+	 * @param nodeFactory
+	 */
+	public TrackingObjectNode(TrackingJsonNodeFactory nodeFactory) {
+		super(nodeFactory);
+		this.link = new TrackingJsonNodeFactory.Link(nodeFactory);
+	}
+
+	@Override
+	public JsonNode set(String fieldName, JsonNode value) {
+		trackedPut(fieldName, value);
+		return this;
+	}
+
+	@Override
+	public JsonNode replace(String fieldName, JsonNode value) {
+		return trackedPut(fieldName, value);
+	}
+
+	@Override
+	@Deprecated
+	public JsonNode put(String fieldName, JsonNode value) {
+		return trackedPut(fieldName, value);
+	}
+
+	@Override
+	protected ObjectNode _put(String fieldName, JsonNode value) {
+		trackedPut(fieldName, value);
+		return this;
+	}
+
+	@Override
+	public ObjectNode putNull(String fieldName) {
+		trackedPut(fieldName, nullNode());
+		return this;
+	}
+
+	@Override
+	public JsonNode setAll(Map<String, ? extends JsonNode> properties) {
+		for (Map.Entry<String, ? extends JsonNode> property : properties.entrySet()) {
+			trackedPut(property.getKey(), property.getValue());
+		}
+		return this;
+	}
+
+	@Override
+	public JsonNode setAll(ObjectNode other) {
+		List<Map.Entry<String, JsonNode>> fields = new ArrayList<>();
+		other.fields().forEachRemaining(fields::add);
+		for (Map.Entry<String, JsonNode> field : fields) {
+			trackedPut(field.getKey(), field.getValue());
+		}
+		return this;
+	}
+
+	@Override
+	@Deprecated
+	public JsonNode putAll(Map<String, ? extends JsonNode> properties) {
+		return setAll(properties);
+	}
+
+	@Override
+	@Deprecated
+	public JsonNode putAll(ObjectNode other) {
+		return setAll(other);
+	}
+
+	@Override
+	public ObjectNode with(String propertyName) {
+		JsonNode node = get(propertyName);
+		if (node != null) {
+			return super.with(propertyName);
+		}
+		ObjectNode objectNode = objectNode();
+		trackedPut(propertyName, objectNode);
+		return objectNode;
+	}
+
+	@Override
+	public ArrayNode withArray(String propertyName) {
+		JsonNode node = get(propertyName);
+		if (node != null) {
+			return super.withArray(propertyName);
+		}
+		ArrayNode arrayNode = arrayNode();
+		trackedPut(propertyName, arrayNode);
+		return arrayNode;
+	}
+
+	@Override
+	public JsonNode remove(String fieldName) {
+		return trackedRemove(fieldName);
+	}
+
+	@Override
+	public ObjectNode remove(Collection<String> fieldNames) {
+		for (String fieldName : fieldNames) {
+			trackedRemove(fieldName);
+		}
+		return this;
+	}
+
+	@Override
+	public JsonNode without(String fieldName) {
+		trackedRemove(fieldName);
+		return this;
+	}
+
+	@Override
+	public ObjectNode without(Collection<String> fieldNames) {
+		return remove(fieldNames);
+	}
+
+	@Override
+	public ObjectNode retain(Collection<String> fieldNames) {
+		List<String> removedFieldNames = new ArrayList<>();
+		fieldNames().forEachRemaining(fieldName -> {
+			if (!fieldNames.contains(fieldName)) {
+				removedFieldNames.add(fieldName);
+			}
+		});
+		return remove(removedFieldNames);
+	}
+
+	@Override
+	public ObjectNode removeAll() {
+		if (size() == 0) {
+			return this;
+		}
+		for (JsonNode child : _children.values()) {
+			link.factory.detach(this, child);
+		}
+		super.removeAll();
+		link.factory.record(this, null, path -> new ReplaceOperation(path, JsonNodeFactory.instance.objectNode()));
+		return this;
+	}
+
+	/**
+	 *
+	 * @param fieldName
+	 * @param value
+	 * @return the replaced value or null
+	 */
+	protected JsonNode trackedPut(String fieldName, JsonNode value) {
+		JsonNode attachedValue = link.factory.adopt(value);
+		JsonNode oldValue = _children.put(fieldName, attachedValue);
+		link.factory.detach(this, oldValue);
+		link.factory.attach(this, fieldName, attachedValue);
+		link.factory.record(this, fieldName, path -> oldValue == null
+				? new AddOperation(path, attachedValue.deepCopy())
+				: new ReplaceOperation(path, attachedValue.deepCopy()));
+		return oldValue;
+	}
+
+	/**
+	 *
+	 * @param fieldName
+	 * @return the removed value or null
+	 */
+	protected JsonNode trackedRemove(String fieldName) {
+		JsonNode oldValue = _children.remove(fieldName);
+		if (oldValue != null) {
+			link.factory.detach(this, oldValue);
+			link.factory.record(this, fieldName, RemoveOperation::new);
+		}
+		return oldValue;
+	}
+
+}
@@ -3,8 +3,8 @@ package com.shagaba.jacksync.operation;
 import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import com.shagaba.jacksync.utils.JsonPointerDeserializer;
+import com.shagaba.jacksync.utils.JsonPointerSerializer;
 
 /**
  * Base class for patch operations taking a path
@@ -38,7 +38,7 @@ public abstract class PatchDualPathOperation extends PatchPathOperation {
 	/**
 	 * @return the from
 	 */
-	@JsonSerialize(using = ToStringSerializer.class)
+	@JsonSerialize(using = JsonPointerSerializer.class)
 	public JsonPointer getFrom() {
 		return from;
 	}
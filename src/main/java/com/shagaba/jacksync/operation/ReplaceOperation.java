@@ -26,6 +26,8 @@ import com.shagaba.jacksync.utils.JacksonUtils;
  * 
  * { "op": "replace", "path": "/a/b/c", "value": 42 }.
  * 
+ * A replace of the root path "" replaces the whole document.
+ * 
  * @author Shagaba
  *
  */
@@ -50,6 +52,9 @@ public class ReplaceOperation extends PatchPathValueOperation {
 
 	@Override
 	public JsonNode apply(JsonNode sourceJsonNode) {
+		if (JacksonUtils.isRoot(path)) {
+			return value.deepCopy();
+		}
 		JsonNode pathJsonNode = JacksonUtils.locateHeadContainer(sourceJsonNode, path);
 		if (pathJsonNode.isArray()) {
 			ArrayNode pathArrayNode = (ArrayNode) pathJsonNode;
@@ -1,11 +1,12 @@
 package com.shagaba.jacksync.operation;
 
-import java.util.Objects;
+import java.util.Comparator;
 
 import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.shagaba.jacksync.exception.InvalidTestValueException;
 import com.shagaba.jacksync.utils.JacksonUtils;
+import com.shagaba.jacksync.utils.NumericNodeComparator;
 
 /**
  * This is an implementation of RFC 6902 (JSON Patch) - "test" operation.
@@ -67,10 +68,24 @@ import com.shagaba.jacksync.utils.JacksonUtils;
 		super(path, value);
 	}
 
+	/**
+	 * Tests the value with the numbers compared by value, as required.
+	 */
 	@Override
 	public JsonNode apply(JsonNode sourceJsonNode) {
+		return apply(sourceJsonNode, NumericNodeComparator.INSTANCE);
+	}
+
+	/**
+	 * 
+	 * @param sourceJsonNode
+	 * @param comparator the comparator of the values, see
+	 *            {@link JacksonUtils#isEqual(JsonNode, JsonNode, Comparator)}
+	 * @return the source node
+	 */
+	public JsonNode apply(JsonNode sourceJsonNode, Comparator<JsonNode> comparator) {
 		JsonNode pathJsonNode = JacksonUtils.locate(sourceJsonNode, path);
-        if (!Objects.equals(pathJsonNode, value)) {
+        if (!JacksonUtils.isEqual(pathJsonNode, value, comparator)) {
         	throw new InvalidTestValueException(String.format("Value test failure - Expected: %s, but: was %s", value, pathJsonNode));
         }
         return sourceJsonNode;
@@ -1,6 +1,7 @@
 package com.shagaba.jacksync.patch;
 
 import java.io.IOException;
+import java.util.Comparator;
 import java.util.List;
 
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -8,11 +9,14 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shagaba.jacksync.exception.PatchProcessingException;
 import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.TestOperation;
 
 public class ObjectPatchProcessor implements PatchProcessor {
 
 	private ObjectMapper objectMapper;
 	
+	private Comparator<JsonNode> nodeComparator;
+	
 	/**
 	 * @param objectMapper
 	 */
@@ -20,6 +24,22 @@ public class ObjectPatchProcessor implements PatchProcessor {
 		this.objectMapper = objectMapper;
 	}
 
+	/**
+	 * @return the nodeComparator of the test operations, or null for their own
+	 */
+	public Comparator<JsonNode> getNodeComparator() {
+		return nodeComparator;
+	}
+
+	/**
+	 * @param nodeComparator the nodeComparator of the test operations, e.g. a
+	 *            {@link com.shagaba.jacksync.utils.NumericNodeComparator} of
+	 *            an epsilon
+	 */
+	public void setNodeComparator(Comparator<JsonNode> nodeComparator) {
+		this.nodeComparator = nodeComparator;
+	}
+
 	/**
 	 * 
 	 * @param sourceObject
@@ -68,7 +88,11 @@ public class ObjectPatchProcessor implements PatchProcessor {
 	protected JsonNode patch(JsonNode currentJsonNode, List<PatchOperation> operations) {
 		JsonNode syncdJsonNode = currentJsonNode.deepCopy();
 		for (PatchOperation operation : operations) {
-			syncdJsonNode = operation.apply(syncdJsonNode);
+			if (nodeComparator != null && operation instanceof TestOperation) {
+				syncdJsonNode = ((TestOperation) operation).apply(syncdJsonNode, nodeComparator);
+			} else {
+				syncdJsonNode = operation.apply(syncdJsonNode);
+			}
 		}
 		return syncdJsonNode;
 	}
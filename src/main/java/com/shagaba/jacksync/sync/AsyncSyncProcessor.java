@@ -0,0 +1,342 @@
+package com.shagaba.jacksync.sync;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.shagaba.jacksync.exception.SyncException;
+
+/**
+ * A non blocking front of a {@link SyncProcessor} and a {@link SyncRepository}.
+ *
+ * The patch and checksum work runs on the given executor, and callers get a
+ * {@link CompletableFuture} of the outcome. The default executor is a pool
+ * bounded to the number of processors; on newer JDKs a virtual thread per task
+ * executor may be given instead.
+ *
+ * Syncs of a repository document are queued per document and applied by a
+ * single task at a time, which takes all the queued syncs. A run of syncs each
+ * built on the version the previous one leads to is applied in a single patch
+ * application, see {@link SyncRepository#masterSync(String, List)}, the other
+ * syncs, e.g. of clients sharing a base version, one by one. Should a combined
+ * application fail, its syncs are applied one by one, so each sync gets its
+ * own outcome. A queue is dropped once drained.
+ *
+ * @author Shagaba
+ *
+ * @param <T> the document type
+ */
+public class AsyncSyncProcessor<T> implements Closeable {
+
+	public static final int DEFAULT_MAX_BATCH_SIZE = 64;
+
+	protected SyncProcessor syncProcessor;
+
+	protected SyncRepository<T> syncRepository;
+
+	protected Executor executor;
+
+	protected ExecutorService ownedExecutorService;
+
+	protected int maxBatchSize;
+
+	protected ConcurrentMap<String, DocumentQueue<T>> documentQueues;
+
+	/**
+	 * @param syncRepository
+	 */
+	public AsyncSyncProcessor(ConcurrentSyncRepository<T> syncRepository) {
+		this(syncRepository.getSyncProcessor(), syncRepository, null);
+	}
+
+	/**
+	 * @param syncProcessor
+	 * @param syncRepository
+	 * @param executor the executor of the sync work, or null for a pool bounded
+	 *            to the number of processors
+	 */
+	public AsyncSyncProcessor(SyncProcessor syncProcessor, SyncRepository<T> syncRepository, Executor executor) {
+		this(syncProcessor, syncRepository, executor, DEFAULT_MAX_BATCH_SIZE);
+	}
+
+	/**
+	 * @param syncProcessor
+	 * @param syncRepository
+	 * @param executor the executor of the sync work, or null for a pool bounded
+	 *            to the number of processors
+	 * @param maxBatchSize the maximal number of queued syncs applied together
+	 */
+	public AsyncSyncProcessor(SyncProcessor syncProcessor, SyncRepository<T> syncRepository, Executor executor, int maxBatchSize) {
+        if (syncProcessor == null) {
+            throw new IllegalArgumentException("SyncProcessor cannot be null");
+        }
+        if (syncRepository == null) {
+            throw new IllegalArgumentException("SyncRepository cannot be null");
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Max batch size must be positive");
+        }
+		this.syncProcessor = syncProcessor;
+		this.syncRepository = syncRepository;
+		if (executor == null) {
+			this.ownedExecutorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new SyncThreadFactory());
+			this.executor = ownedExecutorService;
+		} else {
+			this.executor = executor;
+		}
+		this.maxBatchSize = maxBatchSize;
+		this.documentQueues = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * @return the syncRepository
+	 */
+	public SyncRepository<T> getSyncRepository() {
+		return syncRepository;
+	}
+
+	/**
+	 *
+	 * @param sourceObject
+	 * @param syncData
+	 * @return a future of the synchronized object
+	 */
+	public CompletableFuture<SyncObject<T>> clientSync(SyncObject<T> sourceObject, SyncData syncData) {
+		return supplyAsync(() -> syncProcessor.clientSync(sourceObject, syncData));
+	}
+
+	/**
+	 *
+	 * @param sourceObject
+	 * @param syncData
+	 * @return a future of the synchronized object
+	 */
+	public CompletableFuture<SyncObject<T>> masterSync(SyncObject<T> sourceObject, SyncData syncData) {
+		return supplyAsync(() -> syncProcessor.masterSync(sourceObject, syncData));
+	}
+
+	/**
+	 * Queues the given syncData for the repository document. The future of a
+	 * sync applied together with later queued syncs completes with the
+	 * document they all lead to.
+	 *
+	 * @param documentId
+	 * @param syncData
+	 * @return a future of the synchronized document
+	 */
+	public CompletableFuture<SyncObject<T>> masterSync(String documentId, SyncData syncData) {
+        if (syncData == null) {
+            throw new IllegalArgumentException("SyncData cannot be null");
+        }
+		PendingSync<T> pendingSync = new PendingSync<>(syncData);
+		// queued under the map entry lock, so a drained queue is not dropped meanwhile
+		DocumentQueue<T> documentQueue = documentQueues.compute(documentId, (id, queue) -> {
+			DocumentQueue<T> nextQueue = queue == null ? new DocumentQueue<>() : queue;
+			nextQueue.pendingSyncs.add(pendingSync);
+			return nextQueue;
+		});
+		schedule(documentId, documentQueue);
+		return pendingSync.future;
+	}
+
+	/**
+	 * Shuts down the default executor. A given executor is left to its owner.
+	 */
+	@Override
+	public void close() {
+		if (ownedExecutorService != null) {
+			ownedExecutorService.shutdown();
+		}
+	}
+
+	/**
+	 *
+	 * @param documentId
+	 * @param documentQueue
+	 */
+	protected void schedule(String documentId, DocumentQueue<T> documentQueue) {
+		if (!documentQueue.isScheduled.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			executor.execute(() -> drain(documentId, documentQueue));
+		} catch (RejectedExecutionException e) {
+			documentQueue.isScheduled.set(false);
+			PendingSync<T> pendingSync;
+			while ((pendingSync = documentQueue.pendingSyncs.poll()) != null) {
+				pendingSync.future.completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * Applies the queued syncs of a document, rescheduling itself if more syncs
+	 * were queued meanwhile, otherwise dropping the queue.
+	 *
+	 * @param documentId
+	 * @param documentQueue
+	 */
+	protected void drain(String documentId, DocumentQueue<T> documentQueue) {
+		try {
+			List<PendingSync<T>> batch = new ArrayList<>();
+			while (batch.size() < maxBatchSize) {
+				PendingSync<T> pendingSync = documentQueue.pendingSyncs.poll();
+				if (pendingSync == null) {
+					break;
+				}
+				batch.add(pendingSync);
+			}
+			if (!batch.isEmpty()) {
+				apply(documentId, batch);
+			}
+		} finally {
+			documentQueue.isScheduled.set(false);
+			documentQueues.computeIfPresent(documentId, (id, queue) -> queue == documentQueue && queue.pendingSyncs.isEmpty() ? null : queue);
+			if (!documentQueue.pendingSyncs.isEmpty()) {
+				schedule(documentId, documentQueue);
+			}
+		}
+	}
+
+	/**
+	 * Splits the batch into runs of consecutive versions.
+	 *
+	 * @param documentId
+	 * @param batch
+	 */
+	protected void apply(String documentId, List<PendingSync<T>> batch) {
+		int start = 0;
+		while (start < batch.size()) {
+			int end = start + 1;
+			while (end < batch.size() && isConsecutive(batch.get(end - 1).syncData, batch.get(end).syncData)) {
+				++end;
+			}
+			applyRun(documentId, batch.subList(start, end));
+			start = end;
+		}
+	}
+
+	/**
+	 *
+	 * @param syncData
+	 * @param nextSyncData
+	 * @return true if the next syncData is built on the version the syncData
+	 *         leads to
+	 */
+	protected boolean isConsecutive(SyncData syncData, SyncData nextSyncData) {
+		return syncData.getVersion() != null && Objects.equals(nextSyncData.getVersion(), syncData.getVersion() + 1);
+	}
+
+	/**
+	 *
+	 * @param documentId
+	 * @param batch a run of consecutive versions
+	 */
+	protected void applyRun(String documentId, List<PendingSync<T>> batch) {
+		if (batch.size() > 1) {
+			List<SyncData> syncDataList = new ArrayList<>(batch.size());
+			for (PendingSync<T> pendingSync : batch) {
+				syncDataList.add(pendingSync.syncData);
+			}
+			try {
+				SyncObject<T> syncObject = syncRepository.masterSync(documentId, syncDataList);
+				for (PendingSync<T> pendingSync : batch) {
+					pendingSync.future.complete(syncObject);
+				}
+				return;
+			} catch (SyncException | RuntimeException e) {
+				// applied one by one below
+			}
+		}
+		for (PendingSync<T> pendingSync : batch) {
+			try {
+				pendingSync.future.complete(syncRepository.masterSync(documentId, pendingSync.syncData));
+			} catch (SyncException | RuntimeException e) {
+				pendingSync.future.completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param syncCall
+	 * @return
+	 */
+	protected CompletableFuture<SyncObject<T>> supplyAsync(SyncCall<T> syncCall) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return syncCall.call();
+			} catch (SyncException e) {
+				throw new CompletionException(e);
+			}
+		}, executor);
+	}
+
+	/**
+	 * A synchronous sync call.
+	 */
+	@FunctionalInterface
+	protected interface SyncCall<T> {
+
+		public SyncObject<T> call() throws SyncException;
+	}
+
+	/**
+	 * A queued sync and the future of its outcome.
+	 */
+	protected static class PendingSync<T> {
+
+		protected final SyncData syncData;
+
+		protected final CompletableFuture<SyncObject<T>> future;
+
+		protected PendingSync(SyncData syncData) {
+			this.syncData = syncData;
+			this.future = new CompletableFuture<>();
+		}
+	}
+
+	/**
+	 * The queued syncs of a document, drained by at most one task at a time.
+	 */
+	protected static class DocumentQueue<T> {
+
+		protected final Queue<PendingSync<T>> pendingSyncs = new ConcurrentLinkedQueue<>();
+
+		protected final AtomicBoolean isScheduled = new AtomicBoolean();
+	}
+
+	/**
+	 * Daemon threads of the default executor.
+	 */
+	protected static class SyncThreadFactory implements ThreadFactory {
+
+		private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		private final String namePrefix = "jacksync-sync-" + POOL_NUMBER.incrementAndGet() + "-";
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
@@ -0,0 +1,22 @@
+package com.shagaba.jacksync.sync;
+
+/**
+ * Handles a failed asynchronous checksum verification, typically by
+ * resynchronizing the object from its master.
+ *
+ * @author Shagaba
+ *
+ */
+@FunctionalInterface
+public interface ChecksumMismatchHandler {
+
+	/**
+	 *
+	 * @param syncObject the synchronized object that failed the verification
+	 * @param syncData the syncData it was synchronized by
+	 * @param cause the checksum mismatch, or the failure to compute the
+	 *            checksum
+	 */
+	public void onMismatch(SyncObject<?> syncObject, SyncData syncData, Exception cause);
+
+}
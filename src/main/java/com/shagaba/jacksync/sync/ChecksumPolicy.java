@@ -0,0 +1,27 @@
+package com.shagaba.jacksync.sync;
+
+/**
+ * When the target checksum of a syncData is verified.
+ *
+ * @author Shagaba
+ *
+ */
+public enum ChecksumPolicy {
+
+	/**
+	 * Every sync is verified before it returns.
+	 */
+	ALWAYS,
+
+	/**
+	 * One sync in every sample rate syncs is verified before it returns.
+	 */
+	SAMPLED,
+
+	/**
+	 * Every sync returns at once and is verified on a background executor, a
+	 * mismatch is reported to a {@link ChecksumMismatchHandler}.
+	 */
+	ASYNCHRONOUS
+
+}
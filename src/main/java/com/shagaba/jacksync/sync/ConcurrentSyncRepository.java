@@ -0,0 +1,324 @@
+package com.shagaba.jacksync.sync;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shagaba.jacksync.exception.ConcurrentSyncException;
+import com.shagaba.jacksync.exception.InvalidSyncVersionException;
+import com.shagaba.jacksync.exception.NoSuchDocumentException;
+import com.shagaba.jacksync.exception.SyncException;
+import com.shagaba.jacksync.operation.PatchOperation;
+
+/**
+ * A lock free {@link SyncRepository}.
+ *
+ * Every document is held by its own {@link AtomicReference}. An update reads
+ * the current document, computes the next document aside and publishes it by
+ * compare-and-set, retrying on a lost race. Writers of different documents
+ * never contend, and readers never block. Puts and removes set the reference
+ * under the map entry lock, so a put never lands in a reference a concurrent
+ * remove already unmapped.
+ *
+ * A syncData applies to the version it was built on only. A masterSync that
+ * lost the race to another sync of the same version is not retried but
+ * rejected with an {@link InvalidSyncVersionException}, its client has to
+ * rebuild it on the current version, see {@link RebasingSyncRepository} to
+ * rebase it instead.
+ *
+ * @author Shagaba
+ *
+ * @param <T> the document type
+ */
+public class ConcurrentSyncRepository<T> implements SyncRepository<T> {
+
+	public static final int DEFAULT_MAX_RETRIES = 16;
+
+	protected ConcurrentMap<String, AtomicReference<SyncObject<T>>> documents;
+
+	protected SyncProcessor syncProcessor;
+
+	protected int maxRetries;
+
+	/**
+	 * @param objectMapper
+	 */
+	public ConcurrentSyncRepository(ObjectMapper objectMapper) {
+		this(new LocalSyncProcessor(objectMapper));
+	}
+
+	/**
+	 * @param syncProcessor
+	 */
+	public ConcurrentSyncRepository(SyncProcessor syncProcessor) {
+		this(syncProcessor, DEFAULT_MAX_RETRIES);
+	}
+
+	/**
+	 * @param syncProcessor
+	 * @param maxRetries the number of retries of an update that lost a race
+	 */
+	public ConcurrentSyncRepository(SyncProcessor syncProcessor, int maxRetries) {
+        if (syncProcessor == null) {
+            throw new IllegalArgumentException("SyncProcessor cannot be null");
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("Max retries cannot be negative");
+        }
+		this.documents = new ConcurrentHashMap<>();
+		this.syncProcessor = syncProcessor;
+		this.maxRetries = maxRetries;
+	}
+
+	/**
+	 * @return the syncProcessor
+	 */
+	public SyncProcessor getSyncProcessor() {
+		return syncProcessor;
+	}
+
+	/**
+	 * @return the maxRetries
+	 */
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	@Override
+	public SyncObject<T> get(String documentId) {
+		AtomicReference<SyncObject<T>> reference = documents.get(documentId);
+		return reference == null ? null : reference.get();
+	}
+
+	@Override
+	public SyncObject<T> put(String documentId, SyncObject<T> syncObject) {
+        if (syncObject == null) {
+            throw new IllegalArgumentException("SyncObject cannot be null");
+        }
+		AtomicReference<SyncObject<T>> previous = new AtomicReference<>();
+		documents.compute(documentId, (id, reference) -> {
+			AtomicReference<SyncObject<T>> nextReference = reference == null ? new AtomicReference<>() : reference;
+			previous.set(nextReference.getAndSet(syncObject));
+			return nextReference;
+		});
+		return previous.get();
+	}
+
+	@Override
+	public SyncObject<T> putIfAbsent(String documentId, SyncObject<T> syncObject) {
+        if (syncObject == null) {
+            throw new IllegalArgumentException("SyncObject cannot be null");
+        }
+		AtomicReference<SyncObject<T>> current = new AtomicReference<>();
+		documents.compute(documentId, (id, reference) -> {
+			AtomicReference<SyncObject<T>> nextReference = reference == null ? new AtomicReference<>() : reference;
+			nextReference.compareAndSet(null, syncObject);
+			current.set(nextReference.get());
+			return nextReference;
+		});
+		return current.get();
+	}
+
+	@Override
+	public SyncObject<T> remove(String documentId) {
+		AtomicReference<SyncObject<T>> removed = new AtomicReference<>();
+		documents.computeIfPresent(documentId, (id, reference) -> {
+			// a null value tells writers still holding the reference that the document is gone
+			removed.set(reference.getAndSet(null));
+			return null;
+		});
+		return removed.get();
+	}
+
+	@Override
+	public Set<String> documentIds() {
+		return Collections.unmodifiableSet(documents.keySet());
+	}
+
+	/**
+	 * Applies the given syncData on the current document. A lost race is
+	 * retried while the document is still of the syncData version, e.g. put
+	 * anew, otherwise the syncData is rejected.
+	 *
+	 * @param documentId
+	 * @param syncData
+	 * @return
+	 * @throws SyncException
+	 */
+	@Override
+	public SyncObject<T> masterSync(String documentId, SyncData syncData) throws SyncException {
+        if (syncData == null) {
+            throw new IllegalArgumentException("SyncData cannot be null");
+        }
+		return advance(documentId, current -> {
+			checkVersion(current, syncData.getVersion());
+			return syncProcessor.masterSync(current, syncData).getObject();
+		});
+	}
+
+	/**
+	 *
+	 * @param documentId
+	 * @param syncDataList
+	 * @return
+	 * @throws SyncException
+	 */
+	@Override
+	public SyncObject<T> masterSync(String documentId, List<SyncData> syncDataList) throws SyncException {
+        if (syncDataList == null || syncDataList.isEmpty()) {
+            throw new IllegalArgumentException("SyncData list cannot be empty");
+        }
+		return advance(documentId, syncDataList.size(), current -> syncProcessor.masterSync(current, combine(current, syncDataList)).getObject());
+	}
+
+	/**
+	 *
+	 * @param documentId
+	 * @param updateFunction
+	 * @return
+	 * @throws SyncException
+	 */
+	@Override
+	public SyncObject<T> update(String documentId, UnaryOperator<T> updateFunction) throws SyncException {
+        if (updateFunction == null) {
+            throw new IllegalArgumentException("Update function cannot be null");
+        }
+		return advance(documentId, current -> updateFunction.apply(current.getObject()));
+	}
+
+	/**
+	 * Optimistically computes the next document from the current one, and
+	 * publishes it with the next version unless another writer got there
+	 * first, in which case the computation is retried on the newer document.
+	 *
+	 * @param documentId
+	 * @param step
+	 * @return the published document
+	 * @throws SyncException
+	 */
+	protected SyncObject<T> advance(String documentId, SyncStep<T> step) throws SyncException {
+		return advance(documentId, 1, step);
+	}
+
+	/**
+	 * Same as {@link #advance(String, SyncStep)}, advancing the version by the
+	 * given number of versions.
+	 *
+	 * @param documentId
+	 * @param versions
+	 * @param step
+	 * @return the published document
+	 * @throws SyncException
+	 */
+	protected SyncObject<T> advance(String documentId, int versions, SyncStep<T> step) throws SyncException {
+		return publish(documentId, current -> {
+			Long version = current.getVersion();
+			for (int i = 0; i < versions; ++i) {
+				version = nextVersion(version);
+			}
+			T object = step.apply(current);
+			// an unchanged object keeps its checksum
+			return new SyncObject<T>(version, object, object == current.getObject() ? current.getChecksum() : null);
+		});
+	}
+
+	/**
+	 * Publishes the document computed from the current one by compare-and-set,
+	 * retrying the computation on a lost race.
+	 *
+	 * @param documentId
+	 * @param transition
+	 * @return the published document
+	 * @throws SyncException
+	 */
+	protected SyncObject<T> publish(String documentId, SyncTransition<T> transition) throws SyncException {
+		AtomicReference<SyncObject<T>> reference = documents.get(documentId);
+		for (int attempt = 0; attempt <= maxRetries; ++attempt) {
+			SyncObject<T> current = reference == null ? null : reference.get();
+			if (current == null) {
+				throw new NoSuchDocumentException(String.format("No such document - %s", documentId));
+			}
+			SyncObject<T> next = transition.apply(current);
+			if (reference.compareAndSet(current, next)) {
+				return next;
+			}
+		}
+		throw new ConcurrentSyncException(String.format("Document update retries exhausted - %s", documentId));
+	}
+
+	/**
+	 * 
+	 * @param current
+	 * @param version
+	 * @throws InvalidSyncVersionException if the current document is not of
+	 *             the given version
+	 */
+	protected void checkVersion(SyncObject<T> current, Long version) throws InvalidSyncVersionException {
+		if (!Objects.equals(current.getVersion(), version)) {
+			throw new InvalidSyncVersionException(String.format("Sync Version Mismatch - expected %s but was %s", current.getVersion(), version));
+		}
+	}
+
+	/**
+	 * Chains consecutive syncData into one syncData of the current version.
+	 *
+	 * @param current
+	 * @param syncDataList
+	 * @return the combined syncData
+	 * @throws InvalidSyncVersionException
+	 */
+	protected SyncData combine(SyncObject<T> current, List<SyncData> syncDataList) throws InvalidSyncVersionException {
+		List<PatchOperation> operations = new ArrayList<>();
+		Long version = current.getVersion();
+		for (SyncData syncData : syncDataList) {
+			if (!Objects.equals(version, syncData.getVersion())) {
+				throw new InvalidSyncVersionException("Sync Version Mismatch");
+			}
+			if (syncData.getOperations() != null) {
+				operations.addAll(syncData.getOperations());
+			}
+			version = nextVersion(version);
+		}
+		SyncData combined = new SyncData();
+		combined.setVersion(current.getVersion());
+		combined.setTargetChecksum(syncDataList.get(syncDataList.size() - 1).getTargetChecksum());
+		combined.setOperations(operations);
+		return combined;
+	}
+
+	/**
+	 *
+	 * @param version
+	 * @return the version following the given version
+	 */
+	protected Long nextVersion(Long version) {
+		return version == null ? 1L : version + 1;
+	}
+
+	/**
+	 * A single computation of the next document from the current one.
+	 */
+	@FunctionalInterface
+	protected interface SyncStep<T> {
+
+		public T apply(SyncObject<T> current) throws SyncException;
+	}
+
+	/**
+	 * A single computation of the next published document from the current
+	 * one, version included.
+	 */
+	@FunctionalInterface
+	protected interface SyncTransition<T> {
+
+		public SyncObject<T> apply(SyncObject<T> current) throws SyncException;
+	}
+
+}
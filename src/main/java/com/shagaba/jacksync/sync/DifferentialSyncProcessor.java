@@ -0,0 +1,142 @@
+package com.shagaba.jacksync.sync;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shagaba.jacksync.exception.NoSuchDocumentException;
+import com.shagaba.jacksync.exception.SyncException;
+import com.shagaba.jacksync.operation.PatchOperation;
+
+/**
+ * Master side of a differential synchronization.
+ *
+ * Holds a {@link DifferentialSyncSession} (a server shadow) per client and
+ * document, on top of a {@link SyncRepository} holding the master documents.
+ * A sync cycle applies the client edits on its shadow and on the master
+ * document, then answers with the diff of the master document against the
+ * shadow, so a stale client simply receives what it is missing instead of a
+ * version mismatch.
+ *
+ * @author Shagaba
+ *
+ * @param <T> the document type
+ */
+public class DifferentialSyncProcessor<T> {
+
+	protected ObjectMapper objectMapper;
+
+	protected SyncRepository<T> syncRepository;
+
+	protected ConcurrentMap<String, ConcurrentMap<String, DifferentialSyncSession<T>>> sessions;
+
+	/**
+	 * @param objectMapper
+	 */
+	public DifferentialSyncProcessor(ObjectMapper objectMapper) {
+		this(objectMapper, new ConcurrentSyncRepository<T>(objectMapper));
+	}
+
+	/**
+	 * @param objectMapper
+	 * @param syncRepository
+	 */
+	public DifferentialSyncProcessor(ObjectMapper objectMapper, SyncRepository<T> syncRepository) {
+        if (objectMapper == null) {
+            throw new IllegalArgumentException("ObjectMapper cannot be null");
+        }
+        if (syncRepository == null) {
+            throw new IllegalArgumentException("SyncRepository cannot be null");
+        }
+		this.objectMapper = objectMapper;
+		this.syncRepository = syncRepository;
+		this.sessions = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * @return the syncRepository
+	 */
+	public SyncRepository<T> getSyncRepository() {
+		return syncRepository;
+	}
+
+	/**
+	 * Opens a session for the given client, starting from the current master
+	 * document. The client starts its own session from the returned document.
+	 *
+	 * @param documentId
+	 * @param clientId
+	 * @return the current master document
+	 * @throws SyncException
+	 */
+	public SyncObject<T> connect(String documentId, String clientId) throws SyncException {
+		SyncObject<T> masterObject = syncRepository.get(documentId);
+		if (masterObject == null) {
+			throw new NoSuchDocumentException(String.format("No such document - %s", documentId));
+		}
+		sessions.computeIfAbsent(documentId, id -> new ConcurrentHashMap<>())
+				.put(clientId, new DifferentialSyncSession<T>(objectMapper, masterObject.getObject()));
+		return masterObject;
+	}
+
+	/**
+	 * Closes the session of the given client.
+	 *
+	 * @param documentId
+	 * @param clientId
+	 */
+	public void disconnect(String documentId, String clientId) {
+		ConcurrentMap<String, DifferentialSyncSession<T>> documentSessions = sessions.get(documentId);
+		if (documentSessions != null) {
+			documentSessions.remove(clientId);
+		}
+	}
+
+	/**
+	 * Runs a sync cycle for the given client.
+	 *
+	 * @param documentId
+	 * @param clientId
+	 * @param syncData the client edits against its shadow
+	 * @return the master edits against the client shadow
+	 * @throws SyncException
+	 */
+	public SyncData sync(String documentId, String clientId, SyncData syncData) throws SyncException {
+		DifferentialSyncSession<T> session = session(documentId, clientId);
+		synchronized (session) {
+			DifferentialSyncSession.Checkpoint<T> checkpoint = session.checkpoint();
+			List<PatchOperation> operations = session.receive(syncData);
+			SyncObject<T> masterObject;
+			try {
+				masterObject = operations.isEmpty() ? syncRepository.get(documentId) :
+					syncRepository.update(documentId, object -> DifferentialSyncSession.fuzzyPatch(objectMapper, object, operations));
+				if (masterObject == null) {
+					throw new NoSuchDocumentException(String.format("No such document - %s", documentId));
+				}
+			} catch (SyncException | RuntimeException e) {
+				// the master did not take the edits, nor does the shadow, so the client resends them
+				session.rollback(checkpoint);
+				throw e;
+			}
+			return session.diff(masterObject.getObject());
+		}
+	}
+
+	/**
+	 *
+	 * @param documentId
+	 * @param clientId
+	 * @return the session of the given client
+	 * @throws SyncException
+	 */
+	protected DifferentialSyncSession<T> session(String documentId, String clientId) throws SyncException {
+		ConcurrentMap<String, DifferentialSyncSession<T>> documentSessions = sessions.get(documentId);
+		DifferentialSyncSession<T> session = documentSessions == null ? null : documentSessions.get(clientId);
+		if (session == null) {
+			throw new NoSuchDocumentException(String.format("No sync session - %s of %s", clientId, documentId));
+		}
+		return session;
+	}
+
+}
@@ -0,0 +1,299 @@
+package com.shagaba.jacksync.sync;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shagaba.jacksync.diff.SyncDiffMapper;
+import com.shagaba.jacksync.diff.SyncObjectDiffMapper;
+import com.shagaba.jacksync.exception.InvalidSyncVersionException;
+import com.shagaba.jacksync.exception.JacksonPatchException;
+import com.shagaba.jacksync.exception.SyncException;
+import com.shagaba.jacksync.operation.MergeOperation;
+import com.shagaba.jacksync.operation.MoveOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.RemoveOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+import com.shagaba.jacksync.operation.TestOperation;
+import com.shagaba.jacksync.patch.ObjectPatchProcessor;
+import com.shagaba.jacksync.patch.PatchProcessor;
+import com.shagaba.jacksync.utils.JacksonUtils;
+
+/**
+ * One side of a differential synchronization (Neil Fraser, "Differential
+ * Synchronization") between two nodes sharing a document.
+ *
+ * Each side keeps a shadow, the last document state both sides agree on. Local
+ * changes are sent as a diff against the shadow, and received edits are
+ * applied strictly to the shadow and leniently to the local document, so both
+ * sides converge with continuous small deltas and without a version lock-step
+ * on the document itself.
+ *
+ * The versions carried by the exchanged {@link SyncData} are:
+ *
+ * o version - the sender's shadow version the operations were computed from.
+ *
+ * o masterVersion - the receiver's shadow version last received by the sender.
+ *
+ * A backup shadow recovers from a lost reply, so an edit is resent instead of
+ * forcing a full resync.
+ *
+ * @author Shagaba
+ *
+ * @param <T> the document type
+ */
+public class DifferentialSyncSession<T> {
+
+	protected ObjectMapper objectMapper;
+
+	protected SyncDiffMapper syncDiffMapper;
+
+	protected PatchProcessor patchProcessor;
+
+	protected T shadow;
+
+	protected long localVersion;
+
+	protected long remoteVersion;
+
+	protected T backupShadow;
+
+	protected long backupLocalVersion;
+
+	/**
+	 * @param objectMapper
+	 * @param initialObject the document state both sides start with
+	 */
+	public DifferentialSyncSession(ObjectMapper objectMapper, T initialObject) {
+		this(objectMapper, new SyncObjectDiffMapper(objectMapper), initialObject);
+	}
+
+	/**
+	 * @param objectMapper
+	 * @param syncDiffMapper
+	 * @param initialObject the document state both sides start with
+	 */
+	public DifferentialSyncSession(ObjectMapper objectMapper, SyncDiffMapper syncDiffMapper, T initialObject) {
+        if (objectMapper == null) {
+            throw new IllegalArgumentException("ObjectMapper cannot be null");
+        }
+        if (syncDiffMapper == null) {
+            throw new IllegalArgumentException("SyncDiffMapper cannot be null");
+        }
+        if (initialObject == null) {
+            throw new IllegalArgumentException("Initial object cannot be null");
+        }
+		this.objectMapper = objectMapper;
+		this.syncDiffMapper = syncDiffMapper;
+		this.patchProcessor = new ObjectPatchProcessor(objectMapper);
+		this.shadow = initialObject;
+		this.backupShadow = initialObject;
+	}
+
+	/**
+	 * @return the shadow
+	 */
+	public synchronized T getShadow() {
+		return shadow;
+	}
+
+	/**
+	 * @return the localVersion
+	 */
+	public synchronized long getLocalVersion() {
+		return localVersion;
+	}
+
+	/**
+	 * @return the remoteVersion
+	 */
+	public synchronized long getRemoteVersion() {
+		return remoteVersion;
+	}
+
+	/**
+	 * Computes the edits from the shadow to the given local document and takes
+	 * them into the shadow.
+	 *
+	 * @param localObject the current local document
+	 * @return the edits to send to the other side
+	 * @throws SyncException
+	 */
+	public synchronized SyncData diff(T localObject) throws SyncException {
+		SyncData syncData = syncDiffMapper.diff(new SyncObject<T>(localVersion, shadow), new SyncObject<T>(localVersion + 1, localObject));
+		syncData.setVersion(localVersion);
+		syncData.setMasterVersion(remoteVersion);
+		if (!syncData.getOperations().isEmpty()) {
+			shadow = patchProcessor.patch(shadow, syncData.getOperations());
+			++localVersion;
+		}
+		return syncData;
+	}
+
+	/**
+	 * Takes the edits received from the other side into the shadow.
+	 *
+	 * @param syncData the received edits
+	 * @return the operations to apply on the local document, empty if the
+	 *         edits were already received
+	 * @throws SyncException
+	 */
+	public synchronized List<PatchOperation> receive(SyncData syncData) throws SyncException {
+		long acknowledgedVersion = syncData.getMasterVersion() == null ? 0L : syncData.getMasterVersion();
+		if (acknowledgedVersion == localVersion) {
+			// the other side holds our shadow, back it up even if no edits follow
+			backupShadow = shadow;
+			backupLocalVersion = localVersion;
+		} else {
+			if (acknowledgedVersion != backupLocalVersion) {
+				throw new InvalidSyncVersionException(String.format("Shadow version mismatch - expected %s but was %s", localVersion, acknowledgedVersion));
+			}
+			// our last edits were lost on the way, the other side still holds the backup
+			shadow = backupShadow;
+			localVersion = backupLocalVersion;
+		}
+		long version = syncData.getVersion() == null ? 0L : syncData.getVersion();
+		if (version < remoteVersion || syncData.getOperations() == null || syncData.getOperations().isEmpty()) {
+			// duplicate or empty edits
+			return Collections.emptyList();
+		}
+		if (version != remoteVersion) {
+			throw new InvalidSyncVersionException(String.format("Remote version mismatch - expected %s but was %s", remoteVersion, version));
+		}
+		shadow = patchProcessor.patch(shadow, syncData.getOperations());
+		remoteVersion = version + 1;
+		backupShadow = shadow;
+		backupLocalVersion = localVersion;
+		return syncData.getOperations();
+	}
+
+	/**
+	 * @return the current state of the session, to roll back to if the
+	 *         received edits cannot be applied on the local document
+	 */
+	public synchronized Checkpoint<T> checkpoint() {
+		return new Checkpoint<T>(shadow, localVersion, remoteVersion, backupShadow, backupLocalVersion);
+	}
+
+	/**
+	 * Rolls the session back to the given state.
+	 *
+	 * @param checkpoint a state of this session
+	 */
+	public synchronized void rollback(Checkpoint<T> checkpoint) {
+		shadow = checkpoint.shadow;
+		localVersion = checkpoint.localVersion;
+		remoteVersion = checkpoint.remoteVersion;
+		backupShadow = checkpoint.backupShadow;
+		backupLocalVersion = checkpoint.backupLocalVersion;
+	}
+
+	/**
+	 * Takes the edits received from the other side into the shadow and applies
+	 * them on the given local document.
+	 *
+	 * @param localObject the current local document
+	 * @param syncData the received edits
+	 * @return the patched local document
+	 * @throws SyncException
+	 */
+	public T patch(T localObject, SyncData syncData) throws SyncException {
+		return fuzzyPatch(objectMapper, localObject, receive(syncData));
+	}
+
+	/**
+	 * Best effort patch, operations that no longer apply to the given document
+	 * because of concurrent local edits are skipped: those of a missing
+	 * location, see {@link JacksonPatchException}, and those of a location of
+	 * another type, see {@link #isApplicable(JsonNode, PatchOperation)}.
+	 *
+	 * @param objectMapper
+	 * @param sourceObject
+	 * @param operations
+	 * @return the patched object
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T fuzzyPatch(ObjectMapper objectMapper, T sourceObject, List<PatchOperation> operations) {
+		if (operations.isEmpty()) {
+			return sourceObject;
+		}
+		JsonNode targetJsonNode = objectMapper.valueToTree(sourceObject);
+		for (PatchOperation operation : operations) {
+			// move & merge may fail half way, the other operations fail before any change
+			boolean isAtomic = !(operation instanceof MoveOperation || operation instanceof MergeOperation);
+			JsonNode operationJsonNode = isAtomic ? targetJsonNode : targetJsonNode.deepCopy();
+			if (!isApplicable(targetJsonNode, operation)) {
+				continue;
+			}
+			try {
+				targetJsonNode = operation.apply(operationJsonNode);
+			} catch (JacksonPatchException e) {
+				// conflicting operation, skip it
+			}
+		}
+		try {
+			return (T) objectMapper.treeToValue(targetJsonNode, sourceObject.getClass());
+		} catch (Exception e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/**
+	 * Tells whether the locations of the given operation are of the type it
+	 * takes in the given document. The locations it misses are left to the
+	 * operation, failing with a {@link JacksonPatchException}.
+	 *
+	 * o merge - the location is an object.
+	 *
+	 * o root location - only a replace, a merge or a test takes the whole
+	 * document, and nothing moves it.
+	 *
+	 * o replace and remove in an array - the element exists.
+	 *
+	 * @param targetJsonNode
+	 * @param operation
+	 * @return true if the operation applies as of the type of its locations
+	 */
+	protected static boolean isApplicable(JsonNode targetJsonNode, PatchOperation operation) {
+		if (operation instanceof MergeOperation) {
+			return targetJsonNode.at(operation.getPath()).isObject();
+		}
+		if (JacksonUtils.isRoot(operation.getPath())) {
+			return operation instanceof ReplaceOperation || operation instanceof TestOperation;
+		}
+		if (operation instanceof MoveOperation && JacksonUtils.isRoot(((MoveOperation) operation).getFrom())) {
+			return false;
+		}
+		if (operation instanceof ReplaceOperation || operation instanceof RemoveOperation) {
+			// an index past the last element is neither replaced nor removed
+			return !targetJsonNode.at(operation.getPath().head()).isArray() || !targetJsonNode.at(operation.getPath()).isMissingNode();
+		}
+		return true;
+	}
+
+	/**
+	 * The state of a session, the shadows are never modified in place.
+	 */
+	public static class Checkpoint<T> {
+
+		protected final T shadow;
+
+		protected final long localVersion;
+
+		protected final long remoteVersion;
+
+		protected final T backupShadow;
+
+		protected final long backupLocalVersion;
+
+		protected Checkpoint(T shadow, long localVersion, long remoteVersion, T backupShadow, long backupLocalVersion) {
+			this.shadow = shadow;
+			this.localVersion = localVersion;
+			this.remoteVersion = remoteVersion;
+			this.backupShadow = backupShadow;
+			this.backupLocalVersion = backupLocalVersion;
+		}
+	}
+
+}
@@ -1,12 +1,16 @@
 package com.shagaba.jacksync.sync;
 
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shagaba.jacksync.exception.ChecksumMismatchException;
 import com.shagaba.jacksync.exception.InvalidSyncVersionException;
 import com.shagaba.jacksync.exception.SyncException;
 import com.shagaba.jacksync.exception.SyncProcessingException;
+import com.shagaba.jacksync.operation.ReplaceOperation;
 import com.shagaba.jacksync.patch.ObjectPatchProcessor;
 import com.shagaba.jacksync.patch.PatchProcessor;
 import com.shagaba.jacksync.utils.ChecksumUtils;
@@ -17,6 +21,16 @@ public class LocalSyncProcessor implements SyncProcessor {
 	
 	protected boolean isChecksumValidationEnabled;
 	
+	protected ChecksumPolicy checksumPolicy = ChecksumPolicy.ALWAYS;
+	
+	protected int checksumSampleRate = 1;
+	
+	protected AtomicLong checksumSampleCounter = new AtomicLong();
+	
+	protected Executor checksumExecutor = ForkJoinPool.commonPool();
+	
+	protected ChecksumMismatchHandler checksumMismatchHandler;
+	
 	protected PatchProcessor patchProcessor;
 
 	/**
@@ -43,6 +57,61 @@ public class LocalSyncProcessor implements SyncProcessor {
 		this.isChecksumValidationEnabled = isChecksumValidationEnabled;
 	}
 
+	/**
+	 * @return the checksumPolicy
+	 */
+	public ChecksumPolicy getChecksumPolicy() {
+		return checksumPolicy;
+	}
+
+	/**
+	 * @param checksumPolicy the checksumPolicy to set
+	 */
+	public void setChecksumPolicy(ChecksumPolicy checksumPolicy) {
+        if (checksumPolicy == null) {
+            throw new IllegalArgumentException("Checksum policy cannot be null");
+        }
+		this.checksumPolicy = checksumPolicy;
+	}
+
+	/**
+	 * @return the checksumSampleRate
+	 */
+	public int getChecksumSampleRate() {
+		return checksumSampleRate;
+	}
+
+	/**
+	 * @param checksumSampleRate one in how many syncs is verified under the
+	 *            {@link ChecksumPolicy#SAMPLED} policy
+	 */
+	public void setChecksumSampleRate(int checksumSampleRate) {
+        if (checksumSampleRate < 1) {
+            throw new IllegalArgumentException("Checksum sample rate must be positive");
+        }
+		this.checksumSampleRate = checksumSampleRate;
+	}
+
+	/**
+	 * @param checksumExecutor the executor of the
+	 *            {@link ChecksumPolicy#ASYNCHRONOUS} verifications, the common
+	 *            pool by default
+	 */
+	public void setChecksumExecutor(Executor checksumExecutor) {
+        if (checksumExecutor == null) {
+            throw new IllegalArgumentException("Checksum executor cannot be null");
+        }
+		this.checksumExecutor = checksumExecutor;
+	}
+
+	/**
+	 * @param checksumMismatchHandler the handler of the failed
+	 *            {@link ChecksumPolicy#ASYNCHRONOUS} verifications
+	 */
+	public void setChecksumMismatchHandler(ChecksumMismatchHandler checksumMismatchHandler) {
+		this.checksumMismatchHandler = checksumMismatchHandler;
+	}
+
 	/**
 	 * 
 	 * @param sourceObject
@@ -81,22 +150,101 @@ public class LocalSyncProcessor implements SyncProcessor {
 			throw new InvalidSyncVersionException("Sync Version Mismatch");
 		}
 		
-		T targetObject = patchProcessor.patch(sourceObject.getObject(), syncData.getOperations());
+		if (syncData.getOperations() == null || syncData.getOperations().isEmpty()) {
+			// nothing changes, neither the object nor its checksum
+			verifyChecksum(sourceObject, syncData);
+			return new SyncObject<T>(targetVersion, sourceObject.getObject(), sourceObject.getChecksum());
+		}
+		
+		T targetObject;
+		if (syncData.isSnapshot()) {
+			// a snapshot replaces the object, nothing to patch
+			targetObject = fromSnapshot(sourceObject.getObject(), syncData);
+		} else {
+			targetObject = patchProcessor.patch(sourceObject.getObject(), syncData.getOperations());
+		}
 
-		// verifyChecksum
-		if (isChecksumValidationEnabled) {
-			try {
-				String targetJson = objectMapper.writeValueAsString(targetObject);
-				boolean isChecksumValid =  ChecksumUtils.verifyChecksum(targetJson, syncData.getTargetChecksum());
-				if (!isChecksumValid) {
-					throw new ChecksumMismatchException("Checksum on target does not match checksum on syncData");
+		SyncObject<T> targetSyncObject = new SyncObject<T>(targetVersion, targetObject);
+		verifyChecksum(targetSyncObject, syncData);
+		return targetSyncObject;
+	}	
+
+	/**
+	 * Verifies the checksum of the given object as of the checksum policy.
+	 * 
+	 * Under the {@link ChecksumPolicy#ASYNCHRONOUS} policy the object is
+	 * written on another thread, it must not be modified until verified.
+	 * 
+	 * @param syncObject
+	 * @param syncData
+	 * @throws SyncException 
+	 */
+	protected <T> void verifyChecksum(SyncObject<T> syncObject, SyncData syncData) throws SyncException {
+		if (!isChecksumValidationEnabled) {
+			return;
+		}
+		switch (checksumPolicy) {
+		case SAMPLED:
+			if (checksumSampleCounter.incrementAndGet() % checksumSampleRate == 0) {
+				compareChecksum(syncObject, syncData);
+			}
+			break;
+		case ASYNCHRONOUS:
+			if (checksumMismatchHandler == null) {
+				throw new IllegalStateException("Checksum mismatch handler cannot be null");
+			}
+			checksumExecutor.execute(() -> {
+				try {
+					compareChecksum(syncObject, syncData);
+				} catch (SyncException | RuntimeException e) {
+					checksumMismatchHandler.onMismatch(syncObject, syncData, e);
 				}
+			});
+			break;
+		default:
+			compareChecksum(syncObject, syncData);
+		}
+	}
+
+	/**
+	 * Compares the checksum of the given object with the checksum of the
+	 * syncData. A computed checksum is cached on the object.
+	 * 
+	 * @param syncObject
+	 * @param syncData
+	 * @throws SyncException a {@link SyncProcessingException} caused by a
+	 *             {@link ChecksumMismatchException} on mismatch
+	 */
+	protected <T> void compareChecksum(SyncObject<T> syncObject, SyncData syncData) throws SyncException {
+		String checksum = syncObject.getChecksum();
+		if (checksum == null) {
+			try {
+				checksum = ChecksumUtils.computeChecksum(objectMapper.writeValueAsString(syncObject.getObject()));
 			} catch (Exception e) {
 				throw new SyncProcessingException(e);
 			}
+			syncObject.setChecksum(checksum);
 		}
-		
-		return new SyncObject<T>(targetVersion, targetObject);
-	}	
+		if (!Objects.equals(checksum, syncData.getTargetChecksum())) {
+			throw new SyncProcessingException(new ChecksumMismatchException("Checksum on target does not match checksum on syncData"));
+		}
+	}
+
+	/**
+	 * 
+	 * @param sourceObject
+	 * @param syncData a snapshot syncData
+	 * @return the target object of the snapshot
+	 * @throws SyncProcessingException 
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T> T fromSnapshot(T sourceObject, SyncData syncData) throws SyncProcessingException {
+		ReplaceOperation replaceOperation = (ReplaceOperation) syncData.getOperations().get(0);
+		try {
+			return (T) objectMapper.treeToValue(replaceOperation.getValue(), sourceObject.getClass());
+		} catch (Exception e) {
+			throw new SyncProcessingException(e);
+		}
+	}
 
 }
@@ -0,0 +1,159 @@
+package com.shagaba.jacksync.sync;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shagaba.jacksync.diff.SyncDiffMapper;
+import com.shagaba.jacksync.diff.SyncObjectDiffMapper;
+import com.shagaba.jacksync.exception.DiffProcessingException;
+
+/**
+ * Conflating outbound queues of the syncData of a document, one per client.
+ *
+ * A queue holds the version a client last received and the latest published
+ * version it has not yet received, every newer version replaces the pending
+ * one. The syncData is computed only when the client polls, as a single delta
+ * from the version the client last received to the pending version, so a
+ * lagging client catches up in one syncData and a queue holds two documents
+ * at most.
+ *
+ * @author Shagaba
+ *
+ * @param <T> the document type
+ */
+public class OutboundSyncQueue<T> {
+
+	protected SyncDiffMapper syncDiffMapper;
+
+	protected ConcurrentMap<String, ClientQueue<T>> clientQueues;
+
+	/**
+	 * @param objectMapper
+	 */
+	public OutboundSyncQueue(ObjectMapper objectMapper) {
+		this(new SyncObjectDiffMapper(objectMapper));
+	}
+
+	/**
+	 * @param syncDiffMapper
+	 */
+	public OutboundSyncQueue(SyncDiffMapper syncDiffMapper) {
+        if (syncDiffMapper == null) {
+            throw new IllegalArgumentException("SyncDiffMapper cannot be null");
+        }
+		this.syncDiffMapper = syncDiffMapper;
+		this.clientQueues = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Opens a queue for the given client.
+	 *
+	 * @param clientId
+	 * @param syncObject the document the client holds
+	 */
+	public void connect(String clientId, SyncObject<T> syncObject) {
+        if (syncObject == null) {
+            throw new IllegalArgumentException("SyncObject cannot be null");
+        }
+		clientQueues.put(clientId, new ClientQueue<>(syncObject));
+	}
+
+	/**
+	 * Closes the queue of the given client.
+	 *
+	 * @param clientId
+	 */
+	public void disconnect(String clientId) {
+		clientQueues.remove(clientId);
+	}
+
+	/**
+	 *
+	 * @return the ids of the connected clients
+	 */
+	public Set<String> clientIds() {
+		return clientQueues.keySet();
+	}
+
+	/**
+	 * Queues a new version of the document for all clients, in place of their
+	 * pending version. A version not newer than the versions a client queue
+	 * holds is ignored.
+	 *
+	 * @param syncObject
+	 */
+	public void publish(SyncObject<T> syncObject) {
+        if (syncObject == null || syncObject.getVersion() == null) {
+            throw new IllegalArgumentException("SyncObject version cannot be null");
+        }
+		for (ClientQueue<T> clientQueue : clientQueues.values()) {
+			synchronized (clientQueue) {
+				SyncObject<T> last = clientQueue.pendingObject == null ? clientQueue.sentObject : clientQueue.pendingObject;
+				if (last.getVersion() != null && syncObject.getVersion() <= last.getVersion()) {
+					continue;
+				}
+				// conflated into the new version
+				clientQueue.pendingObject = syncObject;
+			}
+		}
+	}
+
+	/**
+	 * Takes the syncData of the pending version of the given client.
+	 *
+	 * @param clientId
+	 * @return the syncData from the version the client last received to the
+	 *         latest published version, or null if the client is up to date or
+	 *         not connected
+	 * @throws DiffProcessingException
+	 */
+	public SyncData poll(String clientId) throws DiffProcessingException {
+		ClientQueue<T> clientQueue = clientQueues.get(clientId);
+		if (clientQueue == null) {
+			return null;
+		}
+		synchronized (clientQueue) {
+			SyncObject<T> next = clientQueue.pendingObject;
+			if (next == null) {
+				return null;
+			}
+			SyncData syncData = syncDiffMapper.diff(clientQueue.sentObject, next);
+			clientQueue.pendingObject = null;
+			clientQueue.sentObject = next;
+			return syncData;
+		}
+	}
+
+	/**
+	 *
+	 * @param clientId
+	 * @return the number of versions queued for the given client, 0 or 1
+	 */
+	public int size(String clientId) {
+		ClientQueue<T> clientQueue = clientQueues.get(clientId);
+		if (clientQueue == null) {
+			return 0;
+		}
+		synchronized (clientQueue) {
+			return clientQueue.pendingObject == null ? 0 : 1;
+		}
+	}
+
+	/**
+	 * The version a client last received and the latest version pending for
+	 * it.
+	 */
+	protected static class ClientQueue<T> {
+
+		protected SyncObject<T> sentObject;
+
+		protected SyncObject<T> pendingObject;
+
+		protected ClientQueue(SyncObject<T> sentObject) {
+			this.sentObject = sentObject;
+		}
+	}
+
+}
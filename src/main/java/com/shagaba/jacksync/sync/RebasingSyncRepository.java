@@ -0,0 +1,392 @@
+package com.shagaba.jacksync.sync;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shagaba.jacksync.exception.InvalidSyncVersionException;
+import com.shagaba.jacksync.exception.NoSuchDocumentException;
+import com.shagaba.jacksync.exception.OperationConflictException;
+import com.shagaba.jacksync.exception.SyncException;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.patch.ObjectPatchProcessor;
+import com.shagaba.jacksync.patch.PatchProcessor;
+import com.shagaba.jacksync.transform.ConflictIndex;
+import com.shagaba.jacksync.transform.ConflictPolicy;
+import com.shagaba.jacksync.transform.OperationTransformer;
+
+/**
+ * A {@link ConcurrentSyncRepository} accepting syncData built on an older
+ * version of a document.
+ *
+ * The operations that led from each version to the next are kept in a bounded
+ * history. A syncData of an older version is transformed against the
+ * operations applied since its version and applied on the current document,
+ * instead of failing the version check. The target checksum of a syncData
+ * describes the document without the concurrent operations, and no checksum
+ * of the rebased outcome is known independently of the rebased operations, so
+ * a rebased syncData is patched without checksum verification. A syncData of
+ * the current version is verified as usual.
+ *
+ * A rebased syncData publishes its applied operations along with the document
+ * they led to, in the same compare-and-set. Every writer records the
+ * operations of the document it starts from before computing the next one, so
+ * the history always reaches up to the current document without waiting for
+ * the writer that published it.
+ *
+ * With the {@link ConflictPolicy#FAIL} policy, a syncData overlapping the
+ * operations applied since its version is rejected through a
+ * {@link ConflictIndex} of the history, without transforming it.
+ *
+ * Documents changed by {@link #update(String, UnaryOperator)} or by a batch of
+ * syncData cannot be rebased across, the operations of these changes are not
+ * known.
+ *
+ * @author Shagaba
+ *
+ * @param <T> the document type
+ */
+public class RebasingSyncRepository<T> extends ConcurrentSyncRepository<T> {
+
+	public static final int DEFAULT_MAX_HISTORY_SIZE = 256;
+
+	protected ObjectMapper objectMapper;
+
+	protected PatchProcessor patchProcessor;
+
+	protected OperationTransformer operationTransformer;
+
+	protected int maxHistorySize;
+
+	protected ConcurrentMap<String, DocumentHistory> histories;
+
+	/**
+	 * @param objectMapper
+	 */
+	public RebasingSyncRepository(ObjectMapper objectMapper) {
+		this(objectMapper, new LocalSyncProcessor(objectMapper), new OperationTransformer(), DEFAULT_MAX_HISTORY_SIZE);
+	}
+
+	/**
+	 * @param objectMapper the object mapper of the rebased syncData patches
+	 * @param syncProcessor
+	 * @param operationTransformer
+	 * @param maxHistorySize the number of versions a syncData may be behind
+	 */
+	public RebasingSyncRepository(ObjectMapper objectMapper, SyncProcessor syncProcessor, OperationTransformer operationTransformer, int maxHistorySize) {
+		super(syncProcessor);
+        if (objectMapper == null) {
+            throw new IllegalArgumentException("ObjectMapper cannot be null");
+        }
+        if (operationTransformer == null) {
+            throw new IllegalArgumentException("OperationTransformer cannot be null");
+        }
+        if (maxHistorySize < 1) {
+            throw new IllegalArgumentException("Max history size must be positive");
+        }
+		this.objectMapper = objectMapper;
+		this.patchProcessor = new ObjectPatchProcessor(objectMapper);
+		this.operationTransformer = operationTransformer;
+		this.maxHistorySize = maxHistorySize;
+		this.histories = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * @return the operationTransformer
+	 */
+	public OperationTransformer getOperationTransformer() {
+		return operationTransformer;
+	}
+
+	@Override
+	public SyncObject<T> put(String documentId, SyncObject<T> syncObject) {
+		SyncObject<T> previous = super.put(documentId, syncObject);
+		retireHistory(histories.put(documentId, new DocumentHistory(syncObject.getVersion())));
+		return previous;
+	}
+
+	@Override
+	public SyncObject<T> putIfAbsent(String documentId, SyncObject<T> syncObject) {
+		SyncObject<T> current = super.putIfAbsent(documentId, syncObject);
+		if (current == syncObject) {
+			retireHistory(histories.put(documentId, new DocumentHistory(syncObject.getVersion())));
+		}
+		return current;
+	}
+
+	@Override
+	public SyncObject<T> remove(String documentId) {
+		SyncObject<T> removed = super.remove(documentId);
+		retireHistory(histories.remove(documentId));
+		return removed;
+	}
+
+	@Override
+	public SyncObject<T> masterSync(String documentId, SyncData syncData) throws SyncException {
+        if (syncData == null) {
+            throw new IllegalArgumentException("SyncData cannot be null");
+        }
+		SyncObject<T> next = publish(documentId, current -> {
+			SyncData rebasedSyncData = rebase(documentId, current, syncData);
+			T object = rebasedSyncData == syncData ? syncProcessor.masterSync(current, syncData).getObject() : patch(current, rebasedSyncData);
+			// an unchanged object keeps its checksum
+			return new AppliedSyncObject<T>(nextVersion(current.getVersion()), object, object == current.getObject() ? current.getChecksum() : null,
+					rebasedSyncData.getOperations());
+		});
+		recordHistory(documentId, next);
+		return next;
+	}
+
+	@Override
+	public SyncObject<T> masterSync(String documentId, List<SyncData> syncDataList) throws SyncException {
+		SyncObject<T> next = super.masterSync(documentId, syncDataList);
+		resetHistory(documentId, next.getVersion());
+		return next;
+	}
+
+	@Override
+	public SyncObject<T> update(String documentId, UnaryOperator<T> updateFunction) throws SyncException {
+		SyncObject<T> next = super.update(documentId, updateFunction);
+		resetHistory(documentId, next.getVersion());
+		return next;
+	}
+
+	/**
+	 * Records the operations of the current document before computing the next
+	 * one, in case the writer that published it did not yet.
+	 */
+	@Override
+	protected SyncObject<T> publish(String documentId, SyncTransition<T> transition) throws SyncException {
+		return super.publish(documentId, current -> {
+			recordHistory(documentId, current);
+			return transition.apply(current);
+		});
+	}
+
+	/**
+	 * Tells how the given syncData would be taken by the current document, as
+	 * of the recorded history.
+	 *
+	 * @param documentId
+	 * @param syncData
+	 * @return the decision
+	 * @throws NoSuchDocumentException
+	 */
+	public SyncDecision decide(String documentId, SyncData syncData) throws NoSuchDocumentException {
+		SyncObject<T> current = get(documentId);
+		if (current == null) {
+			throw new NoSuchDocumentException(String.format("No such document - %s", documentId));
+		}
+		if (Objects.equals(current.getVersion(), syncData.getVersion())) {
+			return SyncDecision.ACCEPT;
+		}
+		DocumentHistory history = histories.get(documentId);
+		if (current.getVersion() == null || syncData.getVersion() == null || syncData.getVersion() > current.getVersion()
+				|| history == null || syncData.getVersion() < history.floorVersion.get()) {
+			return SyncDecision.REJECT;
+		}
+		if (operationTransformer.getConflictPolicy() == ConflictPolicy.FAIL && !conflictingVersions(documentId, syncData).isEmpty()) {
+			return SyncDecision.REJECT;
+		}
+		return SyncDecision.REBASE;
+	}
+
+	/**
+	 *
+	 * @param documentId
+	 * @param syncData
+	 * @return the recorded versions since the version of the syncData that
+	 *         touched a location overlapping the locations of its operations
+	 */
+	public SortedSet<Long> conflictingVersions(String documentId, SyncData syncData) {
+		DocumentHistory history = histories.get(documentId);
+		if (history == null || syncData.getVersion() == null || syncData.getOperations() == null) {
+			return new TreeSet<>();
+		}
+		return history.conflictIndex.conflictingVersions(syncData.getVersion(), syncData.getOperations());
+	}
+
+	/**
+	 * Rebases the syncData of an older version. Under the
+	 * {@link ConflictPolicy#FAIL} policy, the overlapping locations are looked
+	 * up in the conflict index before any transformation.
+	 *
+	 * @param documentId
+	 * @param current
+	 * @param syncData
+	 * @return the syncData to apply on the current document
+	 * @throws SyncException
+	 */
+	protected SyncData rebase(String documentId, SyncObject<T> current, SyncData syncData) throws SyncException {
+		if (Objects.equals(current.getVersion(), syncData.getVersion())) {
+			return syncData;
+		}
+		if (current.getVersion() == null || syncData.getVersion() == null || syncData.getVersion() > current.getVersion()) {
+			throw new InvalidSyncVersionException("Sync Version Mismatch");
+		}
+		List<PatchOperation> concurrentOperations = concurrentOperations(documentId, syncData.getVersion(), current.getVersion());
+		if (operationTransformer.getConflictPolicy() == ConflictPolicy.FAIL) {
+			SortedSet<Long> conflictingVersions = conflictingVersions(documentId, syncData);
+			if (!conflictingVersions.isEmpty()) {
+				throw new OperationConflictException(String.format("SyncData conflicts with versions - %s", conflictingVersions));
+			}
+		}
+		SyncData rebasedSyncData = new SyncData();
+		rebasedSyncData.setVersion(current.getVersion());
+		rebasedSyncData.setMasterVersion(syncData.getMasterVersion());
+		rebasedSyncData.setOperations(operationTransformer.transform(syncData.getOperations(), concurrentOperations));
+		return rebasedSyncData;
+	}
+
+	/**
+	 * Patches the current document with a rebased syncData, without checksum
+	 * verification: its target checksum, if any, is not of the rebased
+	 * outcome.
+	 *
+	 * @param current
+	 * @param rebasedSyncData
+	 * @return the patched document
+	 * @throws SyncException
+	 */
+	protected T patch(SyncObject<T> current, SyncData rebasedSyncData) throws SyncException {
+		if (rebasedSyncData.getOperations() == null || rebasedSyncData.getOperations().isEmpty()) {
+			return current.getObject();
+		}
+		return patchProcessor.patch(current.getObject(), rebasedSyncData.getOperations());
+	}
+
+	/**
+	 * Collects the operations that led from the given version to the current
+	 * version, the current document being recorded already.
+	 *
+	 * @param documentId
+	 * @param fromVersion
+	 * @param toVersion
+	 * @return the applied operations
+	 * @throws InvalidSyncVersionException if the history does not reach back
+	 *             to the given version
+	 */
+	protected List<PatchOperation> concurrentOperations(String documentId, long fromVersion, long toVersion) throws InvalidSyncVersionException {
+		DocumentHistory history = histories.get(documentId);
+		List<PatchOperation> operations = new ArrayList<>();
+		for (long version = fromVersion; version < toVersion; ++version) {
+			List<PatchOperation> versionOperations = history == null || version < history.floorVersion.get() ? null : history.operations.get(version);
+			if (versionOperations == null) {
+				throw new InvalidSyncVersionException(String.format("Sync version is out of the history - %s", fromVersion));
+			}
+			operations.addAll(versionOperations);
+		}
+		return operations;
+	}
+
+	/**
+	 * Records the operations that led to the given document. A document of
+	 * unknown operations, put or updated, moves the history floor up to its
+	 * version instead. Recording a document twice, as concurrent writers may,
+	 * changes nothing.
+	 *
+	 * @param documentId
+	 * @param syncObject a published document
+	 */
+	protected void recordHistory(String documentId, SyncObject<T> syncObject) {
+		if (!(syncObject instanceof AppliedSyncObject)) {
+			resetHistory(documentId, syncObject.getVersion());
+			return;
+		}
+		DocumentHistory history = histories.get(documentId);
+		Long version = syncObject.getVersion();
+		if (history == null || version == null || version - 1 < history.floorVersion.get()) {
+			return;
+		}
+		List<PatchOperation> operations = ((AppliedSyncObject<T>) syncObject).getAppliedOperations();
+		List<PatchOperation> appliedOperations = operations == null ? new ArrayList<>() : operations;
+		// indexed before it is visible in the history, the rebase relies on it
+		history.conflictIndex.addIfAbsent(version - 1, appliedOperations);
+		history.operations.putIfAbsent(version - 1, appliedOperations);
+		long floorVersion = version - maxHistorySize;
+		Map.Entry<Long, List<PatchOperation>> oldest = history.operations.firstEntry();
+		if (oldest != null && oldest.getKey() < floorVersion) {
+			history.floorVersion.accumulateAndGet(floorVersion, Math::max);
+			history.operations.headMap(floorVersion).clear();
+			history.conflictIndex.removeBefore(floorVersion);
+		}
+	}
+
+	/**
+	 * Moves the history floor up to the given version, older syncData are no
+	 * longer rebased.
+	 *
+	 * @param documentId
+	 * @param version
+	 */
+	protected void resetHistory(String documentId, Long version) {
+		DocumentHistory history = histories.get(documentId);
+		if (history == null) {
+			return;
+		}
+		long floorVersion = version == null ? Long.MAX_VALUE : version;
+		history.floorVersion.accumulateAndGet(floorVersion, Math::max);
+		history.operations.headMap(floorVersion).clear();
+		history.conflictIndex.removeBefore(floorVersion);
+	}
+
+	/**
+	 * Ends a replaced or removed history, so no one rebases on it.
+	 *
+	 * @param history
+	 */
+	protected void retireHistory(DocumentHistory history) {
+		if (history != null) {
+			history.floorVersion.set(Long.MAX_VALUE);
+		}
+	}
+
+	/**
+	 * A document published along with the operations that led to it from the
+	 * previous version.
+	 */
+	protected static class AppliedSyncObject<T> extends SyncObject<T> {
+
+		protected final List<PatchOperation> appliedOperations;
+
+		protected AppliedSyncObject(Long version, T object, String checksum, List<PatchOperation> appliedOperations) {
+			super(version, object, checksum);
+			this.appliedOperations = appliedOperations;
+		}
+
+		/**
+		 * @return the operations that led to the document
+		 */
+		protected List<PatchOperation> getAppliedOperations() {
+			return appliedOperations;
+		}
+	}
+
+	/**
+	 * The operations applied on a document by the version they were applied
+	 * on, and their conflict index. Versions below the floor version are out of
+	 * the history.
+	 */
+	protected static class DocumentHistory {
+
+		protected final ConcurrentSkipListMap<Long, List<PatchOperation>> operations = new ConcurrentSkipListMap<>();
+
+		protected final AtomicLong floorVersion;
+
+		protected final ConflictIndex conflictIndex = new ConflictIndex();
+
+		protected DocumentHistory(Long version) {
+			this.floorVersion = new AtomicLong(version == null ? Long.MAX_VALUE : version);
+		}
+	}
+
+}
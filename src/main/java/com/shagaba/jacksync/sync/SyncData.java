@@ -1,9 +1,18 @@
 package com.shagaba.jacksync.sync;
 
 import java.util.List;
+import java.util.Map;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+import com.shagaba.jacksync.utils.JacksonUtils;
+import com.shagaba.jacksync.utils.PathPrefixesDeserializer;
 
+@JsonPropertyOrder({"version", "masterVersion", "targetChecksum", "pathPrefixes", "operations"})
 public class SyncData {
 	
 	private Long version;
@@ -12,6 +21,10 @@ public class SyncData {
 	
 	private String targetChecksum;
 	
+	@JsonInclude(JsonInclude.Include.NON_EMPTY)
+	@JsonDeserialize(using = PathPrefixesDeserializer.class)
+	private Map<Integer, String> pathPrefixes;
+	
 	private List<PatchOperation> operations;
 
 	/**
@@ -56,6 +69,23 @@ public class SyncData {
 		this.targetChecksum = targetChecksum;
 	}
 
+	/**
+	 * The path prefixes the operations refer to, written ahead of the
+	 * operations so they are defined before the operations are read.
+	 * 
+	 * @return the pathPrefixes
+	 */
+	public Map<Integer, String> getPathPrefixes() {
+		return pathPrefixes;
+	}
+
+	/**
+	 * @param pathPrefixes the pathPrefixes to set
+	 */
+	public void setPathPrefixes(Map<Integer, String> pathPrefixes) {
+		this.pathPrefixes = pathPrefixes;
+	}
+
 	/**
 	 * @return the operations
 	 */
@@ -70,5 +100,17 @@ public class SyncData {
 		this.operations = operations;
 	}
 
+	/**
+	 * A snapshot syncData holds a single replace of the root path, carrying
+	 * the whole target object instead of the changes.
+	 * 
+	 * @return true if the syncData is a snapshot
+	 */
+	@JsonIgnore
+	public boolean isSnapshot() {
+		return operations != null && operations.size() == 1 && operations.get(0) instanceof ReplaceOperation
+				&& JacksonUtils.isRoot(operations.get(0).getPath());
+	}
+
 	
 }
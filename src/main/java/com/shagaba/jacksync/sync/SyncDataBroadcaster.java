@@ -0,0 +1,104 @@
+package com.shagaba.jacksync.sync;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shagaba.jacksync.diff.SyncDiffMapper;
+import com.shagaba.jacksync.diff.SyncObjectDiffMapper;
+import com.shagaba.jacksync.exception.DiffProcessingException;
+
+/**
+ * Fans a master update out to many clients.
+ *
+ * Clients are grouped by the version they hold, the {@link SyncData} of each
+ * group is computed and serialized once, and every client of the group gets a
+ * read-only view of the same encoded bytes. The cost of an update grows with
+ * the number of distinct client versions, not with the number of clients.
+ *
+ * @author Shagaba
+ *
+ */
+public class SyncDataBroadcaster {
+
+	protected ObjectMapper objectMapper;
+
+	protected SyncDiffMapper syncDiffMapper;
+
+	/**
+	 * @param objectMapper
+	 */
+	public SyncDataBroadcaster(ObjectMapper objectMapper) {
+		this(objectMapper, new SyncObjectDiffMapper(objectMapper));
+	}
+
+	/**
+	 * @param objectMapper
+	 * @param syncDiffMapper
+	 */
+	public SyncDataBroadcaster(ObjectMapper objectMapper, SyncDiffMapper syncDiffMapper) {
+        if (objectMapper == null) {
+            throw new IllegalArgumentException("ObjectMapper cannot be null");
+        }
+        if (syncDiffMapper == null) {
+            throw new IllegalArgumentException("SyncDiffMapper cannot be null");
+        }
+		this.objectMapper = objectMapper;
+		this.syncDiffMapper = syncDiffMapper;
+	}
+
+	/**
+	 * Computes and serializes the sync data from source to target.
+	 *
+	 * @param source
+	 * @param target
+	 * @return an immutable buffer of the serialized sync data
+	 * @throws DiffProcessingException
+	 */
+	public <T> ByteBuffer encode(SyncObject<T> source, SyncObject<T> target) throws DiffProcessingException {
+		SyncData syncData = syncDiffMapper.diff(source, target);
+		try {
+			return ByteBuffer.wrap(objectMapper.writeValueAsBytes(syncData)).asReadOnlyBuffer();
+		} catch (JsonProcessingException e) {
+			throw new DiffProcessingException(e);
+		}
+	}
+
+	/**
+	 * Computes the sync data of every client to the given target.
+	 *
+	 * @param target the master document to broadcast
+	 * @param clientVersions the version held by each client
+	 * @param sourceObjects lookup of a past master document by version
+	 * @return a read-only view of the serialized sync data of each client
+	 * @throws DiffProcessingException
+	 */
+	public <T> Map<String, ByteBuffer> broadcast(SyncObject<T> target, Map<String, Long> clientVersions, Function<Long, SyncObject<T>> sourceObjects) throws DiffProcessingException {
+        if (target == null) {
+            throw new IllegalArgumentException("Target object cannot be null");
+        }
+		Map<Long, List<String>> versionToClients = new HashMap<>();
+		for (Map.Entry<String, Long> clientVersion : clientVersions.entrySet()) {
+			versionToClients.computeIfAbsent(clientVersion.getValue(), version -> new ArrayList<>()).add(clientVersion.getKey());
+		}
+
+		Map<String, ByteBuffer> clientToSyncData = new HashMap<>(clientVersions.size() * 2);
+		for (Map.Entry<Long, List<String>> versionClients : versionToClients.entrySet()) {
+			SyncObject<T> source = sourceObjects.apply(versionClients.getKey());
+			if (source == null) {
+				throw new DiffProcessingException(String.format("No such source version - %s", versionClients.getKey()));
+			}
+			ByteBuffer encoded = encode(source, target);
+			for (String clientId : versionClients.getValue()) {
+				clientToSyncData.put(clientId, encoded.duplicate());
+			}
+		}
+		return clientToSyncData;
+	}
+
+}
@@ -0,0 +1,501 @@
+package com.shagaba.jacksync.sync;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.MergeOperation;
+import com.shagaba.jacksync.operation.MoveOperation;
+import com.shagaba.jacksync.operation.PatchDualPathOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.PatchPathValueOperation;
+import com.shagaba.jacksync.operation.RemoveOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+import com.shagaba.jacksync.operation.TestOperation;
+import com.shagaba.jacksync.transform.PathTrie;
+import com.shagaba.jacksync.utils.JacksonUtils;
+
+/**
+ * Splits the syncData of a document between subscriptions to subtrees of the
+ * document, each registered with a set of JSON Pointer prefixes.
+ *
+ * The prefixes of all subscriptions are held by a single {@link PathTrie}, so
+ * the operations are routed in one pass, looking up each operation path once.
+ * A subscription receives:
+ * <ul>
+ * <li>the operations on a subscribed location or below it, as is</li>
+ * <li>the operations on an ancestor of a subscribed location, narrowed to the
+ * subscribed locations: the value of an add, replace or merge keeps the
+ * subscribed subtrees only, a remove is kept, and a test is dropped</li>
+ * <li>a move out of a subscribed location, as a remove of its source</li>
+ * </ul>
+ * A move or copy into a subscribed location is passed as is when the
+ * subscription holds both its source and its target. Otherwise the client
+ * holding the projected document has no such source, and the operation is
+ * resolved into an add of the moved value, narrowed like the value of an add,
+ * given the source document of the syncData
+ * ({@link #route(SyncData, JsonNode)}); without it the operation is passed as
+ * is.
+ *
+ * A subscription may also exclude locations from its subtrees: the operations
+ * on an excluded location or below it are dropped, and the excluded locations
+ * are left out of the value of an operation on an ancestor of them, the same
+ * way {@link #project(String, JsonNode)} leaves them out of a document.
+ *
+ * Prefixes are fixed locations: an insert into an array does not move the
+ * subscriptions to the elements it shifts. The routed syncData carry no target
+ * checksum, as the checksum of a document does not apply to its subtrees.
+ *
+ * @author Shagaba
+ *
+ */
+public class SyncDataRouter {
+
+	protected PathTrie<Subscription> pathTrie;
+
+	protected Map<String, List<Subscription>> subscriptionsById;
+
+	/**
+	 *
+	 */
+	public SyncDataRouter() {
+		this.pathTrie = new PathTrie<>();
+		this.subscriptionsById = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Registers a subscription to the given prefixes, replacing the prefixes
+	 * of the subscription, if any.
+	 *
+	 * @param subscriptionId
+	 * @param prefixes
+	 */
+	public synchronized void subscribe(String subscriptionId, Collection<JsonPointer> prefixes) {
+        if (prefixes == null || prefixes.isEmpty()) {
+            throw new IllegalArgumentException("Prefixes cannot be empty");
+        }
+		subscribe(subscriptionId, prefixes, Collections.emptySet());
+	}
+
+	/**
+	 * Registers a subscription to the given prefixes but the given excluded
+	 * locations, replacing the prefixes of the subscription, if any.
+	 *
+	 * @param subscriptionId
+	 * @param includes the subscribed prefixes, the whole document if empty
+	 * @param excludes the excluded locations
+	 */
+	public synchronized void subscribe(String subscriptionId, Collection<JsonPointer> includes, Collection<JsonPointer> excludes) {
+        if (subscriptionId == null) {
+            throw new IllegalArgumentException("Subscription id cannot be null");
+        }
+        if (includes == null) {
+            throw new IllegalArgumentException("Includes cannot be null");
+        }
+        if (excludes == null) {
+            throw new IllegalArgumentException("Excludes cannot be null");
+        }
+		unsubscribe(subscriptionId);
+		List<Subscription> subscriptions = new ArrayList<>();
+		for (JsonPointer prefix : includes.isEmpty() ? Collections.singleton(JsonPointer.compile("")) : new LinkedHashSet<>(includes)) {
+			subscriptions.add(new Subscription(subscriptionId, prefix, false));
+		}
+		for (JsonPointer prefix : new LinkedHashSet<>(excludes)) {
+			subscriptions.add(new Subscription(subscriptionId, prefix, true));
+		}
+		for (Subscription subscription : subscriptions) {
+			pathTrie.put(subscription.prefix, subscription);
+		}
+		subscriptionsById.put(subscriptionId, subscriptions);
+	}
+
+	/**
+	 *
+	 * @param subscriptionId
+	 * @return true if the subscription was registered
+	 */
+	public synchronized boolean unsubscribe(String subscriptionId) {
+		List<Subscription> subscriptions = subscriptionsById.remove(subscriptionId);
+		if (subscriptions == null) {
+			return false;
+		}
+		for (Subscription subscription : subscriptions) {
+			pathTrie.remove(subscription.prefix, subscription);
+		}
+		return true;
+	}
+
+	/**
+	 * @return the ids of the subscriptions
+	 */
+	public synchronized Set<String> subscriptionIds() {
+		return new LinkedHashSet<>(subscriptionsById.keySet());
+	}
+
+	/**
+	 * Splits the given syncData between the subscriptions. Every subscription
+	 * receives a syncData of the same versions, with no operations if none
+	 * concerns it, so it keeps up with the versions of the document.
+	 *
+	 * @param syncData
+	 * @return the syncData by subscription id
+	 */
+	public synchronized Map<String, SyncData> route(SyncData syncData) {
+		return route(syncData, null);
+	}
+
+	/**
+	 * Splits the given syncData between the subscriptions, resolving the moves
+	 * and copies whose source a subscription does not hold into adds of their
+	 * value. The source document is replayed on a copy, only when the syncData
+	 * has a move or copy, so every value is taken as it is when the operation
+	 * applies.
+	 *
+	 * @param syncData
+	 * @param sourceDocument the document the syncData applies to, or null
+	 * @return the syncData by subscription id
+	 */
+	public synchronized Map<String, SyncData> route(SyncData syncData, JsonNode sourceDocument) {
+        if (syncData == null) {
+            throw new IllegalArgumentException("SyncData cannot be null");
+        }
+		Map<String, List<PatchOperation>> operationsById = new LinkedHashMap<>();
+		for (String subscriptionId : subscriptionsById.keySet()) {
+			operationsById.put(subscriptionId, new ArrayList<>());
+		}
+		if (syncData.getOperations() != null) {
+			JsonNode document = null;
+			if (sourceDocument != null && syncData.getOperations().stream().anyMatch(operation -> operation instanceof PatchDualPathOperation)) {
+				document = sourceDocument.deepCopy();
+			}
+			for (PatchOperation operation : syncData.getOperations()) {
+				route(operation, operationsById, document);
+				if (document != null) {
+					document = operation.apply(document);
+				}
+			}
+		}
+		Map<String, SyncData> syncDataById = new LinkedHashMap<>();
+		for (Map.Entry<String, List<PatchOperation>> entry : operationsById.entrySet()) {
+			SyncData routedSyncData = new SyncData();
+			routedSyncData.setVersion(syncData.getVersion());
+			routedSyncData.setMasterVersion(syncData.getMasterVersion());
+			routedSyncData.setOperations(entry.getValue());
+			syncDataById.put(entry.getKey(), routedSyncData);
+		}
+		return syncDataById;
+	}
+
+	/**
+	 * Projects a document on a subscription: keeps the subscribed subtrees of
+	 * the document but the excluded locations.
+	 *
+	 * @param subscriptionId
+	 * @param document
+	 * @return the projected document, a copy of the given one
+	 */
+	public synchronized JsonNode project(String subscriptionId, JsonNode document) {
+		List<Subscription> subscriptions = subscriptionsById.get(subscriptionId);
+		if (subscriptions == null) {
+			throw new IllegalArgumentException(String.format("No such subscription - %s", subscriptionId));
+		}
+		List<Subscription> includes = new ArrayList<>();
+		List<Subscription> excludes = new ArrayList<>();
+		for (Subscription subscription : subscriptions) {
+			(subscription.isExcluded ? excludes : includes).add(subscription);
+		}
+		JsonNode projectedDocument = prune(document, relativePaths(includes, 0));
+		if (!excludes.isEmpty()) {
+			projectedDocument = strip(projectedDocument, relativePaths(excludes, 0));
+		}
+		return projectedDocument == document ? document.deepCopy() : projectedDocument;
+	}
+
+	/**
+	 *
+	 * @param operation
+	 * @param operationsById
+	 */
+	protected void route(PatchOperation operation, Map<String, List<PatchOperation>> operationsById) {
+		route(operation, operationsById, null);
+	}
+
+	/**
+	 *
+	 * @param operation
+	 * @param operationsById
+	 * @param document the document the operation applies to, or null
+	 */
+	protected void route(PatchOperation operation, Map<String, List<PatchOperation>> operationsById, JsonNode document) {
+		Locations locations = locate(operation.getPath());
+		if (operation instanceof PatchDualPathOperation) {
+			JsonPointer from = ((PatchDualPathOperation) operation).getFrom();
+			Locations fromLocations = locate(from);
+			for (String subscriptionId : operationsById.keySet()) {
+				List<PatchOperation> operations = operationsById.get(subscriptionId);
+				boolean isRemoved = operation instanceof MoveOperation && fromLocations.isVisible(subscriptionId);
+				if (!locations.isVisible(subscriptionId)) {
+					if (isRemoved) {
+						operations.add(new RemoveOperation(from));
+					}
+				} else if (document == null || (fromLocations.isHeld(subscriptionId) && locations.isHeld(subscriptionId))) {
+					operations.add(operation);
+				} else {
+					// the subscription does not hold the whole source, the value is added
+					if (isRemoved) {
+						operations.add(new RemoveOperation(from));
+					}
+					PatchOperation narrowedOperation = narrow(new AddOperation(operation.getPath(), JacksonUtils.locate(document, from).deepCopy()),
+							locations.insideIds.contains(subscriptionId) ? null : locations.belowById.get(subscriptionId),
+							locations.hiddenBelowById.get(subscriptionId));
+					if (narrowedOperation != null) {
+						operations.add(narrowedOperation);
+					}
+				}
+			}
+			return;
+		}
+		Set<String> subscriptionIds = new LinkedHashSet<>(locations.insideIds);
+		subscriptionIds.addAll(locations.belowById.keySet());
+		for (String subscriptionId : subscriptionIds) {
+			if (locations.hiddenIds.contains(subscriptionId)) {
+				continue;
+			}
+			PatchOperation narrowedOperation = narrow(operation,
+					locations.insideIds.contains(subscriptionId) ? null : locations.belowById.get(subscriptionId),
+					locations.hiddenBelowById.get(subscriptionId));
+			if (narrowedOperation != null) {
+				operationsById.get(subscriptionId).add(narrowedOperation);
+			}
+		}
+	}
+
+	/**
+	 * Collects the subscriptions to the given path or to an ancestor of it, and
+	 * the subscriptions to descendants of it.
+	 *
+	 * @param path
+	 * @return the subscriptions by location
+	 */
+	protected Locations locate(JsonPointer path) {
+		Locations locations = new Locations();
+		List<Subscription> subscriptions = new ArrayList<>();
+		pathTrie.collectAncestors(path, subscriptions);
+		pathTrie.collect(path, subscriptions);
+		for (Subscription subscription : subscriptions) {
+			(subscription.isExcluded ? locations.hiddenIds : locations.insideIds).add(subscription.id);
+		}
+		subscriptions.clear();
+		pathTrie.collectDescendants(path, subscriptions);
+		for (Subscription subscription : subscriptions) {
+			(subscription.isExcluded ? locations.hiddenBelowById : locations.belowById)
+					.computeIfAbsent(subscription.id, key -> new ArrayList<>()).add(subscription);
+		}
+		return locations;
+	}
+
+	/**
+	 * Narrows an operation to the given subscribed and excluded locations
+	 * below it.
+	 *
+	 * @param operation
+	 * @param includes the subscribed locations below the operation, or null if
+	 *            the operation is on a subscribed location
+	 * @param excludes the excluded locations below the operation, or null
+	 * @return the narrowed operation or null if it does not concern the
+	 *         subscription
+	 */
+	protected PatchOperation narrow(PatchOperation operation, List<Subscription> includes, List<Subscription> excludes) {
+		if (includes == null && excludes == null) {
+			return operation;
+		}
+		if (operation instanceof TestOperation) {
+			return null;
+		}
+		if (!(operation instanceof PatchPathValueOperation)) {
+			return operation;
+		}
+		int depth = JacksonUtils.segments(operation.getPath()).size();
+		JsonNode value = ((PatchPathValueOperation) operation).getValue();
+		if (includes != null) {
+			value = prune(value, relativePaths(includes, depth));
+		}
+		if (excludes != null) {
+			value = strip(value, relativePaths(excludes, depth));
+		}
+		if (operation instanceof AddOperation) {
+			return new AddOperation(operation.getPath(), value);
+		}
+		if (operation instanceof ReplaceOperation) {
+			return new ReplaceOperation(operation.getPath(), value);
+		}
+		if (operation instanceof MergeOperation) {
+			return new MergeOperation(operation.getPath(), value);
+		}
+		return operation;
+	}
+
+	/**
+	 *
+	 * @param subscriptions
+	 * @param depth
+	 * @return the locations of the subscriptions relative to the given depth
+	 */
+	protected List<List<String>> relativePaths(List<Subscription> subscriptions, int depth) {
+		List<List<String>> relativePaths = new ArrayList<>();
+		for (Subscription subscription : subscriptions) {
+			List<String> segments = JacksonUtils.segments(subscription.prefix);
+			relativePaths.add(segments.subList(depth, segments.size()));
+		}
+		return relativePaths;
+	}
+
+	/**
+	 * Keeps the given relative paths of a value. The other members of an
+	 * object are left out, and the other elements of an array are nulled so
+	 * the kept elements stay at their index.
+	 *
+	 * @param value
+	 * @param relativePaths
+	 * @return the pruned value
+	 */
+	protected JsonNode prune(JsonNode value, List<List<String>> relativePaths) {
+		Map<String, List<List<String>>> relativePathsBySegment = new LinkedHashMap<>();
+		for (List<String> relativePath : relativePaths) {
+			if (relativePath.isEmpty()) {
+				return value;
+			}
+			relativePathsBySegment.computeIfAbsent(relativePath.get(0), key -> new ArrayList<>()).add(relativePath.subList(1, relativePath.size()));
+		}
+		if (value.isObject()) {
+			ObjectNode objectNode = JsonNodeFactory.instance.objectNode();
+			for (Map.Entry<String, List<List<String>>> entry : relativePathsBySegment.entrySet()) {
+				JsonNode child = value.get(entry.getKey());
+				if (child != null) {
+					objectNode.set(entry.getKey(), prune(child, entry.getValue()));
+				}
+			}
+			return objectNode;
+		}
+		if (value.isArray()) {
+			ArrayNode arrayNode = JsonNodeFactory.instance.arrayNode(value.size());
+			for (int i = 0; i < value.size(); ++i) {
+				arrayNode.addNull();
+			}
+			for (Map.Entry<String, List<List<String>>> entry : relativePathsBySegment.entrySet()) {
+				if (isIndex(entry.getKey())) {
+					int index = Integer.parseInt(entry.getKey());
+					if (index < value.size()) {
+						arrayNode.set(index, prune(value.get(index), entry.getValue()));
+					}
+				}
+			}
+			return arrayNode;
+		}
+		// a value holding no subtree removes the subscribed locations
+		return value;
+	}
+
+	/**
+	 * Leaves the given relative paths out of a copy of a value. An excluded
+	 * array element is nulled so the other elements stay at their index.
+	 *
+	 * @param value
+	 * @param relativePaths
+	 * @return the stripped value
+	 */
+	protected JsonNode strip(JsonNode value, List<List<String>> relativePaths) {
+		JsonNode strippedValue = value.deepCopy();
+		for (List<String> relativePath : relativePaths) {
+			if (relativePath.isEmpty()) {
+				return NullNode.getInstance();
+			}
+			JsonNode parent = strippedValue;
+			for (String segment : relativePath.subList(0, relativePath.size() - 1)) {
+				parent = parent.isArray() && isIndex(segment) ? parent.get(Integer.parseInt(segment)) : parent.get(segment);
+				if (parent == null) {
+					break;
+				}
+			}
+			String last = relativePath.get(relativePath.size() - 1);
+			if (parent instanceof ObjectNode) {
+				((ObjectNode) parent).remove(last);
+			} else if (parent instanceof ArrayNode && isIndex(last) && Integer.parseInt(last) < parent.size()) {
+				((ArrayNode) parent).set(Integer.parseInt(last), NullNode.getInstance());
+			}
+		}
+		return strippedValue;
+	}
+
+	protected static boolean isIndex(String segment) {
+		if (segment.isEmpty() || segment.length() > 9) {
+			return false;
+		}
+		for (int i = 0; i < segment.length(); ++i) {
+			if (!Character.isDigit(segment.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * A subscribed or excluded location of a subscription.
+	 */
+	protected static class Subscription {
+
+		protected final String id;
+
+		protected final JsonPointer prefix;
+
+		protected final boolean isExcluded;
+
+		protected Subscription(String id, JsonPointer prefix, boolean isExcluded) {
+			this.id = id;
+			this.prefix = prefix;
+			this.isExcluded = isExcluded;
+		}
+	}
+
+	/**
+	 * The subscriptions to a location, to an ancestor of it, or to a
+	 * descendant of it.
+	 */
+	protected static class Locations {
+
+		protected final Set<String> insideIds = new LinkedHashSet<>();
+
+		protected final Map<String, List<Subscription>> belowById = new LinkedHashMap<>();
+
+		protected final Set<String> hiddenIds = new HashSet<>();
+
+		protected final Map<String, List<Subscription>> hiddenBelowById = new HashMap<>();
+
+		protected boolean isVisible(String subscriptionId) {
+			return (insideIds.contains(subscriptionId) || belowById.containsKey(subscriptionId)) && !hiddenIds.contains(subscriptionId);
+		}
+
+		/**
+		 * @param subscriptionId
+		 * @return true if the subscription holds the whole value at the location
+		 */
+		protected boolean isHeld(String subscriptionId) {
+			return insideIds.contains(subscriptionId) && !hiddenIds.contains(subscriptionId) && !hiddenBelowById.containsKey(subscriptionId);
+		}
+	}
+
+}
@@ -0,0 +1,28 @@
+package com.shagaba.jacksync.sync;
+
+/**
+ * How the master takes a syncData.
+ *
+ * @author Shagaba
+ *
+ */
+public enum SyncDecision {
+
+	/**
+	 * The syncData is of the current version and is applied as is.
+	 */
+	ACCEPT,
+
+	/**
+	 * The syncData is of an older version and is transformed against the
+	 * operations applied since.
+	 */
+	REBASE,
+
+	/**
+	 * The syncData cannot be applied, the client has to sync to the current
+	 * version first.
+	 */
+	REJECT
+
+}
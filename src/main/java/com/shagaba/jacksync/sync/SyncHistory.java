@@ -0,0 +1,367 @@
+package com.shagaba.jacksync.sync;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shagaba.jacksync.exception.InvalidSyncVersionException;
+import com.shagaba.jacksync.exception.NoSuchDocumentException;
+import com.shagaba.jacksync.exception.SyncException;
+import com.shagaba.jacksync.exception.SyncProcessingException;
+
+/**
+ * The master side history of the syncData of many documents, kept only as far
+ * back as its clients need.
+ *
+ * Every client acknowledges the masterVersion it last applied. The syncData
+ * below the minimal acknowledged version of a document are compacted in the
+ * background into a snapshot of the document, so the history grows with the
+ * spread of the client versions rather than with the number of changes. A
+ * document without clients is compacted up to its latest version. A client
+ * behind the snapshot is caught up from the snapshot instead. A failed
+ * compaction keeps the syncData and is reported to the compaction error
+ * handler, the next acknowledgement retries it.
+ *
+ * @author Shagaba
+ *
+ * @param <T> the document type
+ */
+public class SyncHistory<T> implements Closeable {
+
+	protected SyncProcessor syncProcessor;
+
+	protected Executor executor;
+
+	protected ExecutorService ownedExecutorService;
+
+	protected ConcurrentMap<String, DocumentHistory<T>> histories;
+
+	protected volatile BiConsumer<String, SyncException> compactionErrorHandler;
+
+	/**
+	 * @param objectMapper
+	 */
+	public SyncHistory(ObjectMapper objectMapper) {
+		this(new LocalSyncProcessor(objectMapper), null);
+	}
+
+	/**
+	 * @param syncProcessor the processor the syncData are compacted by
+	 * @param executor the executor of the compaction, or null for a single
+	 *            background thread
+	 */
+	public SyncHistory(SyncProcessor syncProcessor, Executor executor) {
+        if (syncProcessor == null) {
+            throw new IllegalArgumentException("SyncProcessor cannot be null");
+        }
+		this.syncProcessor = syncProcessor;
+		if (executor == null) {
+			this.ownedExecutorService = Executors.newSingleThreadExecutor(new AsyncSyncProcessor.SyncThreadFactory());
+			this.executor = ownedExecutorService;
+		} else {
+			this.executor = executor;
+		}
+		this.histories = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * @param compactionErrorHandler receives the document id and the failure
+	 *            of a compaction, a runtime failure wrapped in a
+	 *            {@link SyncProcessingException}
+	 */
+	public void setCompactionErrorHandler(BiConsumer<String, SyncException> compactionErrorHandler) {
+		this.compactionErrorHandler = compactionErrorHandler;
+	}
+
+	/**
+	 * Starts the history of a document, replacing any previous history.
+	 *
+	 * @param documentId
+	 * @param snapshot the document the history starts from
+	 */
+	public void start(String documentId, SyncObject<T> snapshot) {
+        if (snapshot == null || snapshot.getVersion() == null) {
+            throw new IllegalArgumentException("Snapshot version cannot be null");
+        }
+		histories.put(documentId, new DocumentHistory<>(snapshot));
+	}
+
+	/**
+	 * Ends the history of a document.
+	 *
+	 * @param documentId
+	 */
+	public void end(String documentId) {
+		histories.remove(documentId);
+	}
+
+	/**
+	 * Appends the syncData leading from the latest version of the document to
+	 * its masterVersion.
+	 *
+	 * @param documentId
+	 * @param syncData
+	 * @throws SyncException
+	 */
+	public void append(String documentId, SyncData syncData) throws SyncException {
+        if (syncData == null) {
+            throw new IllegalArgumentException("SyncData cannot be null");
+        }
+		DocumentHistory<T> history = history(documentId);
+		synchronized (history) {
+			if (!Objects.equals(history.latestVersion, syncData.getVersion()) || syncData.getMasterVersion() == null
+					|| syncData.getMasterVersion() <= history.latestVersion) {
+				throw new InvalidSyncVersionException("Sync Version Mismatch");
+			}
+			history.syncDataList.put(syncData.getVersion(), syncData);
+			history.latestVersion = syncData.getMasterVersion();
+		}
+		if (history.acknowledgedVersions.isEmpty()) {
+			scheduleCompaction(documentId, history);
+		}
+	}
+
+	/**
+	 * Records the masterVersion the given client last applied. Acknowledged
+	 * versions only move forward.
+	 *
+	 * @param documentId
+	 * @param clientId
+	 * @param masterVersion
+	 * @throws SyncException
+	 */
+	public void acknowledge(String documentId, String clientId, long masterVersion) throws SyncException {
+		DocumentHistory<T> history = history(documentId);
+		if (masterVersion > history.latestVersion) {
+			throw new InvalidSyncVersionException(String.format("Acknowledged version is ahead of the history - %s", masterVersion));
+		}
+		history.acknowledgedVersions.merge(clientId, masterVersion, Math::max);
+		scheduleCompaction(documentId, history);
+	}
+
+	/**
+	 * Forgets the given client, its syncData may no longer be kept.
+	 *
+	 * @param documentId
+	 * @param clientId
+	 */
+	public void disconnect(String documentId, String clientId) {
+		DocumentHistory<T> history = histories.get(documentId);
+		if (history != null && history.acknowledgedVersions.remove(clientId) != null) {
+			scheduleCompaction(documentId, history);
+		}
+	}
+
+	/**
+	 *
+	 * @param documentId
+	 * @param fromVersion
+	 * @return the syncData of the given document from the given version on
+	 * @throws SyncException
+	 * @throws InvalidSyncVersionException if the version is compacted, the
+	 *             client is to be caught up from the snapshot
+	 */
+	public List<SyncData> read(String documentId, long fromVersion) throws SyncException {
+		DocumentHistory<T> history = history(documentId);
+		synchronized (history) {
+			if (fromVersion < history.snapshot.getVersion() || fromVersion > history.latestVersion) {
+				throw new InvalidSyncVersionException(String.format("Sync version is out of the history - %s", fromVersion));
+			}
+			return new ArrayList<>(history.syncDataList.tailMap(fromVersion).values());
+		}
+	}
+
+	/**
+	 *
+	 * @param documentId
+	 * @return the compacted document
+	 * @throws NoSuchDocumentException
+	 */
+	public SyncObject<T> getSnapshot(String documentId) throws NoSuchDocumentException {
+		DocumentHistory<T> history = history(documentId);
+		synchronized (history) {
+			return history.snapshot;
+		}
+	}
+
+	/**
+	 *
+	 * @param documentId
+	 * @return the number of syncData kept past the snapshot
+	 * @throws NoSuchDocumentException
+	 */
+	public int size(String documentId) throws NoSuchDocumentException {
+		return history(documentId).syncDataList.size();
+	}
+
+	/**
+	 *
+	 * @param documentId
+	 * @return the minimal acknowledged version, or the latest version if the
+	 *         document has no clients
+	 * @throws NoSuchDocumentException
+	 */
+	public long minAcknowledgedVersion(String documentId) throws NoSuchDocumentException {
+		return minAcknowledgedVersion(history(documentId));
+	}
+
+	/**
+	 * Shuts down the default executor. A given executor is left to its owner.
+	 */
+	@Override
+	public void close() {
+		if (ownedExecutorService != null) {
+			ownedExecutorService.shutdown();
+		}
+	}
+
+	/**
+	 *
+	 * @param documentId
+	 * @param history
+	 */
+	protected void scheduleCompaction(String documentId, DocumentHistory<T> history) {
+		history.isCompactionRequested.set(true);
+		if (!history.isCompactionScheduled.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			executor.execute(() -> {
+				try {
+					while (history.isCompactionRequested.getAndSet(false)) {
+						compact(documentId, history);
+					}
+				} finally {
+					history.isCompactionScheduled.set(false);
+					// requested meanwhile
+					if (history.isCompactionRequested.get()) {
+						scheduleCompaction(documentId, history);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// the syncData are kept until a later compaction
+			history.isCompactionScheduled.set(false);
+		}
+	}
+
+	/**
+	 * Applies the syncData below the minimal acknowledged version on the
+	 * snapshot. The patching runs outside the history lock, appends and reads
+	 * go on meanwhile.
+	 *
+	 * @param documentId
+	 * @param history
+	 */
+	protected void compact(String documentId, DocumentHistory<T> history) {
+		long toVersion = minAcknowledgedVersion(history);
+		SyncObject<T> snapshot;
+		List<SyncData> compactedSyncData;
+		synchronized (history) {
+			snapshot = history.snapshot;
+			if (toVersion <= snapshot.getVersion()) {
+				// a client acknowledged a compacted version, it is caught up from the snapshot
+				return;
+			}
+			compactedSyncData = new ArrayList<>(history.syncDataList.subMap(snapshot.getVersion(), toVersion).values());
+		}
+		if (compactedSyncData.isEmpty()) {
+			return;
+		}
+		SyncObject<T> compacted = snapshot;
+		try {
+			for (SyncData syncData : compactedSyncData) {
+				compacted = syncProcessor.clientSync(compacted, syncData);
+			}
+		} catch (SyncException e) {
+			// the syncData are kept, the snapshot stays behind them
+			onCompactionError(documentId, e);
+			return;
+		} catch (RuntimeException e) {
+			onCompactionError(documentId, new SyncProcessingException(e));
+			return;
+		}
+		synchronized (history) {
+			if (history.snapshot == snapshot) {
+				history.snapshot = compacted;
+				history.syncDataList.headMap(compacted.getVersion()).clear();
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param documentId
+	 * @param e the failure of a compaction
+	 */
+	protected void onCompactionError(String documentId, SyncException e) {
+		BiConsumer<String, SyncException> handler = compactionErrorHandler;
+		if (handler != null) {
+			handler.accept(documentId, e);
+		}
+	}
+
+	/**
+	 *
+	 * @param history
+	 * @return the minimal acknowledged version, or the latest version if the
+	 *         document has no clients
+	 */
+	protected long minAcknowledgedVersion(DocumentHistory<T> history) {
+		long minVersion = history.latestVersion;
+		for (Long version : history.acknowledgedVersions.values()) {
+			minVersion = Math.min(minVersion, version);
+		}
+		return minVersion;
+	}
+
+	/**
+	 *
+	 * @param documentId
+	 * @return the history of the given document
+	 * @throws NoSuchDocumentException
+	 */
+	protected DocumentHistory<T> history(String documentId) throws NoSuchDocumentException {
+		DocumentHistory<T> history = histories.get(documentId);
+		if (history == null) {
+			throw new NoSuchDocumentException(String.format("No sync history - %s", documentId));
+		}
+		return history;
+	}
+
+	/**
+	 * The snapshot of a document, the syncData past it by version, and the
+	 * versions acknowledged by its clients.
+	 */
+	protected static class DocumentHistory<T> {
+
+		protected final ConcurrentSkipListMap<Long, SyncData> syncDataList = new ConcurrentSkipListMap<>();
+
+		protected final ConcurrentMap<String, Long> acknowledgedVersions = new ConcurrentHashMap<>();
+
+		protected final AtomicBoolean isCompactionRequested = new AtomicBoolean();
+
+		protected final AtomicBoolean isCompactionScheduled = new AtomicBoolean();
+
+		protected SyncObject<T> snapshot;
+
+		protected volatile long latestVersion;
+
+		protected DocumentHistory(SyncObject<T> snapshot) {
+			this.snapshot = snapshot;
+			this.latestVersion = snapshot.getVersion();
+		}
+	}
+
+}
@@ -1,10 +1,14 @@
 package com.shagaba.jacksync.sync;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class SyncObject<T> {
 
 	private Long version;
 	
 	private T object;
+	
+	private volatile String checksum;
 
 	/**
 	 * @param version
@@ -16,6 +20,16 @@ public class SyncObject<T> {
 		this.object = object;
 	}
 
+	/**
+	 * @param version
+	 * @param object
+	 * @param checksum the checksum of the object, see {@link #getChecksum()}
+	 */
+	public SyncObject(Long version, T object, String checksum) {
+		this(version, object);
+		this.checksum = checksum;
+	}
+
 	public Long getVersion() {
 		return version;
 	}
@@ -23,4 +37,22 @@ public class SyncObject<T> {
 	public T getObject() {
 		return object;
 	}
+
+	/**
+	 * The checksum of the object JSON, cached by whoever computed it. It holds
+	 * as long as the object is not modified.
+	 * 
+	 * @return the checksum or null if not computed yet
+	 */
+	@JsonIgnore
+	public String getChecksum() {
+		return checksum;
+	}
+
+	/**
+	 * @param checksum the checksum to set
+	 */
+	public void setChecksum(String checksum) {
+		this.checksum = checksum;
+	}
 }
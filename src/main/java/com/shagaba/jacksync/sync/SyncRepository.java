@@ -0,0 +1,94 @@
+package com.shagaba.jacksync.sync;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import com.shagaba.jacksync.exception.SyncException;
+
+/**
+ * A master side store of many synchronized documents keyed by document id.
+ *
+ * Implementations are responsible for advancing the version of each document
+ * on every successful update, so callers never have to coordinate access to a
+ * document themselves.
+ *
+ * @author Shagaba
+ *
+ * @param <T> the document type
+ */
+public interface SyncRepository<T> {
+
+	/**
+	 *
+	 * @param documentId
+	 * @return the current document or null if the document does not exist
+	 */
+	public SyncObject<T> get(String documentId);
+
+	/**
+	 *
+	 * @param documentId
+	 * @param syncObject
+	 * @return the previous document or null if the document did not exist
+	 */
+	public SyncObject<T> put(String documentId, SyncObject<T> syncObject);
+
+	/**
+	 *
+	 * @param documentId
+	 * @param syncObject
+	 * @return the current document, which is the given one if it did not exist
+	 */
+	public SyncObject<T> putIfAbsent(String documentId, SyncObject<T> syncObject);
+
+	/**
+	 *
+	 * @param documentId
+	 * @return the removed document or null if the document did not exist
+	 */
+	public SyncObject<T> remove(String documentId);
+
+	/**
+	 *
+	 * @return the ids of all documents
+	 */
+	public Set<String> documentIds();
+
+	/**
+	 * Applies the given syncData on the current document and advances its
+	 * version.
+	 *
+	 * @param documentId
+	 * @param syncData
+	 * @return the synchronized document
+	 * @throws SyncException
+	 */
+	public SyncObject<T> masterSync(String documentId, SyncData syncData) throws SyncException;
+
+	/**
+	 * Applies the given consecutive syncData on the current document in a
+	 * single patch application and advances its version once per syncData.
+	 * Each syncData must be of the version the previous one leads to, the
+	 * first of the current version.
+	 *
+	 * @param documentId
+	 * @param syncDataList
+	 * @return the synchronized document
+	 * @throws SyncException
+	 */
+	public SyncObject<T> masterSync(String documentId, List<SyncData> syncDataList) throws SyncException;
+
+	/**
+	 * Replaces the current document with the outcome of the given update
+	 * function and advances its version. The update function may be invoked
+	 * more than once and MUST NOT modify the object it receives.
+	 *
+	 * @param documentId
+	 * @param updateFunction
+	 * @return the updated document
+	 * @throws SyncException
+	 */
+	public SyncObject<T> update(String documentId, UnaryOperator<T> updateFunction) throws SyncException;
+
+}
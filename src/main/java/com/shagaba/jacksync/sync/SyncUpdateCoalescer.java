@@ -0,0 +1,215 @@
+package com.shagaba.jacksync.sync;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shagaba.jacksync.diff.SyncDiffMapper;
+import com.shagaba.jacksync.diff.SyncObjectDiffMapper;
+import com.shagaba.jacksync.exception.DiffProcessingException;
+
+/**
+ * Coalesces the updates of a master object into one versioned syncData per
+ * window.
+ *
+ * The first update of a window schedules a flush after the window interval,
+ * and the updates that follow only replace the pending object. The flush
+ * diffs the last published object against the pending one once and publishes
+ * the next version. A window is flushed early once it holds the maximal number
+ * of updates, so an update is published within the interval at the latest.
+ * A failed flush is reported to the flush error handler and retried at the end
+ * of a new window.
+ *
+ * @author Shagaba
+ *
+ * @param <T> the document type
+ */
+public class SyncUpdateCoalescer<T> implements Closeable {
+
+	public static final long DEFAULT_INTERVAL_MILLIS = 50;
+
+	public static final int DEFAULT_MAX_UPDATES = 256;
+
+	protected SyncDiffMapper syncDiffMapper;
+
+	protected BiConsumer<SyncObject<T>, SyncData> publisher;
+
+	protected ScheduledExecutorService scheduler;
+
+	protected ScheduledExecutorService ownedScheduler;
+
+	protected long intervalMillis;
+
+	protected int maxUpdates;
+
+	protected SyncObject<T> publishedObject;
+
+	protected T pendingObject;
+
+	protected int pendingUpdates;
+
+	protected ScheduledFuture<?> scheduledFlush;
+
+	protected BiConsumer<T, DiffProcessingException> flushErrorHandler;
+
+	protected volatile boolean isClosed;
+
+	/**
+	 * @param objectMapper
+	 * @param syncObject the current master object
+	 * @param publisher receives every published object and its syncData
+	 */
+	public SyncUpdateCoalescer(ObjectMapper objectMapper, SyncObject<T> syncObject, BiConsumer<SyncObject<T>, SyncData> publisher) {
+		this(new SyncObjectDiffMapper(objectMapper), syncObject, publisher, null, DEFAULT_INTERVAL_MILLIS, DEFAULT_MAX_UPDATES);
+	}
+
+	/**
+	 * @param syncDiffMapper
+	 * @param syncObject the current master object
+	 * @param publisher receives every published object and its syncData
+	 * @param scheduler the scheduler of the flushes, or null for a single
+	 *            background thread
+	 * @param intervalMillis the longest time an update waits for its flush
+	 * @param maxUpdates the number of updates that flushes a window early
+	 */
+	public SyncUpdateCoalescer(SyncDiffMapper syncDiffMapper, SyncObject<T> syncObject, BiConsumer<SyncObject<T>, SyncData> publisher,
+			ScheduledExecutorService scheduler, long intervalMillis, int maxUpdates) {
+        if (syncDiffMapper == null) {
+            throw new IllegalArgumentException("SyncDiffMapper cannot be null");
+        }
+        if (syncObject == null) {
+            throw new IllegalArgumentException("SyncObject cannot be null");
+        }
+        if (publisher == null) {
+            throw new IllegalArgumentException("Publisher cannot be null");
+        }
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException("Interval cannot be negative");
+        }
+        if (maxUpdates < 1) {
+            throw new IllegalArgumentException("Max updates must be positive");
+        }
+		this.syncDiffMapper = syncDiffMapper;
+		this.publishedObject = syncObject;
+		this.publisher = publisher;
+		if (scheduler == null) {
+			this.ownedScheduler = Executors.newSingleThreadScheduledExecutor(new AsyncSyncProcessor.SyncThreadFactory());
+			this.scheduler = ownedScheduler;
+		} else {
+			this.scheduler = scheduler;
+		}
+		this.intervalMillis = intervalMillis;
+		this.maxUpdates = maxUpdates;
+	}
+
+	/**
+	 * @return the last published object
+	 */
+	public synchronized SyncObject<T> getPublishedObject() {
+		return publishedObject;
+	}
+
+	/**
+	 * @param flushErrorHandler receives the pending object and the failure of
+	 *            a scheduled flush or of the flush on close
+	 */
+	public synchronized void setFlushErrorHandler(BiConsumer<T, DiffProcessingException> flushErrorHandler) {
+		this.flushErrorHandler = flushErrorHandler;
+	}
+
+	/**
+	 * Takes a new state of the master object. The object MUST NOT be modified
+	 * afterwards, the next update is to pass a new object.
+	 *
+	 * @param object
+	 * @throws DiffProcessingException if a window flushed early fails
+	 */
+	public synchronized void update(T object) throws DiffProcessingException {
+        if (object == null) {
+            throw new IllegalArgumentException("Object cannot be null");
+        }
+		pendingObject = object;
+		if (++pendingUpdates >= maxUpdates) {
+			flush();
+		} else if (scheduledFlush == null) {
+			scheduledFlush = scheduler.schedule(this::scheduledFlush, intervalMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Publishes the pending object, if any, as the next version.
+	 *
+	 * @return the published syncData or null if there was no pending object
+	 * @throws DiffProcessingException
+	 */
+	public synchronized SyncData flush() throws DiffProcessingException {
+		if (scheduledFlush != null) {
+			scheduledFlush.cancel(false);
+			scheduledFlush = null;
+		}
+		if (pendingObject == null) {
+			return null;
+		}
+		Long version = publishedObject.getVersion();
+		SyncObject<T> nextObject = new SyncObject<T>(version == null ? 1L : version + 1, pendingObject);
+		SyncData syncData = syncDiffMapper.diff(publishedObject, nextObject);
+		publishedObject = nextObject;
+		pendingObject = null;
+		pendingUpdates = 0;
+		publisher.accept(nextObject, syncData);
+		return syncData;
+	}
+
+	/**
+	 * Flushes the pending object and shuts down the default scheduler. A given
+	 * scheduler is left to its owner.
+	 * 
+	 * @throws IllegalStateException if the pending object failed to flush and
+	 *             there is no flush error handler
+	 */
+	@Override
+	public synchronized void close() {
+		if (isClosed) {
+			return;
+		}
+		isClosed = true;
+		T object = pendingObject;
+		try {
+			flush();
+		} catch (DiffProcessingException e) {
+			// nothing left to retry on
+			if (flushErrorHandler == null) {
+				throw new IllegalStateException("Pending update is not published", e);
+			}
+			flushErrorHandler.accept(object, e);
+		} finally {
+			if (ownedScheduler != null) {
+				ownedScheduler.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * The flush at the end of a window. On failure the pending object stays
+	 * pending, and is flushed at the end of a new window.
+	 */
+	protected synchronized void scheduledFlush() {
+		scheduledFlush = null;
+		T object = pendingObject;
+		try {
+			flush();
+		} catch (DiffProcessingException e) {
+			if (!isClosed) {
+				scheduledFlush = scheduler.schedule(this::scheduledFlush, intervalMillis, TimeUnit.MILLISECONDS);
+			}
+			if (flushErrorHandler != null) {
+				flushErrorHandler.accept(object, e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,23 @@
+package com.shagaba.jacksync.syncable;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a POJO for the {@link SyncableProcessor} to generate, in its package,
+ * a {@code <Type>DiffMapper} extending {@link SyncableDiffMapper} and a
+ * {@code <Type>PatchProcessor} extending {@link SyncablePatchProcessor}, which
+ * diff and patch the type by its properties instead of its whole JSON tree.
+ *
+ * @author Shagaba
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface Syncable {
+
+}
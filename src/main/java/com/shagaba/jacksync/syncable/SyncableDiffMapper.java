@@ -0,0 +1,253 @@
+package com.shagaba.jacksync.syncable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.shagaba.jacksync.diff.DiffMapper;
+import com.shagaba.jacksync.diff.ObjectDiffMapper;
+import com.shagaba.jacksync.diff.strategy.DiffScope;
+import com.shagaba.jacksync.diff.strategy.DiffStrategy;
+import com.shagaba.jacksync.exception.DiffProcessingException;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.RemoveOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+import com.shagaba.jacksync.utils.JacksonUtils;
+
+/**
+ * The base of the diff mappers generated for {@link Syncable} types. The
+ * properties of primitive, boxed, string and enum types are compared
+ * directly, the properties of syncable types are diffed by their own diff
+ * mapper, the lists of syncable types element by element, and only the other
+ * properties that differ are diffed by the {@link DiffStrategy} on their JSON
+ * trees.
+ *
+ * Objects of other types than the generated one, subclasses included, are
+ * diffed by an {@link ObjectDiffMapper}.
+ *
+ * @author Shagaba
+ *
+ * @param <T> the syncable type
+ */
+public abstract class SyncableDiffMapper<T> implements DiffMapper {
+
+	protected ObjectMapper objectMapper;
+
+	protected DiffStrategy diffStrategy;
+
+	protected Class<T> type;
+
+	protected ObjectDiffMapper objectDiffMapper;
+
+	protected boolean isNullIncluded;
+
+	/**
+	 * @param objectMapper
+	 * @param diffStrategy
+	 * @param type
+	 */
+	protected SyncableDiffMapper(ObjectMapper objectMapper, DiffStrategy diffStrategy, Class<T> type) {
+		this.objectMapper = objectMapper;
+		this.diffStrategy = diffStrategy;
+		this.type = type;
+		this.objectDiffMapper = new ObjectDiffMapper(objectMapper, diffStrategy);
+		JsonInclude.Include inclusion = objectMapper.getSerializationConfig().getDefaultPropertyInclusion(type).getValueInclusion();
+		this.isNullIncluded = inclusion == JsonInclude.Include.ALWAYS || inclusion == JsonInclude.Include.USE_DEFAULTS;
+	}
+
+	/**
+	 *
+	 * @param source
+	 * @param target
+	 * @return
+	 * @throws DiffProcessingException
+	 */
+	@Override
+	public <S> List<PatchOperation> diff(S source, S target) throws DiffProcessingException {
+        if (source == null) {
+            throw new IllegalArgumentException("Source object cannot be null");
+        }
+        if (target == null) {
+            throw new IllegalArgumentException("Target object cannot be null");
+        }
+		if (source.getClass() != type || target.getClass() != type) {
+			return objectDiffMapper.diff(source, target);
+		}
+		List<PatchOperation> operations = new ArrayList<>();
+		try {
+			diffProperties(JsonPointer.compile(""), type.cast(source), type.cast(target), operations);
+		} catch (IllegalArgumentException e) {
+			throw new DiffProcessingException(e);
+		}
+		return operations;
+	}
+
+	/**
+	 * Diffs the properties of the objects, generated.
+	 *
+	 * @param path the path of the objects
+	 * @param source
+	 * @param target
+	 * @param operations the operations to add to
+	 * @throws DiffProcessingException
+	 */
+	protected abstract void diffProperties(JsonPointer path, T source, T target, List<PatchOperation> operations) throws DiffProcessingException;
+
+	/**
+	 * Diffs a property of primitive type, known to differ.
+	 *
+	 * @param path
+	 * @param name
+	 * @param target
+	 * @param operations
+	 */
+	protected void diffPrimitive(JsonPointer path, String name, Object target, List<PatchOperation> operations) {
+		operations.add(new ReplaceOperation(append(path, name), objectMapper.valueToTree(target)));
+	}
+
+	/**
+	 * Diffs a property of boxed, string or enum type.
+	 *
+	 * @param path
+	 * @param name
+	 * @param source
+	 * @param target
+	 * @param operations
+	 */
+	protected void diffValue(JsonPointer path, String name, Object source, Object target, List<PatchOperation> operations) {
+		if (Objects.equals(source, target)) {
+			return;
+		}
+		if (isNullIncluded || (source != null && target != null)) {
+			operations.add(new ReplaceOperation(append(path, name), toJsonNode(target)));
+		} else if (target != null) {
+			operations.add(new AddOperation(append(path, name), toJsonNode(target)));
+		} else {
+			operations.add(new RemoveOperation(append(path, name)));
+		}
+	}
+
+	/**
+	 * Diffs a property of other type by its JSON trees, if not equal. The
+	 * trees are diffed as the only property of an object of the syncable type,
+	 * so the diff policies of the property apply.
+	 *
+	 * @param path
+	 * @param name
+	 * @param source
+	 * @param target
+	 * @param operations
+	 * @throws DiffProcessingException
+	 */
+	protected void diffTree(JsonPointer path, String name, Object source, Object target, List<PatchOperation> operations) throws DiffProcessingException {
+		if (source == null || target == null || Objects.equals(source, target)) {
+			diffValue(path, name, source, target, operations);
+			return;
+		}
+		ObjectNode sourceJsonNode = JsonNodeFactory.instance.objectNode();
+		sourceJsonNode.set(name, toJsonNode(source));
+		ObjectNode targetJsonNode = JsonNodeFactory.instance.objectNode();
+		targetJsonNode.set(name, toJsonNode(target));
+		for (PatchOperation operation : diffStrategy.diff(sourceJsonNode, targetJsonNode, type)) {
+			operations.add(DiffScope.reroot(operation, path));
+		}
+	}
+
+	/**
+	 * Diffs a property of syncable type by its diff mapper.
+	 *
+	 * @param path
+	 * @param name
+	 * @param source
+	 * @param target
+	 * @param diffMapper
+	 * @param operations
+	 * @throws DiffProcessingException
+	 */
+	protected <V> void diffNested(JsonPointer path, String name, V source, V target, SyncableDiffMapper<V> diffMapper, List<PatchOperation> operations) throws DiffProcessingException {
+		if (source == null || target == null || source == target) {
+			diffValue(path, name, source, target, operations);
+		} else if (source.getClass() != diffMapper.type || target.getClass() != diffMapper.type) {
+			diffTree(path, name, source, target, operations);
+		} else {
+			diffMapper.diffProperties(append(path, name), source, target, operations);
+		}
+	}
+
+	/**
+	 * Diffs a property of a list of syncable type element by element: the
+	 * elements are aligned on their common elements as
+	 * {@link com.shagaba.jacksync.diff.strategy.SimpleDiffStrategy} aligns the
+	 * elements of arrays, the missing elements are added or removed and the
+	 * other ones diffed by the diff mapper of the element type.
+	 *
+	 * @param path
+	 * @param name
+	 * @param source
+	 * @param target
+	 * @param diffMapper the diff mapper of the element type
+	 * @param operations
+	 * @throws DiffProcessingException
+	 */
+	protected <V> void diffList(JsonPointer path, String name, List<V> source, List<V> target, SyncableDiffMapper<V> diffMapper, List<PatchOperation> operations) throws DiffProcessingException {
+		if (source == null || target == null || source == target) {
+			diffValue(path, name, source, target, operations);
+			return;
+		}
+		JsonPointer listPath = append(path, name);
+		List<V> commonElements = new ArrayList<>(source);
+		commonElements.removeIf(commonElement -> !target.contains(commonElement));
+		int commonIndex = 0;
+		int sourceIndex = 0;
+		int targetIndex = 0;
+		while (sourceIndex < source.size() || targetIndex < target.size()) {
+			boolean hasCommon = commonIndex < commonElements.size();
+			V commonElement = hasCommon ? commonElements.get(commonIndex) : null;
+			boolean isSourceCommon = hasCommon && sourceIndex < source.size() && Objects.equals(commonElement, source.get(sourceIndex));
+			boolean isTargetCommon = hasCommon && targetIndex < target.size() && Objects.equals(commonElement, target.get(targetIndex));
+			if (isSourceCommon && isTargetCommon) {
+				++commonIndex;
+				++sourceIndex;
+				++targetIndex;
+			} else if (targetIndex < target.size() && (isSourceCommon || sourceIndex == source.size())) {
+				// add missing target
+				operations.add(new AddOperation(JacksonUtils.append(listPath, Integer.toString(targetIndex)), toJsonNode(target.get(targetIndex))));
+				++targetIndex;
+			} else if (isTargetCommon || targetIndex == target.size()) {
+				// remove source, the elements before it are the target ones
+				operations.add(new RemoveOperation(JacksonUtils.append(listPath, Integer.toString(targetIndex))));
+				++sourceIndex;
+			} else {
+				V sourceElement = source.get(sourceIndex++);
+				V targetElement = target.get(targetIndex);
+				if (sourceElement == null || targetElement == null) {
+					if (sourceElement != targetElement) {
+						operations.add(new ReplaceOperation(JacksonUtils.append(listPath, Integer.toString(targetIndex)), toJsonNode(targetElement)));
+					}
+				} else {
+					diffNested(listPath, Integer.toString(targetIndex), sourceElement, targetElement, diffMapper, operations);
+				}
+				++targetIndex;
+			}
+		}
+	}
+
+	protected JsonNode toJsonNode(Object value) {
+		if (value == null) {
+			return JsonNodeFactory.instance.nullNode();
+		}
+		return objectMapper.valueToTree(value);
+	}
+
+	protected static JsonPointer append(JsonPointer path, String name) {
+		return JacksonUtils.append(path, name.replace("~", "~0").replace("/", "~1"));
+	}
+
+}
@@ -0,0 +1,273 @@
+package com.shagaba.jacksync.syncable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.shagaba.jacksync.exception.PatchProcessingException;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.MergeOperation;
+import com.shagaba.jacksync.operation.PatchDualPathOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.PatchPathOperation;
+import com.shagaba.jacksync.operation.PatchPathValueOperation;
+import com.shagaba.jacksync.operation.RemoveOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+import com.shagaba.jacksync.operation.TestOperation;
+import com.shagaba.jacksync.patch.ObjectPatchProcessor;
+import com.shagaba.jacksync.patch.PatchProcessor;
+import com.shagaba.jacksync.utils.JacksonUtils;
+
+/**
+ * The base of the patch processors generated for {@link Syncable} types. An
+ * operation is applied by setting the property of its first path segment,
+ * to the operation value for an add or replace of the property itself, by the
+ * patch processor of a syncable property type below it, by the patch
+ * processor of the element type for a list of a syncable type, or by patching
+ * the JSON tree of the property value otherwise. The root, move and copy
+ * operations, and the operations of unknown properties, are applied to the
+ * JSON tree of the whole object.
+ *
+ * The source object is left as is: it is copied by its properties, and the
+ * syncable property values and lists on the operation paths are copied on
+ * write.
+ * Objects of other types than the generated one, subclasses included, are
+ * patched by an {@link ObjectPatchProcessor}.
+ *
+ * @author Shagaba
+ *
+ * @param <T> the syncable type
+ */
+public abstract class SyncablePatchProcessor<T> implements PatchProcessor {
+
+	protected ObjectMapper objectMapper;
+
+	protected Class<T> type;
+
+	protected ObjectPatchProcessor objectPatchProcessor;
+
+	/**
+	 * @param objectMapper
+	 * @param type
+	 */
+	protected SyncablePatchProcessor(ObjectMapper objectMapper, Class<T> type) {
+		this.objectMapper = objectMapper;
+		this.type = type;
+		this.objectPatchProcessor = new ObjectPatchProcessor(objectMapper);
+	}
+
+	/**
+	 *
+	 * @param sourceObject
+	 * @param jsonOperations
+	 * @return
+	 * @throws PatchProcessingException
+	 */
+	@Override
+	public <S> S patch(S sourceObject, String jsonOperations) throws PatchProcessingException {
+		List<PatchOperation> operations;
+		try {
+			operations = this.objectMapper.readValue(jsonOperations, new TypeReference<List<PatchOperation>>() {});
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e);
+		}
+		return patch(sourceObject, operations);
+	}
+
+	/**
+	 *
+	 * @param sourceObject
+	 * @param operations
+	 * @return
+	 * @throws PatchProcessingException
+	 */
+	@Override
+	public <S> S patch(S sourceObject, List<PatchOperation> operations) throws PatchProcessingException {
+		if (operations == null || operations.isEmpty()) {
+			// nothing to patch, the source object is left as is
+			return sourceObject;
+		}
+		if (sourceObject.getClass() != type) {
+			return objectPatchProcessor.patch(sourceObject, operations);
+		}
+		try {
+			T targetObject = copy(type.cast(sourceObject));
+			for (PatchOperation operation : operations) {
+				targetObject = apply(targetObject, operation.getPath(), operation);
+			}
+			@SuppressWarnings("unchecked")
+			S patchedObject = (S) targetObject;
+			return patchedObject;
+		} catch (Exception e) {
+			throw new PatchProcessingException(e);
+		}
+	}
+
+	/**
+	 *
+	 * @param object an object owned by the patch, to set
+	 * @param path the operation path relative to the object
+	 * @param operation
+	 * @return the patched object, the given one or a new one
+	 * @throws IOException
+	 */
+	protected T apply(T object, JsonPointer path, PatchOperation operation) throws IOException {
+		if (!JacksonUtils.isRoot(path) && operation instanceof PatchPathOperation && !(operation instanceof PatchDualPathOperation)) {
+			if (applyProperty(object, path.getMatchingProperty(), path.tail(), operation)) {
+				return object;
+			}
+		}
+		JsonNode jsonNode = relativize(operation, path).apply(objectMapper.valueToTree(object));
+		return objectMapper.treeToValue(jsonNode, type);
+	}
+
+	/**
+	 * Copies the object by its properties, generated.
+	 *
+	 * @param source
+	 * @return the copy
+	 */
+	protected abstract T copy(T source);
+
+	/**
+	 * Applies an operation to a property of the object, generated.
+	 *
+	 * @param object an object owned by the patch, to set
+	 * @param name the property name
+	 * @param path the operation path relative to the property
+	 * @param operation
+	 * @return true if applied, false if not a property to set
+	 * @throws IOException
+	 */
+	protected abstract boolean applyProperty(T object, String name, JsonPointer path, PatchOperation operation) throws IOException;
+
+	/**
+	 *
+	 * @param value the property value
+	 * @param path the operation path relative to the property
+	 * @param operation
+	 * @param valueType
+	 * @return the patched property value
+	 * @throws IOException
+	 */
+	protected <V> V patchValue(Object value, JsonPointer path, PatchOperation operation, JavaType valueType) throws IOException {
+		JsonNode valueJsonNode;
+		if (JacksonUtils.isRoot(path) && (operation instanceof AddOperation || operation instanceof ReplaceOperation)) {
+			valueJsonNode = ((PatchPathValueOperation) operation).getValue();
+		} else if (JacksonUtils.isRoot(path) && operation instanceof RemoveOperation) {
+			valueJsonNode = JsonNodeFactory.instance.nullNode();
+		} else {
+			valueJsonNode = relativize(operation, path).apply(toJsonNode(value));
+			if (operation instanceof TestOperation) {
+				@SuppressWarnings("unchecked")
+				V testedValue = (V) value;
+				return testedValue;
+			}
+		}
+		return objectMapper.convertValue(valueJsonNode, valueType);
+	}
+
+	/**
+	 *
+	 * @param value the property value
+	 * @param path the operation path relative to the property
+	 * @param operation
+	 * @param valueType
+	 * @param patchProcessor the patch processor of the property type
+	 * @return the patched property value
+	 * @throws IOException
+	 */
+	protected <V> V patchNested(V value, JsonPointer path, PatchOperation operation, JavaType valueType, SyncablePatchProcessor<V> patchProcessor) throws IOException {
+		if (JacksonUtils.isRoot(path) || value == null || value.getClass() != patchProcessor.type) {
+			return patchValue(value, path, operation, valueType);
+		}
+		return patchProcessor.apply(patchProcessor.copy(value), path, operation);
+	}
+
+	/**
+	 * Patches a list of a syncable type: an add, replace or remove of an
+	 * element is applied to a copy of the list, and an operation below an
+	 * element by the patch processor of the element type. The other
+	 * operations are applied to the JSON tree of the list.
+	 *
+	 * @param value the property value
+	 * @param path the operation path relative to the property
+	 * @param operation
+	 * @param valueType
+	 * @param patchProcessor the patch processor of the element type
+	 * @return the patched property value
+	 * @throws IOException
+	 */
+	protected <V> List<V> patchList(List<V> value, JsonPointer path, PatchOperation operation, JavaType valueType, SyncablePatchProcessor<V> patchProcessor) throws IOException {
+		if (JacksonUtils.isRoot(path) || value == null) {
+			return patchValue(value, path, operation, valueType);
+		}
+		boolean isInsert = JacksonUtils.isRoot(path.tail()) && operation instanceof AddOperation;
+		boolean isAppend = isInsert && "-".equals(path.getMatchingProperty());
+		int index = path.getMatchingIndex();
+		if (!isAppend && (index < 0 || index >= value.size() + (isInsert ? 1 : 0))) {
+			return patchValue(value, path, operation, valueType);
+		}
+		JavaType elementType = valueType.getContentType();
+		List<V> list = new ArrayList<>(value);
+		if (!JacksonUtils.isRoot(path.tail())) {
+			list.set(index, patchNested(value.get(index), path.tail(), operation, elementType, patchProcessor));
+		} else if (operation instanceof AddOperation) {
+			V element = objectMapper.convertValue(((AddOperation) operation).getValue(), elementType);
+			list.add(isAppend ? list.size() : index, element);
+		} else if (operation instanceof ReplaceOperation) {
+			list.set(index, objectMapper.convertValue(((ReplaceOperation) operation).getValue(), elementType));
+		} else if (operation instanceof RemoveOperation) {
+			list.remove(index);
+		} else {
+			return patchValue(value, path, operation, valueType);
+		}
+		return list;
+	}
+
+	/**
+	 *
+	 * @param operation
+	 * @param path the operation path relative to the patched value
+	 * @return the operation, or a copy of it at the relative path
+	 * @throws IOException
+	 */
+	protected PatchOperation relativize(PatchOperation operation, JsonPointer path) throws IOException {
+		if (operation.getPath() == path) {
+			return operation;
+		}
+		if (operation instanceof AddOperation) {
+			return new AddOperation(path, ((AddOperation) operation).getValue());
+		}
+		if (operation instanceof ReplaceOperation) {
+			return new ReplaceOperation(path, ((ReplaceOperation) operation).getValue());
+		}
+		if (operation instanceof RemoveOperation) {
+			return new RemoveOperation(path);
+		}
+		if (operation instanceof TestOperation) {
+			return new TestOperation(path, ((TestOperation) operation).getValue());
+		}
+		if (operation instanceof MergeOperation) {
+			return new MergeOperation(path, ((MergeOperation) operation).getValue());
+		}
+		// copied through its JSON, as converting an operation to its own type returns it as is
+		PatchPathOperation relativeOperation = (PatchPathOperation) objectMapper.treeToValue(objectMapper.valueToTree(operation), PatchOperation.class);
+		relativeOperation.setPath(path);
+		return relativeOperation;
+	}
+
+	protected JsonNode toJsonNode(Object value) {
+		if (value == null) {
+			return JsonNodeFactory.instance.nullNode();
+		}
+		return objectMapper.valueToTree(value);
+	}
+
+}
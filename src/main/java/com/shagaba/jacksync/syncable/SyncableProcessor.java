@@ -0,0 +1,620 @@
+package com.shagaba.jacksync.syncable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates the {@link SyncableDiffMapper} and {@link SyncablePatchProcessor}
+ * of the {@link Syncable} types, registered as an annotation processor by the
+ * jar.
+ *
+ * The properties are found as Jackson finds them with its default settings:
+ * public getters, including {@code is} getters of boolean, and public fields,
+ * named after them or by {@link com.fasterxml.jackson.annotation.JsonProperty},
+ * set by their non-private setters or public non-final fields, and left out
+ * by {@link com.fasterxml.jackson.annotation.JsonIgnore}. The types using
+ * Jackson annotations that change the JSON of their properties otherwise are
+ * rejected, as well as the generic, abstract and private types and the types
+ * without a no-arg constructor. The mapper settings changing property names
+ * or visibility are not supported by the generated classes.
+ *
+ * @author Shagaba
+ *
+ */
+@SupportedAnnotationTypes("com.shagaba.jacksync.syncable.Syncable")
+public class SyncableProcessor extends AbstractProcessor {
+
+	protected static final String JSON_PROPERTY = "com.fasterxml.jackson.annotation.JsonProperty";
+
+	protected static final String JSON_IGNORE = "com.fasterxml.jackson.annotation.JsonIgnore";
+
+	protected static final Set<String> UNSUPPORTED_ANNOTATIONS = new HashSet<>(Arrays.asList(
+			"com.fasterxml.jackson.annotation.JsonAnyGetter",
+			"com.fasterxml.jackson.annotation.JsonAnySetter",
+			"com.fasterxml.jackson.annotation.JsonBackReference",
+			"com.fasterxml.jackson.annotation.JsonFilter",
+			"com.fasterxml.jackson.annotation.JsonFormat",
+			"com.fasterxml.jackson.annotation.JsonIdentityInfo",
+			"com.fasterxml.jackson.annotation.JsonIgnoreProperties",
+			"com.fasterxml.jackson.annotation.JsonInclude",
+			"com.fasterxml.jackson.annotation.JsonManagedReference",
+			"com.fasterxml.jackson.annotation.JsonRawValue",
+			"com.fasterxml.jackson.annotation.JsonTypeInfo",
+			"com.fasterxml.jackson.annotation.JsonUnwrapped",
+			"com.fasterxml.jackson.annotation.JsonValue",
+			"com.fasterxml.jackson.annotation.JsonView",
+			"com.fasterxml.jackson.databind.annotation.JsonDeserialize",
+			"com.fasterxml.jackson.databind.annotation.JsonNaming",
+			"com.fasterxml.jackson.databind.annotation.JsonSerialize"));
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment) {
+		for (Element element : roundEnvironment.getElementsAnnotatedWith(Syncable.class)) {
+			try {
+				TypeElement typeElement = validate(element);
+				List<Property> properties = findProperties(typeElement);
+				writeDiffMapper(typeElement, properties);
+				writePatchProcessor(typeElement, properties);
+			} catch (IllegalArgumentException e) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), element);
+			} catch (IOException e) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write the generated classes: " + e.getMessage(), element);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 *
+	 * @param element
+	 * @return the syncable type
+	 */
+	protected TypeElement validate(Element element) {
+		if (element.getKind() != ElementKind.CLASS) {
+			throw new IllegalArgumentException("@Syncable must annotate a class");
+		}
+		TypeElement typeElement = (TypeElement) element;
+		Set<Modifier> modifiers = typeElement.getModifiers();
+		if (modifiers.contains(Modifier.ABSTRACT) || modifiers.contains(Modifier.PRIVATE)) {
+			throw new IllegalArgumentException("@Syncable class cannot be abstract or private");
+		}
+		if (typeElement.getNestingKind() != NestingKind.TOP_LEVEL
+				&& (typeElement.getNestingKind() != NestingKind.MEMBER || !modifiers.contains(Modifier.STATIC))) {
+			throw new IllegalArgumentException("@Syncable class must be top level or static");
+		}
+		if (!typeElement.getTypeParameters().isEmpty()) {
+			throw new IllegalArgumentException("@Syncable class cannot be generic");
+		}
+		boolean hasNoArgConstructor = false;
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(typeElement.getEnclosedElements())) {
+			hasNoArgConstructor |= constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE);
+		}
+		if (!hasNoArgConstructor) {
+			throw new IllegalArgumentException("@Syncable class must have a non-private no-arg constructor");
+		}
+		checkAnnotations(typeElement);
+		return typeElement;
+	}
+
+	/**
+	 *
+	 * @param typeElement
+	 * @return the properties of the type
+	 */
+	protected List<Property> findProperties(TypeElement typeElement) {
+		DeclaredType declaredType = (DeclaredType) typeElement.asType();
+		Map<String, Property> propertiesByImplicitName = new LinkedHashMap<>();
+		List<? extends Element> members = processingEnv.getElementUtils().getAllMembers(typeElement);
+
+		for (ExecutableElement method : ElementFilter.methodsIn(members)) {
+			if (isObjectMember(method) || method.getModifiers().contains(Modifier.STATIC)) {
+				continue;
+			}
+			ExecutableType methodType = (ExecutableType) processingEnv.getTypeUtils().asMemberOf(declaredType, method);
+			String methodName = method.getSimpleName().toString();
+			if (method.getParameters().isEmpty() && method.getModifiers().contains(Modifier.PUBLIC)) {
+				TypeMirror returnType = methodType.getReturnType();
+				String implicitName = null;
+				if (methodName.startsWith("get") && methodName.length() > 3 && returnType.getKind() != TypeKind.VOID) {
+					implicitName = manglePropertyName(methodName.substring(3));
+				} else if (methodName.startsWith("is") && methodName.length() > 2 && returnType.getKind() == TypeKind.BOOLEAN) {
+					implicitName = manglePropertyName(methodName.substring(2));
+				}
+				if (implicitName != null) {
+					checkAnnotations(method);
+					Property property = propertiesByImplicitName.computeIfAbsent(implicitName, Property::new);
+					property.type = returnType;
+					property.getter = methodName + "()";
+					property.members.add(method);
+				}
+			} else if (method.getParameters().size() == 1 && methodName.startsWith("set") && methodName.length() > 3
+					&& !method.getModifiers().contains(Modifier.PRIVATE)) {
+				checkAnnotations(method);
+				Property property = propertiesByImplicitName.computeIfAbsent(manglePropertyName(methodName.substring(3)), Property::new);
+				property.setterType = methodType.getParameterTypes().get(0);
+				property.setter = methodName;
+				property.members.add(method);
+			}
+		}
+		for (VariableElement field : ElementFilter.fieldsIn(members)) {
+			Set<Modifier> modifiers = field.getModifiers();
+			if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+				continue;
+			}
+			checkAnnotations(field);
+			String implicitName = field.getSimpleName().toString();
+			Property property = propertiesByImplicitName.get(implicitName);
+			if (!modifiers.contains(Modifier.PUBLIC)) {
+				if (property != null) {
+					property.members.add(field);
+				} else if (findAnnotation(field, JSON_PROPERTY) != null) {
+					throw new IllegalArgumentException("@Syncable class cannot have a non-public @JsonProperty field without getter: " + implicitName);
+				}
+				continue;
+			}
+			if (property == null) {
+				property = new Property(implicitName);
+				propertiesByImplicitName.put(implicitName, property);
+			}
+			property.members.add(field);
+			TypeMirror fieldType = processingEnv.getTypeUtils().asMemberOf(declaredType, field);
+			if (property.getter == null) {
+				property.type = fieldType;
+				property.getter = implicitName;
+			}
+			if (property.setter == null && !modifiers.contains(Modifier.FINAL)) {
+				property.setterType = fieldType;
+				property.field = implicitName;
+			}
+		}
+
+		List<Property> properties = new ArrayList<>();
+		for (Property property : propertiesByImplicitName.values()) {
+			if (property.getter == null || isIgnored(property)) {
+				continue;
+			}
+			if (property.setterType != null && !processingEnv.getTypeUtils().isSameType(property.type, property.setterType)) {
+				property.setter = null;
+				property.field = null;
+			}
+			property.name = explicitName(property);
+			property.kind = kindOf(property.type);
+			properties.add(property);
+		}
+		return properties;
+	}
+
+	/**
+	 *
+	 * @param typeElement
+	 * @param properties
+	 * @throws IOException
+	 */
+	protected void writeDiffMapper(TypeElement typeElement, List<Property> properties) throws IOException {
+		String typeName = typeElement.getQualifiedName().toString();
+		String className = flatName(typeElement) + "DiffMapper";
+		Map<String, String> nestedFields = new LinkedHashMap<>();
+		StringBuilder body = new StringBuilder();
+		for (Property property : properties) {
+			String name = literal(property.name);
+			String source = "source." + property.getter;
+			String target = "target." + property.getter;
+			switch (property.kind) {
+			case PRIMITIVE:
+				String condition = property.type.getKind() == TypeKind.DOUBLE ? "Double.compare(" + source + ", " + target + ") != 0"
+						: property.type.getKind() == TypeKind.FLOAT ? "Float.compare(" + source + ", " + target + ") != 0"
+						: source + " != " + target;
+				body.append("\t\tif (").append(condition).append(") {\n");
+				body.append("\t\t\tdiffPrimitive(path, ").append(name).append(", ").append(target).append(", operations);\n");
+				body.append("\t\t}\n");
+				break;
+			case VALUE:
+				body.append("\t\tdiffValue(path, ").append(name).append(", ").append(source).append(", ").append(target).append(", operations);\n");
+				break;
+			case NESTED:
+				String nestedMapper = nestedName((DeclaredType) property.type, "DiffMapper");
+				String nestedAccessor = nestedMapper.equals(className) ? "this" : nestedField(nestedMapper, nestedFields) + "()";
+				body.append("\t\tdiffNested(path, ").append(name).append(", ").append(source).append(", ").append(target)
+						.append(", ").append(nestedAccessor).append(", operations);\n");
+				break;
+			case LIST:
+				String elementMapper = nestedName(elementType(property.type), "DiffMapper");
+				String elementAccessor = elementMapper.equals(className) ? "this" : nestedField(elementMapper, nestedFields) + "()";
+				body.append("\t\tdiffList(path, ").append(name).append(", ").append(source).append(", ").append(target)
+						.append(", ").append(elementAccessor).append(", operations);\n");
+				break;
+			default:
+				body.append("\t\tdiffTree(path, ").append(name).append(", ").append(source).append(", ").append(target).append(", operations);\n");
+			}
+		}
+
+		StringBuilder code = new StringBuilder();
+		appendHeader(code, typeElement);
+		code.append("import java.util.List;\n\n");
+		code.append("import com.fasterxml.jackson.core.JsonPointer;\n");
+		code.append("import com.fasterxml.jackson.databind.ObjectMapper;\n");
+		code.append("import com.shagaba.jacksync.diff.strategy.DiffStrategy;\n");
+		code.append("import com.shagaba.jacksync.diff.strategy.SimpleDiffStrategy;\n");
+		code.append("import com.shagaba.jacksync.exception.DiffProcessingException;\n");
+		code.append("import com.shagaba.jacksync.operation.PatchOperation;\n");
+		code.append("import com.shagaba.jacksync.syncable.SyncableDiffMapper;\n\n");
+		appendJavadoc(code, typeName);
+		code.append("public class ").append(className).append(" extends SyncableDiffMapper<").append(typeName).append("> {\n\n");
+		for (Map.Entry<String, String> nestedField : nestedFields.entrySet()) {
+			code.append("\tprotected ").append(nestedField.getKey()).append(" ").append(nestedField.getValue()).append(";\n\n");
+		}
+		code.append("\tpublic ").append(className).append("(ObjectMapper objectMapper) {\n");
+		code.append("\t\tthis(objectMapper, new SimpleDiffStrategy());\n");
+		code.append("\t}\n\n");
+		code.append("\tpublic ").append(className).append("(ObjectMapper objectMapper, DiffStrategy diffStrategy) {\n");
+		code.append("\t\tsuper(objectMapper, diffStrategy, ").append(typeName).append(".class);\n");
+		code.append("\t}\n\n");
+		code.append("\t@Override\n");
+		code.append("\tprotected void diffProperties(JsonPointer path, ").append(typeName).append(" source, ").append(typeName)
+				.append(" target, List<PatchOperation> operations) throws DiffProcessingException {\n");
+		code.append(body);
+		code.append("\t}\n");
+		for (Map.Entry<String, String> nestedField : nestedFields.entrySet()) {
+			appendNestedAccessor(code, nestedField.getKey(), nestedField.getValue(), "objectMapper, diffStrategy");
+		}
+		code.append("\n}\n");
+		write(typeElement, className, code);
+	}
+
+	/**
+	 *
+	 * @param typeElement
+	 * @param properties
+	 * @throws IOException
+	 */
+	protected void writePatchProcessor(TypeElement typeElement, List<Property> properties) throws IOException {
+		String typeName = typeElement.getQualifiedName().toString();
+		String className = flatName(typeElement) + "PatchProcessor";
+		Map<String, String> nestedFields = new LinkedHashMap<>();
+		StringBuilder valueTypes = new StringBuilder();
+		StringBuilder copy = new StringBuilder();
+		StringBuilder cases = new StringBuilder();
+		int index = 0;
+		for (Property property : properties) {
+			if (property.setter == null && property.field == null) {
+				continue;
+			}
+			String boxedType = boxedTypeName(property.type);
+			valueTypes.append("\t\t\t\ttypeFactory.constructType(").append(typeToken(property.type)).append("),\n");
+			String value = "object." + property.getter;
+			String valueType = "valueTypes[" + index++ + "]";
+			String patchedValue;
+			if (property.kind == Kind.NESTED) {
+				String nestedProcessor = nestedName((DeclaredType) property.type, "PatchProcessor");
+				String nestedAccessor = nestedProcessor.equals(className) ? "this" : nestedField(nestedProcessor, nestedFields) + "()";
+				patchedValue = "patchNested(" + value + ", path, operation, " + valueType + ", " + nestedAccessor + ")";
+			} else if (property.kind == Kind.LIST) {
+				String elementProcessor = nestedName(elementType(property.type), "PatchProcessor");
+				String elementAccessor = elementProcessor.equals(className) ? "this" : nestedField(elementProcessor, nestedFields) + "()";
+				patchedValue = "patchList(" + value + ", path, operation, " + valueType + ", " + elementAccessor + ")";
+			} else {
+				patchedValue = "this.<" + boxedType + ">patchValue(" + value + ", path, operation, " + valueType + ")";
+			}
+			cases.append("\t\tcase ").append(literal(property.name)).append(":\n");
+			if (property.setter != null) {
+				copy.append("\t\tcopy.").append(property.setter).append("(source.").append(property.getter).append(");\n");
+				cases.append("\t\t\tobject.").append(property.setter).append("(").append(patchedValue).append(");\n");
+			} else {
+				copy.append("\t\tcopy.").append(property.field).append(" = source.").append(property.getter).append(";\n");
+				cases.append("\t\t\tobject.").append(property.field).append(" = ").append(patchedValue).append(";\n");
+			}
+			cases.append("\t\t\treturn true;\n");
+		}
+
+		StringBuilder code = new StringBuilder();
+		appendHeader(code, typeElement);
+		code.append("import java.io.IOException;\n\n");
+		code.append("import com.fasterxml.jackson.core.JsonPointer;\n");
+		code.append("import com.fasterxml.jackson.core.type.TypeReference;\n");
+		code.append("import com.fasterxml.jackson.databind.JavaType;\n");
+		code.append("import com.fasterxml.jackson.databind.ObjectMapper;\n");
+		code.append("import com.fasterxml.jackson.databind.type.TypeFactory;\n");
+		code.append("import com.shagaba.jacksync.operation.PatchOperation;\n");
+		code.append("import com.shagaba.jacksync.syncable.SyncablePatchProcessor;\n\n");
+		appendJavadoc(code, typeName);
+		code.append("public class ").append(className).append(" extends SyncablePatchProcessor<").append(typeName).append("> {\n\n");
+		code.append("\tprotected final JavaType[] valueTypes;\n\n");
+		for (Map.Entry<String, String> nestedField : nestedFields.entrySet()) {
+			code.append("\tprotected ").append(nestedField.getKey()).append(" ").append(nestedField.getValue()).append(";\n\n");
+		}
+		code.append("\tpublic ").append(className).append("(ObjectMapper objectMapper) {\n");
+		code.append("\t\tsuper(objectMapper, ").append(typeName).append(".class);\n");
+		code.append("\t\tTypeFactory typeFactory = objectMapper.getTypeFactory();\n");
+		code.append("\t\tthis.valueTypes = new JavaType[] {\n").append(valueTypes).append("\t\t};\n");
+		code.append("\t}\n\n");
+		code.append("\t@Override\n");
+		code.append("\tprotected ").append(typeName).append(" copy(").append(typeName).append(" source) {\n");
+		code.append("\t\t").append(typeName).append(" copy = new ").append(typeName).append("();\n");
+		code.append(copy);
+		code.append("\t\treturn copy;\n");
+		code.append("\t}\n\n");
+		code.append("\t@Override\n");
+		code.append("\tprotected boolean applyProperty(").append(typeName)
+				.append(" object, String name, JsonPointer path, PatchOperation operation) throws IOException {\n");
+		code.append("\t\tswitch (name) {\n");
+		code.append(cases);
+		code.append("\t\tdefault:\n");
+		code.append("\t\t\treturn false;\n");
+		code.append("\t\t}\n");
+		code.append("\t}\n");
+		for (Map.Entry<String, String> nestedField : nestedFields.entrySet()) {
+			appendNestedAccessor(code, nestedField.getKey(), nestedField.getValue(), "objectMapper");
+		}
+		code.append("\n}\n");
+		write(typeElement, className, code);
+	}
+
+	protected void appendHeader(StringBuilder code, TypeElement typeElement) {
+		PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(typeElement);
+		if (!packageElement.isUnnamed()) {
+			code.append("package ").append(packageElement.getQualifiedName()).append(";\n\n");
+		}
+	}
+
+	protected void appendJavadoc(StringBuilder code, String typeName) {
+		code.append("/**\n");
+		code.append(" * Generated by {@link com.shagaba.jacksync.syncable.SyncableProcessor} for\n");
+		code.append(" * {@link ").append(typeName).append("}.\n");
+		code.append(" */\n");
+	}
+
+	protected void appendNestedAccessor(StringBuilder code, String className, String fieldName, String arguments) {
+		code.append("\n");
+		code.append("\tprotected ").append(className).append(" ").append(fieldName).append("() {\n");
+		code.append("\t\tif (").append(fieldName).append(" == null) {\n");
+		code.append("\t\t\t").append(fieldName).append(" = new ").append(className).append("(").append(arguments).append(");\n");
+		code.append("\t\t}\n");
+		code.append("\t\treturn ").append(fieldName).append(";\n");
+		code.append("\t}\n");
+	}
+
+	protected void write(TypeElement typeElement, String className, StringBuilder code) throws IOException {
+		PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(typeElement);
+		String qualifiedName = packageElement.isUnnamed() ? className : packageElement.getQualifiedName() + "." + className;
+		try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, typeElement).openWriter()) {
+			writer.write(code.toString());
+		}
+	}
+
+	/**
+	 *
+	 * @param element
+	 * @throws IllegalArgumentException if the element has an unsupported
+	 *             Jackson annotation
+	 */
+	protected void checkAnnotations(Element element) {
+		for (AnnotationMirror annotationMirror : element.getAnnotationMirrors()) {
+			String annotationName = ((TypeElement) annotationMirror.getAnnotationType().asElement()).getQualifiedName().toString();
+			if (UNSUPPORTED_ANNOTATIONS.contains(annotationName)) {
+				throw new IllegalArgumentException("@Syncable class cannot use @" + annotationName + " on " + element.getSimpleName());
+			}
+		}
+	}
+
+	protected boolean isObjectMember(Element element) {
+		return ((TypeElement) element.getEnclosingElement()).getQualifiedName().contentEquals(Object.class.getName());
+	}
+
+	protected boolean isIgnored(Property property) {
+		for (Element member : property.members) {
+			AnnotationMirror jsonIgnore = findAnnotation(member, JSON_IGNORE);
+			if (jsonIgnore != null && !Boolean.FALSE.equals(annotationValue(jsonIgnore))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	protected String explicitName(Property property) {
+		for (Element member : property.members) {
+			AnnotationMirror jsonProperty = findAnnotation(member, JSON_PROPERTY);
+			Object value = jsonProperty == null ? null : annotationValue(jsonProperty);
+			if (value != null && !value.toString().isEmpty()) {
+				return value.toString();
+			}
+		}
+		return property.implicitName;
+	}
+
+	protected Kind kindOf(TypeMirror type) {
+		if (type.getKind().isPrimitive()) {
+			return Kind.PRIMITIVE;
+		}
+		if (type.getKind() != TypeKind.DECLARED) {
+			return Kind.TREE;
+		}
+		TypeElement typeElement = (TypeElement) ((DeclaredType) type).asElement();
+		if (typeElement.getKind() == ElementKind.ENUM || typeElement.getQualifiedName().contentEquals(String.class.getName())) {
+			return Kind.VALUE;
+		}
+		try {
+			processingEnv.getTypeUtils().unboxedType(type);
+			return Kind.VALUE;
+		} catch (IllegalArgumentException e) {
+			// not a boxed primitive
+		}
+		if (typeElement.getAnnotation(Syncable.class) != null && typeElement.getTypeParameters().isEmpty()) {
+			return Kind.NESTED;
+		}
+		if (typeElement.getQualifiedName().contentEquals(List.class.getName()) && elementType(type) != null) {
+			return Kind.LIST;
+		}
+		return Kind.TREE;
+	}
+
+	/**
+	 *
+	 * @param type a list type
+	 * @return the element type if a syncable type, or null
+	 */
+	protected DeclaredType elementType(TypeMirror type) {
+		List<? extends TypeMirror> typeArguments = ((DeclaredType) type).getTypeArguments();
+		if (typeArguments.size() != 1 || typeArguments.get(0).getKind() != TypeKind.DECLARED) {
+			return null;
+		}
+		DeclaredType elementType = (DeclaredType) typeArguments.get(0);
+		TypeElement elementTypeElement = (TypeElement) elementType.asElement();
+		if (elementTypeElement.getAnnotation(Syncable.class) == null || !elementTypeElement.getTypeParameters().isEmpty()) {
+			return null;
+		}
+		return elementType;
+	}
+
+	protected String boxedTypeName(TypeMirror type) {
+		if (type.getKind().isPrimitive()) {
+			return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+		}
+		return type.toString();
+	}
+
+	protected String typeToken(TypeMirror type) {
+		if (type.getKind() == TypeKind.DECLARED && !((DeclaredType) type).getTypeArguments().isEmpty()) {
+			return "new TypeReference<" + type + ">() {}";
+		}
+		return processingEnv.getTypeUtils().erasure(type) + ".class";
+	}
+
+	protected String nestedName(DeclaredType type, String suffix) {
+		TypeElement typeElement = (TypeElement) type.asElement();
+		PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(typeElement);
+		String className = flatName(typeElement) + suffix;
+		return packageElement.isUnnamed() ? className : packageElement.getQualifiedName() + "." + className;
+	}
+
+	protected String nestedField(String nestedClassName, Map<String, String> nestedFields) {
+		return nestedFields.computeIfAbsent(nestedClassName, name -> {
+			String simpleName = name.substring(name.lastIndexOf('.') + 1);
+			return Character.toLowerCase(simpleName.charAt(0)) + simpleName.substring(1);
+		});
+	}
+
+	protected static String flatName(TypeElement typeElement) {
+		String flatName = typeElement.getSimpleName().toString();
+		for (Element enclosing = typeElement.getEnclosingElement(); enclosing instanceof TypeElement; enclosing = enclosing.getEnclosingElement()) {
+			flatName = enclosing.getSimpleName() + "_" + flatName;
+		}
+		return flatName;
+	}
+
+	/**
+	 * Lower cases the leading upper case characters, as Jackson does by
+	 * default.
+	 *
+	 * @param baseName
+	 * @return the implicit property name
+	 */
+	protected static String manglePropertyName(String baseName) {
+		StringBuilder name = new StringBuilder(baseName);
+		for (int i = 0; i < name.length() && Character.isUpperCase(name.charAt(i)); ++i) {
+			name.setCharAt(i, Character.toLowerCase(name.charAt(i)));
+		}
+		return name.toString();
+	}
+
+	protected static String literal(String value) {
+		StringBuilder literal = new StringBuilder("\"");
+		for (char c : value.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				literal.append('\\').append(c);
+			} else if (c < 0x20) {
+				literal.append(String.format("\\%03o", (int) c));
+			} else {
+				literal.append(c);
+			}
+		}
+		return literal.append('"').toString();
+	}
+
+	protected static AnnotationMirror findAnnotation(Element element, String annotationName) {
+		for (AnnotationMirror annotationMirror : element.getAnnotationMirrors()) {
+			if (((TypeElement) annotationMirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName)) {
+				return annotationMirror;
+			}
+		}
+		return null;
+	}
+
+	protected static Object annotationValue(AnnotationMirror annotationMirror) {
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotationMirror.getElementValues().entrySet()) {
+			if (entry.getKey().getSimpleName().contentEquals("value")) {
+				return entry.getValue().getValue();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * How a property is diffed.
+	 */
+	protected enum Kind {
+		PRIMITIVE, VALUE, NESTED, LIST, TREE
+	}
+
+	/**
+	 * A property of a syncable type.
+	 */
+	protected static class Property {
+
+		protected final String implicitName;
+
+		protected final List<Element> members = new ArrayList<>();
+
+		protected String name;
+
+		protected Kind kind;
+
+		protected TypeMirror type;
+
+		protected String getter;
+
+		protected TypeMirror setterType;
+
+		protected String setter;
+
+		protected String field;
+
+		protected Property(String implicitName) {
+			this.implicitName = implicitName;
+		}
+	}
+
+}
@@ -0,0 +1,197 @@
+package com.shagaba.jacksync.tracking;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.utils.JacksonUtils;
+
+/**
+ * Records the patch operations of the mutations made to POJOs through
+ * {@link TrackedObject} and {@link TrackedList} wrappers, so the patch of a
+ * mutated object is known without serializing and diffing it, see
+ * {@link com.shagaba.jacksync.diff.SyncObjectDiffMapper#syncData(com.shagaba.jacksync.sync.SyncObject, com.shagaba.jacksync.sync.SyncObject, List)}.
+ *
+ * The properties are set and read by the setters, getters or fields Jackson
+ * uses for them, and the operations are recorded at the paths of the
+ * property names Jackson serializes, with the values as serialized by the
+ * object mapper at the time of the mutation. A property whose nulls are not
+ * serialized gets an add operation when set from null and a remove operation
+ * when set to null.
+ *
+ * Mutations made on the objects directly, not through their wrappers, are not
+ * tracked. Not thread safe.
+ *
+ * @author Shagaba
+ *
+ */
+public class ChangeTracker {
+
+	protected ObjectMapper objectMapper;
+
+	protected List<PatchOperation> operations;
+
+	protected Map<Class<?>, Map<String, Property>> propertiesByType;
+
+	/**
+	 * @param objectMapper
+	 */
+	public ChangeTracker(ObjectMapper objectMapper) {
+        if (objectMapper == null) {
+            throw new IllegalArgumentException("Object mapper cannot be null");
+        }
+		this.objectMapper = objectMapper;
+		this.operations = new ArrayList<>();
+		this.propertiesByType = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * @return the objectMapper
+	 */
+	public ObjectMapper getObjectMapper() {
+		return objectMapper;
+	}
+
+	/**
+	 * Starts tracking the mutations of an object, as the root of the document.
+	 *
+	 * @param object
+	 * @return the tracked object
+	 */
+	public <T> TrackedObject<T> track(T object) {
+        if (object == null) {
+            throw new IllegalArgumentException("Object cannot be null");
+        }
+		return new TrackedObject<>(this, object, JsonPointer.compile(""));
+	}
+
+	/**
+	 * @return the operations recorded since creation or the last drain
+	 */
+	public List<PatchOperation> getOperations() {
+		return new ArrayList<>(operations);
+	}
+
+	/**
+	 * @return the operations recorded since creation or the last drain, which
+	 *         are cleared
+	 */
+	public List<PatchOperation> drainOperations() {
+		List<PatchOperation> drainedOperations = operations;
+		operations = new ArrayList<>();
+		return drainedOperations;
+	}
+
+	/**
+	 *
+	 * @param operation
+	 */
+	protected void record(PatchOperation operation) {
+		operations.add(operation);
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @return the value as serialized by the object mapper
+	 */
+	protected JsonNode toJsonNode(Object value) {
+		if (value == null) {
+			return JsonNodeFactory.instance.nullNode();
+		}
+		return objectMapper.valueToTree(value);
+	}
+
+	/**
+	 *
+	 * @param type
+	 * @param name the serialized name of the property
+	 * @return the property
+	 */
+	protected Property property(Class<?> type, String name) {
+		Property property = propertiesByType.computeIfAbsent(type, this::introspect).get(name);
+		if (property == null) {
+			throw new IllegalArgumentException("No property '" + name + "' in " + type.getName());
+		}
+		return property;
+	}
+
+	/**
+	 *
+	 * @param type
+	 * @return the serialized properties of the type by name
+	 */
+	protected Map<String, Property> introspect(Class<?> type) {
+		JavaType javaType = objectMapper.constructType(type);
+		SerializationConfig serializationConfig = objectMapper.getSerializationConfig();
+		BeanDescription serializationDescription = serializationConfig.introspect(javaType);
+		BeanDescription deserializationDescription = objectMapper.getDeserializationConfig().introspect(javaType);
+		boolean isForceAccess = objectMapper.isEnabled(MapperFeature.OVERRIDE_PUBLIC_ACCESS_MODIFIERS);
+		JsonInclude.Value defaultInclusion = serializationDescription.findPropertyInclusion(serializationConfig.getDefaultPropertyInclusion(type));
+
+		Map<String, AnnotatedMember> mutators = new LinkedHashMap<>();
+		for (BeanPropertyDefinition definition : deserializationDescription.findProperties()) {
+			AnnotatedMember mutator = definition.getNonConstructorMutator();
+			if (mutator != null) {
+				mutators.put(definition.getName(), mutator);
+			}
+		}
+		Map<String, Property> properties = new LinkedHashMap<>();
+		for (BeanPropertyDefinition definition : serializationDescription.findProperties()) {
+			AnnotatedMember accessor = definition.getAccessor();
+			if (accessor == null) {
+				continue;
+			}
+			AnnotatedMember mutator = mutators.get(definition.getName());
+			accessor.fixAccess(isForceAccess);
+			if (mutator != null) {
+				mutator.fixAccess(isForceAccess);
+			}
+			JsonInclude.Include inclusion = defaultInclusion.withOverrides(definition.findInclusion()).getValueInclusion();
+			boolean isNullIncluded = inclusion == JsonInclude.Include.ALWAYS || inclusion == JsonInclude.Include.USE_DEFAULTS;
+			properties.put(definition.getName(), new Property(definition.getName(), accessor, mutator, isNullIncluded));
+		}
+		return Collections.unmodifiableMap(properties);
+	}
+
+	protected static JsonPointer append(JsonPointer path, String segment) {
+		return JacksonUtils.append(path, segment.replace("~", "~0").replace("/", "~1"));
+	}
+
+	/**
+	 * A serialized property of a type.
+	 */
+	protected static class Property {
+
+		protected final String name;
+
+		protected final AnnotatedMember accessor;
+
+		protected final AnnotatedMember mutator;
+
+		protected final boolean isNullIncluded;
+
+		protected Property(String name, AnnotatedMember accessor, AnnotatedMember mutator, boolean isNullIncluded) {
+			this.name = name;
+			this.accessor = accessor;
+			this.mutator = mutator;
+			this.isNullIncluded = isNullIncluded;
+		}
+	}
+
+}
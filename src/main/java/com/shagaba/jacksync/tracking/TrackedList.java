@@ -0,0 +1,114 @@
+package com.shagaba.jacksync.tracking;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.RemoveOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+
+/**
+ * A list at a path of a document tracked by a {@link ChangeTracker}, recording
+ * the operations of its mutations, including the ones made through its
+ * iterators and sublists, on the underlying list.
+ *
+ * @author Shagaba
+ *
+ * @param <E>
+ */
+public class TrackedList<E> extends AbstractList<E> {
+
+	protected final ChangeTracker changeTracker;
+
+	protected final List<E> list;
+
+	protected final JsonPointer path;
+
+	/**
+	 * @param changeTracker
+	 * @param list
+	 * @param path
+	 */
+	protected TrackedList(ChangeTracker changeTracker, List<E> list, JsonPointer path) {
+		this.changeTracker = changeTracker;
+		this.list = list;
+		this.path = path;
+	}
+
+	/**
+	 * @return the underlying list
+	 */
+	public List<E> getList() {
+		return list;
+	}
+
+	/**
+	 * @return the path
+	 */
+	public JsonPointer getPath() {
+		return path;
+	}
+
+	/**
+	 *
+	 * @param index
+	 * @return the tracked POJO element at the index
+	 */
+	public <V> TrackedObject<V> with(int index) {
+		@SuppressWarnings("unchecked")
+		V element = (V) get(index);
+		if (element == null) {
+			throw new IllegalArgumentException("Element " + index + " is null");
+		}
+		return new TrackedObject<>(changeTracker, element, elementPath(index));
+	}
+
+	@Override
+	public E get(int index) {
+		return list.get(index);
+	}
+
+	@Override
+	public int size() {
+		return list.size();
+	}
+
+	@Override
+	public E set(int index, E element) {
+		E oldElement = list.set(index, element);
+		changeTracker.record(new ReplaceOperation(elementPath(index), changeTracker.toJsonNode(element)));
+		return oldElement;
+	}
+
+	@Override
+	public void add(int index, E element) {
+		list.add(index, element);
+		++modCount;
+		changeTracker.record(new AddOperation(elementPath(index), changeTracker.toJsonNode(element)));
+	}
+
+	@Override
+	public E remove(int index) {
+		E oldElement = list.remove(index);
+		++modCount;
+		changeTracker.record(new RemoveOperation(elementPath(index)));
+		return oldElement;
+	}
+
+	@Override
+	public void clear() {
+		if (list.isEmpty()) {
+			return;
+		}
+		list.clear();
+		++modCount;
+		changeTracker.record(new ReplaceOperation(path, JsonNodeFactory.instance.arrayNode()));
+	}
+
+	protected JsonPointer elementPath(int index) {
+		return ChangeTracker.append(path, Integer.toString(index));
+	}
+
+}
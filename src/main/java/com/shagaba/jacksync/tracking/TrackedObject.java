@@ -0,0 +1,116 @@
+package com.shagaba.jacksync.tracking;
+
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.RemoveOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+
+/**
+ * A POJO at a path of a document tracked by a {@link ChangeTracker}, whose
+ * properties are set through this wrapper to record their operations.
+ *
+ * The path is fixed when the wrapper is created, so a wrapper of an array
+ * element must not be used after elements are added or removed before it.
+ *
+ * @author Shagaba
+ *
+ * @param <T>
+ */
+public class TrackedObject<T> {
+
+	protected final ChangeTracker changeTracker;
+
+	protected final T object;
+
+	protected final JsonPointer path;
+
+	/**
+	 * @param changeTracker
+	 * @param object
+	 * @param path
+	 */
+	protected TrackedObject(ChangeTracker changeTracker, T object, JsonPointer path) {
+		this.changeTracker = changeTracker;
+		this.object = object;
+		this.path = path;
+	}
+
+	/**
+	 * @return the object
+	 */
+	public T getObject() {
+		return object;
+	}
+
+	/**
+	 * @return the path
+	 */
+	public JsonPointer getPath() {
+		return path;
+	}
+
+	/**
+	 *
+	 * @param name the serialized name of the property
+	 * @return the value of the property, whose own mutations are not tracked
+	 */
+	public Object get(String name) {
+		return changeTracker.property(object.getClass(), name).accessor.getValue(object);
+	}
+
+	/**
+	 * Sets a property and records its operation.
+	 *
+	 * @param name the serialized name of the property
+	 * @param value
+	 * @return this tracked object
+	 */
+	public TrackedObject<T> set(String name, Object value) {
+		ChangeTracker.Property property = changeTracker.property(object.getClass(), name);
+		if (property.mutator == null) {
+			throw new IllegalArgumentException("Property '" + name + "' cannot be set");
+		}
+		Object oldValue = property.accessor.getValue(object);
+		property.mutator.setValue(object, value);
+		JsonPointer propertyPath = ChangeTracker.append(path, name);
+		if (property.isNullIncluded || (oldValue != null && value != null)) {
+			changeTracker.record(new ReplaceOperation(propertyPath, changeTracker.toJsonNode(value)));
+		} else if (value != null) {
+			changeTracker.record(new AddOperation(propertyPath, changeTracker.toJsonNode(value)));
+		} else if (oldValue != null) {
+			changeTracker.record(new RemoveOperation(propertyPath));
+		}
+		return this;
+	}
+
+	/**
+	 *
+	 * @param name the serialized name of a POJO property
+	 * @return the tracked value of the property
+	 */
+	@SuppressWarnings("unchecked")
+	public <V> TrackedObject<V> with(String name) {
+		Object value = get(name);
+		if (value == null) {
+			throw new IllegalArgumentException("Property '" + name + "' is null");
+		}
+		return new TrackedObject<>(changeTracker, (V) value, ChangeTracker.append(path, name));
+	}
+
+	/**
+	 *
+	 * @param name the serialized name of a list property
+	 * @return the tracked value of the property
+	 */
+	@SuppressWarnings("unchecked")
+	public <E> TrackedList<E> list(String name) {
+		Object value = get(name);
+		if (!(value instanceof List)) {
+			throw new IllegalArgumentException("Property '" + name + "' is not a list");
+		}
+		return new TrackedList<>(changeTracker, (List<E>) value, ChangeTracker.append(path, name));
+	}
+
+}
@@ -0,0 +1,200 @@
+package com.shagaba.jacksync.transform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.CopyOperation;
+import com.shagaba.jacksync.operation.MoveOperation;
+import com.shagaba.jacksync.operation.PatchDualPathOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.TestOperation;
+import com.shagaba.jacksync.utils.JacksonUtils;
+
+/**
+ * An index of the locations touched by the operations applied on a document,
+ * by the version they were applied on.
+ *
+ * Answers which versions touched a location overlapping the locations of a
+ * patch in O(operations x depth), instead of comparing every pair of
+ * operations. Two locations overlap when one is the other or an ancestor of
+ * it, except that an insert into an array overwrites nothing: it does not
+ * overlap the element it shifts, which transformation takes care of.
+ *
+ * The index holds array indices as they were when the operations were applied,
+ * so it may miss an overlap hidden by indices shifted over several versions.
+ * {@link OperationTransformer} still detects it.
+ *
+ * @author Shagaba
+ *
+ */
+public class ConflictIndex {
+
+	protected PathTrie<Entry> pathTrie;
+
+	protected NavigableMap<Long, List<Entry>> entriesByVersion;
+
+	/**
+	 *
+	 */
+	public ConflictIndex() {
+		this.pathTrie = new PathTrie<>();
+		this.entriesByVersion = new TreeMap<>();
+	}
+
+	/**
+	 *
+	 * @param version the version the operations were applied on
+	 * @param operations
+	 */
+	public synchronized void add(long version, List<PatchOperation> operations) {
+		List<Entry> entries = entriesByVersion.computeIfAbsent(version, key -> new ArrayList<>());
+		for (PatchOperation operation : operations) {
+			if (operation instanceof TestOperation) {
+				continue;
+			}
+			if (operation instanceof MoveOperation) {
+				add(new Entry(version, ((MoveOperation) operation).getFrom(), false), entries);
+			}
+			add(new Entry(version, operation.getPath(), isInsert(operation)), entries);
+		}
+	}
+
+	/**
+	 * Same as {@link #add(long, List)}, unless the operations of the given
+	 * version are indexed already.
+	 *
+	 * @param version the version the operations were applied on
+	 * @param operations
+	 * @return true if the operations were added
+	 */
+	public synchronized boolean addIfAbsent(long version, List<PatchOperation> operations) {
+		if (entriesByVersion.containsKey(version)) {
+			return false;
+		}
+		add(version, operations);
+		return true;
+	}
+
+	/**
+	 * Removes the operations applied on versions older than the given version.
+	 *
+	 * @param version
+	 */
+	public synchronized void removeBefore(long version) {
+		Map<Long, List<Entry>> removedEntries = entriesByVersion.headMap(version);
+		for (List<Entry> entries : removedEntries.values()) {
+			for (Entry entry : entries) {
+				pathTrie.remove(entry.path, entry);
+			}
+		}
+		removedEntries.clear();
+	}
+
+	/**
+	 * @return the number of indexed locations
+	 */
+	public synchronized int size() {
+		return pathTrie.size();
+	}
+
+	/**
+	 *
+	 * @param fromVersion
+	 * @param operations
+	 * @return the versions from the given version that touched a location
+	 *         overlapping a location of the given operations
+	 */
+	public synchronized SortedSet<Long> conflictingVersions(long fromVersion, List<PatchOperation> operations) {
+		SortedSet<Long> versions = new TreeSet<>();
+		for (PatchOperation operation : operations) {
+			if (operation instanceof PatchDualPathOperation) {
+				collectConflicting(((PatchDualPathOperation) operation).getFrom(), false, fromVersion, versions);
+			}
+			collectConflicting(operation.getPath(), isInsert(operation), fromVersion, versions);
+		}
+		return versions;
+	}
+
+	/**
+	 *
+	 * @param path
+	 * @param isInsert
+	 * @param fromVersion
+	 * @param versions
+	 */
+	protected void collectConflicting(JsonPointer path, boolean isInsert, long fromVersion, SortedSet<Long> versions) {
+		List<Entry> entries = new ArrayList<>();
+		pathTrie.collectAncestors(path, entries);
+		// an insert leaves the current value of its location and below as is
+		if (!isInsert) {
+			pathTrie.collect(path, entries);
+		}
+		for (Entry entry : entries) {
+			if (entry.version >= fromVersion && !entry.isInsert) {
+				versions.add(entry.version);
+			}
+		}
+		if (!isInsert) {
+			entries.clear();
+			pathTrie.collectDescendants(path, entries);
+			for (Entry entry : entries) {
+				if (entry.version >= fromVersion) {
+					versions.add(entry.version);
+				}
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param entry
+	 * @param entries
+	 */
+	protected void add(Entry entry, List<Entry> entries) {
+		pathTrie.put(entry.path, entry);
+		entries.add(entry);
+	}
+
+	/**
+	 *
+	 * @param operation
+	 * @return true if the operation inserts into an array
+	 */
+	protected static boolean isInsert(PatchOperation operation) {
+		if (!(operation instanceof AddOperation || operation instanceof CopyOperation || operation instanceof MoveOperation)) {
+			return false;
+		}
+		List<String> segments = JacksonUtils.segments(operation.getPath());
+		if (segments.isEmpty()) {
+			return false;
+		}
+		String last = segments.get(segments.size() - 1);
+		return JacksonUtils.AFTER_LAST_ARRAY_ELEMENT.equals(last) || OperationTransformer.isIndex(last);
+	}
+
+	/**
+	 * A location touched on a version.
+	 */
+	protected static class Entry {
+
+		protected final long version;
+
+		protected final JsonPointer path;
+
+		protected final boolean isInsert;
+
+		protected Entry(long version, JsonPointer path, boolean isInsert) {
+			this.version = version;
+			this.path = path;
+			this.isInsert = isInsert;
+		}
+	}
+
+}
@@ -0,0 +1,22 @@
+package com.shagaba.jacksync.transform;
+
+/**
+ * What to do with an operation that overlaps a concurrent operation.
+ *
+ * @author Shagaba
+ *
+ */
+public enum ConflictPolicy {
+
+	/**
+	 * The operation is dropped, the concurrent operation that was applied first
+	 * wins.
+	 */
+	DROP,
+
+	/**
+	 * The transformation fails.
+	 */
+	FAIL
+
+}
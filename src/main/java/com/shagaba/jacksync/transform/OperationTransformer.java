@@ -0,0 +1,309 @@
+package com.shagaba.jacksync.transform;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.shagaba.jacksync.exception.OperationConflictException;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.CopyOperation;
+import com.shagaba.jacksync.operation.MergeOperation;
+import com.shagaba.jacksync.operation.MoveOperation;
+import com.shagaba.jacksync.operation.PatchDualPathOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.RemoveOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+import com.shagaba.jacksync.operation.TestOperation;
+import com.shagaba.jacksync.utils.JacksonUtils;
+
+/**
+ * Operational transformation of patch operations.
+ *
+ * Transforms a list of operations against a concurrent list of operations
+ * built on the same document version, so that it can be applied after the
+ * concurrent list:
+ * <ul>
+ * <li>array indices are shifted by the concurrent adds and removes of
+ * preceding elements,</li>
+ * <li>paths within a moved value follow the value, which rewrites move and
+ * copy sources as well,</li>
+ * <li>operations on a location a concurrent operation wrote, removed or
+ * replaced an ancestor of, are conflicts, and are dropped or fail the
+ * transformation according to the {@link ConflictPolicy}.</li>
+ * </ul>
+ *
+ * Concurrent inserts at the same array index keep the concurrent insert
+ * first.
+ *
+ * @author Shagaba
+ *
+ */
+public class OperationTransformer {
+
+	protected ConflictPolicy conflictPolicy;
+
+	/**
+	 *
+	 */
+	public OperationTransformer() {
+		this(ConflictPolicy.DROP);
+	}
+
+	/**
+	 * @param conflictPolicy
+	 */
+	public OperationTransformer(ConflictPolicy conflictPolicy) {
+        if (conflictPolicy == null) {
+            throw new IllegalArgumentException("Conflict policy cannot be null");
+        }
+		this.conflictPolicy = conflictPolicy;
+	}
+
+	/**
+	 * @return the conflictPolicy
+	 */
+	public ConflictPolicy getConflictPolicy() {
+		return conflictPolicy;
+	}
+
+	/**
+	 *
+	 * @param operations the operations to transform
+	 * @param appliedOperations the concurrent operations, applied first
+	 * @return the operations to apply after the applied operations
+	 * @throws OperationConflictException
+	 */
+	public List<PatchOperation> transform(List<PatchOperation> operations, List<PatchOperation> appliedOperations) throws OperationConflictException {
+		List<PatchOperation> transformedOperations = new ArrayList<>(operations);
+		for (PatchOperation appliedOperation : appliedOperations) {
+			List<PatchOperation> nextOperations = new ArrayList<>(transformedOperations.size());
+			// the applied operation is carried past each operation it transforms
+			PatchOperation currentAppliedOperation = appliedOperation;
+			for (PatchOperation operation : transformedOperations) {
+				PatchOperation transformedOperation = transform(operation, currentAppliedOperation, true);
+				if (transformedOperation == null) {
+					if (conflictPolicy == ConflictPolicy.FAIL) {
+						throw new OperationConflictException(String.format("Operation conflict - %s %s", name(operation), operation.getPath()));
+					}
+					continue;
+				}
+				nextOperations.add(transformedOperation);
+				PatchOperation carriedOperation = transform(currentAppliedOperation, operation, false);
+				if (carriedOperation != null) {
+					currentAppliedOperation = carriedOperation;
+				}
+			}
+			transformedOperations = nextOperations;
+		}
+		return transformedOperations;
+	}
+
+	/**
+	 *
+	 * @param operation
+	 * @param appliedOperation
+	 * @param isAppliedFirst whether the applied operation wins a tie of inserts
+	 * @return the transformed operation or null on a conflict
+	 */
+	protected PatchOperation transform(PatchOperation operation, PatchOperation appliedOperation, boolean isAppliedFirst) {
+		boolean isInsert = operation instanceof AddOperation || operation instanceof CopyOperation || operation instanceof MoveOperation;
+		JsonPointer path = transformPath(operation.getPath(), isInsert, appliedOperation, isAppliedFirst);
+		if (path == null) {
+			return null;
+		}
+		if (operation instanceof PatchDualPathOperation) {
+			JsonPointer from = ((PatchDualPathOperation) operation).getFrom();
+			JsonPointer transformedFrom = transformPath(from, false, appliedOperation, isAppliedFirst);
+			if (transformedFrom == null) {
+				return null;
+			}
+			if (path.equals(operation.getPath()) && transformedFrom.equals(from)) {
+				return operation;
+			}
+			if (operation instanceof MoveOperation) {
+				return new MoveOperation(transformedFrom, path);
+			}
+			return new CopyOperation(transformedFrom, path);
+		}
+		if (path.equals(operation.getPath())) {
+			return operation;
+		}
+		if (operation instanceof AddOperation) {
+			return new AddOperation(path, ((AddOperation) operation).getValue());
+		} else if (operation instanceof RemoveOperation) {
+			return new RemoveOperation(path);
+		} else if (operation instanceof ReplaceOperation) {
+			return new ReplaceOperation(path, ((ReplaceOperation) operation).getValue());
+		} else if (operation instanceof TestOperation) {
+			return new TestOperation(path, ((TestOperation) operation).getValue());
+		} else if (operation instanceof MergeOperation) {
+			return new MergeOperation(path, ((MergeOperation) operation).getValue());
+		}
+		throw new IllegalArgumentException(String.format("Unsupported operation - %s", name(operation)));
+	}
+
+	/**
+	 *
+	 * @param path
+	 * @param isInsert whether the path is the location of an insert
+	 * @param appliedOperation
+	 * @param isAppliedFirst
+	 * @return the transformed path or null on a conflict
+	 */
+	protected JsonPointer transformPath(JsonPointer path, boolean isInsert, PatchOperation appliedOperation, boolean isAppliedFirst) {
+		if (appliedOperation instanceof TestOperation) {
+			return path;
+		}
+		List<String> segments = JacksonUtils.segments(path);
+		List<String> appliedSegments = JacksonUtils.segments(appliedOperation.getPath());
+		if (appliedOperation instanceof RemoveOperation) {
+			return toJsonPointer(transformAgainstRemove(segments, isInsert, appliedSegments));
+		}
+		if (appliedOperation instanceof AddOperation || appliedOperation instanceof CopyOperation) {
+			return toJsonPointer(transformAgainstAdd(segments, isInsert, appliedSegments, isAppliedFirst));
+		}
+		if (appliedOperation instanceof MoveOperation) {
+			List<String> fromSegments = JacksonUtils.segments(((MoveOperation) appliedOperation).getFrom());
+			if (startsWith(segments, fromSegments) && !(isInsert && segments.size() == fromSegments.size())) {
+				// a path within the moved value follows it
+				if (appliedSegments.isEmpty() || JacksonUtils.AFTER_LAST_ARRAY_ELEMENT.equals(last(appliedSegments))) {
+					return null;
+				}
+				List<String> movedSegments = new ArrayList<>(appliedSegments);
+				movedSegments.addAll(segments.subList(fromSegments.size(), segments.size()));
+				return toJsonPointer(movedSegments);
+			}
+			List<String> removedSegments = transformAgainstRemove(segments, isInsert, fromSegments);
+			if (removedSegments == null) {
+				return null;
+			}
+			return toJsonPointer(transformAgainstAdd(removedSegments, isInsert, appliedSegments, isAppliedFirst));
+		}
+		// replace and merge
+		return overlaps(segments, appliedSegments) ? null : path;
+	}
+
+	/**
+	 *
+	 * @param segments
+	 * @param isInsert
+	 * @param addedSegments
+	 * @param isAppliedFirst
+	 * @return the transformed segments or null on a conflict
+	 */
+	protected List<String> transformAgainstAdd(List<String> segments, boolean isInsert, List<String> addedSegments, boolean isAppliedFirst) {
+		if (addedSegments.isEmpty()) {
+			return null;
+		}
+		int depth = addedSegments.size() - 1;
+		String addedLast = last(addedSegments);
+		if (segments.size() > depth && startsWith(segments, addedSegments.subList(0, depth))) {
+			String segment = segments.get(depth);
+			if (JacksonUtils.AFTER_LAST_ARRAY_ELEMENT.equals(addedLast) && (isIndex(segment) || JacksonUtils.AFTER_LAST_ARRAY_ELEMENT.equals(segment))) {
+				return segments;
+			}
+			if (isIndex(addedLast) && JacksonUtils.AFTER_LAST_ARRAY_ELEMENT.equals(segment)) {
+				return segments;
+			}
+			if (isIndex(addedLast) && isIndex(segment)) {
+				int index = Integer.parseInt(segment);
+				int addedIndex = Integer.parseInt(addedLast);
+				boolean isTie = index == addedIndex && isInsert && segments.size() == addedSegments.size();
+				if (index > addedIndex || (index == addedIndex && (!isTie || isAppliedFirst))) {
+					return withSegment(segments, depth, index + 1);
+				}
+				return segments;
+			}
+		}
+		return overlaps(segments, addedSegments) ? null : segments;
+	}
+
+	/**
+	 *
+	 * @param segments
+	 * @param isInsert
+	 * @param removedSegments
+	 * @return the transformed segments or null on a conflict
+	 */
+	protected List<String> transformAgainstRemove(List<String> segments, boolean isInsert, List<String> removedSegments) {
+		if (segments == null || removedSegments.isEmpty()) {
+			return null;
+		}
+		int depth = removedSegments.size() - 1;
+		String removedLast = last(removedSegments);
+		if (isIndex(removedLast) && segments.size() > depth && startsWith(segments, removedSegments.subList(0, depth))) {
+			String segment = segments.get(depth);
+			if (JacksonUtils.AFTER_LAST_ARRAY_ELEMENT.equals(segment)) {
+				return segments;
+			}
+			if (isIndex(segment)) {
+				int index = Integer.parseInt(segment);
+				int removedIndex = Integer.parseInt(removedLast);
+				if (index > removedIndex) {
+					return withSegment(segments, depth, index - 1);
+				}
+				if (index < removedIndex || (isInsert && segments.size() == removedSegments.size())) {
+					return segments;
+				}
+				return null;
+			}
+		}
+		return overlaps(segments, removedSegments) ? null : segments;
+	}
+
+	/**
+	 *
+	 * @param operation
+	 * @return the operation name
+	 */
+	protected static String name(PatchOperation operation) {
+		return operation.getClass().getSimpleName();
+	}
+
+	/**
+	 *
+	 * @param segments
+	 * @return the path of the segments or null if segments is null
+	 */
+	protected static JsonPointer toJsonPointer(List<String> segments) {
+		if (segments == null) {
+			return null;
+		}
+		StringBuilder path = new StringBuilder();
+		for (String segment : segments) {
+			path.append(JacksonUtils.SEPARATOR).append(segment.replace("~", "~0").replace("/", "~1"));
+		}
+		return JsonPointer.compile(path.toString());
+	}
+
+	protected static boolean overlaps(List<String> segments, List<String> otherSegments) {
+		return startsWith(segments, otherSegments) || startsWith(otherSegments, segments);
+	}
+
+	protected static boolean startsWith(List<String> segments, List<String> prefixSegments) {
+		return segments.size() >= prefixSegments.size() && segments.subList(0, prefixSegments.size()).equals(prefixSegments);
+	}
+
+	protected static boolean isIndex(String segment) {
+		if (segment.isEmpty() || segment.length() > 9) {
+			return false;
+		}
+		for (int i = 0; i < segment.length(); ++i) {
+			if (!Character.isDigit(segment.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	protected static String last(List<String> segments) {
+		return segments.get(segments.size() - 1);
+	}
+
+	protected static List<String> withSegment(List<String> segments, int depth, int index) {
+		List<String> shiftedSegments = new ArrayList<>(segments);
+		shiftedSegments.set(depth, Integer.toString(index));
+		return shiftedSegments;
+	}
+
+}
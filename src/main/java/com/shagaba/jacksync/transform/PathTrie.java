@@ -0,0 +1,191 @@
+package com.shagaba.jacksync.transform;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.shagaba.jacksync.utils.JacksonUtils;
+
+/**
+ * A trie of JSON Pointer segments holding values by path.
+ *
+ * Finding the values of the ancestors of a path, or of the path itself, walks
+ * the path once. The values of the descendants of a path are reached through
+ * the subtree of the path only. Every node counts the values of its subtree, so
+ * empty subtrees are never visited and are pruned on removal.
+ *
+ * Not thread safe.
+ *
+ * @author Shagaba
+ *
+ * @param <V> the value type
+ */
+public class PathTrie<V> {
+
+	protected Node<V> root;
+
+	/**
+	 *
+	 */
+	public PathTrie() {
+		this.root = new Node<>();
+	}
+
+	/**
+	 * @return the number of values
+	 */
+	public int size() {
+		return root.size;
+	}
+
+	/**
+	 * @return true if the trie holds no values
+	 */
+	public boolean isEmpty() {
+		return root.size == 0;
+	}
+
+	/**
+	 *
+	 * @param path
+	 * @param value
+	 */
+	public void put(JsonPointer path, V value) {
+		Node<V> node = root;
+		++node.size;
+		for (String segment : JacksonUtils.segments(path)) {
+			node = node.children.computeIfAbsent(segment, key -> new Node<>());
+			++node.size;
+		}
+		node.values.add(value);
+	}
+
+	/**
+	 *
+	 * @param path
+	 * @param value
+	 * @return true if the value was held by the path
+	 */
+	public boolean remove(JsonPointer path, V value) {
+		List<String> segments = JacksonUtils.segments(path);
+		List<Node<V>> nodes = new ArrayList<>(segments.size() + 1);
+		Node<V> node = root;
+		nodes.add(node);
+		for (String segment : segments) {
+			node = node.children.get(segment);
+			if (node == null) {
+				return false;
+			}
+			nodes.add(node);
+		}
+		if (!node.values.remove(value)) {
+			return false;
+		}
+		for (int depth = nodes.size() - 1; depth >= 0; --depth) {
+			Node<V> pathNode = nodes.get(depth);
+			if (--pathNode.size == 0 && depth > 0) {
+				nodes.get(depth - 1).children.remove(segments.get(depth - 1));
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Collects the values of the proper ancestors of the given path.
+	 *
+	 * @param path
+	 * @param values
+	 */
+	public void collectAncestors(JsonPointer path, Collection<? super V> values) {
+		Node<V> node = root;
+		for (String segment : JacksonUtils.segments(path)) {
+			values.addAll(node.values);
+			node = node.children.get(segment);
+			if (node == null) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Collects the values of the given path.
+	 *
+	 * @param path
+	 * @param values
+	 */
+	public void collect(JsonPointer path, Collection<? super V> values) {
+		Node<V> node = find(path);
+		if (node != null) {
+			values.addAll(node.values);
+		}
+	}
+
+	/**
+	 * Collects the values of the proper descendants of the given path.
+	 *
+	 * @param path
+	 * @param values
+	 */
+	public void collectDescendants(JsonPointer path, Collection<? super V> values) {
+		Node<V> node = find(path);
+		if (node != null) {
+			for (Node<V> child : node.children.values()) {
+				collectSubtree(child, values);
+			}
+		}
+	}
+
+	/**
+	 * Removes all values.
+	 */
+	public void clear() {
+		root = new Node<>();
+	}
+
+	/**
+	 *
+	 * @param path
+	 * @return the node of the path or null
+	 */
+	protected Node<V> find(JsonPointer path) {
+		Node<V> node = root;
+		for (String segment : JacksonUtils.segments(path)) {
+			node = node.children.get(segment);
+			if (node == null) {
+				return null;
+			}
+		}
+		return node;
+	}
+
+	/**
+	 *
+	 * @param node
+	 * @param values
+	 */
+	protected void collectSubtree(Node<V> node, Collection<? super V> values) {
+		values.addAll(node.values);
+		for (Node<V> child : node.children.values()) {
+			collectSubtree(child, values);
+		}
+	}
+
+	/**
+	 * A path segment, its values and its children by segment.
+	 */
+	protected static class Node<V> {
+
+		protected final Map<String, Node<V>> children = new HashMap<>(4);
+
+		protected final List<V> values = new ArrayList<>(1);
+
+		/**
+		 * The number of values of the subtree
+		 */
+		protected int size;
+	}
+
+}
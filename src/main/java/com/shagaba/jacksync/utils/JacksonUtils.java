@@ -1,5 +1,10 @@
 package com.shagaba.jacksync.utils;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
 import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.shagaba.jacksync.exception.IllegalContainerException;
@@ -30,6 +35,23 @@ public class JacksonUtils {
     	}
     }
     
+	/**
+	 * Tells that two nodes are deeply equal, comparing their values by a
+	 * comparator, see {@link JsonNode#equals(Comparator, JsonNode)}.
+	 * 
+	 * @param jsonNode
+	 * @param otherJsonNode
+	 * @param comparator the comparator of the values, or null to compare them
+	 *            by {@link JsonNode#equals(Object)}
+	 * @return true if both nodes are null or equal
+	 */
+	public static boolean isEqual(JsonNode jsonNode, JsonNode otherJsonNode, Comparator<JsonNode> comparator) {
+		if (comparator == null || jsonNode == null || otherJsonNode == null) {
+			return Objects.equals(jsonNode, otherJsonNode);
+		}
+		return jsonNode == otherJsonNode || jsonNode.equals(comparator, otherJsonNode);
+	}
+
 	/**
 	 * 
 	 * @param path
@@ -138,4 +160,17 @@ public class JacksonUtils {
 		return path.append(JsonPointer.compile(SEPARATOR.concat(fieldName)));
 	}
 
+	/**
+	 * 
+	 * @param path
+	 * @return the unescaped field names and indices of the path
+	 */
+	public static List<String> segments(JsonPointer path) {
+		List<String> segments = new ArrayList<>();
+		for (JsonPointer pointer = path; pointer != null && !pointer.matches(); pointer = pointer.tail()) {
+			segments.add(pointer.getMatchingProperty());
+		}
+		return segments;
+	}
+
 }
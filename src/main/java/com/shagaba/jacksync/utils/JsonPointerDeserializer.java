@@ -7,12 +7,17 @@ import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonMappingException;
+import com.shagaba.jacksync.codec.PathDictionary;
 
 public class JsonPointerDeserializer extends JsonDeserializer<JsonPointer> {
 
 	@Override
 	public JsonPointer deserialize(JsonParser jsonParser, DeserializationContext context) throws IOException {
 		try {
+			PathDictionary pathDictionary = (PathDictionary) context.getAttribute(PathDictionary.class);
+			if (pathDictionary != null) {
+				return pathDictionary.decode(jsonParser.getText());
+			}
 			return JsonPointer.compile(jsonParser.getText());
 		} catch (Exception e) {
 			throw new JsonMappingException(jsonParser, "cannot deserialize JSON Pointer", e);
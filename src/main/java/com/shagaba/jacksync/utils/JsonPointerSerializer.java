@@ -0,0 +1,26 @@
+package com.shagaba.jacksync.utils;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.shagaba.jacksync.codec.PathDictionary;
+
+/**
+ * Writes a JSON Pointer as a string, in the parent reference form of the
+ * {@link PathDictionary} attribute of the writer if set.
+ *
+ * @author Shagaba
+ *
+ */
+public class JsonPointerSerializer extends JsonSerializer<JsonPointer> {
+
+	@Override
+	public void serialize(JsonPointer jsonPointer, JsonGenerator jsonGenerator, SerializerProvider provider) throws IOException {
+		PathDictionary pathDictionary = (PathDictionary) provider.getAttribute(PathDictionary.class);
+		jsonGenerator.writeString(pathDictionary == null ? jsonPointer.toString() : pathDictionary.encode(jsonPointer));
+	}
+
+}
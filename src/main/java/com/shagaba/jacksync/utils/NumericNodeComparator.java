@@ -0,0 +1,78 @@
+package com.shagaba.jacksync.utils;
+
+import java.util.Comparator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * An equality comparator of JSON nodes by numeric value, see
+ * {@link JacksonUtils#isEqual(JsonNode, JsonNode, Comparator)}. The numbers
+ * are equal if numerically equal, e.g. 1, 1L, 1.0 and 1.00, or within an
+ * epsilon if any, and other nodes if equal. The unequal nodes compare as 1,
+ * with no ordering.
+ *
+ * @author Shagaba
+ *
+ */
+public class NumericNodeComparator implements Comparator<JsonNode> {
+
+	/**
+	 * The comparator of exact numeric values
+	 */
+	public static final NumericNodeComparator INSTANCE = new NumericNodeComparator();
+
+	protected final double epsilon;
+
+	public NumericNodeComparator() {
+		this(0);
+	}
+
+	/**
+	 * @param epsilon the largest absolute difference of equal numbers
+	 */
+	public NumericNodeComparator(double epsilon) {
+        if (epsilon < 0) {
+            throw new IllegalArgumentException("Epsilon cannot be negative");
+        }
+		this.epsilon = epsilon;
+	}
+
+	/**
+	 * @return the epsilon
+	 */
+	public double getEpsilon() {
+		return epsilon;
+	}
+
+	@Override
+	public int compare(JsonNode jsonNode, JsonNode otherJsonNode) {
+		if (jsonNode.equals(otherJsonNode)) {
+			return 0;
+		}
+		if (jsonNode.isNumber() && otherJsonNode.isNumber() && isNumericallyEqual(jsonNode, otherJsonNode)) {
+			return 0;
+		}
+		return 1;
+	}
+
+	/**
+	 *
+	 * @param numberNode
+	 * @param otherNumberNode
+	 * @return true if the numbers are equal, or within the epsilon
+	 */
+	protected boolean isNumericallyEqual(JsonNode numberNode, JsonNode otherNumberNode) {
+		if (epsilon > 0) {
+			return Math.abs(numberNode.doubleValue() - otherNumberNode.doubleValue()) <= epsilon;
+		}
+		if (!isFinite(numberNode) || !isFinite(otherNumberNode)) {
+			return Double.compare(numberNode.doubleValue(), otherNumberNode.doubleValue()) == 0;
+		}
+		return numberNode.decimalValue().compareTo(otherNumberNode.decimalValue()) == 0;
+	}
+
+	protected static boolean isFinite(JsonNode numberNode) {
+		return !numberNode.isFloatingPointNumber() || numberNode.isBigDecimal() || Double.isFinite(numberNode.doubleValue());
+	}
+
+}
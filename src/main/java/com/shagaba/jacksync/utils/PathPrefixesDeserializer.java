@@ -0,0 +1,35 @@
+package com.shagaba.jacksync.utils;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.shagaba.jacksync.codec.PathDictionary;
+
+/**
+ * Reads the path prefixes of a sync data and defines them in the
+ * {@link PathDictionary} attribute of the reader, or in a dictionary of the
+ * current read if none is set, so the operations that follow can be decoded.
+ *
+ * @author Shagaba
+ *
+ */
+public class PathPrefixesDeserializer extends JsonDeserializer<Map<Integer, String>> {
+
+	@Override
+	public Map<Integer, String> deserialize(JsonParser jsonParser, DeserializationContext context) throws IOException {
+		Map<Integer, String> pathPrefixes = context.readValue(jsonParser,
+				context.getTypeFactory().constructMapType(LinkedHashMap.class, Integer.class, String.class));
+		PathDictionary pathDictionary = (PathDictionary) context.getAttribute(PathDictionary.class);
+		if (pathDictionary == null) {
+			pathDictionary = new PathDictionary();
+			context.setAttribute(PathDictionary.class, pathDictionary);
+		}
+		pathDictionary.define(pathPrefixes);
+		return pathPrefixes;
+	}
+
+}
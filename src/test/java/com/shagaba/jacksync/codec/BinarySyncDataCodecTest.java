@@ -0,0 +1,122 @@
+package com.shagaba.jacksync.codec;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.number.OrderingComparison.lessThan;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.exception.SyncCodecException;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.CopyOperation;
+import com.shagaba.jacksync.operation.MergeOperation;
+import com.shagaba.jacksync.operation.MoveOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.RemoveOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+import com.shagaba.jacksync.operation.TestOperation;
+import com.shagaba.jacksync.sync.SyncData;
+import com.shagaba.jacksync.utils.JacksonUtils;
+
+public class BinarySyncDataCodecTest extends BaseTest {
+
+	private SyncDataCodec jsonCodec;
+
+    @Before
+    public void beforeEach() {
+    	mapper = newObjectMapper();
+    	jsonCodec = new JacksonSyncDataCodec(mapper);
+    }
+
+    @Test
+    public void binaryRoundTripsWithJson() throws Exception {
+    	SyncDataCodec binaryCodec = new BinarySyncDataCodec(mapper);
+    	SyncData syncData = syncData();
+
+    	byte[] binary = binaryCodec.encode(syncData);
+    	byte[] json = jsonCodec.encode(syncData);
+    	SyncData decoded = binaryCodec.decode(binary);
+
+    	Assert.assertThat(binary.length, lessThan(json.length));
+    	Assert.assertThat(mapper.readTree(jsonCodec.encode(decoded)), equalTo(mapper.readTree(json)));
+    	// JSON form decoded and encoded again in binary form
+    	SyncData jsonDecoded = jsonCodec.decode(json);
+    	Assert.assertThat(mapper.readTree(jsonCodec.encode(binaryCodec.decode(binaryCodec.encode(jsonDecoded)))), equalTo(mapper.readTree(json)));
+    }
+
+    @Test
+    public void binaryOperationsRoundTrip() throws Exception {
+    	SyncDataCodec binaryCodec = new BinarySyncDataCodec(mapper);
+    	List<PatchOperation> operations = syncData().getOperations();
+
+    	List<PatchOperation> decoded = binaryCodec.decodeOperations(binaryCodec.encodeOperations(operations));
+
+    	Assert.assertThat(mapper.readTree(jsonCodec.encodeOperations(decoded)), equalTo(mapper.readTree(jsonCodec.encodeOperations(operations))));
+    }
+
+    @Test(expected = SyncCodecException.class)
+    public void binaryDecodeFailsOnTruncatedInput() throws Exception {
+    	SyncDataCodec binaryCodec = new BinarySyncDataCodec(mapper);
+    	byte[] binary = binaryCodec.encode(syncData());
+
+    	binaryCodec.decode(Arrays.copyOf(binary, binary.length / 2));
+    }
+
+    @Test
+    public void smileRoundTripsWithJson() throws Exception {
+    	assertRoundTrip(new SmileSyncDataCodec());
+    }
+
+    @Test
+    public void cborRoundTripsWithJson() throws Exception {
+    	assertRoundTrip(new CborSyncDataCodec());
+    }
+
+    private void assertRoundTrip(SyncDataCodec syncDataCodec) throws Exception {
+    	SyncData syncData = syncData();
+    	SyncData decoded = syncDataCodec.decode(syncDataCodec.encode(syncData));
+
+    	Assert.assertThat(mapper.readTree(jsonCodec.encode(decoded)), equalTo(mapper.readTree(jsonCodec.encode(syncData))));
+    }
+
+    private SyncData syncData() {
+    	ObjectNode section = mapper.createObjectNode();
+    	section.put("title", "section-1");
+    	section.put("count", 7L);
+    	section.put("ratio", 0.25d);
+    	section.put("amount", new BigDecimal("12.50"));
+    	section.put("huge", new BigInteger("123456789012345678901234567890"));
+    	section.put("negative", -42);
+    	section.put("flag", true);
+    	section.putNull("note");
+    	section.putArray("paragraphs").add(mapper.createObjectNode().put("title", "p-1")).add(mapper.createObjectNode().put("title", "p-2"));
+
+    	List<PatchOperation> operations = new ArrayList<>();
+    	operations.add(new AddOperation(JacksonUtils.toJsonPointer("/sections/0"), section));
+    	operations.add(new ReplaceOperation(JacksonUtils.toJsonPointer("/title"), mapper.valueToTree("my test title")));
+    	operations.add(new RemoveOperation(JacksonUtils.toJsonPointer("/sections/1")));
+    	operations.add(new CopyOperation(JacksonUtils.toJsonPointer("/sections/0"), JacksonUtils.toJsonPointer("/sections/1")));
+    	operations.add(new MoveOperation(JacksonUtils.toJsonPointer("/sections/1"), JacksonUtils.toJsonPointer("/sections/0")));
+    	operations.add(new TestOperation(JacksonUtils.toJsonPointer("/title"), mapper.valueToTree("my test title")));
+    	JsonNode author = mapper.createObjectNode().put("firstName", "james").putNull("email");
+    	operations.add(new MergeOperation(JacksonUtils.toJsonPointer("/author"), author));
+
+    	SyncData syncData = new SyncData();
+    	syncData.setVersion(5L);
+    	syncData.setMasterVersion(6L);
+    	syncData.setTargetChecksum("3c2a0f1b");
+    	syncData.setOperations(operations);
+    	return syncData;
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.shagaba.jacksync.codec;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.number.OrderingComparison.lessThan;
+import static org.hamcrest.number.OrderingComparison.lessThanOrEqualTo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.exception.SyncCodecException;
+import com.shagaba.jacksync.operation.MoveOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+import com.shagaba.jacksync.sync.SyncData;
+import com.shagaba.jacksync.utils.JacksonUtils;
+
+public class PathDictionaryCodecTest extends BaseTest {
+
+	private SyncDataCodec jsonCodec;
+
+    @Before
+    public void beforeEach() {
+    	mapper = newObjectMapper();
+    	jsonCodec = new JacksonSyncDataCodec(mapper);
+    }
+
+    @Test
+    public void syncDataCarriesItsPrefixes() throws Exception {
+    	SyncDataCodec pathDictionaryCodec = new PathDictionaryCodec(mapper);
+    	SyncData syncData = syncData(5L, "draft");
+
+    	byte[] compressed = pathDictionaryCodec.encode(syncData);
+    	byte[] json = jsonCodec.encode(syncData);
+
+    	Assert.assertThat(compressed.length, lessThan(json.length));
+    	Assert.assertThat(new String(compressed, "UTF-8"), containsString("\"#0/title\""));
+    	// a plain reader defines the prefixes of the sync data it reads
+    	SyncData plainDecoded = jsonCodec.decode(compressed);
+    	Assert.assertThat(mapper.readTree(jsonCodec.encodeOperations(plainDecoded.getOperations())), equalTo(mapper.readTree(jsonCodec.encodeOperations(syncData.getOperations()))));
+    	Assert.assertThat(mapper.readTree(jsonCodec.encode(pathDictionaryCodec.decode(compressed))), equalTo(mapper.readTree(json)));
+    }
+
+    @Test
+    public void sessionSendsPrefixesOnce() throws Exception {
+    	PathDictionary clientDictionary = new PathDictionary();
+    	PathDictionary serverDictionary = new PathDictionary();
+    	SyncDataCodec clientCodec = new PathDictionaryCodec(mapper, clientDictionary, null);
+    	SyncDataCodec serverCodec = new PathDictionaryCodec(mapper, null, serverDictionary);
+
+    	SyncData first = syncData(5L, "draft");
+    	SyncData second = syncData(6L, "final");
+    	SyncData firstDecoded = serverCodec.decode(clientCodec.encode(first));
+    	byte[] secondCompressed = clientCodec.encode(second);
+    	SyncData secondDecoded = serverCodec.decode(secondCompressed);
+
+    	Assert.assertThat(new String(secondCompressed, "UTF-8"), not(containsString("pathPrefixes")));
+    	Assert.assertThat(mapper.readTree(jsonCodec.encode(firstDecoded)), equalTo(mapper.readTree(jsonCodec.encode(first))));
+    	Assert.assertThat(mapper.readTree(jsonCodec.encode(secondDecoded)), equalTo(mapper.readTree(jsonCodec.encode(second))));
+    	Assert.assertThat(serverDictionary.size(), equalTo(clientDictionary.size()));
+    }
+
+    @Test(expected = SyncCodecException.class)
+    public void sessionDecodeFailsOnUnknownPrefix() throws Exception {
+    	SyncDataCodec clientCodec = new PathDictionaryCodec(mapper, new PathDictionary(), null);
+    	clientCodec.encode(syncData(5L, "draft"));
+    	byte[] secondCompressed = clientCodec.encode(syncData(6L, "final"));
+
+    	new PathDictionaryCodec(mapper, null, new PathDictionary()).decode(secondCompressed);
+    }
+
+    @Test
+    public void pathDictionaryEncodesEscapedSegments() throws Exception {
+    	PathDictionary pathDictionary = new PathDictionary();
+    	List<PatchOperation> operations = new ArrayList<>();
+    	operations.add(new ReplaceOperation(JacksonUtils.toJsonPointer("/a~1b/c~0d/e~1f"), mapper.valueToTree(1)));
+    	operations.add(new ReplaceOperation(JacksonUtils.toJsonPointer("/a~1b/c~0d/g"), mapper.valueToTree(2)));
+    	operations.add(new ReplaceOperation(JacksonUtils.toJsonPointer("/a~1b/c~0d/h"), mapper.valueToTree(3)));
+    	pathDictionary.register(operations);
+
+    	String encoded = pathDictionary.encode(JacksonUtils.toJsonPointer("/a~1b/c~0d/e~1f"));
+
+    	Assert.assertThat(encoded, equalTo("#0/e~1f"));
+    	Assert.assertThat(pathDictionary.decode(encoded), equalTo(JacksonUtils.toJsonPointer("/a~1b/c~0d/e~1f")));
+    	Assert.assertThat(pathDictionary.decode("/title"), equalTo(JacksonUtils.toJsonPointer("/title")));
+    }
+
+    @Test
+    public void sparseDeepEditsDoNotGrow() throws Exception {
+    	SyncDataCodec pathDictionaryCodec = new PathDictionaryCodec(mapper);
+    	List<PatchOperation> operations = new ArrayList<>();
+    	for (int i = 0; i < 20; ++i) {
+    		operations.add(new ReplaceOperation(JacksonUtils.toJsonPointer("/sections/" + i + "/paragraphs/" + (i * 7) + "/title"), mapper.valueToTree("title-" + i)));
+    	}
+    	SyncData syncData = new SyncData();
+    	syncData.setVersion(5L);
+    	syncData.setOperations(operations);
+
+    	byte[] compressed = pathDictionaryCodec.encode(syncData);
+
+    	Assert.assertThat(compressed.length, lessThanOrEqualTo(jsonCodec.encode(syncData).length));
+    	Assert.assertThat(mapper.readTree(jsonCodec.encode(pathDictionaryCodec.decode(compressed))), equalTo(mapper.readTree(jsonCodec.encode(syncData))));
+    	// a single edit is left plain
+    	syncData.setOperations(operations.subList(0, 1));
+    	Assert.assertThat(pathDictionaryCodec.encode(syncData).length, equalTo(jsonCodec.encode(syncData).length));
+    }
+
+    @Test
+    public void pathDictionaryMatchesLongestPrefix() throws Exception {
+    	PathDictionary pathDictionary = new PathDictionary();
+    	pathDictionary.define(Collections.singletonMap(0, "/sections"));
+    	pathDictionary.define(Collections.singletonMap(1, "/sections/12/paragraphs"));
+
+    	Assert.assertThat(pathDictionary.encode(JacksonUtils.toJsonPointer("/sections/12/paragraphs/3/title")), equalTo("#1/3/title"));
+    	Assert.assertThat(pathDictionary.encode(JacksonUtils.toJsonPointer("/sections/4/title")), equalTo("#0/4/title"));
+    	Assert.assertThat(pathDictionary.decode("#1/3/title"), equalTo(JacksonUtils.toJsonPointer("/sections/12/paragraphs/3/title")));
+    }
+
+    private SyncData syncData(long version, String title) {
+    	List<PatchOperation> operations = new ArrayList<>();
+    	for (int i = 0; i < 3; ++i) {
+    		JsonNode value = mapper.valueToTree(title + "-" + i);
+    		operations.add(new ReplaceOperation(JacksonUtils.toJsonPointer("/sections/12/paragraphs/3/title"), value));
+    		operations.add(new ReplaceOperation(JacksonUtils.toJsonPointer("/sections/12/paragraphs/3/subtitle"), value));
+    	}
+    	operations.add(new MoveOperation(JacksonUtils.toJsonPointer("/sections/12/paragraphs/3/note"), JacksonUtils.toJsonPointer("/sections/12/paragraphs/4/note")));
+
+    	SyncData syncData = new SyncData();
+    	syncData.setVersion(version);
+    	syncData.setMasterVersion(version + 1);
+    	syncData.setTargetChecksum("3c2a0f1b");
+    	syncData.setOperations(operations);
+    	return syncData;
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.shagaba.jacksync.crdt;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.support.dto.Post;
+
+public class CrdtSyncProcessorTest extends BaseTest {
+
+	private CrdtSyncProcessor<Post> replicaA;
+
+	private CrdtSyncProcessor<Post> replicaB;
+
+	private Post post;
+
+    @Before
+    public void beforeEach() throws Exception {
+    	mapper = newObjectMapper();
+    	replicaA = new CrdtSyncProcessor<>(mapper, Post.class, "a");
+    	replicaB = new CrdtSyncProcessor<>(mapper, Post.class, "b");
+
+    	post = new Post();
+    	post.setId("1");
+    	post.setTitle("my title");
+    	post.setTags(new ArrayList<>(Arrays.asList("java", "json")));
+    	post.setCategories(new ArrayList<>(Arrays.asList("sync")));
+    	replicaB.merge(replicaA.update(post));
+    }
+
+    @Test
+    public void concurrentChangesConverge() throws Exception {
+    	Post postA = replicaA.getObject();
+    	postA.setTitle("title of a");
+    	postA.getTags().add(0, "jackson");
+    	CrdtDelta deltaA = replicaA.update(postA);
+
+    	Post postB = replicaB.getObject();
+    	postB.getTags().add("patch");
+    	postB.getCategories().clear();
+    	CrdtDelta deltaB = replicaB.update(postB);
+
+    	Post mergedA = replicaA.merge(deltaB);
+    	Post mergedB = replicaB.merge(deltaA);
+
+    	Assert.assertThat(mergedA, equalTo(mergedB));
+    	Assert.assertThat(mergedA.getTitle(), equalTo("title of a"));
+    	Assert.assertThat(mergedA.getTags(), equalTo(Arrays.asList("jackson", "java", "json", "patch")));
+    	Assert.assertThat(mergedA.getCategories(), equalTo(Arrays.asList()));
+    }
+
+    @Test
+    public void reorderedAndDuplicatedDeltasConverge() throws Exception {
+    	Post postA = replicaA.getObject();
+    	postA.setTitle("first");
+    	CrdtDelta firstDelta = replicaA.update(postA);
+    	postA.getTags().remove("java");
+    	postA.setTitle("second");
+    	CrdtDelta secondDelta = replicaA.update(postA);
+
+    	replicaB.merge(secondDelta);
+    	replicaB.merge(firstDelta);
+    	Post mergedB = replicaB.merge(secondDelta);
+
+    	Assert.assertThat(mergedB, equalTo(replicaA.getObject()));
+    	Assert.assertThat(mergedB.getTitle(), equalTo("second"));
+    	Assert.assertThat(mergedB.getTags(), equalTo(Arrays.asList("json")));
+    }
+
+    @Test
+    public void serializedDeltasAndStatesAreMerged() throws Exception {
+    	Post postA = replicaA.getObject();
+    	postA.setTitle("sent title");
+    	postA.getCategories().add("crdt");
+    	CrdtDelta delta = replicaA.update(postA);
+
+    	String deltaJson = mapper.writeValueAsString(delta);
+    	Post mergedB = replicaB.merge(mapper.readValue(deltaJson, CrdtDelta.class));
+    	Assert.assertThat(mergedB, equalTo(replicaA.getObject()));
+
+    	// a new replica starts from the state of another
+    	CrdtSyncProcessor<Post> replicaC = new CrdtSyncProcessor<>(mapper, Post.class, "c");
+    	String stateJson = mapper.writeValueAsString(replicaB.getState());
+    	Post mergedC = replicaC.merge(mapper.readValue(stateJson, CrdtDelta.class));
+    	Assert.assertThat(mergedC, equalTo(mergedB));
+
+    	Assert.assertThat(replicaC.update(mergedC).isEmpty(), equalTo(true));
+    }
+
+}
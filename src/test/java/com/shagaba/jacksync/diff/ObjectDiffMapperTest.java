@@ -4,15 +4,20 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.diff.strategy.SampledScopeDiffStrategy;
+import com.shagaba.jacksync.diff.strategy.SimpleDiffStrategy;
 import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.patch.ObjectPatchProcessor;
 import com.shagaba.jacksync.support.dto.Author;
 import com.shagaba.jacksync.support.dto.Post;
 import com.shagaba.jacksync.support.dto.Section;
@@ -401,4 +406,46 @@ public class ObjectDiffMapperTest extends BaseTest {
 	    Assert.assertThat(syncdJsonNode, equalTo(targetJsonNode));
     }
 
+    @Test
+    public void hintedDiffSerializesHintedPropertiesOnly() throws Exception {
+    	HeavyPost source = new HeavyPost();
+    	source.setTitle("title-1");
+    	HeavyPost target = new HeavyPost();
+    	target.setTitle("title-2");
+
+    	// the unhinted heavy property is not read
+    	List<PatchOperation> operations = new ObjectDiffMapper(mapper).diff(source, target, Collections.singleton(JsonPointer.compile("/title")));
+    	Assert.assertThat(operations, hasSize(1));
+    	Assert.assertThat(operations.get(0).getPath(), equalTo(JsonPointer.compile("/title")));
+    	try {
+    		diffMapper.diff(source, target);
+    		Assert.fail("The full diff reads the heavy property");
+    	} catch (IllegalArgumentException e) {
+    	}
+    }
+
+    @Test
+    public void wrongHintIsValidatedThroughPojos() throws Exception {
+    	Post source = new Post();
+    	source.setTitle("title-1");
+    	source.setAuthor(new Author("James", "Bond", "james.bond@007.com"));
+    	Post target = new Post();
+    	target.setTitle("title-2");
+    	target.setAuthor(new Author("James", "Bond", "007@mi6.gov.uk"));
+
+    	// the author is not hinted, the strategy falls back to a full diff
+    	SampledScopeDiffStrategy diffStrategy = new SampledScopeDiffStrategy(new SimpleDiffStrategy(), Integer.MAX_VALUE);
+    	List<PatchOperation> operations = new ObjectDiffMapper(mapper, diffStrategy).diff(source, target, Collections.singleton(JsonPointer.compile("/title")));
+    	Assert.assertThat(diffStrategy.getFallbackCount(), equalTo(1L));
+    	Assert.assertThat(operations, hasSize(2));
+    	Assert.assertThat(new ObjectPatchProcessor(mapper).patch(source, operations), equalTo(target));
+    }
+
+    public static class HeavyPost extends Post {
+
+    	public String getHeavy() {
+    		throw new UnsupportedOperationException("heavy");
+    	}
+    }
+
 }
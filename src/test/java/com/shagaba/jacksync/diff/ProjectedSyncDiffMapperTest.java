@@ -0,0 +1,122 @@
+package com.shagaba.jacksync.diff;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.diff.policy.DiffPolicies;
+import com.shagaba.jacksync.diff.strategy.SimpleDiffStrategy;
+import com.shagaba.jacksync.support.dto.Author;
+import com.shagaba.jacksync.support.dto.Post;
+import com.shagaba.jacksync.support.dto.Product;
+import com.shagaba.jacksync.support.dto.Section;
+import com.shagaba.jacksync.sync.LocalSyncProcessor;
+import com.shagaba.jacksync.sync.SyncData;
+import com.shagaba.jacksync.sync.SyncObject;
+import com.shagaba.jacksync.utils.NumericNodeComparator;
+
+public class ProjectedSyncDiffMapperTest extends BaseTest {
+
+	private ProjectedSyncDiffMapper projectedSyncDiffMapper;
+
+	private LocalSyncProcessor syncProcessor;
+
+    @Before
+    public void beforeEach() {
+    	mapper = newObjectMapper();
+    	projectedSyncDiffMapper = new ProjectedSyncDiffMapper(mapper);
+    	projectedSyncDiffMapper.addProjection("public", Collections.emptySet(),
+    			Arrays.asList(JsonPointer.compile("/author/email"), JsonPointer.compile("/sections/0/privateNote")));
+    	projectedSyncDiffMapper.addProjection("author", Collections.singleton(JsonPointer.compile("/author")), Collections.emptySet());
+    	syncProcessor = new LocalSyncProcessor(mapper);
+    	syncProcessor.setChecksumValidationEnabled(true);
+    }
+
+    @Test
+    public void projectionsAreSyncedFromOneDiff() throws Exception {
+    	SyncObject<Post> source = new SyncObject<Post>(1L, post("title-1", new Author("James", "Bond", "james.bond@mi6.com"), "note-1"));
+    	SyncObject<Post> target = new SyncObject<Post>(2L, post("title-2", new Author("James", "Bond", "007@mi6.com"), "note-2"));
+
+    	Map<String, SyncData> syncDataByProjection = projectedSyncDiffMapper.diff(source, target);
+
+    	for (String projection : Arrays.asList("public", "author")) {
+    		SyncObject<Post> clientObject = projectedSyncDiffMapper.project(projection, source);
+    		// the projected checksum is verified on the client
+    		clientObject = syncProcessor.clientSync(clientObject, syncDataByProjection.get(projection));
+    		Assert.assertThat(clientObject.getVersion(), equalTo(2L));
+    		Assert.assertThat(clientObject.getObject(), equalTo(projectedSyncDiffMapper.project(projection, target).getObject()));
+    	}
+    	// the hidden email and note changes are not sent to the public view
+    	Assert.assertThat(syncDataByProjection.get("public").getOperations().size(), equalTo(1));
+    	Post publicPost = projectedSyncDiffMapper.project("public", target).getObject();
+    	Assert.assertThat(publicPost.getTitle(), equalTo("title-2"));
+    	Assert.assertThat(publicPost.getAuthor().getEmail(), nullValue());
+    	Assert.assertThat(publicPost.getSections().get(0).getPrivateNote(), nullValue());
+    	Post authorPost = projectedSyncDiffMapper.project("author", target).getObject();
+    	Assert.assertThat(authorPost.getTitle(), nullValue());
+    	Assert.assertThat(authorPost.getAuthor().getEmail(), equalTo("007@mi6.com"));
+    }
+
+    @Test
+    public void ancestorReplaceIsProjected() throws Exception {
+    	SyncObject<Post> source = new SyncObject<Post>(1L, post("title-1", null, "note-1"));
+    	SyncObject<Post> target = new SyncObject<Post>(2L, post("title-1", new Author("James", "Bond", "james.bond@mi6.com"), "note-1"));
+
+    	SyncData syncData = projectedSyncDiffMapper.diff(source, target).get("public");
+
+    	SyncObject<Post> clientObject = syncProcessor.clientSync(projectedSyncDiffMapper.project("public", source), syncData);
+    	Assert.assertThat(clientObject.getObject().getAuthor().getFirstName(), equalTo("James"));
+    	Assert.assertThat(clientObject.getObject().getAuthor().getEmail(), nullValue());
+    }
+
+    @Test
+    public void projectionsHonorDiffPolicies() throws Exception {
+    	projectedSyncDiffMapper = new ProjectedSyncDiffMapper(mapper, new SimpleDiffStrategy(new DiffPolicies(mapper)), true);
+    	projectedSyncDiffMapper.addProjection("public", Collections.emptySet(), Collections.emptySet());
+    	Product sourceProduct = new Product("p-1", "Widget", 9.99);
+    	sourceProduct.setViewCount(1L);
+    	Product targetProduct = new Product("p-1", "Widget", 9.99);
+    	targetProduct.setViewCount(100L);
+
+    	SyncData syncData = projectedSyncDiffMapper.diff(new SyncObject<Product>(1L, sourceProduct), new SyncObject<Product>(2L, targetProduct)).get("public");
+
+    	// the ignored view count is not sent, nor checked
+    	Assert.assertThat(syncData.getOperations().isEmpty(), equalTo(true));
+    	SyncObject<Product> clientObject = syncProcessor.clientSync(new SyncObject<Product>(1L, sourceProduct), syncData);
+    	Assert.assertThat(clientObject.getObject().getViewCount(), equalTo(1L));
+    }
+
+    @Test
+    public void projectionsHonorNodeComparator() throws Exception {
+    	projectedSyncDiffMapper = new ProjectedSyncDiffMapper(mapper, new SimpleDiffStrategy(null, new NumericNodeComparator(0.01)), true);
+    	projectedSyncDiffMapper.addProjection("public", Collections.emptySet(), Collections.emptySet());
+    	Product sourceProduct = new Product("p-1", "Widget", 1.0);
+    	Product targetProduct = new Product("p-1", "Widget", 1.001);
+
+    	SyncData syncData = projectedSyncDiffMapper.diff(new SyncObject<Product>(1L, sourceProduct), new SyncObject<Product>(2L, targetProduct)).get("public");
+
+    	// the tolerated price change is not sent, nor checked
+    	Assert.assertThat(syncData.getOperations().isEmpty(), equalTo(true));
+    	SyncObject<Product> clientObject = syncProcessor.clientSync(new SyncObject<Product>(1L, sourceProduct), syncData);
+    	Assert.assertThat(clientObject.getObject().getPrice(), equalTo(1.0));
+    }
+
+    private Post post(String title, Author author, String privateNote) {
+    	Post post = new Post();
+    	post.setTitle(title);
+    	post.setAuthor(author);
+    	post.setSections(new ArrayList<>(Collections.singletonList(new Section("section-0", new ArrayList<>(), privateNote))));
+    	return post;
+    }
+
+}
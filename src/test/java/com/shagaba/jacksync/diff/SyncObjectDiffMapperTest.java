@@ -11,13 +11,18 @@ import org.junit.Test;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.diff.policy.DiffPolicies;
 import com.shagaba.jacksync.diff.strategy.MergeOperationDiffStrategy;
+import com.shagaba.jacksync.diff.strategy.SimpleDiffStrategy;
 import com.shagaba.jacksync.operation.PatchOperation;
 import com.shagaba.jacksync.support.dto.Author;
 import com.shagaba.jacksync.support.dto.Post;
+import com.shagaba.jacksync.support.dto.Product;
 import com.shagaba.jacksync.support.dto.Section;
+import com.shagaba.jacksync.sync.LocalSyncProcessor;
 import com.shagaba.jacksync.sync.SyncData;
 import com.shagaba.jacksync.sync.SyncObject;
+import com.shagaba.jacksync.utils.NumericNodeComparator;
 
 public class SyncObjectDiffMapperTest extends BaseTest {
 
@@ -446,4 +451,99 @@ public class SyncObjectDiffMapperTest extends BaseTest {
 	    Assert.assertThat(syncdJsonNode, equalTo(targetJsonNode));
     }
 
+    @Test
+    public void snapshotWhenCheaperThanOperations() throws Exception {
+    	Post postV1 = new Post();
+    	postV1.setTags(new ArrayList<String>());
+    	Post postV2 = new Post();
+    	postV2.setTags(new ArrayList<String>());
+    	// every tag changed, the operations outweigh the target
+    	for (int i = 0; i < 100; ++i) {
+    		postV1.getTags().add("a" + i);
+    		postV2.getTags().add("b" + i);
+    	}
+    	SyncObjectDiffMapper snapshotDiffMapper = new SyncObjectDiffMapper(mapper);
+    	snapshotDiffMapper.setSnapshotEnabled(true);
+
+		SyncData syncData = snapshotDiffMapper.diff(new SyncObject<Post>(1L, postV1), new SyncObject<Post>(2L, postV2));
+
+	    Assert.assertThat(syncData.isSnapshot(), equalTo(true));
+	    LocalSyncProcessor syncProcessor = new LocalSyncProcessor(mapper);
+	    Assert.assertThat(syncProcessor.clientSync(new SyncObject<Post>(1L, postV1), syncData).getObject(), equalTo(postV2));
+    }
+
+    @Test
+    public void operationsWhenCheaperThanSnapshot() throws Exception {
+    	Post postV1 = new Post();
+    	postV1.setSections(new ArrayList<Section>());
+    	for (int i = 0; i < 10; ++i) {
+    		postV1.getSections().add(new Section("section-" + i, null));
+    	}
+    	Post postV2 = mapper.treeToValue(mapper.valueToTree(postV1), Post.class);
+    	postV2.setTitle("title");
+    	SyncObjectDiffMapper snapshotDiffMapper = new SyncObjectDiffMapper(mapper);
+    	snapshotDiffMapper.setSnapshotEnabled(true);
+
+		SyncData syncData = snapshotDiffMapper.diff(new SyncObject<Post>(1L, postV1), new SyncObject<Post>(2L, postV2));
+
+	    Assert.assertThat(syncData.isSnapshot(), equalTo(false));
+	    Assert.assertThat(syncData.getOperations(), hasSize(1));
+    }
+
+    @Test
+    public void unchangedByCachedChecksum() throws Exception {
+    	Post postV1 = new Post();
+    	postV1.setTitle("title");
+    	Post postV2 = new Post();
+    	postV2.setTitle("title");
+    	SyncObjectDiffMapper checksumDiffMapper = new SyncObjectDiffMapper(mapper, new SimpleDiffStrategy(), true);
+    	SyncObject<Post> source = new SyncObject<Post>(1L, postV1);
+    	checksumDiffMapper.diff(source, source);
+
+		SyncData syncData = checksumDiffMapper.diff(source, new SyncObject<Post>(2L, postV2, source.getChecksum()));
+
+	    Assert.assertThat(syncData.getOperations(), hasSize(0));
+	    Assert.assertThat(syncData.getTargetChecksum(), equalTo(source.getChecksum()));
+	    Assert.assertThat(syncData.getMasterVersion(), equalTo(2L));
+    }
+
+    @Test
+    public void checksumLeavesOutDifferencesIgnoredByPolicies() throws Exception {
+    	syncDiffMapper = new SyncObjectDiffMapper(mapper, new SimpleDiffStrategy(new DiffPolicies(mapper)), true);
+    	LocalSyncProcessor syncProcessor = new LocalSyncProcessor(mapper);
+    	syncProcessor.setChecksumValidationEnabled(true);
+    	Product sourceProduct = new Product("p-1", "Widget", 9.99);
+    	sourceProduct.setViewCount(1L);
+    	Product targetProduct = new Product("p-1", "WIDGET", 9.995);
+    	targetProduct.setViewCount(100L);
+
+    	SyncData syncData = syncDiffMapper.diff(new SyncObject<Product>(1L, sourceProduct), new SyncObject<Product>(2L, targetProduct));
+
+    	// the ignored, tolerated and case insensitive changes send no operation, and the client checksum matches
+    	Assert.assertThat(syncData.getOperations(), hasSize(0));
+    	SyncObject<Product> clientObject = syncProcessor.clientSync(new SyncObject<Product>(1L, sourceProduct), syncData);
+    	Assert.assertThat(clientObject.getVersion(), equalTo(2L));
+    	Assert.assertThat(clientObject.getObject().getViewCount(), equalTo(1L));
+    	targetProduct.setSupplier(new Author("James", "Bond", "007@mi6.com"));
+    	syncData = syncDiffMapper.diff(new SyncObject<Product>(1L, sourceProduct), new SyncObject<Product>(2L, targetProduct));
+    	clientObject = syncProcessor.clientSync(new SyncObject<Product>(1L, sourceProduct), syncData);
+    	Assert.assertThat(clientObject.getObject().getSupplier(), equalTo(targetProduct.getSupplier()));
+    }
+
+    @Test
+    public void checksumLeavesOutDifferencesToleratedByComparator() throws Exception {
+    	syncDiffMapper = new SyncObjectDiffMapper(mapper, new SimpleDiffStrategy(null, new NumericNodeComparator(0.01)), true);
+    	LocalSyncProcessor syncProcessor = new LocalSyncProcessor(mapper);
+    	syncProcessor.setChecksumValidationEnabled(true);
+    	Product sourceProduct = new Product("p-1", "Widget", 1.0);
+    	Product targetProduct = new Product("p-1", "Widget", 1.001);
+
+    	SyncData syncData = syncDiffMapper.diff(new SyncObject<Product>(1L, sourceProduct), new SyncObject<Product>(2L, targetProduct));
+
+    	// the tolerated price change sends no operation, and the client checksum matches
+    	Assert.assertThat(syncData.getOperations(), hasSize(0));
+    	SyncObject<Product> clientObject = syncProcessor.clientSync(new SyncObject<Product>(1L, sourceProduct), syncData);
+    	Assert.assertThat(clientObject.getObject().getPrice(), equalTo(1.0));
+    }
+
 }
@@ -0,0 +1,134 @@
+package com.shagaba.jacksync.diff.policy;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.diff.ObjectDiffMapper;
+import com.shagaba.jacksync.diff.strategy.MergeOperationDiffStrategy;
+import com.shagaba.jacksync.diff.strategy.SimpleDiffStrategy;
+import com.shagaba.jacksync.operation.MoveOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+import com.shagaba.jacksync.patch.ObjectPatchProcessor;
+import com.shagaba.jacksync.support.dto.Author;
+import com.shagaba.jacksync.support.dto.Product;
+import com.shagaba.jacksync.support.dto.Variant;
+
+public class DiffPoliciesTest extends BaseTest {
+
+	private Product sourceProduct;
+
+	private Product targetProduct;
+
+    @Before
+    public void beforeEach() {
+    	mapper = newObjectMapper();
+    	sourceProduct = new Product("p-1", "Widget", 9.99);
+    	sourceProduct.setViewCount(1L);
+    	sourceProduct.setSupplier(new Author("James", "Bond", "james.bond@mi6.com"));
+    	sourceProduct.setVariants(new ArrayList<>(Arrays.asList(new Variant("s-1", "red", 1), new Variant("s-2", "blue", 2), new Variant("s-3", "green", 3))));
+    	targetProduct = new Product("p-1", "WIDGET", 9.995);
+    	targetProduct.setViewCount(100L);
+    	targetProduct.setSupplier(new Author("James", "Bond", "007@mi6.com"));
+    	targetProduct.setVariants(new ArrayList<>(Arrays.asList(new Variant("s-3", "green", 30), new Variant("s-1", "red", 1), new Variant("s-4", "yellow", 4))));
+    }
+
+    @Test
+    public void simpleDiffStrategyHonorsPolicies() throws Exception {
+    	List<PatchOperation> operations = new ObjectDiffMapper(mapper, new SimpleDiffStrategy(new DiffPolicies(mapper))).diff(sourceProduct, targetProduct);
+
+    	Assert.assertThat(operations.size(), equalTo(5));
+    	Assert.assertThat(operations.get(0).getPath(), equalTo(JsonPointer.compile("/supplier")));
+    	Assert.assertThat(operations.get(0) instanceof ReplaceOperation, equalTo(true));
+    	Assert.assertThat(operations.get(2) instanceof MoveOperation, equalTo(true));
+    	Assert.assertThat(operations.get(3).getPath(), equalTo(JsonPointer.compile("/variants/0/stock")));
+    	Product patchedProduct = new ObjectPatchProcessor(mapper).patch(sourceProduct, operations);
+    	Assert.assertThat(patchedProduct.getName(), equalTo("Widget"));
+    	Assert.assertThat(patchedProduct.getViewCount(), equalTo(1L));
+    	Assert.assertThat(mapper.valueToTree(patchedProduct.getVariants()), equalTo(mapper.valueToTree(targetProduct.getVariants())));
+    	Assert.assertThat(patchedProduct.getSupplier(), equalTo(targetProduct.getSupplier()));
+    	// the policies apply to typed diffs only
+    	Assert.assertThat(new SimpleDiffStrategy(new DiffPolicies(mapper)).diff(mapper.valueToTree(sourceProduct), mapper.valueToTree(targetProduct)).size(), equalTo(8));
+    }
+
+    @Test
+    public void hintedDiffHonorsPolicies() throws Exception {
+    	List<JsonPointer> paths = Arrays.asList(JsonPointer.compile("/name"), JsonPointer.compile("/viewCount"),
+    			JsonPointer.compile("/supplier/email"), JsonPointer.compile("/variants"));
+
+    	List<PatchOperation> operations = new ObjectDiffMapper(mapper, new SimpleDiffStrategy(new DiffPolicies(mapper))).diff(sourceProduct, targetProduct, paths);
+
+    	// the ignored hint is dropped, and the hint below the atomic supplier is lifted to it
+    	Assert.assertThat(operations.size(), equalTo(5));
+    	Assert.assertThat(operations.get(0).getPath(), equalTo(JsonPointer.compile("/supplier")));
+    	Assert.assertThat(operations.get(0) instanceof ReplaceOperation, equalTo(true));
+    	Product patchedProduct = new ObjectPatchProcessor(mapper).patch(sourceProduct, operations);
+    	Assert.assertThat(patchedProduct.getName(), equalTo("Widget"));
+    	Assert.assertThat(patchedProduct.getViewCount(), equalTo(1L));
+    	Assert.assertThat(mapper.valueToTree(patchedProduct.getVariants()), equalTo(mapper.valueToTree(targetProduct.getVariants())));
+    	Assert.assertThat(patchedProduct.getSupplier(), equalTo(targetProduct.getSupplier()));
+    }
+
+    @Test
+    public void mergeOperationDiffStrategyKeepsAtomicReplacements() throws Exception {
+    	targetProduct.setSupplier(new Author("M", null, null));
+
+    	List<PatchOperation> operations = new ObjectDiffMapper(mapper, new MergeOperationDiffStrategy(new DiffPolicies(mapper))).diff(sourceProduct, targetProduct);
+
+    	// the replacement keeps its position
+    	Assert.assertThat(operations.get(0) instanceof ReplaceOperation, equalTo(true));
+    	Assert.assertThat(operations.get(0).getPath(), equalTo(JsonPointer.compile("/supplier")));
+    	Product patchedProduct = new ObjectPatchProcessor(mapper).patch(sourceProduct, operations);
+    	Assert.assertThat(patchedProduct.getSupplier(), equalTo(targetProduct.getSupplier()));
+    	Assert.assertThat(mapper.valueToTree(patchedProduct.getVariants()), equalTo(mapper.valueToTree(targetProduct.getVariants())));
+    }
+
+    @Test
+    public void mergeOperationDiffStrategyKeepsShiftedAtomicReplacements() throws Exception {
+    	mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    	Shelf sourceShelf = new Shelf();
+    	sourceShelf.items.add(new Item("a", null));
+    	sourceShelf.items.add(new Item("b", new Author("James", "Bond", "james.bond@mi6.com")));
+    	Shelf targetShelf = new Shelf();
+    	targetShelf.items.add(new Item("b", new Author("M", null, null)));
+
+    	List<PatchOperation> operations = new ObjectDiffMapper(mapper, new MergeOperationDiffStrategy(new DiffPolicies(mapper))).diff(sourceShelf, targetShelf);
+
+    	// the owner of the item shifted by the removal is replaced, not merged
+    	Shelf patchedShelf = new ObjectPatchProcessor(mapper).patch(sourceShelf, operations);
+    	Assert.assertThat(mapper.valueToTree(patchedShelf), equalTo(mapper.valueToTree(targetShelf)));
+    }
+
+    public static class Shelf {
+
+    	@DiffIdentity("sku")
+    	public List<Item> items = new ArrayList<>();
+    }
+
+    public static class Item {
+
+    	public String sku;
+
+    	@DiffAtomic
+    	public Author owner;
+
+    	public Item() {
+    	}
+
+    	public Item(String sku, Author owner) {
+    		this.sku = sku;
+    		this.owner = owner;
+    	}
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.shagaba.jacksync.diff.strategy;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.support.dto.Author;
+import com.shagaba.jacksync.support.dto.Post;
+import com.shagaba.jacksync.support.dto.Section;
+
+public class SampledScopeDiffStrategyTest extends BaseTest {
+
+	private SampledScopeDiffStrategy sampledScopeDiffStrategy;
+
+	private Post sourcePost;
+
+    @Before
+    public void beforeEach() {
+    	mapper = newObjectMapper();
+    	sampledScopeDiffStrategy = new SampledScopeDiffStrategy(new SimpleDiffStrategy(), Integer.MAX_VALUE);
+    	sourcePost = new Post();
+    	sourcePost.setTitle("title");
+    	sourcePost.setAuthor(new Author("James", "Bond", "james.bond@mi6.com"));
+    	sourcePost.setSections(new ArrayList<>(Arrays.asList(new Section("section-0"), new Section("section-1"))));
+    }
+
+    @Test
+    public void hintedSubtreesAreDiffedAtAbsolutePaths() throws Exception {
+    	Post targetPost = copy(sourcePost);
+    	targetPost.getAuthor().setEmail("007@mi6.com");
+    	targetPost.getSections().get(1).setTitle("section-1b");
+    	JsonNode sourceJsonNode = mapper.valueToTree(sourcePost);
+    	JsonNode targetJsonNode = mapper.valueToTree(targetPost);
+
+    	List<PatchOperation> operations = sampledScopeDiffStrategy.diff(sourceJsonNode, targetJsonNode,
+    			Arrays.asList(JsonPointer.compile("/author"), JsonPointer.compile("/sections/1"), JsonPointer.compile("/author/email")));
+
+    	Assert.assertThat(operations.size(), equalTo(2));
+    	Assert.assertThat(operations.get(0).getPath(), equalTo(JsonPointer.compile("/author/email")));
+    	Assert.assertThat(operations.get(1).getPath(), equalTo(JsonPointer.compile("/sections/1/title")));
+    	Assert.assertThat(sampledScopeDiffStrategy.getFallbackCount(), equalTo(0L));
+    }
+
+    @Test
+    public void missingHintIsLiftedToItsContainer() throws Exception {
+    	JsonNode sourceJsonNode = mapper.valueToTree(sourcePost);
+    	JsonNode targetJsonNode = sourceJsonNode.deepCopy();
+    	((ObjectNode) targetJsonNode.get("author")).put("nickname", "007");
+
+    	List<PatchOperation> operations = new MergeOperationDiffStrategy().diff(sourceJsonNode, targetJsonNode,
+    			Collections.singleton(JsonPointer.compile("/author/nickname")));
+
+    	Assert.assertThat(operations.size(), equalTo(1));
+    	Assert.assertThat(operations.get(0).apply(sourceJsonNode.deepCopy()), equalTo(targetJsonNode));
+    	operations = sampledScopeDiffStrategy.diff(sourceJsonNode, targetJsonNode, Collections.singleton(JsonPointer.compile("/author/nickname")));
+    	Assert.assertThat(operations.size(), equalTo(1));
+    	Assert.assertThat(operations.get(0) instanceof AddOperation, equalTo(true));
+    }
+
+    @Test
+    public void wrongHintFallsBackToFullDiff() throws Exception {
+    	Post targetPost = copy(sourcePost);
+    	targetPost.setTitle("title-2");
+    	targetPost.getAuthor().setEmail("007@mi6.com");
+    	JsonNode sourceJsonNode = mapper.valueToTree(sourcePost);
+    	JsonNode targetJsonNode = mapper.valueToTree(targetPost);
+
+    	List<PatchOperation> operations = sampledScopeDiffStrategy.diff(sourceJsonNode, targetJsonNode, Collections.singleton(JsonPointer.compile("/author")));
+
+    	Assert.assertThat(operations.size(), equalTo(2));
+    	Assert.assertThat(sampledScopeDiffStrategy.getFallbackCount(), equalTo(1L));
+    	// a changed array length on the way to a hint is always detected
+    	targetPost = copy(sourcePost);
+    	targetPost.getSections().add(new Section("section-2"));
+    	targetPost.getSections().get(0).setTitle("section-0b");
+    	operations = new SampledScopeDiffStrategy(new SimpleDiffStrategy(), 0).diff(sourceJsonNode, mapper.valueToTree(targetPost),
+    			Collections.singleton(JsonPointer.compile("/sections/0")));
+    	Assert.assertThat(operations.size(), equalTo(2));
+    }
+
+    private Post copy(Post post) throws Exception {
+    	return mapper.treeToValue(mapper.valueToTree(post), Post.class);
+    }
+
+}
@@ -0,0 +1,160 @@
+package com.shagaba.jacksync.flow;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.diff.SyncObjectDiffMapper;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+import com.shagaba.jacksync.support.dto.Post;
+import com.shagaba.jacksync.sync.LocalSyncProcessor;
+import com.shagaba.jacksync.sync.SyncData;
+import com.shagaba.jacksync.sync.SyncObject;
+
+public class SyncDataPublisherTest extends BaseTest {
+
+	private SyncDataPublisher<Post> syncDataPublisher;
+
+	private LocalSyncProcessor syncProcessor;
+
+    @Before
+    public void beforeEach() {
+    	mapper = newObjectMapper();
+    	syncProcessor = new LocalSyncProcessor(mapper);
+    	// callbacks run in the calling thread
+    	syncDataPublisher = new SyncDataPublisher<>(mapper, new SyncObjectDiffMapper(mapper), titlePost(1L, "title-1"), Runnable::run);
+    }
+
+    @Test
+    public void subscriberReceivesSnapshotThenRequestedVersions() throws Exception {
+    	TestSubscriber subscriber = new TestSubscriber(1);
+    	syncDataPublisher.subscribe(subscriber);
+
+    	Assert.assertThat(subscriber.items.size(), equalTo(1));
+    	Assert.assertThat(subscriber.items.get(0).isSnapshot(), equalTo(true));
+    	syncDataPublisher.publish(titlePost(2L, "title-2"));
+    	Assert.assertThat(subscriber.items.size(), equalTo(1));
+
+    	subscriber.subscription.request(1);
+    	Assert.assertThat(subscriber.items.size(), equalTo(2));
+    	Assert.assertThat(subscriber.items.get(1).getMasterVersion(), equalTo(2L));
+    	Assert.assertThat(subscriber.apply().getObject().getTitle(), equalTo("title-2"));
+    }
+
+    @Test
+    public void slowSubscriberReceivesConflatedVersions() throws Exception {
+    	TestSubscriber subscriber = new TestSubscriber(1);
+    	syncDataPublisher.subscribe(subscriber);
+    	for (long version = 2; version <= 50; ++version) {
+    		syncDataPublisher.publish(titlePost(version, "title-" + version));
+    	}
+
+    	subscriber.subscription.request(Long.MAX_VALUE);
+    	syncDataPublisher.close();
+
+    	// the snapshot and a conflated syncData to the head
+    	Assert.assertThat(subscriber.items.size(), equalTo(2));
+    	SyncObject<Post> post = subscriber.apply();
+    	Assert.assertThat(post.getVersion(), equalTo(50L));
+    	Assert.assertThat(post.getObject().getTitle(), equalTo("title-50"));
+    	Assert.assertThat(subscriber.isComplete, equalTo(true));
+    	Assert.assertThat(syncDataPublisher.getSubscriberCount(), equalTo(0));
+    }
+
+    @Test
+    public void invalidRequestFailsSubscription() throws Exception {
+    	TestSubscriber subscriber = new TestSubscriber(0);
+    	syncDataPublisher.subscribe(subscriber);
+
+    	subscriber.subscription.request(0);
+
+    	Assert.assertThat(subscriber.error instanceof IllegalArgumentException, equalTo(true));
+    	Assert.assertThat(syncDataPublisher.getSubscriberCount(), equalTo(0));
+    }
+
+    @Test
+    public void throwingSubscriberIsCancelled() throws Exception {
+    	TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE) {
+    		@Override
+    		public void onNext(SyncData item) {
+    			super.onNext(item);
+    			if (!item.isSnapshot()) {
+    				throw new IllegalStateException("onNext");
+    			}
+    		}
+    	};
+    	syncDataPublisher.subscribe(subscriber);
+    	TestSubscriber otherSubscriber = new TestSubscriber(Long.MAX_VALUE);
+    	syncDataPublisher.subscribe(otherSubscriber);
+
+    	syncDataPublisher.publish(titlePost(2L, "title-2"));
+    	syncDataPublisher.publish(titlePost(3L, "title-3"));
+
+    	Assert.assertThat(subscriber.items.size(), equalTo(2));
+    	Assert.assertThat(syncDataPublisher.getSubscriberCount(), equalTo(1));
+    	Assert.assertThat(otherSubscriber.apply().getObject().getTitle(), equalTo("title-3"));
+    	Assert.assertThat(((SyncDataPublisher<?>.SyncDataSubscription) subscriber.subscription).pendingDrains.get(), equalTo(0));
+    }
+
+    private SyncObject<Post> titlePost(long version, String title) {
+    	Post post = new Post();
+    	post.setTitle(title);
+    	return new SyncObject<Post>(version, post);
+    }
+
+    private class TestSubscriber implements SyncFlow.Subscriber<SyncData> {
+
+    	private final long initialRequest;
+
+    	private final List<SyncData> items = new ArrayList<>();
+
+    	private SyncFlow.Subscription subscription;
+
+    	private Throwable error;
+
+    	private boolean isComplete;
+
+    	private TestSubscriber(long initialRequest) {
+    		this.initialRequest = initialRequest;
+    	}
+
+		@Override
+		public void onSubscribe(SyncFlow.Subscription subscription) {
+			this.subscription = subscription;
+			if (initialRequest > 0) {
+				subscription.request(initialRequest);
+			}
+		}
+
+		@Override
+		public void onNext(SyncData item) {
+			items.add(item);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+		}
+
+		@Override
+		public void onComplete() {
+			isComplete = true;
+		}
+
+		private SyncObject<Post> apply() throws Exception {
+			ReplaceOperation snapshot = (ReplaceOperation) items.get(0).getOperations().get(0);
+			SyncObject<Post> post = new SyncObject<Post>(items.get(0).getMasterVersion(), mapper.treeToValue(snapshot.getValue(), Post.class));
+			for (SyncData syncData : items.subList(1, items.size())) {
+				post = syncProcessor.clientSync(post, syncData);
+			}
+			return post;
+		}
+    }
+
+}
@@ -0,0 +1,191 @@
+package com.shagaba.jacksync.log;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.hamcrest.number.OrderingComparison.greaterThan;
+
+import java.io.ByteArrayOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+import com.shagaba.jacksync.sync.SyncData;
+import com.shagaba.jacksync.utils.JacksonUtils;
+
+public class FileSyncLogTest extends BaseTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private Path directory;
+
+    @Before
+    public void beforeEach() throws Exception {
+    	mapper = newObjectMapper();
+    	directory = temporaryFolder.newFolder("sync-log").toPath();
+    }
+
+    @Test
+    public void appendAndRead() throws Exception {
+    	try (FileSyncLog syncLog = new FileSyncLog(mapper, directory)) {
+    		for (long version = 1; version <= 5; ++version) {
+    			syncLog.commit(syncLog.append("post-1", syncData(version)));
+    			syncLog.append("post-2", syncData(version));
+    		}
+
+    		List<SyncData> syncDataList = syncLog.read("post-1", 3L);
+    		Assert.assertThat(syncDataList, hasSize(3));
+    		Assert.assertThat(syncDataList.get(0).getVersion(), equalTo(3L));
+    		Assert.assertThat(syncDataList.get(2).getOperations().get(0).getPath().toString(), equalTo("/title"));
+    		Assert.assertThat(syncLog.read("post-3", 0L), hasSize(0));
+    	}
+    }
+
+    @Test
+    public void segmentsRollAndRecover() throws Exception {
+    	try (FileSyncLog syncLog = new FileSyncLog(mapper, directory, 512)) {
+    		for (long version = 1; version <= 20; ++version) {
+    			syncLog.append("post-1", syncData(version));
+    		}
+    	}
+    	Assert.assertThat(segmentPaths().size(), greaterThan(1));
+
+    	try (FileSyncLog syncLog = new FileSyncLog(mapper, directory, 512)) {
+    		Assert.assertThat(syncLog.read("post-1", 0L), hasSize(20));
+    		syncLog.append("post-1", syncData(21L));
+    		Assert.assertThat(syncLog.read("post-1", 20L), hasSize(2));
+    	}
+    }
+
+    @Test
+    public void recoveryStopsAtTornRecord() throws Exception {
+    	try (FileSyncLog syncLog = new FileSyncLog(mapper, directory, 4096)) {
+    		for (long version = 1; version <= 3; ++version) {
+    			syncLog.append("post-1", syncData(version));
+    		}
+    	}
+    	// corrupt the body of the last record
+    	Path segmentPath = segmentPaths().get(0);
+    	int recordSize;
+    	try (FileSyncLog syncLog = new FileSyncLog(mapper, directory, 4096)) {
+    		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    		recordSize = (int) syncLog.transferTo("post-1", 3L, Channels.newChannel(outputStream));
+    	}
+    	try (RandomAccessFile file = new RandomAccessFile(segmentPath.toFile(), "rw")) {
+    		file.seek(3L * recordSize - 2);
+    		file.write('#');
+    	}
+
+    	try (FileSyncLog syncLog = new FileSyncLog(mapper, directory, 4096)) {
+    		Assert.assertThat(syncLog.read("post-1", 0L), hasSize(2));
+    		syncLog.append("post-1", syncData(3L));
+    		Assert.assertThat(syncLog.read("post-1", 0L), hasSize(3));
+    	}
+    }
+
+    @Test
+    public void transferToAndDecode() throws Exception {
+    	try (FileSyncLog syncLog = new FileSyncLog(mapper, directory)) {
+    		for (long version = 1; version <= 4; ++version) {
+    			syncLog.append("post-1", syncData(version));
+    		}
+    		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    		long transferred = syncLog.transferTo("post-1", 2L, Channels.newChannel(outputStream));
+
+    		Assert.assertThat(transferred, equalTo((long) outputStream.size()));
+    		List<SyncData> syncDataList = FileSyncLog.decode(mapper, ByteBuffer.wrap(outputStream.toByteArray()));
+    		Assert.assertThat(syncDataList, hasSize(3));
+    		Assert.assertThat(syncDataList.get(2).getMasterVersion(), equalTo(5L));
+    	}
+    }
+
+    @Test
+    public void transferToResumesAfterShortWrite() throws Exception {
+    	try (FileSyncLog syncLog = new FileSyncLog(mapper, directory)) {
+    		for (long version = 1; version <= 4; ++version) {
+    			syncLog.append("post-1", syncData(version));
+    		}
+    		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    		long size = syncLog.transferTo("post-1", 1L, Channels.newChannel(new ByteArrayOutputStream()));
+    		long position = 0;
+    		int transfers = 0;
+    		while (position < size) {
+    			long transferred = syncLog.transferTo("post-1", 1L, position, new LimitedChannel(outputStream, 50));
+    			Assert.assertThat(transferred, equalTo(Math.min(50L, size - position)));
+    			position += transferred;
+    			++transfers;
+    		}
+
+    		Assert.assertThat(transfers, greaterThan(4));
+    		List<SyncData> syncDataList = FileSyncLog.decode(mapper, ByteBuffer.wrap(outputStream.toByteArray()));
+    		Assert.assertThat(syncDataList, hasSize(4));
+    		Assert.assertThat(syncDataList.get(3).getMasterVersion(), equalTo(5L));
+    	}
+    }
+
+    private SyncData syncData(long version) {
+    	SyncData syncData = new SyncData();
+    	syncData.setVersion(version);
+    	syncData.setMasterVersion(version + 1);
+    	ReplaceOperation replaceOperation = new ReplaceOperation(JacksonUtils.toJsonPointer("/title"), mapper.valueToTree("title " + version));
+    	syncData.setOperations(Arrays.asList((PatchOperation) replaceOperation));
+    	return syncData;
+    }
+
+    /**
+     * A non blocking channel taking up to a given number of bytes.
+     */
+    private static class LimitedChannel implements WritableByteChannel {
+
+    	private final ByteArrayOutputStream outputStream;
+
+    	private int capacity;
+
+    	private LimitedChannel(ByteArrayOutputStream outputStream, int capacity) {
+    		this.outputStream = outputStream;
+    		this.capacity = capacity;
+    	}
+
+    	@Override
+    	public int write(ByteBuffer src) {
+    		int count = Math.min(capacity, src.remaining());
+    		for (int i = 0; i < count; ++i) {
+    			outputStream.write(src.get());
+    		}
+    		capacity -= count;
+    		return count;
+    	}
+
+    	@Override
+    	public boolean isOpen() {
+    		return true;
+    	}
+
+    	@Override
+    	public void close() {
+    	}
+    }
+
+    private List<Path> segmentPaths() throws Exception {
+    	try (Stream<Path> paths = Files.list(directory)) {
+    		return paths.sorted().collect(Collectors.toList());
+    	}
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.shagaba.jacksync.node;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.RemoveOperation;
+import com.shagaba.jacksync.patch.ObjectPatchProcessor;
+import com.shagaba.jacksync.support.dto.Author;
+import com.shagaba.jacksync.support.dto.Post;
+import com.shagaba.jacksync.support.dto.Section;
+import com.shagaba.jacksync.sync.LocalSyncProcessor;
+import com.shagaba.jacksync.sync.SyncData;
+import com.shagaba.jacksync.sync.SyncObject;
+
+public class TrackingJsonNodeFactoryTest extends BaseTest {
+
+	private TrackingJsonNodeFactory trackingJsonNodeFactory;
+
+	private Post sourcePost;
+
+    @Before
+    public void beforeEach() {
+    	mapper = newObjectMapper();
+    	trackingJsonNodeFactory = new TrackingJsonNodeFactory();
+    	sourcePost = new Post();
+    	sourcePost.setTitle("title");
+    	sourcePost.setAuthor(new Author("James", "Bond", "james.bond@mi6.com"));
+    	sourcePost.setSections(new ArrayList<>(Arrays.asList(new Section("section-0"), new Section("section-1"))));
+    	sourcePost.setTags(new ArrayList<>(Arrays.asList("spy", "mi6")));
+    }
+
+    @Test
+    public void mutationsAreRecordedAsOperations() throws Exception {
+    	ObjectNode document = (ObjectNode) trackingJsonNodeFactory.track(mapper.valueToTree(sourcePost));
+
+    	document.put("title", "new title");
+    	((ObjectNode) document.get("author")).put("email", "007@mi6.com");
+    	ArrayNode sections = (ArrayNode) document.get("sections");
+    	// the new section is tracked once attached
+    	ObjectNode section = sections.insertObject(0);
+    	section.put("title", "section-new");
+    	sections.remove(2);
+    	((ObjectNode) sections.get(1)).put("title", "section-0b");
+    	((ArrayNode) document.get("tags")).add("007");
+    	document.remove("categories");
+
+    	List<PatchOperation> operations = trackingJsonNodeFactory.drainOperations();
+    	Assert.assertThat(operations.size(), equalTo(8));
+    	Assert.assertThat(operations.get(2) instanceof AddOperation, equalTo(true));
+    	Assert.assertThat(operations.get(2).getPath(), equalTo(JsonPointer.compile("/sections/0")));
+    	Assert.assertThat(operations.get(3).getPath(), equalTo(JsonPointer.compile("/sections/0/title")));
+    	Assert.assertThat(operations.get(4) instanceof RemoveOperation, equalTo(true));
+    	Assert.assertThat(operations.get(5).getPath(), equalTo(JsonPointer.compile("/sections/1/title")));
+    	Assert.assertThat(trackingJsonNodeFactory.getOperations().isEmpty(), equalTo(true));
+
+    	Post targetPost = new ObjectPatchProcessor(mapper).patch(sourcePost, operations);
+    	Assert.assertThat(targetPost, equalTo(mapper.treeToValue(document, Post.class)));
+    	SyncData syncData = new SyncData();
+    	syncData.setVersion(1L);
+    	syncData.setMasterVersion(2L);
+    	syncData.setOperations(operations);
+    	SyncObject<Post> clientObject = new LocalSyncProcessor(mapper).clientSync(new SyncObject<Post>(1L, sourcePost), syncData);
+    	Assert.assertThat(clientObject.getObject(), equalTo(targetPost));
+    }
+
+    @Test
+    public void detachedNodesAreNotTracked() throws Exception {
+    	mapper.setNodeFactory(trackingJsonNodeFactory);
+    	JsonNode readDocument = mapper.readTree(mapper.writeValueAsString(sourcePost));
+    	ObjectNode document = (ObjectNode) trackingJsonNodeFactory.track(readDocument);
+    	Assert.assertThat(document == readDocument, equalTo(true));
+
+    	ObjectNode author = (ObjectNode) document.get("author");
+    	ObjectNode newAuthor = trackingJsonNodeFactory.objectNode();
+    	newAuthor.put("firstName", "M");
+    	Assert.assertThat(trackingJsonNodeFactory.getOperations().isEmpty(), equalTo(true));
+    	document.set("author", newAuthor);
+    	author.put("lastName", "detached");
+    	newAuthor.put("lastName", "attached");
+
+    	List<PatchOperation> operations = trackingJsonNodeFactory.getOperations();
+    	Assert.assertThat(operations.size(), equalTo(2));
+    	Assert.assertThat(operations.get(1).getPath(), equalTo(JsonPointer.compile("/author/lastName")));
+    	Post targetPost = new ObjectPatchProcessor(mapper).patch(sourcePost, operations);
+    	Assert.assertThat(targetPost.getAuthor(), equalTo(new Author("M", "attached", null)));
+    }
+
+}
@@ -1,6 +1,8 @@
 package com.shagaba.jacksync.patch;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -143,4 +145,15 @@ public class ObjectPatchProcessorTest extends BaseTest {
         Assert.assertThat(postV2_2, equalTo(postV2));
     }
 
+    @Test
+    public void emptyPatchReturnsCopy() throws Exception {
+    	Post postV1 = new Post();
+    	postV1.setTitle("my test title");
+
+        Post postV2 = patchProcessor.patch(postV1, new ArrayList<PatchOperation>());
+
+        Assert.assertThat(postV2, equalTo(postV1));
+        Assert.assertThat(postV2, not(sameInstance(postV1)));
+    }
+
 }
@@ -1,5 +1,8 @@
 package com.shagaba.jacksync.support.dto;
 
+import com.shagaba.jacksync.syncable.Syncable;
+
+@Syncable
 public class Author {
 	
 	private String firstName;
@@ -3,6 +3,9 @@ package com.shagaba.jacksync.support.dto;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import com.shagaba.jacksync.syncable.Syncable;
+
+@Syncable
 public class Post {
 	
 	private String id;
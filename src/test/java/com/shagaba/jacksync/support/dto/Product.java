@@ -0,0 +1,131 @@
+package com.shagaba.jacksync.support.dto;
+
+import java.util.List;
+
+import com.shagaba.jacksync.diff.policy.DiffAtomic;
+import com.shagaba.jacksync.diff.policy.DiffIdentity;
+import com.shagaba.jacksync.diff.policy.DiffIgnore;
+import com.shagaba.jacksync.diff.policy.DiffIgnoreCase;
+import com.shagaba.jacksync.diff.policy.DiffTolerance;
+
+public class Product {
+
+	private String id;
+
+	@DiffIgnoreCase
+	private String name;
+
+	@DiffTolerance(0.01)
+	private double price;
+
+	@DiffIgnore
+	private Long viewCount;
+
+	@DiffAtomic
+	private Author supplier;
+
+	@DiffIdentity("sku")
+	private List<Variant> variants;
+
+	/**
+	 * 
+	 */
+	public Product() {
+	}
+
+	/**
+	 * @param id
+	 * @param name
+	 * @param price
+	 */
+	public Product(String id, String name, double price) {
+		this.id = id;
+		this.name = name;
+		this.price = price;
+	}
+
+	/**
+	 * @return the id
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @param id the id to set
+	 */
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	/**
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @param name the name to set
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return the price
+	 */
+	public double getPrice() {
+		return price;
+	}
+
+	/**
+	 * @param price the price to set
+	 */
+	public void setPrice(double price) {
+		this.price = price;
+	}
+
+	/**
+	 * @return the viewCount
+	 */
+	public Long getViewCount() {
+		return viewCount;
+	}
+
+	/**
+	 * @param viewCount the viewCount to set
+	 */
+	public void setViewCount(Long viewCount) {
+		this.viewCount = viewCount;
+	}
+
+	/**
+	 * @return the supplier
+	 */
+	public Author getSupplier() {
+		return supplier;
+	}
+
+	/**
+	 * @param supplier the supplier to set
+	 */
+	public void setSupplier(Author supplier) {
+		this.supplier = supplier;
+	}
+
+	/**
+	 * @return the variants
+	 */
+	public List<Variant> getVariants() {
+		return variants;
+	}
+
+	/**
+	 * @param variants the variants to set
+	 */
+	public void setVariants(List<Variant> variants) {
+		this.variants = variants;
+	}
+
+}
@@ -2,6 +2,9 @@ package com.shagaba.jacksync.support.dto;
 
 import java.util.List;
 
+import com.shagaba.jacksync.syncable.Syncable;
+
+@Syncable
 public class Section {
 
 	private String title;
@@ -0,0 +1,70 @@
+package com.shagaba.jacksync.support.dto;
+
+public class Variant {
+
+	private String sku;
+
+	private String color;
+
+	private int stock;
+
+	/**
+	 * 
+	 */
+	public Variant() {
+	}
+
+	/**
+	 * @param sku
+	 * @param color
+	 * @param stock
+	 */
+	public Variant(String sku, String color, int stock) {
+		this.sku = sku;
+		this.color = color;
+		this.stock = stock;
+	}
+
+	/**
+	 * @return the sku
+	 */
+	public String getSku() {
+		return sku;
+	}
+
+	/**
+	 * @param sku the sku to set
+	 */
+	public void setSku(String sku) {
+		this.sku = sku;
+	}
+
+	/**
+	 * @return the color
+	 */
+	public String getColor() {
+		return color;
+	}
+
+	/**
+	 * @param color the color to set
+	 */
+	public void setColor(String color) {
+		this.color = color;
+	}
+
+	/**
+	 * @return the stock
+	 */
+	public int getStock() {
+		return stock;
+	}
+
+	/**
+	 * @param stock the stock to set
+	 */
+	public void setStock(int stock) {
+		this.stock = stock;
+	}
+
+}
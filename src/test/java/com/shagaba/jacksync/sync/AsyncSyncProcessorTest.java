@@ -0,0 +1,153 @@
+package com.shagaba.jacksync.sync;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.exception.InvalidSyncVersionException;
+import com.shagaba.jacksync.exception.SyncException;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.support.dto.Post;
+import com.shagaba.jacksync.utils.JacksonUtils;
+
+public class AsyncSyncProcessorTest extends BaseTest {
+
+	private ExecutorService executorService;
+
+	private CountDownLatch startLatch;
+
+	private AsyncSyncProcessor<Post> asyncSyncProcessor;
+
+    @Before
+    public void beforeEach() {
+    	mapper = newObjectMapper();
+    	executorService = Executors.newSingleThreadExecutor();
+    	// holds the executor until all syncs are queued
+    	startLatch = new CountDownLatch(1);
+    	executorService.execute(() -> {
+    		try {
+    			startLatch.await();
+    		} catch (InterruptedException e) {
+    			Thread.currentThread().interrupt();
+    		}
+    	});
+    	ConcurrentSyncRepository<Post> syncRepository = new ConcurrentSyncRepository<>(mapper);
+    	syncRepository.put("post-1", new SyncObject<Post>(1L, new Post()));
+    	asyncSyncProcessor = new AsyncSyncProcessor<>(syncRepository.getSyncProcessor(), syncRepository, executorService);
+    }
+
+    @After
+    public void afterEach() {
+    	executorService.shutdownNow();
+    }
+
+    @Test
+    public void queuedSyncsAreCoalesced() throws Exception {
+    	List<CompletableFuture<SyncObject<Post>>> futures = new ArrayList<>();
+    	for (long version = 1; version <= 20; ++version) {
+    		futures.add(asyncSyncProcessor.masterSync("post-1", titleSyncData(version, "title-" + version)));
+    	}
+    	startLatch.countDown();
+
+    	SyncObject<Post> last = futures.get(futures.size() - 1).get();
+    	Assert.assertThat(last.getVersion(), equalTo(21L));
+    	Assert.assertThat(last.getObject().getTitle(), equalTo("title-20"));
+    	Assert.assertThat(futures.get(0).get(), sameInstance(last));
+    	Assert.assertThat(asyncSyncProcessor.getSyncRepository().get("post-1"), sameInstance(last));
+    }
+
+    @Test
+    public void staleSyncFailsAlone() throws Exception {
+    	CompletableFuture<SyncObject<Post>> first = asyncSyncProcessor.masterSync("post-1", titleSyncData(1L, "first"));
+    	CompletableFuture<SyncObject<Post>> stale = asyncSyncProcessor.masterSync("post-1", titleSyncData(1L, "stale"));
+    	CompletableFuture<SyncObject<Post>> second = asyncSyncProcessor.masterSync("post-1", titleSyncData(2L, "second"));
+    	startLatch.countDown();
+
+    	Assert.assertThat(first.get().getObject().getTitle(), equalTo("first"));
+    	Assert.assertThat(second.get().getVersion(), equalTo(3L));
+    	Assert.assertThat(second.get().getObject().getTitle(), equalTo("second"));
+    	try {
+    		stale.get();
+    		Assert.fail("stale sync applied");
+    	} catch (ExecutionException e) {
+    		Assert.assertThat(e.getCause(), instanceOf(InvalidSyncVersionException.class));
+    	}
+    }
+
+    @Test
+    public void syncsOfSharedVersionAreNotCombined() throws Exception {
+    	AtomicInteger combinedSyncs = new AtomicInteger();
+    	ConcurrentSyncRepository<Post> syncRepository = new ConcurrentSyncRepository<Post>(mapper) {
+    		@Override
+    		public SyncObject<Post> masterSync(String documentId, List<SyncData> syncDataList) throws SyncException {
+    			combinedSyncs.incrementAndGet();
+    			return super.masterSync(documentId, syncDataList);
+    		}
+    	};
+    	syncRepository.put("post-1", new SyncObject<Post>(1L, new Post()));
+    	asyncSyncProcessor = new AsyncSyncProcessor<>(syncRepository.getSyncProcessor(), syncRepository, executorService);
+    	CompletableFuture<SyncObject<Post>> first = asyncSyncProcessor.masterSync("post-1", titleSyncData(1L, "first"));
+    	CompletableFuture<SyncObject<Post>> stale = asyncSyncProcessor.masterSync("post-1", titleSyncData(1L, "stale"));
+    	startLatch.countDown();
+
+    	Assert.assertThat(first.get().getObject().getTitle(), equalTo("first"));
+    	try {
+    		stale.get();
+    		Assert.fail("stale sync applied");
+    	} catch (ExecutionException e) {
+    		Assert.assertThat(e.getCause(), instanceOf(InvalidSyncVersionException.class));
+    	}
+    	Assert.assertThat(combinedSyncs.get(), equalTo(0));
+    }
+
+    @Test
+    public void drainedQueueIsDropped() throws Exception {
+    	CompletableFuture<SyncObject<Post>> future = asyncSyncProcessor.masterSync("post-1", titleSyncData(1L, "my test title"));
+    	Assert.assertThat(asyncSyncProcessor.documentQueues.containsKey("post-1"), equalTo(true));
+    	startLatch.countDown();
+
+    	future.get();
+    	executorService.shutdown();
+    	executorService.awaitTermination(10, TimeUnit.SECONDS);
+    	Assert.assertThat(asyncSyncProcessor.documentQueues.isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void clientSyncCompletesOnExecutor() throws Exception {
+    	SyncData syncData = titleSyncData(1L, "my test title");
+    	syncData.setMasterVersion(2L);
+    	CompletableFuture<SyncObject<Post>> future = asyncSyncProcessor.clientSync(new SyncObject<Post>(1L, new Post()), syncData);
+
+    	Assert.assertThat(future.isDone(), equalTo(false));
+    	startLatch.countDown();
+    	Assert.assertThat(future.get().getVersion(), equalTo(2L));
+    	Assert.assertThat(future.get().getObject().getTitle(), equalTo("my test title"));
+    }
+
+    private SyncData titleSyncData(long version, String title) {
+    	SyncData syncData = new SyncData();
+    	syncData.setVersion(version);
+    	AddOperation addOperation = new AddOperation(JacksonUtils.toJsonPointer("/title"), mapper.valueToTree(title));
+    	syncData.setOperations(Arrays.asList((PatchOperation) addOperation));
+    	return syncData;
+    }
+
+}
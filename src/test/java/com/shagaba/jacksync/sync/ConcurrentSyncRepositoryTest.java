@@ -0,0 +1,224 @@
+package com.shagaba.jacksync.sync;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.exception.InvalidSyncVersionException;
+import com.shagaba.jacksync.exception.NoSuchDocumentException;
+import com.shagaba.jacksync.exception.SyncException;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.support.dto.Post;
+import com.shagaba.jacksync.utils.JacksonUtils;
+
+public class ConcurrentSyncRepositoryTest extends BaseTest {
+
+	private SyncRepository<Post> syncRepository;
+
+    @Before
+    public void beforeEach() {
+    	mapper = newObjectMapper();
+    	syncRepository = new ConcurrentSyncRepository<>(mapper);
+    }
+
+    @Test
+    public void masterSyncAdvancesVersion() throws Exception {
+    	syncRepository.put("post-1", new SyncObject<Post>(1L, new Post()));
+
+    	SyncData syncData = new SyncData();
+    	syncData.setVersion(1L);
+    	AddOperation addOperation = new AddOperation(JacksonUtils.toJsonPointer("/title"), mapper.valueToTree("my test title"));
+    	syncData.setOperations(Arrays.asList((PatchOperation) addOperation));
+
+    	SyncObject<Post> syncPostV2 = syncRepository.masterSync("post-1", syncData);
+
+    	Assert.assertThat(syncPostV2.getVersion(), equalTo(2L));
+    	Assert.assertThat(syncPostV2.getObject().getTitle(), equalTo("my test title"));
+    	Assert.assertThat(syncRepository.get("post-1"), equalTo(syncPostV2));
+    }
+
+    @Test(expected = InvalidSyncVersionException.class)
+    public void masterSyncFailsOnStaleVersion() throws Exception {
+    	syncRepository.put("post-1", new SyncObject<Post>(3L, new Post()));
+
+    	SyncData syncData = new SyncData();
+    	syncData.setVersion(2L);
+    	syncData.setOperations(new ArrayList<PatchOperation>());
+
+    	syncRepository.masterSync("post-1", syncData);
+    }
+
+    @Test(expected = NoSuchDocumentException.class)
+    public void masterSyncFailsOnRemovedDocument() throws Exception {
+    	syncRepository.put("post-1", new SyncObject<Post>(1L, new Post()));
+    	syncRepository.remove("post-1");
+
+    	Assert.assertThat(syncRepository.get("post-1"), nullValue());
+    	syncRepository.update("post-1", post -> post);
+    }
+
+    @Test
+    public void putIfAbsentKeepsCurrentDocument() throws Exception {
+    	SyncObject<Post> postV1 = new SyncObject<Post>(1L, new Post());
+    	Assert.assertThat(syncRepository.putIfAbsent("post-1", postV1), equalTo(postV1));
+    	Assert.assertThat(syncRepository.putIfAbsent("post-1", new SyncObject<Post>(5L, new Post())), equalTo(postV1));
+    }
+
+    @Test
+    public void concurrentUpdatesAreNotLost() throws Exception {
+    	int threads = 8;
+    	int updatesPerThread = 250;
+    	syncRepository = new ConcurrentSyncRepository<>(new LocalSyncProcessor(mapper), Integer.MAX_VALUE);
+    	syncRepository.put("post-1", new SyncObject<Post>(0L, new Post()));
+
+    	ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    	try {
+    		List<Callable<Void>> tasks = new ArrayList<>();
+    		for (int thread = 0; thread < threads; ++thread) {
+    			tasks.add(() -> {
+    				for (int update = 0; update < updatesPerThread; ++update) {
+    					syncRepository.update("post-1", post -> {
+    						Post updated = new Post();
+    						updated.setTitle(post.getTitle() == null ? "x" : post.getTitle() + "x");
+    						return updated;
+    					});
+    				}
+    				return null;
+    			});
+    		}
+    		for (Future<Void> future : executorService.invokeAll(tasks)) {
+    			future.get();
+    		}
+    	} finally {
+    		executorService.shutdown();
+    	}
+
+    	SyncObject<Post> post = syncRepository.get("post-1");
+    	Assert.assertThat(post.getVersion(), equalTo((long) threads * updatesPerThread));
+    	Assert.assertThat(post.getObject().getTitle().length(), equalTo(threads * updatesPerThread));
+    }
+
+    @Test
+    public void putRacingRemoveIsNotLost() throws Exception {
+    	SyncObject<Post> removedPost = new SyncObject<Post>(1L, new Post());
+    	SyncObject<Post> putPost = new SyncObject<Post>(2L, new Post());
+    	ExecutorService executorService = Executors.newSingleThreadExecutor();
+    	List<Future<SyncObject<Post>>> removes = new ArrayList<>();
+    	ConcurrentSyncRepository<Post> racingSyncRepository = new ConcurrentSyncRepository<>(mapper);
+    	// a remove runs while the put is looking up the document reference
+    	racingSyncRepository.documents = new ConcurrentHashMap<String, AtomicReference<SyncObject<Post>>>() {
+    		@Override
+    		public AtomicReference<SyncObject<Post>> computeIfAbsent(String key, Function<? super String, ? extends AtomicReference<SyncObject<Post>>> mappingFunction) {
+    			AtomicReference<SyncObject<Post>> reference = super.computeIfAbsent(key, mappingFunction);
+    			race(key);
+    			return reference;
+    		}
+
+    		@Override
+    		public AtomicReference<SyncObject<Post>> compute(String key,
+    				BiFunction<? super String, ? super AtomicReference<SyncObject<Post>>, ? extends AtomicReference<SyncObject<Post>>> remappingFunction) {
+    			return super.compute(key, (id, reference) -> {
+    				race(key);
+    				return remappingFunction.apply(id, reference);
+    			});
+    		}
+
+    		private void race(String key) {
+    			if (removes.isEmpty() && get(key) != null) {
+    				removes.add(executorService.submit(() -> racingSyncRepository.remove(key)));
+    				try {
+    					removes.get(0).get(100, TimeUnit.MILLISECONDS);
+    				} catch (Exception e) {
+    					// the remove waits for the put
+    				}
+    			}
+    		}
+    	};
+    	try {
+    		racingSyncRepository.documents.put("post-1", new AtomicReference<>(removedPost));
+
+    		racingSyncRepository.put("post-1", putPost);
+
+    		// either the put follows the remove, or the remove takes the put document
+    		if (removes.get(0).get() == removedPost) {
+    			Assert.assertThat(racingSyncRepository.get("post-1"), equalTo(putPost));
+    		} else {
+    			Assert.assertThat(removes.get(0).get(), equalTo(putPost));
+    			Assert.assertThat(racingSyncRepository.get("post-1"), nullValue());
+    		}
+    	} finally {
+    		executorService.shutdown();
+    	}
+    }
+
+    @Test
+    public void racingMasterSyncsOfSameVersion() throws Exception {
+    	CountDownLatch enteredLatch = new CountDownLatch(1);
+    	CountDownLatch releaseLatch = new CountDownLatch(1);
+    	syncRepository = new ConcurrentSyncRepository<>(new LocalSyncProcessor(mapper) {
+    		@Override
+    		public <T> SyncObject<T> masterSync(SyncObject<T> sourceObject, SyncData syncData) throws SyncException {
+    			if (syncData.getMasterVersion() != null) {
+    				enteredLatch.countDown();
+    				try {
+    					releaseLatch.await(10, TimeUnit.SECONDS);
+    				} catch (InterruptedException e) {
+    					Thread.currentThread().interrupt();
+    				}
+    			}
+    			return super.masterSync(sourceObject, syncData);
+    		}
+    	});
+    	syncRepository.put("post-1", new SyncObject<Post>(1L, new Post()));
+    	SyncData slowSyncData = titleSyncData(1L, "slow title");
+    	slowSyncData.setMasterVersion(1L);
+
+    	ExecutorService executorService = Executors.newSingleThreadExecutor();
+    	try {
+    		Future<SyncObject<Post>> slowSync = executorService.submit(() -> syncRepository.masterSync("post-1", slowSyncData));
+    		Assert.assertThat(enteredLatch.await(10, TimeUnit.SECONDS), equalTo(true));
+    		SyncObject<Post> syncPostV2 = syncRepository.masterSync("post-1", titleSyncData(1L, "fast title"));
+    		releaseLatch.countDown();
+    		try {
+    			slowSync.get();
+    			Assert.fail("Overtaken masterSync");
+    		} catch (ExecutionException e) {
+    			Assert.assertThat(e.getCause() instanceof InvalidSyncVersionException, equalTo(true));
+    		}
+    		Assert.assertThat(syncRepository.get("post-1"), equalTo(syncPostV2));
+    		Assert.assertThat(syncPostV2.getObject().getTitle(), equalTo("fast title"));
+    	} finally {
+    		releaseLatch.countDown();
+    		executorService.shutdown();
+    	}
+    }
+
+    private SyncData titleSyncData(Long version, String title) {
+    	SyncData syncData = new SyncData();
+    	syncData.setVersion(version);
+    	AddOperation addOperation = new AddOperation(JacksonUtils.toJsonPointer("/title"), mapper.valueToTree(title));
+    	syncData.setOperations(Arrays.asList((PatchOperation) addOperation));
+    	return syncData;
+    }
+
+}
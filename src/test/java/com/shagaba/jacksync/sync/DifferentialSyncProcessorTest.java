@@ -0,0 +1,177 @@
+package com.shagaba.jacksync.sync;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.UnaryOperator;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.exception.ConcurrentSyncException;
+import com.shagaba.jacksync.exception.SyncException;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.MergeOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.RemoveOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+import com.shagaba.jacksync.support.dto.Author;
+import com.shagaba.jacksync.support.dto.Post;
+import com.shagaba.jacksync.utils.JacksonUtils;
+
+public class DifferentialSyncProcessorTest extends BaseTest {
+
+	private DifferentialSyncProcessor<Post> differentialSyncProcessor;
+
+    @Before
+    public void beforeEach() {
+    	mapper = newObjectMapper();
+    	differentialSyncProcessor = new DifferentialSyncProcessor<>(mapper);
+
+    	Post post = new Post();
+    	post.setTitle("my test title");
+    	differentialSyncProcessor.getSyncRepository().put("post-1", new SyncObject<Post>(1L, post));
+    }
+
+    @Test
+    public void concurrentClientsConverge() throws Exception {
+    	Post clientPostA = copy(differentialSyncProcessor.connect("post-1", "client-a").getObject());
+    	DifferentialSyncSession<Post> clientSessionA = new DifferentialSyncSession<>(mapper, clientPostA);
+    	Post clientPostB = copy(differentialSyncProcessor.connect("post-1", "client-b").getObject());
+    	DifferentialSyncSession<Post> clientSessionB = new DifferentialSyncSession<>(mapper, clientPostB);
+
+    	// concurrent edits of different fields
+    	clientPostA = copy(clientPostA);
+    	clientPostA.setTitle("my 2nd test title");
+    	clientPostB = copy(clientPostB);
+    	clientPostB.setAuthor(new Author("james", "bond", "007@mi6.com"));
+
+    	clientPostA = clientSessionA.patch(clientPostA, differentialSyncProcessor.sync("post-1", "client-a", clientSessionA.diff(clientPostA)));
+    	clientPostB = clientSessionB.patch(clientPostB, differentialSyncProcessor.sync("post-1", "client-b", clientSessionB.diff(clientPostB)));
+    	clientPostA = clientSessionA.patch(clientPostA, differentialSyncProcessor.sync("post-1", "client-a", clientSessionA.diff(clientPostA)));
+
+    	Post masterPost = differentialSyncProcessor.getSyncRepository().get("post-1").getObject();
+    	Assert.assertThat(masterPost.getTitle(), equalTo("my 2nd test title"));
+    	Assert.assertThat(masterPost.getAuthor(), equalTo(new Author("james", "bond", "007@mi6.com")));
+    	Assert.assertThat(clientPostA, equalTo(masterPost));
+    	Assert.assertThat(clientPostB, equalTo(masterPost));
+    }
+
+    @Test
+    public void lostReplyRecoversFromBackupShadow() throws Exception {
+    	Post clientPost = copy(differentialSyncProcessor.connect("post-1", "client-a").getObject());
+    	DifferentialSyncSession<Post> clientSession = new DifferentialSyncSession<>(mapper, clientPost);
+
+    	// master side change, the reply carrying it is lost
+    	differentialSyncProcessor.getSyncRepository().update("post-1", post -> {
+    		Post updated = copy(post);
+    		updated.setAuthor(new Author("james", "bond", "007@mi6.com"));
+    		return updated;
+    	});
+    	clientPost = copy(clientPost);
+    	clientPost.setTitle("my 2nd test title");
+    	differentialSyncProcessor.sync("post-1", "client-a", clientSession.diff(clientPost));
+
+    	// next cycle resends the master change
+    	clientPost = clientSession.patch(clientPost, differentialSyncProcessor.sync("post-1", "client-a", clientSession.diff(clientPost)));
+
+    	Post masterPost = differentialSyncProcessor.getSyncRepository().get("post-1").getObject();
+    	Assert.assertThat(masterPost.getTitle(), equalTo("my 2nd test title"));
+    	Assert.assertThat(clientPost, equalTo(masterPost));
+    }
+
+    @Test
+    public void lostReplyAfterEmptyAcknowledgementRecovers() throws Exception {
+    	Post clientPost = copy(differentialSyncProcessor.connect("post-1", "client-a").getObject());
+    	DifferentialSyncSession<Post> clientSession = new DifferentialSyncSession<>(mapper, copy(clientPost));
+
+    	// master side change, received by the client
+    	differentialSyncProcessor.getSyncRepository().update("post-1", post -> {
+    		Post updated = copy(post);
+    		updated.setAuthor(new Author("james", "bond", "007@mi6.com"));
+    		return updated;
+    	});
+    	clientPost = clientSession.patch(clientPost, differentialSyncProcessor.sync("post-1", "client-a", clientSession.diff(clientPost)));
+
+    	// another master side change, the client acknowledges with no edits and the reply is lost
+    	differentialSyncProcessor.getSyncRepository().update("post-1", post -> {
+    		Post updated = copy(post);
+    		updated.setTitle("my 2nd test title");
+    		return updated;
+    	});
+    	differentialSyncProcessor.sync("post-1", "client-a", clientSession.diff(clientPost));
+
+    	// next cycle resends the master change
+    	clientPost = copy(clientPost);
+    	clientPost.setTags(Arrays.asList("spy"));
+    	clientPost = clientSession.patch(clientPost, differentialSyncProcessor.sync("post-1", "client-a", clientSession.diff(clientPost)));
+
+    	Post masterPost = differentialSyncProcessor.getSyncRepository().get("post-1").getObject();
+    	Assert.assertThat(masterPost.getTitle(), equalTo("my 2nd test title"));
+    	Assert.assertThat(masterPost.getTags(), equalTo(Arrays.asList("spy")));
+    	Assert.assertThat(clientPost, equalTo(masterPost));
+    }
+
+    @Test
+    public void failedMasterUpdateLeavesShadowAsIs() throws Exception {
+    	AtomicBoolean isFailing = new AtomicBoolean(true);
+    	differentialSyncProcessor = new DifferentialSyncProcessor<>(mapper, new ConcurrentSyncRepository<Post>(mapper) {
+    		@Override
+    		public SyncObject<Post> update(String documentId, UnaryOperator<Post> updateFunction) throws SyncException {
+    			if (isFailing.getAndSet(false)) {
+    				throw new ConcurrentSyncException("Document update retries exhausted");
+    			}
+    			return super.update(documentId, updateFunction);
+    		}
+    	});
+    	Post post = new Post();
+    	post.setTitle("my test title");
+    	differentialSyncProcessor.getSyncRepository().put("post-1", new SyncObject<Post>(1L, post));
+    	Post clientPost = copy(differentialSyncProcessor.connect("post-1", "client-a").getObject());
+    	DifferentialSyncSession<Post> clientSession = new DifferentialSyncSession<>(mapper, copy(clientPost));
+    	clientPost.setTitle("my 2nd test title");
+    	SyncData syncData = clientSession.diff(clientPost);
+
+    	try {
+    		differentialSyncProcessor.sync("post-1", "client-a", syncData);
+    		Assert.fail("master update succeeded");
+    	} catch (ConcurrentSyncException e) {
+    	}
+    	// the resent edits are taken, not reverted as already received
+    	SyncData reply = differentialSyncProcessor.sync("post-1", "client-a", syncData);
+
+    	Assert.assertThat(differentialSyncProcessor.getSyncRepository().get("post-1").getObject().getTitle(), equalTo("my 2nd test title"));
+    	Assert.assertThat(reply.getOperations().isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void fuzzyPatchSkipsOperationsOfMismatchingLocations() throws Exception {
+    	Post post = new Post();
+    	post.setTitle("my test title");
+    	post.setTags(Arrays.asList("spy"));
+    	List<PatchOperation> operations = Arrays.asList(
+    			new MergeOperation(JacksonUtils.toJsonPointer("/title"), mapper.createObjectNode().put("text", "my 2nd test title")),
+    			new ReplaceOperation(JacksonUtils.toJsonPointer("/tags/1"), mapper.valueToTree("agent")),
+    			new RemoveOperation(JacksonUtils.toJsonPointer("")),
+    			new AddOperation(JacksonUtils.toJsonPointer("/author"), mapper.valueToTree(new Author("james", "bond", "007@mi6.com"))));
+
+    	Post patchedPost = DifferentialSyncSession.fuzzyPatch(mapper, post, operations);
+
+    	Assert.assertThat(patchedPost.getTitle(), equalTo("my test title"));
+    	Assert.assertThat(patchedPost.getTags(), equalTo(Arrays.asList("spy")));
+    	Assert.assertThat(patchedPost.getAuthor(), equalTo(new Author("james", "bond", "007@mi6.com")));
+    }
+
+    private Post copy(Post post) {
+    	try {
+    		return mapper.treeToValue(mapper.valueToTree(post), Post.class);
+    	} catch (Exception e) {
+    		throw new IllegalArgumentException(e);
+    	}
+    }
+
+}
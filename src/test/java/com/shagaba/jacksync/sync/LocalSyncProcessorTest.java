@@ -1,7 +1,9 @@
 package com.shagaba.jacksync.sync;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -10,6 +12,8 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.exception.ChecksumMismatchException;
+import com.shagaba.jacksync.exception.SyncProcessingException;
 import com.shagaba.jacksync.operation.AddOperation;
 import com.shagaba.jacksync.operation.PatchOperation;
 import com.shagaba.jacksync.operation.ReplaceOperation;
@@ -94,6 +98,92 @@ public class LocalSyncProcessorTest extends BaseTest {
         
         Assert.assertThat(syncPostV2.getObject(), equalTo(targetPost));
     }
-    
+
+    @Test
+    public void emptySyncKeepsObject() throws Exception {
+    	Post postV1 = new Post();
+    	postV1.setTitle("my test title");
+    	String checksum = ChecksumUtils.computeChecksum(mapper.writeValueAsString(postV1));
+
+    	SyncData syncData = new SyncData();
+    	syncData.setVersion(1L);
+    	syncData.setMasterVersion(2L);
+    	syncData.setOperations(new ArrayList<PatchOperation>());
+    	syncData.setTargetChecksum(checksum);
+    	syncProcessor.setChecksumValidationEnabled(true);
+
+    	SyncObject<Post> syncPostV2 = syncProcessor.clientSync(new SyncObject<Post>(1L, postV1), syncData);
+
+    	Assert.assertThat(syncPostV2.getVersion(), equalTo(2L));
+    	Assert.assertThat(syncPostV2.getObject(), sameInstance(postV1));
+    	// the verified checksum is kept with the object
+    	Assert.assertThat(syncPostV2.getChecksum(), equalTo(checksum));
+    }
+
+    @Test
+    public void emptySyncVerifiesCachedChecksum() throws Exception {
+    	SyncData syncData = new SyncData();
+    	syncData.setVersion(1L);
+    	syncData.setOperations(new ArrayList<PatchOperation>());
+    	syncData.setTargetChecksum("0");
+    	syncProcessor.setChecksumValidationEnabled(true);
+
+    	try {
+    		syncProcessor.masterSync(new SyncObject<Post>(1L, new Post(), "1"), syncData);
+    		Assert.fail("Checksum mismatch expected");
+    	} catch (SyncProcessingException e) {
+    		Assert.assertThat(e.getCause() instanceof ChecksumMismatchException, equalTo(true));
+    	}
+    }
+
+    @Test
+    public void sampledChecksumVerifiesOneInRate() throws Exception {
+    	LocalSyncProcessor localSyncProcessor = new LocalSyncProcessor(mapper);
+    	localSyncProcessor.setChecksumValidationEnabled(true);
+    	localSyncProcessor.setChecksumPolicy(ChecksumPolicy.SAMPLED);
+    	localSyncProcessor.setChecksumSampleRate(3);
+    	SyncData syncData = titleSyncData("my test title");
+    	syncData.setTargetChecksum("0");
+
+    	localSyncProcessor.masterSync(new SyncObject<Post>(1L, new Post()), syncData);
+    	localSyncProcessor.masterSync(new SyncObject<Post>(1L, new Post()), syncData);
+    	try {
+    		localSyncProcessor.masterSync(new SyncObject<Post>(1L, new Post()), syncData);
+    		Assert.fail("Checksum mismatch expected");
+    	} catch (SyncProcessingException e) {
+    		// the third sync is verified
+    		Assert.assertThat(e.getCause() instanceof ChecksumMismatchException, equalTo(true));
+    	}
+    }
+
+    @Test
+    public void asynchronousChecksumReportsMismatch() throws Exception {
+    	List<Runnable> verifications = new ArrayList<>();
+    	List<Exception> mismatches = new ArrayList<>();
+    	LocalSyncProcessor localSyncProcessor = new LocalSyncProcessor(mapper);
+    	localSyncProcessor.setChecksumValidationEnabled(true);
+    	localSyncProcessor.setChecksumPolicy(ChecksumPolicy.ASYNCHRONOUS);
+    	localSyncProcessor.setChecksumExecutor(verifications::add);
+    	localSyncProcessor.setChecksumMismatchHandler((syncObject, syncData, cause) -> mismatches.add(cause));
+    	SyncData syncData = titleSyncData("my test title");
+    	syncData.setTargetChecksum("0");
+
+    	SyncObject<Post> syncPostV1 = localSyncProcessor.masterSync(new SyncObject<Post>(1L, new Post()), syncData);
+
+    	// returned before the verification
+    	Assert.assertThat(syncPostV1.getObject().getTitle(), equalTo("my test title"));
+    	Assert.assertThat(mismatches.size(), equalTo(0));
+    	verifications.forEach(Runnable::run);
+    	Assert.assertThat(mismatches.size(), equalTo(1));
+    	Assert.assertThat(mismatches.get(0).getCause() instanceof ChecksumMismatchException, equalTo(true));
+    }
+
+    private SyncData titleSyncData(String title) {
+    	SyncData syncData = new SyncData();
+    	syncData.setVersion(1L);
+    	AddOperation addOperation = new AddOperation(JacksonUtils.toJsonPointer("/title"), mapper.valueToTree(title));
+    	syncData.setOperations(Arrays.asList((PatchOperation) addOperation));
+    	return syncData;
+    }
 
 }
@@ -0,0 +1,67 @@
+package com.shagaba.jacksync.sync;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.diff.SyncObjectDiffMapper;
+import com.shagaba.jacksync.support.dto.Post;
+
+public class OutboundSyncQueueTest extends BaseTest {
+
+	private OutboundSyncQueue<Post> outboundSyncQueue;
+
+	private LocalSyncProcessor syncProcessor;
+
+    @Before
+    public void beforeEach() {
+    	mapper = newObjectMapper();
+    	outboundSyncQueue = new OutboundSyncQueue<>(new SyncObjectDiffMapper(mapper));
+    	syncProcessor = new LocalSyncProcessor(mapper);
+    	outboundSyncQueue.connect("client-1", new SyncObject<Post>(1L, new Post()));
+    }
+
+    @Test
+    public void polledVersionsAreSentInOrder() throws Exception {
+    	outboundSyncQueue.publish(titlePost(2L, "title-2"));
+
+    	SyncObject<Post> clientPost = new SyncObject<Post>(1L, new Post());
+    	clientPost = syncProcessor.clientSync(clientPost, outboundSyncQueue.poll("client-1"));
+    	Assert.assertThat(clientPost.getVersion(), equalTo(2L));
+    	Assert.assertThat(outboundSyncQueue.poll("client-1"), nullValue());
+    	outboundSyncQueue.publish(titlePost(3L, "title-3"));
+    	clientPost = syncProcessor.clientSync(clientPost, outboundSyncQueue.poll("client-1"));
+    	Assert.assertThat(clientPost.getVersion(), equalTo(3L));
+    	Assert.assertThat(clientPost.getObject().getTitle(), equalTo("title-3"));
+    	Assert.assertThat(outboundSyncQueue.poll("client-1"), nullValue());
+    }
+
+    @Test
+    public void slowClientVersionsAreConflated() throws Exception {
+    	for (long version = 2; version <= 100; ++version) {
+    		outboundSyncQueue.publish(titlePost(version, "title-" + version));
+    	}
+    	// stale versions are ignored
+    	outboundSyncQueue.publish(titlePost(50L, "title-50"));
+
+    	Assert.assertThat(outboundSyncQueue.size("client-1"), equalTo(1));
+    	SyncData syncData = outboundSyncQueue.poll("client-1");
+    	Assert.assertThat(syncData.getVersion(), equalTo(1L));
+    	Assert.assertThat(syncData.getMasterVersion(), equalTo(100L));
+    	SyncObject<Post> clientPost = syncProcessor.clientSync(new SyncObject<Post>(1L, new Post()), syncData);
+    	Assert.assertThat(clientPost.getObject().getTitle(), equalTo("title-100"));
+    	Assert.assertThat(outboundSyncQueue.size("client-1"), equalTo(0));
+    	Assert.assertThat(outboundSyncQueue.poll("client-1"), nullValue());
+    }
+
+    private SyncObject<Post> titlePost(long version, String title) {
+    	Post post = new Post();
+    	post.setTitle(title);
+    	return new SyncObject<Post>(version, post);
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.shagaba.jacksync.sync;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.exception.ChecksumMismatchException;
+import com.shagaba.jacksync.exception.InvalidSyncVersionException;
+import com.shagaba.jacksync.exception.OperationConflictException;
+import com.shagaba.jacksync.exception.SyncProcessingException;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.support.dto.Author;
+import com.shagaba.jacksync.support.dto.Post;
+import com.shagaba.jacksync.transform.ConflictPolicy;
+import com.shagaba.jacksync.transform.OperationTransformer;
+import com.shagaba.jacksync.utils.ChecksumUtils;
+import com.shagaba.jacksync.utils.JacksonUtils;
+
+public class RebasingSyncRepositoryTest extends BaseTest {
+
+	private RebasingSyncRepository<Post> syncRepository;
+
+    @Before
+    public void beforeEach() {
+    	mapper = newObjectMapper();
+    	syncRepository = new RebasingSyncRepository<>(mapper);
+    	Post post = new Post();
+    	post.setCategories(Arrays.asList("news"));
+    	syncRepository.put("post-1", new SyncObject<Post>(1L, post));
+    }
+
+    @Test
+    public void concurrentSyncDataIsRebased() throws Exception {
+    	SyncData syncDataA = syncData(1L, new AddOperation(JacksonUtils.toJsonPointer("/title"), mapper.valueToTree("my test title")),
+    			new AddOperation(JacksonUtils.toJsonPointer("/categories/0"), mapper.valueToTree("sports")));
+    	SyncData syncDataB = syncData(1L, new AddOperation(JacksonUtils.toJsonPointer("/author"), mapper.valueToTree(new Author("james", "bond", "007@mi6.com"))),
+    			new AddOperation(JacksonUtils.toJsonPointer("/categories/1"), mapper.valueToTree("tech")));
+
+    	syncRepository.masterSync("post-1", syncDataA);
+    	SyncObject<Post> syncPostV3 = syncRepository.masterSync("post-1", syncDataB);
+
+    	Assert.assertThat(syncPostV3.getVersion(), equalTo(3L));
+    	Assert.assertThat(syncPostV3.getObject().getTitle(), equalTo("my test title"));
+    	Assert.assertThat(syncPostV3.getObject().getAuthor(), equalTo(new Author("james", "bond", "007@mi6.com")));
+    	Assert.assertThat(syncPostV3.getObject().getCategories(), equalTo(Arrays.asList("sports", "news", "tech")));
+    }
+
+    @Test
+    public void unrecordedOperationsAreRebasedOn() throws Exception {
+    	Post post = new Post();
+    	post.setTitle("my test title");
+    	post.setCategories(Arrays.asList("news"));
+    	// published without being recorded, as by a writer yet to record it
+    	syncRepository.publish("post-1", current -> new RebasingSyncRepository.AppliedSyncObject<Post>(2L, post, null,
+    			Arrays.asList(new AddOperation(JacksonUtils.toJsonPointer("/title"), mapper.valueToTree("my test title")))));
+
+    	SyncObject<Post> syncPostV3 = syncRepository.masterSync("post-1", syncData(1L, new AddOperation(JacksonUtils.toJsonPointer("/categories/1"), mapper.valueToTree("tech"))));
+
+    	Assert.assertThat(syncPostV3.getVersion(), equalTo(3L));
+    	Assert.assertThat(syncPostV3.getObject().getTitle(), equalTo("my test title"));
+    	Assert.assertThat(syncPostV3.getObject().getCategories(), equalTo(Arrays.asList("news", "tech")));
+    }
+
+    @Test
+    public void rebasedSyncDataIsNotVerified() throws Exception {
+    	syncRepository.getSyncProcessor().setChecksumValidationEnabled(true);
+    	Post postA = new Post();
+    	postA.setTitle("my test title");
+    	postA.setCategories(Arrays.asList("news"));
+    	SyncData syncDataA = syncData(1L, new AddOperation(JacksonUtils.toJsonPointer("/title"), mapper.valueToTree("my test title")));
+    	syncDataA.setTargetChecksum(ChecksumUtils.computeChecksum(mapper.writeValueAsString(postA)));
+    	Post postB = new Post();
+    	postB.setCategories(Arrays.asList("news", "tech"));
+    	SyncData syncDataB = syncData(1L, new AddOperation(JacksonUtils.toJsonPointer("/categories/1"), mapper.valueToTree("tech")));
+    	syncDataB.setTargetChecksum(ChecksumUtils.computeChecksum(mapper.writeValueAsString(postB)));
+
+    	syncRepository.masterSync("post-1", syncDataA);
+    	// the checksum of syncDataB does not describe the rebased outcome
+    	SyncObject<Post> syncPostV3 = syncRepository.masterSync("post-1", syncDataB);
+
+    	Assert.assertThat(syncPostV3.getObject().getTitle(), equalTo("my test title"));
+    	Assert.assertThat(syncPostV3.getObject().getCategories(), equalTo(Arrays.asList("news", "tech")));
+    	Assert.assertThat(syncPostV3.getChecksum(), equalTo(null));
+    	try {
+    		// a syncData without a checksum is not verifiable
+    		syncRepository.masterSync("post-1", syncData(3L, new AddOperation(JacksonUtils.toJsonPointer("/title"), mapper.valueToTree("my 2nd test title"))));
+    		Assert.fail("syncData without checksum applied");
+    	} catch (SyncProcessingException e) {
+    		Assert.assertThat(e.getCause() instanceof ChecksumMismatchException, equalTo(true));
+    		Assert.assertThat(syncRepository.get("post-1").getVersion(), equalTo(3L));
+    	}
+    }
+
+    @Test(expected = InvalidSyncVersionException.class)
+    public void syncDataIsNotRebasedAcrossUpdates() throws Exception {
+    	syncRepository.update("post-1", post -> post);
+
+    	syncRepository.masterSync("post-1", syncData(1L, new AddOperation(JacksonUtils.toJsonPointer("/title"), mapper.valueToTree("my test title"))));
+    }
+
+    @Test
+    public void overlappingSyncDataIsRejected() throws Exception {
+    	syncRepository = new RebasingSyncRepository<>(mapper, new LocalSyncProcessor(mapper), new OperationTransformer(ConflictPolicy.FAIL), 16);
+    	syncRepository.put("post-1", new SyncObject<Post>(1L, new Post()));
+    	syncRepository.masterSync("post-1", syncData(1L, new AddOperation(JacksonUtils.toJsonPointer("/title"), mapper.valueToTree("my test title"))));
+
+    	SyncData authorSyncData = syncData(1L, new AddOperation(JacksonUtils.toJsonPointer("/author"), mapper.valueToTree(new Author("james", "bond", "007@mi6.com"))));
+    	SyncData titleSyncData = syncData(1L, new AddOperation(JacksonUtils.toJsonPointer("/title"), mapper.valueToTree("my 2nd test title")));
+    	Assert.assertThat(syncRepository.decide("post-1", syncData(2L)), equalTo(SyncDecision.ACCEPT));
+    	Assert.assertThat(syncRepository.decide("post-1", authorSyncData), equalTo(SyncDecision.REBASE));
+    	Assert.assertThat(syncRepository.decide("post-1", titleSyncData), equalTo(SyncDecision.REJECT));
+    	Assert.assertThat(syncRepository.conflictingVersions("post-1", titleSyncData), equalTo(new TreeSet<>(Arrays.asList(1L))));
+    	try {
+    		syncRepository.masterSync("post-1", titleSyncData);
+    		Assert.fail("overlapping syncData applied");
+    	} catch (OperationConflictException e) {
+    		Assert.assertThat(syncRepository.get("post-1").getVersion(), equalTo(2L));
+    	}
+    }
+
+    private SyncData syncData(long version, PatchOperation... operations) {
+    	SyncData syncData = new SyncData();
+    	syncData.setVersion(version);
+    	syncData.setOperations(Arrays.asList(operations));
+    	return syncData;
+    }
+
+}
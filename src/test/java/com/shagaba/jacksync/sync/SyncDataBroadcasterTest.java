@@ -0,0 +1,81 @@
+package com.shagaba.jacksync.sync;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.diff.SyncDiffMapper;
+import com.shagaba.jacksync.diff.SyncObjectDiffMapper;
+import com.shagaba.jacksync.exception.DiffProcessingException;
+import com.shagaba.jacksync.support.dto.Author;
+import com.shagaba.jacksync.support.dto.Post;
+
+public class SyncDataBroadcasterTest extends BaseTest {
+
+	private AtomicInteger diffCount;
+
+	private SyncDataBroadcaster syncDataBroadcaster;
+
+	private SyncProcessor syncProcessor;
+
+    @Before
+    public void beforeEach() {
+    	mapper = newObjectMapper();
+    	diffCount = new AtomicInteger();
+    	SyncDiffMapper syncObjectDiffMapper = new SyncObjectDiffMapper(mapper);
+    	SyncDiffMapper countingDiffMapper = new SyncDiffMapper() {
+			@Override
+			public <T> SyncData diff(SyncObject<T> source, SyncObject<T> target) throws DiffProcessingException {
+				diffCount.incrementAndGet();
+				return syncObjectDiffMapper.diff(source, target);
+			}
+		};
+    	syncDataBroadcaster = new SyncDataBroadcaster(mapper, countingDiffMapper);
+    	syncProcessor = new LocalSyncProcessor(mapper);
+    }
+
+    @Test
+    public void broadcastEncodesOncePerVersion() throws Exception {
+    	Map<Long, SyncObject<Post>> history = new HashMap<>();
+    	Post postV1 = new Post();
+    	postV1.setTitle("my test title");
+    	history.put(1L, new SyncObject<Post>(1L, postV1));
+    	Post postV2 = new Post();
+    	postV2.setTitle("my 2nd test title");
+    	history.put(2L, new SyncObject<Post>(2L, postV2));
+    	Post postV3 = new Post();
+    	postV3.setTitle("my 2nd test title");
+    	postV3.setAuthor(new Author("james", "bond", "007@mi6.com"));
+    	SyncObject<Post> target = new SyncObject<Post>(3L, postV3);
+
+    	Map<String, Long> clientVersions = new HashMap<>();
+    	for (int client = 0; client < 100; ++client) {
+    		clientVersions.put("client-" + client, client % 2 == 0 ? 1L : 2L);
+    	}
+
+    	Map<String, ByteBuffer> clientToSyncData = syncDataBroadcaster.broadcast(target, clientVersions, history::get);
+
+    	Assert.assertThat(diffCount.get(), equalTo(2));
+    	Assert.assertThat(clientToSyncData.size(), equalTo(100));
+    	for (Map.Entry<String, Long> clientVersion : clientVersions.entrySet()) {
+    		ByteBuffer buffer = clientToSyncData.get(clientVersion.getKey());
+    		Assert.assertThat(buffer.isReadOnly(), equalTo(true));
+    		byte[] bytes = new byte[buffer.remaining()];
+    		buffer.get(bytes);
+    		SyncData syncData = mapper.readValue(bytes, SyncData.class);
+
+    		SyncObject<Post> synced = syncProcessor.clientSync(history.get(clientVersion.getValue()), syncData);
+    		Assert.assertThat(synced.getVersion(), equalTo(3L));
+    		Assert.assertThat(synced.getObject(), equalTo(postV3));
+    	}
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.shagaba.jacksync.sync;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.diff.SyncObjectDiffMapper;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.CopyOperation;
+import com.shagaba.jacksync.operation.MoveOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.RemoveOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+import com.shagaba.jacksync.support.dto.Author;
+import com.shagaba.jacksync.support.dto.Post;
+import com.shagaba.jacksync.support.dto.Section;
+
+public class SyncDataRouterTest extends BaseTest {
+
+	private SyncDataRouter syncDataRouter;
+
+	private LocalSyncProcessor syncProcessor;
+
+    @Before
+    public void beforeEach() {
+    	mapper = newObjectMapper();
+    	syncDataRouter = new SyncDataRouter();
+    	syncProcessor = new LocalSyncProcessor(mapper);
+    	syncDataRouter.subscribe("author", Collections.singleton(JsonPointer.compile("/author/firstName")));
+    	syncDataRouter.subscribe("section", Collections.singleton(JsonPointer.compile("/sections/1")));
+    	syncDataRouter.subscribe("title", Arrays.asList(JsonPointer.compile("/title"), JsonPointer.compile("/id")));
+    }
+
+    @Test
+    public void operationsAreSplitBySubscription() throws Exception {
+    	Post sourcePost = new Post();
+    	sourcePost.setTitle("title-1");
+    	sourcePost.setSections(new ArrayList<>(Arrays.asList(new Section("section-0"), new Section("section-1"))));
+    	Post targetPost = new Post();
+    	targetPost.setTitle("title-2");
+    	targetPost.setAuthor(new Author("James", "Bond", "james.bond@mi6.com"));
+    	targetPost.setSections(new ArrayList<>(Arrays.asList(new Section("section-0"), new Section("section-1b"))));
+    	SyncObject<Post> sourceObject = new SyncObject<Post>(1L, sourcePost);
+    	SyncData syncData = new SyncObjectDiffMapper(mapper).diff(sourceObject, new SyncObject<Post>(2L, targetPost));
+
+    	Map<String, SyncData> syncDataById = syncDataRouter.route(syncData);
+
+    	Assert.assertThat(syncDataById.keySet(), equalTo(syncDataRouter.subscriptionIds()));
+    	// the author is narrowed to its first name
+    	Post authorPost = syncProcessor.clientSync(sourceObject, syncDataById.get("author")).getObject();
+    	Assert.assertThat(authorPost.getAuthor().getFirstName(), equalTo("James"));
+    	Assert.assertThat(authorPost.getAuthor().getLastName(), nullValue());
+    	Assert.assertThat(authorPost.getTitle(), equalTo("title-1"));
+    	Post sectionPost = syncProcessor.clientSync(sourceObject, syncDataById.get("section")).getObject();
+    	Assert.assertThat(sectionPost.getSections().get(1).getTitle(), equalTo("section-1b"));
+    	Assert.assertThat(sectionPost.getAuthor(), nullValue());
+    	SyncObject<Post> titleObject = syncProcessor.clientSync(sourceObject, syncDataById.get("title"));
+    	Assert.assertThat(titleObject.getVersion(), equalTo(2L));
+    	Assert.assertThat(titleObject.getObject().getTitle(), equalTo("title-2"));
+    	Assert.assertThat(titleObject.getObject().getSections().get(1).getTitle(), equalTo("section-1"));
+    }
+
+    @Test
+    public void ancestorOperationsAreNarrowed() throws Exception {
+    	SyncData syncData = new SyncData();
+    	syncData.setVersion(1L);
+    	syncData.setMasterVersion(2L);
+    	syncData.setOperations(Arrays.asList(
+    			new ReplaceOperation(JsonPointer.compile("/sections"), mapper.valueToTree(Arrays.asList(new Section("a"), new Section("b"), new Section("c")))),
+    			new MoveOperation(JsonPointer.compile("/title"), JsonPointer.compile("/author/lastName")),
+    			new RemoveOperation(JsonPointer.compile("/sections"))));
+
+    	Map<String, SyncData> syncDataById = syncDataRouter.route(syncData);
+
+    	SyncData sectionSyncData = syncDataById.get("section");
+    	Assert.assertThat(sectionSyncData.getOperations().size(), equalTo(2));
+    	JsonNode sections = ((ReplaceOperation) sectionSyncData.getOperations().get(0)).getValue();
+    	Assert.assertThat(sections.size(), equalTo(3));
+    	Assert.assertThat(sections.get(0).isNull(), equalTo(true));
+    	Assert.assertThat(sections.get(1).get("title").asText(), equalTo("b"));
+    	Assert.assertThat(sections.get(2).isNull(), equalTo(true));
+    	Assert.assertThat(sectionSyncData.getOperations().get(1) instanceof RemoveOperation, equalTo(true));
+    	// a move out of a subscribed location is a remove
+    	SyncData titleSyncData = syncDataById.get("title");
+    	Assert.assertThat(titleSyncData.getOperations().size(), equalTo(1));
+    	Assert.assertThat(titleSyncData.getOperations().get(0).getPath(), equalTo(JsonPointer.compile("/title")));
+    	Assert.assertThat(titleSyncData.getOperations().get(0) instanceof RemoveOperation, equalTo(true));
+    	Assert.assertThat(syncDataById.get("author").getOperations().isEmpty(), equalTo(true));
+
+    	syncDataRouter.unsubscribe("section");
+    	Assert.assertThat(syncDataRouter.route(syncData).containsKey("section"), equalTo(false));
+    }
+
+    @Test
+    public void movesFromUnheldSourcesAreAdded() throws Exception {
+    	syncDataRouter.subscribe("author", Collections.singleton(JsonPointer.compile("/author")));
+    	syncDataRouter.subscribe("public", Collections.emptySet(), Collections.singleton(JsonPointer.compile("/author/email")));
+    	Post sourcePost = new Post();
+    	sourcePost.setTitle("title-1");
+    	sourcePost.setAuthor(new Author("James", "Bond", "james.bond@mi6.com"));
+    	JsonNode sourceJsonNode = mapper.valueToTree(sourcePost);
+    	List<PatchOperation> operations = Arrays.asList(
+    			new CopyOperation(JsonPointer.compile("/title"), JsonPointer.compile("/author/firstName")),
+    			new MoveOperation(JsonPointer.compile("/author/email"), JsonPointer.compile("/title")));
+    	SyncData syncData = new SyncData();
+    	syncData.setVersion(1L);
+    	syncData.setMasterVersion(2L);
+    	syncData.setOperations(operations);
+    	JsonNode targetJsonNode = sourceJsonNode.deepCopy();
+    	for (PatchOperation operation : operations) {
+    		targetJsonNode = operation.apply(targetJsonNode);
+    	}
+
+    	Map<String, SyncData> syncDataById = syncDataRouter.route(syncData, sourceJsonNode);
+
+    	for (String subscriptionId : Arrays.asList("author", "public")) {
+    		// the client holds the projected document only
+    		SyncObject<Post> clientObject = new SyncObject<Post>(1L, mapper.treeToValue(syncDataRouter.project(subscriptionId, sourceJsonNode), Post.class));
+    		clientObject = syncProcessor.clientSync(clientObject, syncDataById.get(subscriptionId));
+    		Assert.assertThat(clientObject.getObject(), equalTo(mapper.treeToValue(syncDataRouter.project(subscriptionId, targetJsonNode), Post.class)));
+    	}
+    	// the copy from the unsubscribed title is an add of its value
+    	Assert.assertThat(syncDataById.get("author").getOperations().get(0) instanceof AddOperation, equalTo(true));
+    	// the move from the hidden email is an add of its value
+    	List<PatchOperation> publicOperations = syncDataById.get("public").getOperations();
+    	Assert.assertThat(publicOperations.get(0) instanceof CopyOperation, equalTo(true));
+    	Assert.assertThat(((AddOperation) publicOperations.get(1)).getValue().asText(), equalTo("james.bond@mi6.com"));
+    }
+
+}
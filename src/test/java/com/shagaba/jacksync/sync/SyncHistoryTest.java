@@ -0,0 +1,124 @@
+package com.shagaba.jacksync.sync;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.exception.InvalidSyncVersionException;
+import com.shagaba.jacksync.exception.SyncException;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.RemoveOperation;
+import com.shagaba.jacksync.support.dto.Post;
+import com.shagaba.jacksync.utils.JacksonUtils;
+
+public class SyncHistoryTest extends BaseTest {
+
+	private SyncHistory<Post> syncHistory;
+
+    @Before
+    public void beforeEach() throws Exception {
+    	mapper = newObjectMapper();
+    	// compacts in the calling thread
+    	syncHistory = new SyncHistory<>(new LocalSyncProcessor(mapper), Runnable::run);
+    	syncHistory.start("post-1", new SyncObject<Post>(1L, new Post()));
+    	syncHistory.acknowledge("post-1", "client-a", 1L);
+    	syncHistory.acknowledge("post-1", "client-b", 1L);
+    	for (long version = 1; version <= 5; ++version) {
+    		syncHistory.append("post-1", titleSyncData(version, "title-" + version));
+    	}
+    }
+
+    @Test
+    public void syncDataBelowMinAcknowledgedVersionAreCompacted() throws Exception {
+    	Assert.assertThat(syncHistory.size("post-1"), equalTo(5));
+
+    	syncHistory.acknowledge("post-1", "client-a", 6L);
+    	syncHistory.acknowledge("post-1", "client-b", 4L);
+
+    	Assert.assertThat(syncHistory.minAcknowledgedVersion("post-1"), equalTo(4L));
+    	Assert.assertThat(syncHistory.size("post-1"), equalTo(2));
+    	SyncObject<Post> snapshot = syncHistory.getSnapshot("post-1");
+    	Assert.assertThat(snapshot.getVersion(), equalTo(4L));
+    	Assert.assertThat(snapshot.getObject().getTitle(), equalTo("title-3"));
+
+    	List<SyncData> syncDataList = syncHistory.read("post-1", 4L);
+    	Assert.assertThat(syncDataList.size(), equalTo(2));
+    	Assert.assertThat(syncDataList.get(0).getVersion(), equalTo(4L));
+    }
+
+    @Test
+    public void acknowledgementBelowSnapshotIsKept() throws Exception {
+    	syncHistory.acknowledge("post-1", "client-a", 4L);
+    	syncHistory.acknowledge("post-1", "client-b", 4L);
+
+    	syncHistory.acknowledge("post-1", "client-c", 2L);
+
+    	Assert.assertThat(syncHistory.minAcknowledgedVersion("post-1"), equalTo(2L));
+    	Assert.assertThat(syncHistory.getSnapshot("post-1").getVersion(), equalTo(4L));
+    	syncHistory.acknowledge("post-1", "client-a", 6L);
+    	syncHistory.acknowledge("post-1", "client-b", 6L);
+    	syncHistory.acknowledge("post-1", "client-c", 6L);
+    	Assert.assertThat(syncHistory.getSnapshot("post-1").getVersion(), equalTo(6L));
+    	Assert.assertThat(syncHistory.size("post-1"), equalTo(0));
+    }
+
+    @Test(expected = InvalidSyncVersionException.class)
+    public void compactedVersionsAreNotRead() throws Exception {
+    	syncHistory.acknowledge("post-1", "client-a", 3L);
+    	syncHistory.acknowledge("post-1", "client-b", 3L);
+
+    	syncHistory.read("post-1", 2L);
+    }
+
+    @Test
+    public void documentWithoutClientsIsCompactedToLatestVersion() throws Exception {
+    	syncHistory.acknowledge("post-1", "client-a", 6L);
+    	syncHistory.disconnect("post-1", "client-b");
+
+    	Assert.assertThat(syncHistory.size("post-1"), equalTo(0));
+    	syncHistory.disconnect("post-1", "client-a");
+    	syncHistory.append("post-1", titleSyncData(6L, "title-6"));
+
+    	Assert.assertThat(syncHistory.size("post-1"), equalTo(0));
+    	Assert.assertThat(syncHistory.getSnapshot("post-1").getVersion(), equalTo(7L));
+    	Assert.assertThat(syncHistory.getSnapshot("post-1").getObject().getTitle(), equalTo("title-6"));
+    }
+
+    @Test
+    public void compactionFailureIsReported() throws Exception {
+    	Map<String, SyncException> failures = new HashMap<>();
+    	syncHistory.setCompactionErrorHandler(failures::put);
+    	SyncData syncData = new SyncData();
+    	syncData.setVersion(6L);
+    	syncData.setMasterVersion(7L);
+    	syncData.setOperations(Arrays.asList((PatchOperation) new RemoveOperation(JacksonUtils.toJsonPointer("/sections/0"))));
+    	syncHistory.append("post-1", syncData);
+
+    	syncHistory.acknowledge("post-1", "client-a", 7L);
+    	syncHistory.acknowledge("post-1", "client-b", 7L);
+
+    	// the failing syncData and those after it are kept
+    	Assert.assertThat(failures.get("post-1") instanceof SyncException, equalTo(true));
+    	Assert.assertThat(syncHistory.getSnapshot("post-1").getVersion(), equalTo(1L));
+    	Assert.assertThat(syncHistory.size("post-1"), equalTo(6));
+    }
+
+    private SyncData titleSyncData(long version, String title) {
+    	SyncData syncData = new SyncData();
+    	syncData.setVersion(version);
+    	syncData.setMasterVersion(version + 1);
+    	AddOperation addOperation = new AddOperation(JacksonUtils.toJsonPointer("/title"), mapper.valueToTree(title));
+    	syncData.setOperations(Arrays.asList((PatchOperation) addOperation));
+    	return syncData;
+    }
+
+}
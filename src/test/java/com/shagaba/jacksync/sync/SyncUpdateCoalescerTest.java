@@ -0,0 +1,121 @@
+package com.shagaba.jacksync.sync;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.diff.SyncObjectDiffMapper;
+import com.shagaba.jacksync.exception.DiffProcessingException;
+import com.shagaba.jacksync.support.dto.Post;
+
+public class SyncUpdateCoalescerTest extends BaseTest {
+
+	private List<SyncData> published;
+
+	private SyncUpdateCoalescer<Post> syncUpdateCoalescer;
+
+    @Before
+    public void beforeEach() {
+    	mapper = newObjectMapper();
+    	published = new CopyOnWriteArrayList<>();
+    }
+
+    @After
+    public void afterEach() {
+    	syncUpdateCoalescer.close();
+    }
+
+    @Test
+    public void updatesOfAWindowArePublishedOnce() throws Exception {
+    	CountDownLatch publishLatch = new CountDownLatch(1);
+    	syncUpdateCoalescer = new SyncUpdateCoalescer<>(new SyncObjectDiffMapper(mapper), new SyncObject<Post>(1L, new Post()),
+    			(syncObject, syncData) -> {
+    				published.add(syncData);
+    				publishLatch.countDown();
+    			}, null, 20, 1000);
+    	for (int i = 0; i < 10; ++i) {
+    		syncUpdateCoalescer.update(titlePost("title-" + i));
+    	}
+
+    	Assert.assertThat(publishLatch.await(5, TimeUnit.SECONDS), equalTo(true));
+    	Assert.assertThat(published.size(), equalTo(1));
+    	Assert.assertThat(published.get(0).getVersion(), equalTo(1L));
+    	Assert.assertThat(published.get(0).getMasterVersion(), equalTo(2L));
+    	Assert.assertThat(published.get(0).getOperations().size(), equalTo(1));
+    	Assert.assertThat(syncUpdateCoalescer.getPublishedObject().getObject().getTitle(), equalTo("title-9"));
+    }
+
+    @Test
+    public void fullWindowIsPublishedEarly() throws Exception {
+    	syncUpdateCoalescer = new SyncUpdateCoalescer<>(new SyncObjectDiffMapper(mapper), new SyncObject<Post>(1L, new Post()),
+    			(syncObject, syncData) -> published.add(syncData), null, TimeUnit.HOURS.toMillis(1), 3);
+    	for (int i = 0; i < 7; ++i) {
+    		syncUpdateCoalescer.update(titlePost("title-" + i));
+    	}
+
+    	Assert.assertThat(published.size(), equalTo(2));
+    	Assert.assertThat(published.get(1).getMasterVersion(), equalTo(3L));
+    	Assert.assertThat(syncUpdateCoalescer.getPublishedObject().getObject().getTitle(), equalTo("title-5"));
+    	syncUpdateCoalescer.flush();
+    	Assert.assertThat(published.size(), equalTo(3));
+    	Assert.assertThat(syncUpdateCoalescer.flush() == null, equalTo(true));
+    }
+
+    @Test
+    public void failedFlushIsReportedAndRetried() throws Exception {
+    	CountDownLatch publishLatch = new CountDownLatch(1);
+    	List<Exception> errors = new CopyOnWriteArrayList<>();
+    	syncUpdateCoalescer = new SyncUpdateCoalescer<>(failingDiffMapper(2), new SyncObject<Post>(1L, new Post()),
+    			(syncObject, syncData) -> {
+    				published.add(syncData);
+    				publishLatch.countDown();
+    			}, null, 10, 1000);
+    	syncUpdateCoalescer.setFlushErrorHandler((object, e) -> errors.add(e));
+    	syncUpdateCoalescer.update(titlePost("title-0"));
+
+    	// no further update is needed for the retries
+    	Assert.assertThat(publishLatch.await(5, TimeUnit.SECONDS), equalTo(true));
+    	Assert.assertThat(errors.size(), equalTo(2));
+    	Assert.assertThat(published.size(), equalTo(1));
+    	Assert.assertThat(syncUpdateCoalescer.getPublishedObject().getObject().getTitle(), equalTo("title-0"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failedFlushOnCloseIsNotHidden() throws Exception {
+    	syncUpdateCoalescer = new SyncUpdateCoalescer<>(failingDiffMapper(1), new SyncObject<Post>(1L, new Post()),
+    			(syncObject, syncData) -> published.add(syncData), null, TimeUnit.HOURS.toMillis(1), 1000);
+    	syncUpdateCoalescer.update(titlePost("title-0"));
+
+    	syncUpdateCoalescer.close();
+    }
+
+    private SyncObjectDiffMapper failingDiffMapper(int failures) {
+    	AtomicInteger remainingFailures = new AtomicInteger(failures);
+    	return new SyncObjectDiffMapper(mapper) {
+    		@Override
+    		public <T> SyncData diff(SyncObject<T> source, SyncObject<T> target) throws DiffProcessingException {
+    			if (remainingFailures.getAndDecrement() > 0) {
+    				throw new DiffProcessingException("diff failure");
+    			}
+    			return super.diff(source, target);
+    		}
+    	};
+    }
+
+    private Post titlePost(String title) {
+    	Post post = new Post();
+    	post.setTitle(title);
+    	return post;
+    }
+
+}
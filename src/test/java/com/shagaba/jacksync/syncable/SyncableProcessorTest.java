@@ -0,0 +1,128 @@
+package com.shagaba.jacksync.syncable;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.diff.ObjectDiffMapper;
+import com.shagaba.jacksync.exception.PatchProcessingException;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.MoveOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.RemoveOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+import com.shagaba.jacksync.operation.TestOperation;
+import com.shagaba.jacksync.patch.ObjectPatchProcessor;
+import com.shagaba.jacksync.support.dto.Author;
+import com.shagaba.jacksync.support.dto.Post;
+import com.shagaba.jacksync.support.dto.PostDiffMapper;
+import com.shagaba.jacksync.support.dto.PostPatchProcessor;
+import com.shagaba.jacksync.support.dto.Section;
+
+public class SyncableProcessorTest extends BaseTest {
+
+	private Post sourcePost;
+
+    @Before
+    public void beforeEach() {
+    	mapper = newObjectMapper();
+    	sourcePost = new Post();
+    	sourcePost.setTitle("title");
+    	sourcePost.setAuthor(new Author("James", "Bond", "james.bond@mi6.com"));
+    	sourcePost.setSections(new ArrayList<>(Arrays.asList(new Section("section-0"), new Section("section-1"))));
+    	sourcePost.setTags(new ArrayList<>(Arrays.asList("spy", "mi6")));
+    }
+
+    @Test
+    public void generatedDiffMapperDiffsByProperties() throws Exception {
+    	Post targetPost = copy(sourcePost);
+    	targetPost.setTitle("new title");
+    	targetPost.getAuthor().setEmail("007@mi6.com");
+    	targetPost.getSections().get(1).setTitle("section-1b");
+    	targetPost.setCategories(Arrays.asList("fiction"));
+
+    	List<PatchOperation> operations = new PostDiffMapper(mapper).diff(sourcePost, targetPost);
+
+    	Assert.assertThat(operations.size(), equalTo(new ObjectDiffMapper(mapper).diff(sourcePost, targetPost).size()));
+    	Assert.assertThat(operations.get(0).getPath(), equalTo(JsonPointer.compile("/title")));
+    	Assert.assertThat(new ObjectPatchProcessor(mapper).patch(sourcePost, operations), equalTo(targetPost));
+    	Assert.assertThat(new PostDiffMapper(mapper).diff(sourcePost, copy(sourcePost)).isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void generatedPatchProcessorPatchesACopy() throws Exception {
+    	Post originalPost = copy(sourcePost);
+    	List<PatchOperation> operations = new ArrayList<>();
+    	operations.add(new ReplaceOperation(JsonPointer.compile("/title"), new TextNode("new title")));
+    	operations.add(new ReplaceOperation(JsonPointer.compile("/author/email"), new TextNode("007@mi6.com")));
+    	operations.add(new TestOperation(JsonPointer.compile("/author/lastName"), new TextNode("Bond")));
+    	operations.add(new AddOperation(JsonPointer.compile("/sections/-"), mapper.valueToTree(new Section("section-2"))));
+    	operations.add(new RemoveOperation(JsonPointer.compile("/tags/0")));
+    	operations.add(new MoveOperation(JsonPointer.compile("/tags/0"), JsonPointer.compile("/id")));
+    	operations.add(new AddOperation(JsonPointer.compile("/categories"), JsonNodeFactory.instance.arrayNode().add("fiction")));
+
+    	Post targetPost = new PostPatchProcessor(mapper).patch(sourcePost, operations);
+
+    	Assert.assertThat(targetPost, equalTo(new ObjectPatchProcessor(mapper).patch(sourcePost, operations)));
+    	Assert.assertThat(targetPost.getId(), equalTo("mi6"));
+    	Assert.assertThat(sourcePost, equalTo(originalPost));
+    	try {
+    		new PostPatchProcessor(mapper).patch(sourcePost, Arrays.asList(new TestOperation(JsonPointer.compile("/author/lastName"), new TextNode("Q"))));
+    		Assert.fail("Test operation");
+    	} catch (PatchProcessingException e) {
+    		Assert.assertThat(sourcePost, equalTo(originalPost));
+    	}
+    }
+
+    @Test
+    public void syncableListIsDiffedByElements() throws Exception {
+    	Post targetPost = copy(sourcePost);
+    	targetPost.getSections().get(1).setTitle("section-1b");
+    	targetPost.getSections().add(0, new Section("section-new"));
+    	targetPost.getSections().add(new Section("section-last"));
+
+    	List<PatchOperation> operations = new PostDiffMapper(mapper).diff(sourcePost, targetPost);
+
+    	Assert.assertThat(operations.size(), equalTo(3));
+    	Assert.assertThat(operations.get(0).getPath(), equalTo(JsonPointer.compile("/sections/0")));
+    	Assert.assertThat(operations.get(1).getPath(), equalTo(JsonPointer.compile("/sections/2/title")));
+    	Assert.assertThat(operations.get(2).getPath(), equalTo(JsonPointer.compile("/sections/3")));
+    	Assert.assertThat(new ObjectPatchProcessor(mapper).patch(sourcePost, operations), equalTo(targetPost));
+    	operations = new PostDiffMapper(mapper).diff(targetPost, sourcePost);
+    	Assert.assertThat(new ObjectPatchProcessor(mapper).patch(targetPost, operations), equalTo(sourcePost));
+    }
+
+    @Test
+    public void syncableListIsPatchedByElements() throws Exception {
+    	Post originalPost = copy(sourcePost);
+    	List<PatchOperation> operations = new ArrayList<>();
+    	operations.add(new ReplaceOperation(JsonPointer.compile("/sections/1/title"), new TextNode("section-1b")));
+    	operations.add(new AddOperation(JsonPointer.compile("/sections/0"), mapper.valueToTree(new Section("section-new"))));
+    	operations.add(new RemoveOperation(JsonPointer.compile("/sections/1")));
+    	operations.add(new TestOperation(JsonPointer.compile("/sections/1/title"), new TextNode("section-1b")));
+
+    	Post targetPost = new PostPatchProcessor(mapper).patch(sourcePost, operations);
+
+    	Assert.assertThat(targetPost, equalTo(new ObjectPatchProcessor(mapper).patch(sourcePost, operations)));
+    	Assert.assertThat(sourcePost, equalTo(originalPost));
+    	// the element on no operation path is not copied
+    	Post patchedPost = new PostPatchProcessor(mapper).patch(sourcePost, operations.subList(0, 1));
+    	Assert.assertThat(patchedPost.getSections().get(0) == sourcePost.getSections().get(0), equalTo(true));
+    	Assert.assertThat(patchedPost.getSections().get(1).getTitle(), equalTo("section-1b"));
+    }
+
+    private Post copy(Post post) throws Exception {
+    	return mapper.treeToValue(mapper.valueToTree(post), Post.class);
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.shagaba.jacksync.tracking;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.diff.SyncObjectDiffMapper;
+import com.shagaba.jacksync.diff.strategy.SimpleDiffStrategy;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.RemoveOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+import com.shagaba.jacksync.patch.ObjectPatchProcessor;
+import com.shagaba.jacksync.support.dto.Author;
+import com.shagaba.jacksync.support.dto.Post;
+import com.shagaba.jacksync.support.dto.Section;
+import com.shagaba.jacksync.sync.LocalSyncProcessor;
+import com.shagaba.jacksync.sync.SyncData;
+import com.shagaba.jacksync.sync.SyncObject;
+
+public class ChangeTrackerTest extends BaseTest {
+
+	private Post sourcePost;
+
+    @Before
+    public void beforeEach() {
+    	mapper = newObjectMapper();
+    	sourcePost = new Post();
+    	sourcePost.setTitle("title");
+    	sourcePost.setAuthor(new Author("James", "Bond", "james.bond@mi6.com"));
+    	sourcePost.setSections(new ArrayList<>(Arrays.asList(new Section("section-0"), new Section("section-1"))));
+    	sourcePost.setTags(new ArrayList<>(Arrays.asList("spy", "mi6")));
+    }
+
+    @Test
+    public void recordedOperationsSyncTheMutatedObject() throws Exception {
+    	Post originalPost = mapper.treeToValue(mapper.valueToTree(sourcePost), Post.class);
+    	ChangeTracker changeTracker = new ChangeTracker(mapper);
+    	TrackedObject<Post> post = changeTracker.track(sourcePost);
+
+    	post.set("title", "new title");
+    	post.with("author").set("email", "007@mi6.com");
+    	TrackedList<Section> sections = post.list("sections");
+    	sections.add(0, new Section("section-new"));
+    	sections.remove(2);
+    	sections.with(1).set("title", "section-0b");
+    	TrackedList<String> tags = post.list("tags");
+    	tags.add("007");
+    	tags.removeIf("spy"::equals);
+
+    	List<PatchOperation> operations = changeTracker.drainOperations();
+    	Assert.assertThat(operations.size(), equalTo(7));
+    	Assert.assertThat(operations.get(1).getPath(), equalTo(JsonPointer.compile("/author/email")));
+    	Assert.assertThat(operations.get(2) instanceof AddOperation, equalTo(true));
+    	Assert.assertThat(operations.get(4).getPath(), equalTo(JsonPointer.compile("/sections/1/title")));
+    	Assert.assertThat(operations.get(6).getPath(), equalTo(JsonPointer.compile("/tags/0")));
+    	Assert.assertThat(changeTracker.getOperations().isEmpty(), equalTo(true));
+    	Assert.assertThat(new ObjectPatchProcessor(mapper).patch(originalPost, operations), equalTo(sourcePost));
+
+    	SyncObjectDiffMapper syncObjectDiffMapper = new SyncObjectDiffMapper(mapper, new SimpleDiffStrategy(), true);
+    	SyncData syncData = syncObjectDiffMapper.syncData(new SyncObject<Post>(1L, sourcePost), new SyncObject<Post>(2L, sourcePost), operations);
+    	LocalSyncProcessor localSyncProcessor = new LocalSyncProcessor(mapper);
+    	localSyncProcessor.setChecksumValidationEnabled(true);
+    	SyncObject<Post> clientObject = localSyncProcessor.clientSync(new SyncObject<Post>(1L, originalPost), syncData);
+    	Assert.assertThat(clientObject.getVersion(), equalTo(2L));
+    	Assert.assertThat(clientObject.getObject(), equalTo(sourcePost));
+    }
+
+    @Test
+    public void excludedNullsAreAddedAndRemoved() throws Exception {
+    	mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    	ChangeTracker changeTracker = new ChangeTracker(mapper);
+    	TrackedObject<Post> post = changeTracker.track(sourcePost);
+
+    	post.set("id", "post-1");
+    	post.set("title", null);
+    	post.set("categories", null);
+    	post.with("author").set("email", "007@mi6.com");
+
+    	List<PatchOperation> operations = changeTracker.getOperations();
+    	Assert.assertThat(operations.size(), equalTo(3));
+    	Assert.assertThat(operations.get(0) instanceof AddOperation, equalTo(true));
+    	Assert.assertThat(operations.get(1) instanceof RemoveOperation, equalTo(true));
+    	Assert.assertThat(operations.get(2) instanceof ReplaceOperation, equalTo(true));
+    	Assert.assertThat(sourcePost.getId(), equalTo("post-1"));
+    	try {
+    		post.set("subtitle", "subtitle");
+    		Assert.fail("Unknown property");
+    	} catch (IllegalArgumentException e) {
+    		Assert.assertThat(changeTracker.getOperations().size(), equalTo(3));
+    	}
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.shagaba.jacksync.transform;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.MoveOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.RemoveOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+import com.shagaba.jacksync.utils.JacksonUtils;
+
+public class ConflictIndexTest extends BaseTest {
+
+	private ConflictIndex conflictIndex;
+
+    @Before
+    public void beforeEach() {
+    	mapper = newObjectMapper();
+    	conflictIndex = new ConflictIndex();
+    	conflictIndex.add(1L, Arrays.asList((PatchOperation) new ReplaceOperation(JacksonUtils.toJsonPointer("/title"), mapper.valueToTree("t"))));
+    	conflictIndex.add(2L, Arrays.asList((PatchOperation) new ReplaceOperation(JacksonUtils.toJsonPointer("/author/firstName"), mapper.valueToTree("james"))));
+    	conflictIndex.add(3L, Arrays.asList((PatchOperation) new AddOperation(JacksonUtils.toJsonPointer("/sections/1"), mapper.createObjectNode())));
+    	conflictIndex.add(4L, Arrays.asList((PatchOperation) new MoveOperation(JacksonUtils.toJsonPointer("/drafts/0"), JacksonUtils.toJsonPointer("/published/-"))));
+    }
+
+    @Test
+    public void overlappingLocationsConflict() throws Exception {
+    	Assert.assertThat(conflictingVersions(1L, new ReplaceOperation(JacksonUtils.toJsonPointer("/title"), mapper.valueToTree("x"))), equalTo(versions(1L)));
+    	// ancestor and descendant locations
+    	Assert.assertThat(conflictingVersions(1L, new RemoveOperation(JacksonUtils.toJsonPointer("/author"))), equalTo(versions(2L)));
+    	Assert.assertThat(conflictingVersions(1L, new ReplaceOperation(JacksonUtils.toJsonPointer("/drafts/0/title"), mapper.valueToTree("x"))), equalTo(versions(4L)));
+    	// older versions are not concurrent
+    	Assert.assertThat(conflictingVersions(2L, new ReplaceOperation(JacksonUtils.toJsonPointer("/title"), mapper.valueToTree("x"))), equalTo(versions()));
+    }
+
+    @Test
+    public void arrayInsertsDoNotConflict() throws Exception {
+    	Assert.assertThat(conflictingVersions(1L, new ReplaceOperation(JacksonUtils.toJsonPointer("/sections/1/title"), mapper.valueToTree("x"))), equalTo(versions()));
+    	Assert.assertThat(conflictingVersions(1L, new AddOperation(JacksonUtils.toJsonPointer("/author/0"), mapper.valueToTree("x"))), equalTo(versions()));
+    	// replacing the whole array loses the insert
+    	Assert.assertThat(conflictingVersions(1L, new ReplaceOperation(JacksonUtils.toJsonPointer("/sections"), mapper.createArrayNode())), equalTo(versions(3L)));
+    }
+
+    @Test
+    public void removedVersionsAreForgotten() throws Exception {
+    	conflictIndex.removeBefore(3L);
+
+    	Assert.assertThat(conflictingVersions(1L, new ReplaceOperation(JacksonUtils.toJsonPointer("/title"), mapper.valueToTree("x"))), equalTo(versions()));
+    	Assert.assertThat(conflictIndex.size(), equalTo(3));
+    	conflictIndex.removeBefore(Long.MAX_VALUE);
+    	Assert.assertThat(conflictIndex.size(), equalTo(0));
+    }
+
+    private TreeSet<Long> conflictingVersions(long fromVersion, PatchOperation operation) {
+    	return new TreeSet<>(conflictIndex.conflictingVersions(fromVersion, Collections.singletonList(operation)));
+    }
+
+    private TreeSet<Long> versions(Long... versions) {
+    	List<Long> versionList = Arrays.asList(versions);
+    	return new TreeSet<>(versionList);
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.shagaba.jacksync.transform;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.exception.OperationConflictException;
+import com.shagaba.jacksync.operation.AddOperation;
+import com.shagaba.jacksync.operation.CopyOperation;
+import com.shagaba.jacksync.operation.MoveOperation;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.RemoveOperation;
+import com.shagaba.jacksync.operation.ReplaceOperation;
+import com.shagaba.jacksync.utils.JacksonUtils;
+
+public class OperationTransformerTest extends BaseTest {
+
+	private OperationTransformer operationTransformer;
+
+    @Before
+    public void beforeEach() {
+    	mapper = newObjectMapper();
+    	operationTransformer = new OperationTransformer();
+    }
+
+    @Test
+    public void arrayIndicesAreShifted() throws Exception {
+    	List<PatchOperation> operations = Arrays.asList(
+    			new ReplaceOperation(JacksonUtils.toJsonPointer("/sections/2/title"), mapper.valueToTree("s2")),
+    			new RemoveOperation(JacksonUtils.toJsonPointer("/sections/4")),
+    			new AddOperation(JacksonUtils.toJsonPointer("/sections/0"), mapper.valueToTree("s0")));
+    	List<PatchOperation> appliedOperations = Arrays.asList(
+    			new AddOperation(JacksonUtils.toJsonPointer("/sections/1"), mapper.valueToTree("new")),
+    			new AddOperation(JacksonUtils.toJsonPointer("/sections/0"), mapper.valueToTree("first")),
+    			new RemoveOperation(JacksonUtils.toJsonPointer("/sections/6")));
+
+    	assertConverge("{\"sections\":[\"a\",\"b\",{\"title\":\"c\"},\"d\",\"e\",\"f\"]}", operations, appliedOperations,
+    			"{\"sections\":[\"first\",\"s0\",\"a\",\"new\",\"b\",{\"title\":\"s2\"},\"d\",\"f\"]}");
+    }
+
+    @Test
+    public void pathsFollowMovedValues() throws Exception {
+    	List<PatchOperation> operations = Arrays.asList(
+    			new ReplaceOperation(JacksonUtils.toJsonPointer("/drafts/1/title"), mapper.valueToTree("edited")),
+    			new CopyOperation(JacksonUtils.toJsonPointer("/drafts/1"), JacksonUtils.toJsonPointer("/copy")));
+    	List<PatchOperation> appliedOperations = Arrays.asList(
+    			(PatchOperation) new MoveOperation(JacksonUtils.toJsonPointer("/drafts/1"), JacksonUtils.toJsonPointer("/published/0")));
+
+    	assertConverge("{\"drafts\":[{\"title\":\"a\"},{\"title\":\"b\"}],\"published\":[]}", operations, appliedOperations,
+    			"{\"drafts\":[{\"title\":\"a\"}],\"published\":[{\"title\":\"edited\"}],\"copy\":{\"title\":\"edited\"}}");
+    }
+
+    @Test
+    public void overlappingOperationsAreDropped() throws Exception {
+    	List<PatchOperation> operations = Arrays.asList(
+    			new ReplaceOperation(JacksonUtils.toJsonPointer("/title"), mapper.valueToTree("mine")),
+    			new ReplaceOperation(JacksonUtils.toJsonPointer("/author/firstName"), mapper.valueToTree("james")),
+    			new ReplaceOperation(JacksonUtils.toJsonPointer("/author/lastName"), mapper.valueToTree("bond")));
+    	List<PatchOperation> appliedOperations = Arrays.asList(
+    			new ReplaceOperation(JacksonUtils.toJsonPointer("/title"), mapper.valueToTree("theirs")),
+    			new RemoveOperation(JacksonUtils.toJsonPointer("/author/firstName")));
+
+    	assertConverge("{\"title\":\"t\",\"author\":{\"firstName\":\"f\",\"lastName\":\"l\"}}", operations, appliedOperations,
+    			"{\"title\":\"theirs\",\"author\":{\"lastName\":\"bond\"}}");
+    }
+
+    @Test(expected = OperationConflictException.class)
+    public void overlappingOperationsFail() throws Exception {
+    	operationTransformer = new OperationTransformer(ConflictPolicy.FAIL);
+    	operationTransformer.transform(
+    			Arrays.asList((PatchOperation) new ReplaceOperation(JacksonUtils.toJsonPointer("/author/firstName"), mapper.valueToTree("james"))),
+    			Arrays.asList((PatchOperation) new ReplaceOperation(JacksonUtils.toJsonPointer("/author"), mapper.createObjectNode())));
+    }
+
+    private void assertConverge(String json, List<PatchOperation> operations, List<PatchOperation> appliedOperations, String expectedJson) throws Exception {
+    	JsonNode jsonNode = mapper.readTree(json);
+    	for (PatchOperation operation : appliedOperations) {
+    		jsonNode = operation.apply(jsonNode);
+    	}
+    	for (PatchOperation operation : operationTransformer.transform(operations, appliedOperations)) {
+    		jsonNode = operation.apply(jsonNode);
+    	}
+    	Assert.assertThat(jsonNode, equalTo(mapper.readTree(expectedJson)));
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.shagaba.jacksync.utils;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.DecimalNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.shagaba.jacksync.BaseTest;
+import com.shagaba.jacksync.diff.strategy.MergeOperationDiffStrategy;
+import com.shagaba.jacksync.diff.strategy.SimpleDiffStrategy;
+import com.shagaba.jacksync.exception.InvalidTestValueException;
+import com.shagaba.jacksync.exception.PatchProcessingException;
+import com.shagaba.jacksync.operation.PatchOperation;
+import com.shagaba.jacksync.operation.TestOperation;
+import com.shagaba.jacksync.patch.ObjectPatchProcessor;
+
+public class NumericNodeComparatorTest extends BaseTest {
+
+	private ObjectNode sourceJsonNode;
+
+	private ObjectNode targetJsonNode;
+
+    @Before
+    public void beforeEach() {
+    	mapper = newObjectMapper();
+    	sourceJsonNode = JsonNodeFactory.instance.objectNode();
+    	sourceJsonNode.set("count", new IntNode(1));
+    	sourceJsonNode.set("price", new DoubleNode(1.0));
+    	sourceJsonNode.putArray("values").add(new IntNode(2)).add(new DoubleNode(3.5));
+    	targetJsonNode = JsonNodeFactory.instance.objectNode();
+    	targetJsonNode.set("count", new LongNode(1L));
+    	targetJsonNode.set("price", new DecimalNode(new BigDecimal("1.00")));
+    	targetJsonNode.putArray("values").add(new LongNode(2L)).add(new DecimalNode(new BigDecimal("3.50")));
+    }
+
+    @Test
+    public void diffWithNumericComparatorIgnoresRepresentation() throws Exception {
+    	Assert.assertThat(new SimpleDiffStrategy().diff(sourceJsonNode, targetJsonNode).isEmpty(), equalTo(false));
+
+    	SimpleDiffStrategy diffStrategy = new SimpleDiffStrategy();
+    	diffStrategy.setNodeComparator(NumericNodeComparator.INSTANCE);
+
+    	Assert.assertThat(diffStrategy.diff(sourceJsonNode, targetJsonNode).isEmpty(), equalTo(true));
+    	Assert.assertThat(new MergeOperationDiffStrategy(null, NumericNodeComparator.INSTANCE).diff(sourceJsonNode, targetJsonNode).isEmpty(), equalTo(true));
+    	targetJsonNode.set("price", new DecimalNode(new BigDecimal("1.01")));
+    	List<PatchOperation> operations = diffStrategy.diff(sourceJsonNode, targetJsonNode);
+    	Assert.assertThat(operations.size(), equalTo(1));
+    	Assert.assertThat(operations.get(0).getPath(), equalTo(JsonPointer.compile("/price")));
+    }
+
+    @Test
+    public void comparatorWithEpsilon() {
+    	JsonNode jsonNode = new DoubleNode(0.1 + 0.2);
+
+    	Assert.assertThat(JacksonUtils.isEqual(jsonNode, new DoubleNode(0.3), NumericNodeComparator.INSTANCE), equalTo(false));
+    	Assert.assertThat(JacksonUtils.isEqual(jsonNode, new DoubleNode(0.3), new NumericNodeComparator(1e-9)), equalTo(true));
+    	Assert.assertThat(JacksonUtils.isEqual(jsonNode, new DoubleNode(0.3), null), equalTo(false));
+    	Assert.assertThat(JacksonUtils.isEqual(new DoubleNode(Double.NaN), new DoubleNode(Double.NaN), NumericNodeComparator.INSTANCE), equalTo(true));
+    	Assert.assertThat(JacksonUtils.isEqual(new IntNode(1), JsonNodeFactory.instance.textNode("1"), NumericNodeComparator.INSTANCE), equalTo(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeEpsilon() {
+    	new NumericNodeComparator(-1);
+    }
+
+    @Test
+    public void testOperationComparesNumbersByValue() throws Exception {
+    	TestOperation testOperation = new TestOperation(JsonPointer.compile("/price"), new DecimalNode(new BigDecimal("1.00")));
+
+    	Assert.assertThat(testOperation.apply(sourceJsonNode), equalTo(sourceJsonNode));
+    	try {
+    		testOperation.apply(sourceJsonNode, null);
+    		Assert.fail("Exact test operation");
+    	} catch (InvalidTestValueException e) {
+    	}
+
+    	ObjectPatchProcessor patchProcessor = new ObjectPatchProcessor(mapper);
+    	List<PatchOperation> operations = Arrays.asList(new TestOperation(JsonPointer.compile("/price"), new DoubleNode(1.0000001)));
+    	try {
+    		patchProcessor.patch(sourceJsonNode, operations);
+    		Assert.fail("Numeric test operation");
+    	} catch (PatchProcessingException e) {
+    	}
+    	patchProcessor.setNodeComparator(new NumericNodeComparator(1e-6));
+    	Assert.assertThat(patchProcessor.patch(sourceJsonNode, operations), equalTo(sourceJsonNode));
+    }
+
+}